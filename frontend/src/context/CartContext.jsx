@@ -1,10 +1,27 @@
-import React, { createContext, useContext, useState, useCallback, useEffect } from 'react';
-import { cartApi } from '../services/api';
+import React, { createContext, useContext, useState, useCallback, useEffect, useRef } from 'react';
+import { cartApi, eventsApi } from '../services/api';
 import { useAuth } from './AuthContext';
 import { useToast } from './ToastContext';
 
 const CartContext = createContext(null);
 
+function applyCartChange(cart, change) {
+  const items = cart.items.filter((item) => item.cartItemId !== change.removedCartItemId);
+  if (change.item) {
+    const index = items.findIndex((item) => item.cartItemId === change.item.cartItemId);
+    if (index >= 0) items[index] = change.item;
+    else items.unshift(change.item);
+  }
+  return {
+    ...cart,
+    items,
+    totalProducts: change.totalProducts,
+    totalQuantity: change.totalQuantity,
+    totalPrice: change.totalPrice,
+    totalDiscountedPrice: change.totalDiscountedPrice,
+  };
+}
+
 export function CartProvider({ children }) {
   const [cart, setCart] = useState(null);
   const [loading, setLoading] = useState(false);
@@ -24,6 +41,24 @@ export function CartProvider({ children }) {
 
   useEffect(() => { fetchCart(); }, [fetchCart]);
 
+  // Keep every tab and device in sync from the server's change stream instead of re-fetching
+  const cartRef = useRef(cart);
+  cartRef.current = cart;
+
+  useEffect(() => {
+    if (!user) return undefined;
+    return eventsApi.subscribe((name, change) => {
+      if (name !== 'cart') return;
+      if (change.totalProducts === 0) {
+        setCart(null);
+      } else if (cartRef.current && (change.item || change.removedCartItemId)) {
+        setCart((prev) => (prev ? applyCartChange(prev, change) : prev));
+      } else {
+        fetchCart();
+      }
+    });
+  }, [user, fetchCart]);
+
   const addToCart = async (productId, quantity = 1) => {
     try {
       const res = await cartApi.addItem({ productId, quantity });
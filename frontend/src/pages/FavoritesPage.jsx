@@ -1,24 +1,44 @@
 import React, { useState, useEffect, useCallback } from 'react';
 import { Heart } from 'lucide-react';
-import { productApi } from '../services/api';
+import { productApi, eventsApi } from '../services/api';
 import ProductCard from '../components/ProductCard';
 
+const PAGE_SIZE = 24;
+
 export default function FavoritesPage() {
   const [products, setProducts] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
 
   const fetchFavorites = useCallback(async () => {
     setLoading(true);
     try {
-      const res = await productApi.getFavorites();
-      setProducts(res.data);
+      const res = await productApi.getFavoritesPage(PAGE_SIZE);
+      setProducts(res.data.items);
+      setNextCursor(res.data.nextCursor);
     } catch { /* ignore */ } finally {
       setLoading(false);
     }
   }, []);
 
+  const loadMore = async () => {
+    setLoadingMore(true);
+    try {
+      const res = await productApi.getFavoritesPage(PAGE_SIZE, nextCursor);
+      setProducts((prev) => [...prev, ...res.data.items]);
+      setNextCursor(res.data.nextCursor);
+    } catch { /* ignore */ } finally {
+      setLoadingMore(false);
+    }
+  };
+
   useEffect(() => { fetchFavorites(); }, [fetchFavorites]);
 
+  useEffect(() => eventsApi.subscribe((name) => {
+    if (name === 'favorites') fetchFavorites();
+  }), [fetchFavorites]);
+
   return (
     <div style={{ padding: '2rem 0 4rem' }}>
       <div className="container">
@@ -27,7 +47,7 @@ export default function FavoritesPage() {
             <Heart size={24} style={{ color: 'var(--color-accent)' }} /> Favorites
           </h1>
           <p style={{ color: 'var(--color-text-secondary)', fontSize: '0.9375rem', marginTop: '0.25rem' }}>
-            {products.length} saved {products.length === 1 ? 'product' : 'products'}
+            {products.length}{nextCursor ? '+' : ''} saved {products.length === 1 && !nextCursor ? 'product' : 'products'}
           </p>
         </div>
 
@@ -42,11 +62,20 @@ export default function FavoritesPage() {
             </p>
           </div>
         ) : (
-          <div style={{ display: 'grid', gridTemplateColumns: 'repeat(auto-fill, minmax(260px, 1fr))', gap: '1.25rem' }}>
-            {products.map((p) => (
-              <ProductCard key={p.id} product={p} onFavoriteToggle={fetchFavorites} />
-            ))}
-          </div>
+          <>
+            <div style={{ display: 'grid', gridTemplateColumns: 'repeat(auto-fill, minmax(260px, 1fr))', gap: '1.25rem' }}>
+              {products.map((p) => (
+                <ProductCard key={p.id} product={p} onFavoriteToggle={fetchFavorites} />
+              ))}
+            </div>
+            {nextCursor && (
+              <div style={{ textAlign: 'center', marginTop: '2rem' }}>
+                <button onClick={loadMore} disabled={loadingMore} className="btn btn-ghost">
+                  {loadingMore ? 'Loading...' : 'Load more'}
+                </button>
+              </div>
+            )}
+          </>
         )}
       </div>
     </div>
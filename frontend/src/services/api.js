@@ -43,19 +43,102 @@ export const authApi = {
 export const productApi = {
   getAll: (params) => api.get('/products', { params }),
   getById: (id) => api.get(`/products/${id}`),
+  getTrending: (params) => api.get('/products/trending', { params }),
+  getRelated: (id, limit) => api.get(`/products/${id}/related`, { params: { limit } }),
   search: (params) => api.get('/products/search', { params }),
   getFavorites: () => api.get('/products/favorites'),
+  getFavoritesPage: (limit, cursor) => api.get('/products/favorites', { params: { limit, cursor } }),
   addFavorite: (productId) => api.post(`/products/${productId}/favorite`),
+  addFavorites: (productIds) => api.post('/products/favorites:batch', { productIds }),
   removeFavorite: (productId) => api.delete(`/products/${productId}/favorite`),
 };
 
 export const cartApi = {
   get: () => api.get('/cart'),
+  getItemsPage: (limit, cursor) => api.get('/cart/items', { params: { limit, cursor } }),
   addItem: (data) => api.post('/cart/items', data),
+  addItems: (items) => api.post('/cart/items:batch', { items }),
   removeItem: (cartItemId) => api.delete(`/cart/items/${cartItemId}`),
   updateQuantity: (cartItemId, quantity) =>
     api.patch(`/cart/items/${cartItemId}`, null, { params: { quantity } }),
   clear: () => api.delete('/cart'),
 };
 
+export const orderApi = {
+  checkout: (idempotencyKey) =>
+    api.post('/orders', null, { headers: { 'Idempotency-Key': idempotencyKey } }),
+  getAll: () => api.get('/orders'),
+  getById: (orderId) => api.get(`/orders/${orderId}`),
+};
+
+// EventSource cannot send the Authorization header, so the stream is read with fetch.
+// One connection per tab is shared by all listeners; dropped connections are retried with backoff.
+const eventListeners = new Set();
+let eventStream = null;
+
+function dispatchEvent(raw) {
+  let name = 'message';
+  const data = [];
+  raw.split('\n').forEach((line) => {
+    if (line.startsWith('event:')) name = line.slice(6).trim();
+    else if (line.startsWith('data:')) data.push(line.slice(5));
+  });
+  if (!data.length) return;
+  const payload = JSON.parse(data.join('\n'));
+  eventListeners.forEach((listener) => listener(name, payload));
+}
+
+function openEventStream() {
+  const controller = new AbortController();
+  let retryMs = 1000;
+
+  const connect = async () => {
+    const token = localStorage.getItem('token');
+    if (!token) return;
+    try {
+      const res = await fetch(`${API_BASE}/events`, {
+        headers: { Authorization: `Bearer ${token}`, Accept: 'text/event-stream' },
+        signal: controller.signal,
+      });
+      if (!res.ok || !res.body) throw new Error(`Event stream failed: ${res.status}`);
+      retryMs = 1000;
+
+      const reader = res.body.pipeThrough(new TextDecoderStream()).getReader();
+      let buffer = '';
+      for (;;) {
+        const { value, done } = await reader.read();
+        if (done) break;
+        buffer += value;
+        let boundary;
+        while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+          dispatchEvent(buffer.slice(0, boundary));
+          buffer = buffer.slice(boundary + 2);
+        }
+      }
+    } catch { /* reconnect below */ }
+    if (!controller.signal.aborted) {
+      setTimeout(connect, retryMs);
+      retryMs = Math.min(retryMs * 2, 30000);
+    }
+  };
+
+  connect();
+  return controller;
+}
+
+export const eventsApi = {
+  // Returns a function that removes the listener, closing the stream after the last one
+  subscribe: (listener) => {
+    eventListeners.add(listener);
+    if (!eventStream) eventStream = openEventStream();
+    return () => {
+      eventListeners.delete(listener);
+      if (eventListeners.size === 0 && eventStream) {
+        eventStream.abort();
+        eventStream = null;
+      }
+    };
+  },
+};
+
 export default api;
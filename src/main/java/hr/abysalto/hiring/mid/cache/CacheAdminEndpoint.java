@@ -0,0 +1,238 @@
+package hr.abysalto.hiring.mid.cache;
+
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@code /actuator/cacheadmin}: hit rates, size, estimated heap use and the hottest keys of every cache
+ * ({@code ?top=}), and targeted invalidation, so one bad entry does not cost the whole cache.
+ * <p>
+ * {@code GET /{cache}} shows one cache, {@code DELETE /{cache}?key=} evicts a key or, ending in {@code *}, every key
+ * with that prefix ({@code search_*}, {@code all_20_*}, {@code *}), and {@code POST /{cache} {"keys": "1,2,3"}} fetches
+ * the given comma-separated keys from DummyJSON into the cache, replacing what is there. Keys are written as the cache keys them, as
+ * listed under {@code hotKeys}. Hotness is estimated by a frequency sketch that counts recent lookups. Caches with a
+ * disk tier also report it under {@code disk}, and evictions and prewarming reach both tiers.
+ * <p>
+ * Evicting everything or prewarming arbitrary keys sends load to DummyJSON, so {@code SecurityConfig} serves this
+ * endpoint to admins only.
+ */
+@Component
+@Endpoint(id = "cacheadmin")
+@ConditionalOnProperty(name = "cache.admin.enabled", havingValue = "true")
+public class CacheAdminEndpoint {
+
+    private static final int DEFAULT_TOP = 10;
+    private static final int SIZE_SAMPLE = 100;
+    private static final int PREWARM_CONCURRENCY = 8;
+
+    public record CacheStatus(String name, long size, Long maximumSize, Duration expireAfterWrite, Stats stats,
+                              long estimatedBytes, long sketchBytes, List<HotKey> hotKeys, DiskCacheStore.Stats disk) {
+    }
+
+    public record Stats(long requests, long hits, long misses, double hitRate, long evictions) {
+    }
+
+    public record HotKey(String key, int frequency) {
+    }
+
+    public record Eviction(String cache, String key, int evicted) {
+    }
+
+    public record Prewarm(String cache, List<String> loaded, Map<String, String> failed) {
+    }
+
+    private final CacheManager cacheManager;
+    private final DummyJsonClient dummyJsonClient;
+    private final Duration prewarmTimeout;
+
+    public CacheAdminEndpoint(
+            CacheManager cacheManager,
+            DummyJsonClient dummyJsonClient,
+            @Value("${cache.admin.prewarm-timeout-ms}") long prewarmTimeoutMs) {
+        this.cacheManager = cacheManager;
+        this.dummyJsonClient = dummyJsonClient;
+        this.prewarmTimeout = Duration.ofMillis(prewarmTimeoutMs);
+    }
+
+    @ReadOperation
+    public Map<String, CacheStatus> caches(@Nullable Integer top) {
+        Map<String, CacheStatus> caches = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            CaffeineCache cache = find(name);
+            if (cache != null) {
+                caches.put(name, status(cache, top != null ? top : DEFAULT_TOP));
+            }
+        }
+        return caches;
+    }
+
+    @ReadOperation
+    public WebEndpointResponse<CacheStatus> cache(@Selector String name, @Nullable Integer top) {
+        CaffeineCache cache = find(name);
+        if (cache == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        return new WebEndpointResponse<>(status(cache, top != null ? top : DEFAULT_TOP));
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<Eviction> evict(@Selector String name, @Nullable String key) {
+        CaffeineCache cache = find(name);
+        if (cache == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        if (key == null || key.isEmpty()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        boolean prefix = key.endsWith("*");
+        String match = prefix ? key.substring(0, key.length() - 1) : key;
+        Set<Object> keys = cache instanceof TieredCache tieredCache
+                ? tieredCache.keys()
+                : cache.getNativeCache().asMap().keySet();
+        List<Object> matching = new ArrayList<>();
+        // Keys may be numbers, so compare them as they are printed
+        for (Object candidate : keys) {
+            String printed = String.valueOf(candidate);
+            if (prefix ? printed.startsWith(match) : printed.equals(match)) {
+                matching.add(candidate);
+            }
+        }
+        int evicted = 0;
+        if (cache instanceof TieredCache tieredCache) {
+            evicted = tieredCache.evictAll(matching);
+        } else {
+            for (Object candidate : matching) {
+                if (cache.evictIfPresent(candidate)) {
+                    evicted++;
+                }
+            }
+        }
+        return new WebEndpointResponse<>(new Eviction(name, key, evicted));
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Prewarm> prewarm(@Selector String name, String keys) {
+        if (find(name) == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Set<String> distinctKeys = new LinkedHashSet<>();
+        for (String key : keys.split(",")) {
+            if (!key.isBlank()) {
+                distinctKeys.add(key.trim());
+            }
+        }
+        // Calls still running when the timeout hits may complete afterwards
+        Set<String> done = ConcurrentHashMap.newKeySet();
+        Map<String, String> errors = new ConcurrentHashMap<>();
+        Flux.fromIterable(distinctKeys)
+                .flatMap(key -> dummyJsonClient.refresh(name, key)
+                        .then(Mono.fromRunnable(() -> done.add(key)))
+                        .onErrorResume(e -> {
+                            errors.put(key, e.getClass().getSimpleName() + ": " + e.getMessage());
+                            return Mono.empty();
+                        }), PREWARM_CONCURRENCY)
+                .take(prewarmTimeout)
+                .blockLast();
+
+        List<String> loaded = new ArrayList<>();
+        Map<String, String> failed = new LinkedHashMap<>();
+        for (String key : distinctKeys) {
+            String error = errors.get(key);
+            if (error != null) {
+                failed.put(key, error);
+            } else if (done.contains(key)) {
+                loaded.add(key);
+            } else {
+                failed.put(key, "Not loaded within " + prewarmTimeout.toMillis() + " ms");
+            }
+        }
+        return new WebEndpointResponse<>(new Prewarm(name, loaded, failed));
+    }
+
+    private CaffeineCache find(String name) {
+        return cacheManager.getCache(name) instanceof CaffeineCache cache ? cache : null;
+    }
+
+    private static CacheStatus status(CaffeineCache cache, int top) {
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = cache.getNativeCache();
+        CacheStats stats = nativeCache.stats();
+        FrequencySketch sketch = cache instanceof HotKeyCache hotKeyCache ? hotKeyCache.getSketch() : null;
+        return new CacheStatus(
+                cache.getName(),
+                nativeCache.estimatedSize(),
+                nativeCache.policy().eviction().map(Policy.Eviction::getMaximum).orElse(null),
+                nativeCache.policy().expireAfterWrite().map(Policy.FixedExpiration::getExpiresAfter).orElse(null),
+                new Stats(stats.requestCount(), stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount()),
+                estimatedBytes(nativeCache.asMap()),
+                sketch != null ? sketch.sizeBytes() : 0,
+                sketch != null ? hotKeys(nativeCache.asMap(), sketch, top) : List.of(),
+                cache instanceof TieredCache tieredCache ? tieredCache.getDiskStore().stats() : null);
+    }
+
+    /**
+     * Sizes a sample of the entries and scales it up to the whole cache.
+     */
+    private static long estimatedBytes(ConcurrentMap<Object, Object> entries) {
+        long sampled = 0;
+        long bytes = 0;
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            if (sampled == SIZE_SAMPLE) {
+                break;
+            }
+            bytes += HeapSizeEstimator.entrySize() + HeapSizeEstimator.estimate(entry.getKey())
+                    + HeapSizeEstimator.estimate(entry.getValue());
+            sampled++;
+        }
+        return sampled == 0 ? 0 : bytes * entries.size() / sampled;
+    }
+
+    /**
+     * The cached keys looked up most often. Keys that are hot but no longer cached cannot be listed, since the sketch
+     * only stores counts; their misses still show in the hit rate.
+     */
+    private static List<HotKey> hotKeys(ConcurrentMap<Object, Object> entries, FrequencySketch sketch, int top) {
+        if (top <= 0) {
+            return List.of();
+        }
+        PriorityQueue<HotKey> hottest = new PriorityQueue<>(Comparator.comparingInt(HotKey::frequency));
+        for (Object key : entries.keySet()) {
+            int frequency = sketch.frequency(key);
+            if (hottest.size() < top) {
+                hottest.add(new HotKey(String.valueOf(key), frequency));
+            } else if (frequency > hottest.peek().frequency()) {
+                hottest.poll();
+                hottest.add(new HotKey(String.valueOf(key), frequency));
+            }
+        }
+        List<HotKey> ranked = new ArrayList<>(hottest);
+        ranked.sort(Comparator.comparingInt(HotKey::frequency).reversed());
+        return ranked;
+    }
+}
@@ -0,0 +1,390 @@
+package hr.abysalto.hiring.mid.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Second cache tier: values serialized as JSON into one append-only, memory-mapped file that outlives the process,
+ * with an in-memory index from key to the value's position.
+ * <p>
+ * A record is {@code [length][crc32c][expires at][key length][key][value]}; a record without a value is a tombstone
+ * left by an eviction. Writing a key again appends a new record and moves the index to it. Opening the file replays
+ * it into the index, skipping expired entries and stopping at the first torn or corrupt record, so a store reopened
+ * after a restart serves what was cached before. When the file is full, the unexpired entries are copied into a
+ * fresh file that replaces it; if they would fill more than half of it, those expiring soonest are left out, so that
+ * compaction always frees enough room for many more appends. Keys are {@code Long}s or {@code String}s; values of
+ * other types are not stored. Writes go to the page cache only: losing them in an OS crash costs a DummyJSON call,
+ * nothing more.
+ */
+public class DiskCacheStore implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(DiskCacheStore.class);
+
+    private static final int HEADER_BYTES = 8;
+    // expires at, key length
+    private static final int META_BYTES = 10;
+    private static final byte LONG_KEY = 1;
+    private static final byte STRING_KEY = 2;
+
+    public record Stats(int entries, long usedBytes, long liveBytes, long capacityBytes, Duration ttl, long hits,
+                        long misses, long writes, long dropped, long compactions) {
+    }
+
+    public record Entry(Object value, long expiresAtMillis) {
+    }
+
+    private record Location(int recordOffset, int recordBytes, int valueOffset, int valueBytes, long expiresAtMillis) {
+    }
+
+    /**
+     * The file and its index; replaced as a whole by compaction, so a reader never mixes two files.
+     */
+    private record Generation(FileChannel channel, MappedByteBuffer buffer, Map<Object, Location> index) {
+    }
+
+    private final Path path;
+    private final int capacityBytes;
+    private final Duration ttl;
+    private final Class<?> valueType;
+    private final ObjectMapper objectMapper;
+    // Appends run on request threads; a monitor would pin a virtual thread during compaction's file I/O
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final CRC32C checksum = new CRC32C();
+    private final AtomicLong liveBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    private volatile Generation generation;
+    private volatile int position;
+
+    public DiskCacheStore(Path path, int capacityBytes, Duration ttl, Class<?> valueType, ObjectMapper objectMapper)
+            throws IOException {
+        this.path = path;
+        this.capacityBytes = capacityBytes;
+        this.ttl = ttl;
+        this.valueType = valueType;
+        this.objectMapper = objectMapper;
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        this.generation = recover();
+        log.info("Opened cache file {} with {} entries, {} of {} bytes used", path, generation.index.size(), position,
+                capacityBytes);
+    }
+
+    /**
+     * The value stored for the key, or null if there is none, it has expired or it no longer deserializes.
+     */
+    public Object get(Object key) {
+        Entry entry = find(key);
+        return entry != null ? entry.value() : null;
+    }
+
+    /**
+     * Like {@link #get}, also returning when the value expires.
+     */
+    public Entry find(Object key) {
+        Generation current = generation;
+        Location location = current.index.get(key);
+        if (location == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (location.expiresAtMillis <= System.currentTimeMillis()) {
+            forget(current, key, location);
+            misses.incrementAndGet();
+            return null;
+        }
+        byte[] value = new byte[location.valueBytes];
+        current.buffer.get(location.valueOffset, value);
+        try {
+            Object result = objectMapper.readValue(value, valueType);
+            hits.incrementAndGet();
+            return new Entry(result, location.expiresAtMillis);
+        } catch (IOException e) {
+            // Written by a version of the application with a different DTO
+            log.debug("Dropping cache entry {} from {}: {}", key, path, e.getMessage());
+            forget(current, key, location);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    public void put(Object key, Object value) {
+        if (!valueType.isInstance(value)) {
+            return;
+        }
+        byte[] keyBytes = encodeKey(key);
+        if (keyBytes == null) {
+            return;
+        }
+        byte[] valueBytes;
+        try {
+            valueBytes = objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            log.warn("Could not serialize cache entry {} for {}", key, path, e);
+            return;
+        }
+        append(key, keyBytes, valueBytes, System.currentTimeMillis() + ttl.toMillis());
+    }
+
+    /**
+     * Removes the key, returning whether there was a live entry for it.
+     */
+    public boolean remove(Object key) {
+        byte[] keyBytes = encodeKey(key);
+        if (keyBytes == null || !generation.index.containsKey(key)) {
+            return false;
+        }
+        return append(key, keyBytes, new byte[0], 0);
+    }
+
+    public Set<Object> keys() {
+        return generation.index.keySet();
+    }
+
+    public void clear() {
+        writeLock.lock();
+        try {
+            rewrite(Map.of());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(generation.index.size(), position, liveBytes.get(), capacityBytes, ttl, hits.get(),
+                misses.get(), writes.get(), dropped.get(), compactions.get());
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            generation.channel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record, or a tombstone when {@code valueBytes} is empty, compacting first if it does not fit.
+     * Returns whether a live entry was replaced or removed.
+     */
+    private boolean append(Object key, byte[] keyBytes, byte[] valueBytes, long expiresAtMillis) {
+        int recordBytes = HEADER_BYTES + META_BYTES + keyBytes.length + valueBytes.length;
+        writeLock.lock();
+        try {
+            if (position + recordBytes > capacityBytes) {
+                compact();
+                if (position + recordBytes > capacityBytes) {
+                    dropped.incrementAndGet();
+                    // Whatever was stored before is older than what could not be written
+                    return forget(generation, key, generation.index.get(key));
+                }
+            }
+            Generation current = generation;
+            MappedByteBuffer buffer = current.buffer;
+            int offset = position;
+            buffer.putInt(offset, recordBytes - HEADER_BYTES);
+            buffer.putLong(offset + HEADER_BYTES, expiresAtMillis);
+            buffer.putShort(offset + HEADER_BYTES + 8, (short) keyBytes.length);
+            buffer.put(offset + HEADER_BYTES + META_BYTES, keyBytes);
+            int valueOffset = offset + HEADER_BYTES + META_BYTES + keyBytes.length;
+            buffer.put(valueOffset, valueBytes);
+            checksum.reset();
+            checksum.update(buffer.slice(offset + HEADER_BYTES, recordBytes - HEADER_BYTES));
+            buffer.putInt(offset + 4, (int) checksum.getValue());
+            position += recordBytes;
+            writes.incrementAndGet();
+
+            Location previous;
+            if (valueBytes.length == 0) {
+                previous = current.index.remove(key);
+            } else {
+                liveBytes.addAndGet(recordBytes);
+                previous = current.index.put(key,
+                        new Location(offset, recordBytes, valueOffset, valueBytes.length, expiresAtMillis));
+            }
+            if (previous != null) {
+                liveBytes.addAndGet(-previous.recordBytes);
+            }
+            return previous != null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean forget(Generation current, Object key, Location location) {
+        if (location != null && current.index.remove(key, location)) {
+            liveBytes.addAndGet(-location.recordBytes);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Copies the unexpired entries, up to half the capacity and latest expiry first, into a new file; superseded
+     * values, tombstones and expired entries are left behind.
+     */
+    private void compact() {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<Object, Location>> candidates = new ArrayList<>(generation.index.entrySet());
+        candidates.sort(Comparator.comparingLong((Map.Entry<Object, Location> entry) -> entry.getValue().expiresAtMillis)
+                .reversed());
+        Map<Object, Location> live = new LinkedHashMap<>();
+        long kept = 0;
+        for (Map.Entry<Object, Location> entry : candidates) {
+            Location location = entry.getValue();
+            if (location.expiresAtMillis <= now || kept + location.recordBytes > capacityBytes / 2) {
+                break;
+            }
+            live.put(entry.getKey(), location);
+            kept += location.recordBytes;
+        }
+        int before = position;
+        rewrite(live);
+        compactions.incrementAndGet();
+        log.info("Compacted cache file {} from {} to {} bytes, {} entries kept", path, before, position, live.size());
+    }
+
+    private void rewrite(Map<Object, Location> entries) {
+        Generation current = generation;
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.deleteIfExists(temporary);
+            FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+            Map<Object, Location> index = new ConcurrentHashMap<>();
+            int offset = 0;
+            long bytes = 0;
+            for (Map.Entry<Object, Location> entry : entries.entrySet()) {
+                Location location = entry.getValue();
+                buffer.put(offset, current.buffer, location.recordOffset, location.recordBytes);
+                index.put(entry.getKey(), new Location(offset, location.recordBytes,
+                        offset + location.valueOffset - location.recordOffset, location.valueBytes,
+                        location.expiresAtMillis));
+                offset += location.recordBytes;
+                bytes += location.recordBytes;
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // Readers still holding the old generation keep reading its mapping, which outlives the rename
+            generation = new Generation(channel, buffer, index);
+            position = offset;
+            liveBytes.set(bytes);
+            current.channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rewrite cache file " + path, e);
+        }
+    }
+
+    /**
+     * Replays the file into an index. Whatever follows the last intact record is cut off, and mapping the file again
+     * at full size zeroes it.
+     */
+    private Generation recover() throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (channel.size() > capacityBytes) {
+            // Written with a larger capacity; start over rather than lose entries past the end at random
+            channel.truncate(0);
+        }
+        long now = System.currentTimeMillis();
+        Map<Object, Location> index = new ConcurrentHashMap<>();
+        MappedByteBuffer existing = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        int offset = 0;
+        long bytes = 0;
+        while (offset + HEADER_BYTES + META_BYTES <= existing.limit()) {
+            int length = existing.getInt(offset);
+            if (length < META_BYTES || offset + HEADER_BYTES + length > existing.limit()) {
+                break;
+            }
+            checksum.reset();
+            checksum.update(existing.slice(offset + HEADER_BYTES, length));
+            if ((int) checksum.getValue() != existing.getInt(offset + 4)) {
+                break;
+            }
+            long expiresAtMillis = existing.getLong(offset + HEADER_BYTES);
+            int keyBytes = existing.getShort(offset + HEADER_BYTES + 8);
+            if (keyBytes <= 0 || keyBytes > length - META_BYTES) {
+                break;
+            }
+            int valueOffset = offset + HEADER_BYTES + META_BYTES + keyBytes;
+            int valueBytes = length - META_BYTES - keyBytes;
+            Object key = decodeKey(existing, offset + HEADER_BYTES + META_BYTES, keyBytes);
+            int recordBytes = HEADER_BYTES + length;
+            Location previous = valueBytes > 0 && expiresAtMillis > now
+                    ? index.put(key, new Location(offset, recordBytes, valueOffset, valueBytes, expiresAtMillis))
+                    : index.remove(key);
+            if (valueBytes > 0 && expiresAtMillis > now) {
+                bytes += recordBytes;
+            }
+            if (previous != null) {
+                bytes -= previous.recordBytes;
+            }
+            offset += recordBytes;
+        }
+        if (offset < channel.size()) {
+            channel.truncate(offset);
+        }
+        position = offset;
+        liveBytes.set(bytes);
+        return new Generation(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes), index);
+    }
+
+    private static byte[] encodeKey(Object key) {
+        if (key instanceof Long id) {
+            byte[] bytes = new byte[9];
+            bytes[0] = LONG_KEY;
+            for (int i = 0; i < 8; i++) {
+                bytes[1 + i] = (byte) (id >>> (56 - 8 * i));
+            }
+            return bytes;
+        }
+        if (key instanceof String string) {
+            byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+            if (utf8.length >= Short.MAX_VALUE) {
+                return null;
+            }
+            byte[] bytes = new byte[1 + utf8.length];
+            bytes[0] = STRING_KEY;
+            System.arraycopy(utf8, 0, bytes, 1, utf8.length);
+            return bytes;
+        }
+        return null;
+    }
+
+    private static Object decodeKey(MappedByteBuffer buffer, int offset, int length) {
+        if (buffer.get(offset) == LONG_KEY) {
+            return buffer.getLong(offset + 1);
+        }
+        byte[] utf8 = new byte[length - 1];
+        buffer.get(offset + 1, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,85 @@
+package hr.abysalto.hiring.mid.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Thread-safe count-min sketch estimating how often each key was seen recently, in a fixed amount of memory.
+ * An estimate is never below the true count since the last aging, but colliding keys can inflate it. After every
+ * {@code 10 × width} increments all counters are halved, so keys that were hot an hour ago fade out. Increments racing
+ * with the halving may be lost, which only matters within the sketch's own error.
+ */
+public final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private final AtomicIntegerArray counters;
+    private final int width;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    public FrequencySketch(int expectedKeys) {
+        if (expectedKeys <= 0) {
+            throw new IllegalArgumentException("Expected keys must be positive");
+        }
+        // A few counters per key keeps collisions between the keys that matter rare
+        this.width = Integer.highestOneBit(Math.max(16, expectedKeys * 4) * 2 - 1);
+        this.counters = new AtomicIntegerArray(DEPTH * width);
+        this.sampleSize = 10 * width;
+    }
+
+    public void increment(Object key) {
+        int hash = spread(key.hashCode());
+        for (int row = 0; row < DEPTH; row++) {
+            counters.incrementAndGet(index(hash, row));
+        }
+        if (additions.incrementAndGet() >= sampleSize) {
+            age();
+        }
+    }
+
+    public int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters.get(index(hash, row)));
+        }
+        return frequency;
+    }
+
+    /**
+     * Bytes held by the counters.
+     */
+    public long sizeBytes() {
+        return (long) counters.length() * Integer.BYTES;
+    }
+
+    private synchronized void age() {
+        if (additions.get() < sampleSize) {
+            return;
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, counters.get(i) >>> 1);
+        }
+        additions.set(additions.get() / 2);
+    }
+
+    private int index(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return row * width + ((int) h & (width - 1));
+    }
+
+    /**
+     * MurmurHash3 finalizer, so that sequential product IDs spread over the whole row.
+     */
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
@@ -0,0 +1,150 @@
+package hr.abysalto.hiring.mid.cache;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rough heap size of an object graph on a 64-bit JVM with compressed references: 12-byte object headers, 4-byte
+ * references, 8-byte alignment. Strings, boxed values, collections, maps and arrays are sized from their contents,
+ * the application's own classes field by field, and any other object as a bare header. Objects reachable twice
+ * count once.
+ */
+final class HeapSizeEstimator {
+
+    private static final int HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    // Roughly a HashMap node or Caffeine entry beyond its key and value
+    private static final int ENTRY = 32;
+    private static final String APPLICATION_PACKAGE = "hr.abysalto.";
+
+    private static final Map<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<>();
+
+    private HeapSizeEstimator() {
+    }
+
+    static long estimate(Object root) {
+        return size(root, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    /**
+     * Overhead of one cache entry beyond its key and value.
+     */
+    static long entrySize() {
+        return ENTRY;
+    }
+
+    private static long size(Object object, Set<Object> seen) {
+        if (object == null || !seen.add(object)) {
+            return 0;
+        }
+        if (object instanceof String string) {
+            return align(HEADER + 12) + align(ARRAY_HEADER + (long) string.length() * (isLatin1(string) ? 1 : 2));
+        }
+        if (object instanceof Long || object instanceof Double) {
+            return align(HEADER + 8);
+        }
+        if (object instanceof Number || object instanceof Boolean || object instanceof Character) {
+            return align(HEADER + 4);
+        }
+        if (object instanceof Collection<?> collection) {
+            long total = align(HEADER + 12) + align(ARRAY_HEADER + (long) REFERENCE * collection.size());
+            for (Object element : collection) {
+                total += size(element, seen);
+            }
+            return total;
+        }
+        if (object instanceof Map<?, ?> map) {
+            long total = align(HEADER + 28) + align(ARRAY_HEADER + (long) REFERENCE * map.size() * 2);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                total += ENTRY + size(entry.getKey(), seen) + size(entry.getValue(), seen);
+            }
+            return total;
+        }
+
+        Class<?> type = object.getClass();
+        if (type.isArray()) {
+            return arraySize(object, type.getComponentType(), seen);
+        }
+        if (!type.getName().startsWith(APPLICATION_PACKAGE)) {
+            return align(HEADER + REFERENCE);
+        }
+        long shallow = HEADER;
+        long deep = 0;
+        for (Field field : fields(type)) {
+            if (field.getType().isPrimitive()) {
+                shallow += primitiveSize(field.getType());
+            } else {
+                shallow += REFERENCE;
+                try {
+                    deep += size(field.get(object), seen);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot read " + field, e);
+                }
+            }
+        }
+        return align(shallow) + deep;
+    }
+
+    private static long arraySize(Object array, Class<?> componentType, Set<Object> seen) {
+        int length = Array.getLength(array);
+        if (componentType.isPrimitive()) {
+            return align(ARRAY_HEADER + (long) length * primitiveSize(componentType));
+        }
+        long total = align(ARRAY_HEADER + (long) length * REFERENCE);
+        for (Object element : (Object[]) array) {
+            total += size(element, seen);
+        }
+        return total;
+    }
+
+    private static List<Field> fields(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, t -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = t; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields;
+        });
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static boolean isLatin1(String string) {
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) > 0xff) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
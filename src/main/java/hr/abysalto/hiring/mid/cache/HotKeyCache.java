@@ -0,0 +1,36 @@
+package hr.abysalto.hiring.mid.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Caffeine-backed Spring cache that counts every lookup, hit or miss, in a {@link FrequencySketch}, so the
+ * administration endpoint can tell which keys are hot. Writes and evictions are not counted.
+ */
+public class HotKeyCache extends CaffeineCache {
+
+    private final FrequencySketch sketch;
+
+    public HotKeyCache(String name, Cache<Object, Object> cache, boolean allowNullValues, FrequencySketch sketch) {
+        super(name, cache, allowNullValues);
+        this.sketch = sketch;
+    }
+
+    public FrequencySketch getSketch() {
+        return sketch;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        sketch.increment(key);
+        return super.lookup(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        sketch.increment(key);
+        return super.get(key, valueLoader);
+    }
+}
@@ -0,0 +1,75 @@
+package hr.abysalto.hiring.mid.cache;
+
+import com.github.benmanes.caffeine.cache.Policy;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.lang.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * {@link CaffeineCacheManager} whose caches are {@link HotKeyCache}s, each with a sketch sized to its maximum size,
+ * or {@link TieredCache}s for the caches that have a disk tier. The disk tiers share one writer thread.
+ */
+public class HotKeyCacheManager extends CaffeineCacheManager implements Closeable {
+
+    private static final int DEFAULT_EXPECTED_KEYS = 1024;
+    private static final int MAX_EXPECTED_KEYS = 1 << 20;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final Function<String, DiskCacheStore> diskStoreFactory;
+    // Caches are rebuilt whenever the Caffeine settings change; their files are opened only once
+    private final Map<String, DiskCacheStore> diskStores = new ConcurrentHashMap<>();
+    private final ExecutorService diskWriter;
+
+    public HotKeyCacheManager() {
+        this(null);
+    }
+
+    /**
+     * @param diskStoreFactory opens the disk tier of a cache, or returns null to keep that cache in memory only
+     */
+    public HotKeyCacheManager(@Nullable Function<String, DiskCacheStore> diskStoreFactory) {
+        this.diskStoreFactory = diskStoreFactory;
+        this.diskWriter = diskStoreFactory == null ? null : Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "disk-cache-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+        long expectedKeys = cache.policy().eviction()
+                .map(Policy.Eviction::getMaximum)
+                .orElse((long) DEFAULT_EXPECTED_KEYS);
+        FrequencySketch sketch = new FrequencySketch((int) Math.max(1, Math.min(expectedKeys, MAX_EXPECTED_KEYS)));
+        DiskCacheStore diskStore = diskStoreFactory != null ? diskStores.computeIfAbsent(name, diskStoreFactory) : null;
+        return diskStore != null
+                ? new TieredCache(name, cache, isAllowNullValues(), sketch, diskStore, diskWriter)
+                : new HotKeyCache(name, cache, isAllowNullValues(), sketch);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (diskWriter != null) {
+            // Let queued writes reach the files before they are closed
+            diskWriter.shutdown();
+            try {
+                diskWriter.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (DiskCacheStore diskStore : diskStores.values()) {
+            diskStore.close();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package hr.abysalto.hiring.mid.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * {@link HotKeyCache} backed by a {@link DiskCacheStore}: a miss in memory is looked up on disk and, if found, put
+ * back in memory for the time it has left on disk, and every value cached is also written to disk, so that a
+ * restarted instance starts warm.
+ * <p>
+ * Values are cached from WebClient callbacks, so disk writes are handed to the manager's single disk writer thread
+ * instead of serializing, appending and compacting on a Netty event loop. A write that fails, or that finds
+ * {@value #MAX_PENDING_WRITES} writes already waiting, leaves the value cached in memory only.
+ * Evicting or clearing removes from both tiers; those wait for the writes queued before them, so an older write
+ * cannot bring an evicted value back.
+ */
+public class TieredCache extends HotKeyCache {
+
+    private static final Logger log = LoggerFactory.getLogger(TieredCache.class);
+
+    static final int MAX_PENDING_WRITES = 1024;
+
+    private final DiskCacheStore diskStore;
+    private final ExecutorService diskWriter;
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+
+    public TieredCache(String name, Cache<Object, Object> cache, boolean allowNullValues, FrequencySketch sketch,
+                       DiskCacheStore diskStore, ExecutorService diskWriter) {
+        super(name, cache, allowNullValues, sketch);
+        this.diskStore = diskStore;
+        this.diskWriter = diskWriter;
+    }
+
+    public DiskCacheStore getDiskStore() {
+        return diskStore;
+    }
+
+    /**
+     * Keys cached in either tier.
+     */
+    public Set<Object> keys() {
+        Set<Object> keys = new HashSet<>(getNativeCache().asMap().keySet());
+        keys.addAll(diskStore.keys());
+        return keys;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = super.lookup(key);
+        if (value == null) {
+            DiskCacheStore.Entry entry = diskStore.find(key);
+            if (entry != null) {
+                value = entry.value();
+                // It may have expired since the store checked; Caffeine rejects a negative duration
+                promote(key, value, Duration.ofMillis(Math.max(0, entry.expiresAtMillis() - System.currentTimeMillis())));
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        super.put(key, value);
+        write(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = super.putIfAbsent(key, value);
+        if (existing == null) {
+            write(key, value);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        super.evict(key);
+        onDiskWriter(() -> diskStore.remove(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean inMemory = super.evictIfPresent(key);
+        return onDiskWriter(() -> diskStore.remove(key)) || inMemory;
+    }
+
+    /**
+     * Evicts the keys from both tiers, with one trip to the disk writer for all of them, and returns how many of
+     * them were cached in either tier.
+     */
+    public int evictAll(Collection<?> keys) {
+        Set<Object> evicted = new HashSet<>();
+        for (Object key : keys) {
+            if (super.evictIfPresent(key)) {
+                evicted.add(key);
+            }
+        }
+        evicted.addAll(onDiskWriter(() -> {
+            List<Object> removed = new ArrayList<>();
+            for (Object key : keys) {
+                if (diskStore.remove(key)) {
+                    removed.add(key);
+                }
+            }
+            return removed;
+        }));
+        return evicted.size();
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        onDiskWriter(() -> {
+            diskStore.clear();
+            return null;
+        });
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean inMemory = super.invalidate();
+        boolean onDisk = onDiskWriter(() -> {
+            boolean any = !diskStore.keys().isEmpty();
+            diskStore.clear();
+            return any;
+        });
+        return inMemory || onDisk;
+    }
+
+    /**
+     * Caches a value read back from disk for no longer than it has left there, when the memory tier has variable
+     * expiry; with a fixed expiry it gets the full memory lifetime again.
+     */
+    private void promote(Object key, Object value, Duration remaining) {
+        Cache<Object, Object> cache = getNativeCache();
+        cache.policy().expireVariably().ifPresentOrElse(
+                expiry -> expiry.put(key, value, remaining),
+                () -> cache.put(key, value));
+    }
+
+    private void write(Object key, Object value) {
+        if (pendingWrites.incrementAndGet() > MAX_PENDING_WRITES) {
+            pendingWrites.decrementAndGet();
+            log.debug("Disk tier of cache {} is {} writes behind, keeping {} in memory only", getName(),
+                    MAX_PENDING_WRITES, key);
+            return;
+        }
+        try {
+            diskWriter.execute(() -> {
+                try {
+                    diskStore.put(key, value);
+                } catch (UncheckedIOException e) {
+                    log.warn("Could not write {} to the disk tier of cache {}: {}", key, getName(), e.getMessage());
+                } finally {
+                    pendingWrites.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            pendingWrites.decrementAndGet();
+        }
+    }
+
+    private <T> T onDiskWriter(Supplier<T> operation) {
+        try {
+            return CompletableFuture.supplyAsync(operation, diskWriter).join();
+        } catch (RejectedExecutionException e) {
+            return operation.get();
+        }
+    }
+}
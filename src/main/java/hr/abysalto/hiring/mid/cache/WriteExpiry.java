@@ -0,0 +1,34 @@
+package hr.abysalto.hiring.mid.cache;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+
+/**
+ * Variable expiry that behaves like {@code expireAfterWrite}: every write lives for the same time and reads do not
+ * extend it. Unlike the fixed policy it lets {@link TieredCache} give a value read back from disk only the time it
+ * has left there.
+ */
+public class WriteExpiry implements Expiry<Object, Object> {
+
+    private final long ttlNanos;
+
+    public WriteExpiry(Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    @Override
+    public long expireAfterCreate(Object key, Object value, long currentTime) {
+        return ttlNanos;
+    }
+
+    @Override
+    public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+        return ttlNanos;
+    }
+
+    @Override
+    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+}
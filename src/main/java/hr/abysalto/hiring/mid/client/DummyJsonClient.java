@@ -1,34 +1,60 @@
 package hr.abysalto.hiring.mid.client;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import hr.abysalto.hiring.mid.components.RequestTimings;
 import hr.abysalto.hiring.mid.dto.response.PaginatedProductResponse;
 import hr.abysalto.hiring.mid.dto.response.ProductResponse;
 import hr.abysalto.hiring.mid.exception.ExternalApiException;
 import hr.abysalto.hiring.mid.exception.ResourceNotFoundException;
+import hr.abysalto.hiring.mid.jfr.CacheMissEvent;
+import hr.abysalto.hiring.mid.jfr.UpstreamCallEvent;
 import io.netty.channel.ChannelOption;
 import lombok.Data;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
 import reactor.netty.resources.ConnectionProvider;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @Component
 public class DummyJsonClient {
 
     private static final Logger log = LoggerFactory.getLogger(DummyJsonClient.class);
+    private static final int BATCH_FETCH_CONCURRENCY = 8;
+
     private final WebClient webClient;
+    private final CacheManager cacheManager;
+
+    public DummyJsonClient(
+            @Value("${dummyjson.base-url}") String baseUrl,
+            @Value("${dummyjson.max-connections}") int maxConnections,
+            @Value("${dummyjson.pending-acquire-max-count}") int pendingAcquireMaxCount,
+            CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
 
-    public DummyJsonClient(@Value("${dummyjson.base-url}") String baseUrl) {
+        // Every in-flight call holds a connection, so the pool bounds how many slow upstream calls can be pending
         ConnectionProvider provider = ConnectionProvider.builder("dummyjson")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
                 .maxIdleTime(Duration.ofSeconds(30))
                 .maxLifeTime(Duration.ofMinutes(5))
                 .evictInBackground(Duration.ofSeconds(30))
@@ -44,12 +70,145 @@ public class DummyJsonClient {
                 .build();
     }
 
-    @Cacheable(value = "products", key = "'all_' + #limit + '_' + #skip + '_' + #sortBy + '_' + #order")
-    public PaginatedProductResponse getProducts(int limit, int skip, String sortBy, String order) {
-        log.debug("Fetching products from DummyJSON API: limit={}, skip={}, sortBy={}, order={}", limit, skip, sortBy, order);
+    /**
+     * One page of products, served from the "products" cache when present.
+     */
+    public Mono<PaginatedProductResponse> getProductsAsync(int limit, int skip, String sortBy, String order) {
+        return cached("products", "all_" + limit + "_" + skip + "_" + sortBy + "_" + order, PaginatedProductResponse.class,
+                () -> fetchProducts(limit, skip, sortBy, order));
+    }
+
+    @Cacheable(value = "product", key = "#id")
+    public ProductResponse getProductById(Long id) {
+        return missed("product", id, RequestTimings.timed(RequestTimings.Stage.UPSTREAM, fetchProduct(id))).block();
+    }
+
+    /**
+     * Non-blocking {@link #getProductById}, sharing its cache entries.
+     */
+    public Mono<ProductResponse> getProductByIdAsync(Long id) {
+        return cached("product", id, ProductResponse.class, () -> fetchProduct(id));
+    }
+
+    /**
+     * Resolves many products at once: cache hits are served from the "product" cache and the misses
+     * are fetched concurrently from DummyJSON in a single blocking wait, then cached.
+     * Unknown IDs are simply absent from the returned map.
+     */
+    public Map<Long, ProductResponse> getProductsByIds(Collection<Long> ids) {
+        return getProductsByIdsAsync(ids).block();
+    }
+
+    /**
+     * Non-blocking {@link #getProductsByIds}.
+     */
+    public Mono<Map<Long, ProductResponse>> getProductsByIdsAsync(Collection<Long> ids) {
+        return Mono.defer(() -> {
+            Cache cache = cacheManager.getCache("product");
+            Map<Long, ProductResponse> result = new LinkedHashMap<>();
+            List<Long> misses = new ArrayList<>();
+
+            for (Long id : new LinkedHashSet<>(ids)) {
+                ProductResponse cached = cache != null ? cache.get(id, ProductResponse.class) : null;
+                if (cached != null) {
+                    result.put(id, cached);
+                    RequestTimings.count(RequestTimings.Stage.CACHE);
+                } else {
+                    misses.add(id);
+                }
+            }
+
+            if (misses.isEmpty()) {
+                return Mono.just(result);
+            }
+
+            log.debug("Fetching {} products from DummyJSON API in batch", misses.size());
+
+            Mono<Map<Long, ProductResponse>> fetch = Flux.fromIterable(misses)
+                    .flatMap(id -> missed("product", id, recorded("/products/{id}", id, webClient.get()
+                                    .uri("/products/{id}", id)
+                                    .retrieve()
+                                    .bodyToMono(DummyJsonProduct.class))
+                                    .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty())
+                                    .map(this::mapToProductResponse)
+                                    .doOnNext(product -> {
+                                        if (cache != null) {
+                                            cache.put(product.getId(), product);
+                                        }
+                                    })),
+                            BATCH_FETCH_CONCURRENCY)
+                    .collectList()
+                    .map(fetched -> {
+                        fetched.forEach(product -> result.put(product.getId(), product));
+                        return result;
+                    })
+                    .onErrorMap(WebClientException.class, this::toExternalApiException);
+            return RequestTimings.timed(RequestTimings.Stage.UPSTREAM, fetch);
+        });
+    }
+
+    /**
+     * One page of search results, served from the "products" cache when present.
+     */
+    public Mono<PaginatedProductResponse> searchProductsAsync(String query, int limit, int skip) {
+        return cached("products", "search_" + query + "_" + limit + "_" + skip, PaginatedProductResponse.class,
+                () -> fetchSearch(query, limit, skip));
+    }
+
+    /**
+     * Fetches the value for a key of the "product" or "products" cache, written the way the cache keys it, and caches
+     * it in place of whatever is there. Fails with {@link IllegalArgumentException} for a key it cannot parse.
+     */
+    public Mono<Void> refresh(String cacheName, String key) {
+        return Mono.defer(() -> {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache == null) {
+                return Mono.error(new IllegalArgumentException("Unknown cache: " + cacheName));
+            }
+            if ("product".equals(cacheName)) {
+                Long id = Long.valueOf(key);
+                return fetchProduct(id).doOnNext(product -> cache.put(id, product)).then();
+            }
+            if ("products".equals(cacheName)) {
+                return fetchPage(key).doOnNext(page -> cache.put(key, page)).then();
+            }
+            return Mono.error(new IllegalArgumentException("Cache " + cacheName + " is not filled from DummyJSON"));
+        });
+    }
+
+    /**
+     * The page a "products" cache key stands for: {@code all_<limit>_<skip>_<sortBy>_<order>} or
+     * {@code search_<query>_<limit>_<skip>}.
+     */
+    private Mono<PaginatedProductResponse> fetchPage(String key) {
+        if (key.startsWith("all_")) {
+            String[] parts = key.substring("all_".length()).split("_", 4);
+            if (parts.length == 4) {
+                return fetchProducts(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), nullIfNull(parts[2]),
+                        nullIfNull(parts[3]));
+            }
+        } else if (key.startsWith("search_")) {
+            // The query itself may contain underscores
+            int skipAt = key.lastIndexOf('_');
+            int limitAt = key.lastIndexOf('_', skipAt - 1);
+            if (limitAt >= "search_".length()) {
+                return fetchSearch(key.substring("search_".length(), limitAt),
+                        Integer.parseInt(key.substring(limitAt + 1, skipAt)), Integer.parseInt(key.substring(skipAt + 1)));
+            }
+        }
+        throw new IllegalArgumentException("Not a products cache key: " + key);
+    }
 
-        try {
-            DummyJsonProductListResponse response = webClient.get()
+    private static String nullIfNull(String value) {
+        return "null".equals(value) ? null : value;
+    }
+
+    private Mono<PaginatedProductResponse> fetchProducts(int limit, int skip, String sortBy, String order) {
+        return Mono.defer(() -> {
+            log.debug("Fetching products from DummyJSON API: limit={}, skip={}, sortBy={}, order={}", limit, skip, sortBy, order);
+
+            String page = "limit=" + limit + "&skip=" + skip + "&sortBy=" + sortBy + "&order=" + order;
+            return recorded("/products", page, webClient.get()
                     .uri(uriBuilder -> {
                         uriBuilder.path("/products");
                         uriBuilder.queryParam("limit", limit);
@@ -64,56 +223,33 @@ public class DummyJsonClient {
                     })
                     .retrieve()
                     .bodyToMono(DummyJsonProductListResponse.class)
-                    .block();
-
-            if (response == null) {
-                throw new ExternalApiException("Received null response from DummyJSON");
-            }
-
-            List<ProductResponse> products = response.getProducts().stream()
-                    .map(this::mapToProductResponse)
-                    .toList();
-
-            return PaginatedProductResponse.builder()
-                    .products(products)
-                    .total(response.getTotal())
-                    .skip(response.getSkip())
-                    .limit(response.getLimit())
-                    .build();
-        } catch (WebClientResponseException e) {
-            throw new ExternalApiException("DummyJSON API error: " + e.getStatusCode(), e);
-        }
+                    .switchIfEmpty(Mono.error(() -> new ExternalApiException("Received null response from DummyJSON")))
+                    .map(this::mapToPaginatedResponse)
+                    .onErrorMap(WebClientException.class, this::toExternalApiException));
+        });
     }
 
-    @Cacheable(value = "product", key = "#id")
-    public ProductResponse getProductById(Long id) {
-        log.debug("Fetching product {} from DummyJSON API", id);
+    private Mono<ProductResponse> fetchProduct(Long id) {
+        return Mono.defer(() -> {
+            log.debug("Fetching product {} from DummyJSON API", id);
 
-        try {
-            DummyJsonProduct product = webClient.get()
+            return recorded("/products/{id}", id, webClient.get()
                     .uri("/products/{id}", id)
                     .retrieve()
                     .bodyToMono(DummyJsonProduct.class)
-                    .block();
-
-            if (product == null) {
-                throw new ResourceNotFoundException("Product not found with id: " + id);
-            }
-
-            return mapToProductResponse(product);
-        } catch (WebClientResponseException.NotFound e) {
-            throw new ResourceNotFoundException("Product not found with id: " + id);
-        } catch (WebClientResponseException e) {
-            throw new ExternalApiException("DummyJSON API error: " + e.getStatusCode(), e);
-        }
+                    .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Product not found with id: " + id)))
+                    .map(this::mapToProductResponse)
+                    .onErrorMap(WebClientResponseException.NotFound.class,
+                            e -> new ResourceNotFoundException("Product not found with id: " + id))
+                    .onErrorMap(WebClientException.class, this::toExternalApiException));
+        });
     }
 
-    @Cacheable(value = "products", key = "'search_' + #query + '_' + #limit + '_' + #skip")
-    public PaginatedProductResponse searchProducts(String query, int limit, int skip) {
-        log.debug("Searching products from DummyJSON API: query={}", query);
+    private Mono<PaginatedProductResponse> fetchSearch(String query, int limit, int skip) {
+        return Mono.defer(() -> {
+            log.debug("Searching products from DummyJSON API: query={}", query);
 
-        try {
-            DummyJsonProductListResponse response = webClient.get()
+            return recorded("/products/search", query, webClient.get()
                     .uri(uriBuilder -> uriBuilder
                             .path("/products/search")
                             .queryParam("q", query)
@@ -122,25 +258,101 @@ public class DummyJsonClient {
                             .build())
                     .retrieve()
                     .bodyToMono(DummyJsonProductListResponse.class)
-                    .block();
+                    .switchIfEmpty(Mono.error(() -> new ExternalApiException("Received null response from DummyJSON")))
+                    .map(this::mapToPaginatedResponse)
+                    .onErrorMap(WebClientException.class, this::toExternalApiException));
+        });
+    }
 
-            if (response == null) {
-                throw new ExternalApiException("Received null response from DummyJSON");
+    /**
+     * Serves a hit straight from the cache; a miss subscribes to {@code fetch} and caches what it emits. Both are
+     * counted in the request's {@code Server-Timing}.
+     */
+    private <T> Mono<T> cached(String cacheName, Object key, Class<T> type, Supplier<Mono<T>> fetch) {
+        return Mono.defer(() -> {
+            Cache cache = cacheManager.getCache(cacheName);
+            T hit = cache != null ? cache.get(key, type) : null;
+            if (hit != null) {
+                RequestTimings.count(RequestTimings.Stage.CACHE);
+                return Mono.just(hit);
             }
+            return missed(cacheName, key, RequestTimings.timed(RequestTimings.Stage.UPSTREAM, fetch.get()).doOnNext(value -> {
+                if (cache != null) {
+                    cache.put(key, value);
+                }
+            }));
+        });
+    }
 
-            List<ProductResponse> products = response.getProducts().stream()
-                    .map(this::mapToProductResponse)
-                    .toList();
-
-            return PaginatedProductResponse.builder()
-                    .products(products)
-                    .total(response.getTotal())
-                    .skip(response.getSkip())
-                    .limit(response.getLimit())
-                    .build();
-        } catch (WebClientResponseException e) {
-            throw new ExternalApiException("DummyJSON API error: " + e.getStatusCode(), e);
+    /**
+     * Records {@code load} as a {@link CacheMissEvent} while a flight recording is running.
+     */
+    private static <T> Mono<T> missed(String cacheName, Object key, Mono<T> load) {
+        return Mono.defer(() -> {
+            CacheMissEvent event = new CacheMissEvent();
+            if (!event.isEnabled()) {
+                return load;
+            }
+            event.cache = cacheName;
+            event.key = String.valueOf(key);
+            event.begin();
+            return load
+                    .doOnSuccess(value -> {
+                        event.loaded = value != null;
+                        event.commit();
+                    })
+                    .doOnError(e -> event.commit())
+                    .doOnCancel(event::commit);
+        });
+    }
+
+    /**
+     * Records {@code call} as an {@link UpstreamCallEvent} while a flight recording is running.
+     */
+    private static <T> Mono<T> recorded(String endpoint, Object key, Mono<T> call) {
+        return Mono.defer(() -> {
+            UpstreamCallEvent event = new UpstreamCallEvent();
+            if (!event.isEnabled()) {
+                return call;
+            }
+            event.endpoint = endpoint;
+            event.key = String.valueOf(key);
+            event.begin();
+            return call
+                    .doOnSuccess(value -> commit(event, value != null ? "ok" : "empty"))
+                    .doOnError(e -> commit(event, e instanceof ResourceNotFoundException
+                            || e instanceof WebClientResponseException.NotFound ? "not-found" : e.getClass().getSimpleName()))
+                    .doOnCancel(() -> commit(event, "cancelled"));
+        });
+    }
+
+    private static void commit(UpstreamCallEvent event, String outcome) {
+        event.outcome = outcome;
+        event.commit();
+    }
+
+    /**
+     * Error responses, and calls that got no response at all (connection refused, DNS failure, timeout), are the
+     * same to callers: DummyJSON is unavailable.
+     */
+    private ExternalApiException toExternalApiException(WebClientException e) {
+        if (e instanceof WebClientResponseException response) {
+            return new ExternalApiException("DummyJSON API error: " + response.getStatusCode(), e);
         }
+        return new ExternalApiException("DummyJSON API unreachable: " + e.getMessage(), e);
+    }
+
+    private PaginatedProductResponse mapToPaginatedResponse(DummyJsonProductListResponse response) {
+        List<ProductResponse> products = response.getProducts().stream()
+                .map(this::mapToProductResponse)
+                .toList();
+
+        return PaginatedProductResponse.builder()
+                .products(products)
+                .total(response.getTotal())
+                .skip(response.getSkip())
+                .limit(response.getLimit())
+                .build();
     }
 
     private ProductResponse mapToProductResponse(DummyJsonProduct product) {
@@ -0,0 +1,301 @@
+package hr.abysalto.hiring.mid.components;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.audit.AuditEvent;
+import org.springframework.boot.actuate.audit.AuditEventRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Security audit trail, written to rolling NDJSON files without slowing down the code that records it.
+ * <p>
+ * {@link #add} claims a slot in a bounded multi-producer ring with one CAS and publishes the event into it; it never
+ * blocks or does I/O, and when the ring is full the event is counted as dropped instead. A single writer thread
+ * drains the ring in batches, appending each batch with one write and rolling to a new segment file past
+ * {@code segmentBytes}; only the newest {@code maxSegments} files are kept. As the application's
+ * {@link AuditEventRepository} it also backs {@code /actuator/auditevents}, which scans the segments newest first
+ * and is only served to admins.
+ */
+@Component
+@ConditionalOnProperty(name = "audit.enabled", havingValue = "true")
+public class AuditLog implements AuditEventRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+    public static final String AUTHENTICATION_SUCCESS = "AUTHENTICATION_SUCCESS";
+    public static final String AUTHENTICATION_FAILURE = "AUTHENTICATION_FAILURE";
+    public static final String REGISTRATION = "REGISTRATION";
+    public static final String TOKEN_ISSUED = "TOKEN_ISSUED";
+    public static final String TWO_FACTOR_CHALLENGE = "TWO_FACTOR_CHALLENGE";
+    public static final String TWO_FACTOR_SETUP = "TWO_FACTOR_SETUP";
+    public static final String TWO_FACTOR_ENABLED = "TWO_FACTOR_ENABLED";
+    public static final String TWO_FACTOR_SETUP_FAILURE = "TWO_FACTOR_SETUP_FAILURE";
+    public static final String TWO_FACTOR_DISABLED = "TWO_FACTOR_DISABLED";
+
+    private static final long DROP_REPORT_INTERVAL_NANOS = 10_000_000_000L;
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".ndjson";
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long segmentBytes;
+    private final int maxSegments;
+
+    private final AtomicReferenceArray<AuditEvent> ring;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer = new Thread(this::writeLoop, "audit-writer");
+    private volatile boolean running = true;
+
+    private FileChannel segment;
+    private long segmentIndex;
+    private long reportedDropped;
+    private long reportedAt = System.nanoTime() - DROP_REPORT_INTERVAL_NANOS;
+
+    public AuditLog(
+            ObjectMapper objectMapper,
+            @Value("${audit.directory}") String directory,
+            @Value("${audit.ring-capacity}") int ringCapacity,
+            @Value("${audit.batch-size}") int batchSize,
+            @Value("${audit.flush-interval-ms}") long flushIntervalMs,
+            @Value("${audit.segment-bytes}") long segmentBytes,
+            @Value("${audit.max-segments}") int maxSegments) {
+        this.objectMapper = objectMapper;
+        this.directory = Path.of(directory);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushIntervalMs * 1_000_000;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        int capacity = Integer.highestOneBit(Math.max(ringCapacity - 1, 1)) << 1;
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = segments();
+        segmentIndex = segments.isEmpty() ? 0 : indexOf(segments.get(segments.size() - 1));
+        openSegment();
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(10_000);
+        segment.close();
+    }
+
+    @Override
+    public void add(AuditEvent event) {
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head.get() > mask) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+        ring.lazySet((int) claimed & mask, event);
+    }
+
+    /**
+     * Events written so far for the principal and type, oldest first; either filter may be null. Segments last
+     * written before {@code after} are not read at all.
+     */
+    @Override
+    public List<AuditEvent> find(String principal, Instant after, String type) {
+        List<AuditEvent> events = new ArrayList<>();
+        String principalNeedle = principal != null ? jsonString(principal) : null;
+        String typeNeedle = type != null ? jsonString(type) : null;
+        List<Path> segments = segments();
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            Path path = segments.get(i);
+            try {
+                if (after != null && Files.getLastModifiedTime(path).toInstant().isBefore(after)) {
+                    break;
+                }
+                scan(path, principalNeedle, typeNeedle, principal, after, type, events);
+            } catch (IOException e) {
+                // Rolled away by retention while being read
+                log.debug("Skipping audit segment {}: {}", path, e.getMessage());
+            }
+        }
+        events.sort(Comparator.comparing(AuditEvent::getTimestamp));
+        return events;
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private void scan(Path path, String principalNeedle, String typeNeedle, String principal, Instant after, String type,
+                      List<AuditEvent> events) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Cheap substring checks first; most lines are for someone else
+                if ((principalNeedle != null && !line.contains(principalNeedle)) || (typeNeedle != null && !line.contains(typeNeedle))) {
+                    continue;
+                }
+                AuditEvent event = parse(line);
+                if (event != null
+                        && (principal == null || principal.equals(event.getPrincipal()))
+                        && (type == null || type.equals(event.getType()))
+                        && (after == null || event.getTimestamp().isAfter(after))) {
+                    events.add(event);
+                }
+            }
+        }
+    }
+
+    private String jsonString(String value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private AuditEvent parse(String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            return new AuditEvent(Instant.parse(node.get("timestamp").asText()), node.get("principal").asText(),
+                    node.get("type").asText(), objectMapper.convertValue(node.get("data"), Map.class));
+        } catch (IOException | RuntimeException e) {
+            // The line the writer is appending right now
+            return null;
+        }
+    }
+
+    private void writeLoop() {
+        StringBuilder batch = new StringBuilder();
+        while (running || head.get() != tail.get()) {
+            int drained = 0;
+            try {
+                drained = drain(batch);
+                if (drained > 0) {
+                    write(batch);
+                }
+                reportDropped();
+            } catch (RuntimeException e) {
+                log.error("Audit writer failed, continuing", e);
+            } finally {
+                batch.setLength(0);
+            }
+            if (drained < batchSize && running) {
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+        }
+    }
+
+    private int drain(StringBuilder batch) {
+        int drained = 0;
+        long position = head.get();
+        while (drained < batchSize) {
+            int slot = (int) position & mask;
+            AuditEvent event = ring.get(slot);
+            if (event == null) {
+                // Not published yet, or the ring is empty
+                break;
+            }
+            ring.lazySet(slot, null);
+            head.lazySet(++position);
+            try {
+                batch.append(objectMapper.writeValueAsString(event)).append('\n');
+            } catch (IOException e) {
+                log.warn("Could not serialize audit event {}", event, e);
+            }
+            drained++;
+        }
+        return drained;
+    }
+
+    private void write(StringBuilder batch) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            if (segment.size() >= segmentBytes) {
+                segment.close();
+                segmentIndex++;
+                openSegment();
+                deleteOldSegments();
+            }
+        } catch (IOException e) {
+            log.error("Could not write audit events to {}", directory, e);
+        }
+    }
+
+    private void reportDropped() {
+        long total = dropped.sum();
+        if (total > reportedDropped && System.nanoTime() - reportedAt >= DROP_REPORT_INTERVAL_NANOS) {
+            log.warn("Audit ring full, dropped {} events", total - reportedDropped);
+            reportedDropped = total;
+            reportedAt = System.nanoTime();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segment = FileChannel.open(directory.resolve("%s%010d%s".formatted(SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void deleteOldSegments() throws IOException {
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long indexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
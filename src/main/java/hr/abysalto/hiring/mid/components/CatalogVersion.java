@@ -0,0 +1,30 @@
+package hr.abysalto.hiring.mid.components;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic version of the product catalog data held outside DummyJSON (e.g. cart price snapshots).
+ * It advances on the product cache TTL and whenever product data is known to have changed;
+ * snapshots taken under an older version are refreshed lazily on their next read.
+ */
+@Component
+public class CatalogVersion {
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long current() {
+        return version.get();
+    }
+
+    public boolean isCurrent(Long snapshotVersion) {
+        return snapshotVersion != null && snapshotVersion == version.get();
+    }
+
+    @Scheduled(fixedRateString = "${catalog.version-refresh-ms}", initialDelayString = "${catalog.version-refresh-ms}")
+    public void advance() {
+        version.accumulateAndGet(System.currentTimeMillis(), (previous, now) -> Math.max(previous + 1, now));
+    }
+}
@@ -0,0 +1,242 @@
+package hr.abysalto.hiring.mid.components;
+
+import hr.abysalto.hiring.mid.domain.repository.FavoriteProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * "Also favorited" recommendations: for every product, how many users favorited it together with each other product.
+ * <p>
+ * Counts live in per-product {@link LongIntHashMap}s and are adjusted incrementally after each favorite change
+ * commits. Each product's top neighbours are cached until its counts change. A full rebuild recomputes the
+ * counts from {@code favorite_products}, splitting users across a fork/join pool; changes that commit while it
+ * runs are replayed on top of the rebuilt index, so one racing the snapshot read may be counted twice until
+ * the next rebuild.
+ */
+@Component
+public class CoFavoriteIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CoFavoriteIndex.class);
+
+    private final FavoriteProductRepository favoriteProductRepository;
+    private final int cachedNeighbours;
+    private final int rebuildParallelism;
+
+    private volatile Map<Long, Neighbours> neighboursByProduct = new ConcurrentHashMap<>();
+    private List<Consumer<Map<Long, Neighbours>>> changesDuringRebuild;
+
+    public CoFavoriteIndex(
+            FavoriteProductRepository favoriteProductRepository,
+            @Value("${recommendations.cached-neighbours}") int cachedNeighbours,
+            @Value("${recommendations.rebuild-parallelism}") int rebuildParallelism) {
+        this.favoriteProductRepository = favoriteProductRepository;
+        this.cachedNeighbours = cachedNeighbours;
+        this.rebuildParallelism = rebuildParallelism;
+    }
+
+    /**
+     * Returns up to {@code limit} products most often favorited together with the given one, best first.
+     */
+    public List<Long> related(Long productId, int limit) {
+        Neighbours neighbours = neighboursByProduct.get(productId);
+        if (neighbours == null) {
+            return List.of();
+        }
+        long[] top = neighbours.top(cachedNeighbours);
+        List<Long> related = new ArrayList<>(Math.min(limit, top.length));
+        for (int i = 0; i < top.length && i < limit; i++) {
+            related.add(top[i]);
+        }
+        return related;
+    }
+
+    /**
+     * Records that a user who already favorited {@code existing} added {@code addedIds}. The user's favorites
+     * come from the in-memory {@link FavoritesIndex}, so a write costs no query here.
+     */
+    public void added(Collection<Long> addedIds, ProductIdSet existing) {
+        List<Long> added = List.copyOf(addedIds);
+        afterCommit(index -> {
+            for (int i = 0; i < added.size(); i++) {
+                long productId = added.get(i);
+                existing.forEach(other -> pair(index, productId, other, 1));
+                for (int j = i + 1; j < added.size(); j++) {
+                    pair(index, productId, added.get(j), 1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Records that a user removed {@code productId} while keeping {@code remaining}.
+     */
+    public void removed(Long productId, ProductIdSet remaining) {
+        afterCommit(index -> remaining.forEach(other -> pair(index, productId, other, -1)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${recommendations.rebuild-cron}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            if (changesDuringRebuild != null) {
+                return;
+            }
+            changesDuringRebuild = new ArrayList<>();
+        }
+
+        try {
+            Map<Long, List<Long>> favoritesByUser = new HashMap<>();
+            // Through the repository rather than SQL, so that sharded favorites are read from every shard
+            favoriteProductRepository.forEachUserProduct((userId, productId) ->
+                    favoritesByUser.computeIfAbsent(userId, id -> new ArrayList<>()).add(productId));
+
+            ForkJoinPool pool = new ForkJoinPool(rebuildParallelism);
+            Map<Long, LongIntHashMap> counts;
+            try {
+                counts = pool.invoke(new CountTask(new ArrayList<>(favoritesByUser.values())));
+            } finally {
+                pool.shutdown();
+            }
+
+            Map<Long, Neighbours> rebuilt = new ConcurrentHashMap<>(counts.size() * 2);
+            counts.forEach((productId, neighbourCounts) -> rebuilt.put(productId, new Neighbours(neighbourCounts)));
+
+            synchronized (this) {
+                changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+                neighboursByProduct = rebuilt;
+            }
+            log.info("Rebuilt co-favorite index: {} users, {} products in {} ms",
+                    favoritesByUser.size(), rebuilt.size(), System.currentTimeMillis() - start);
+        } finally {
+            synchronized (this) {
+                changesDuringRebuild = null;
+            }
+        }
+    }
+
+    private void afterCommit(Consumer<Map<Long, Neighbours>> change) {
+        Runnable apply = () -> {
+            synchronized (this) {
+                change.accept(neighboursByProduct);
+                if (changesDuringRebuild != null) {
+                    changesDuringRebuild.add(change);
+                }
+            }
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private static void pair(Map<Long, Neighbours> index, long a, long b, int delta) {
+        if (a == b) return;
+        index.computeIfAbsent(a, id -> new Neighbours(new LongIntHashMap())).add(b, delta);
+        index.computeIfAbsent(b, id -> new Neighbours(new LongIntHashMap())).add(a, delta);
+    }
+
+    private static final class Neighbours {
+        private final LongIntHashMap counts;
+        private long[] top;
+
+        private Neighbours(LongIntHashMap counts) {
+            this.counts = counts;
+        }
+
+        synchronized void add(long productId, int delta) {
+            counts.addTo(productId, delta);
+            top = null;
+        }
+
+        synchronized long[] top(int n) {
+            if (top == null) {
+                PriorityQueue<long[]> heap = new PriorityQueue<>(n + 1,
+                        (x, y) -> x[1] != y[1] ? Long.compare(x[1], y[1]) : Long.compare(y[0], x[0]));
+                counts.forEach((productId, count) -> {
+                    heap.offer(new long[]{productId, count});
+                    if (heap.size() > n) {
+                        heap.poll();
+                    }
+                });
+                long[] ranked = new long[heap.size()];
+                for (int i = ranked.length - 1; i >= 0; i--) {
+                    ranked[i] = heap.poll()[0];
+                }
+                top = ranked;
+            }
+            return top;
+        }
+    }
+
+    /**
+     * Counts pairs for a slice of users, splitting until slices are small and merging the partial maps on join.
+     */
+    private static final class CountTask extends RecursiveTask<Map<Long, LongIntHashMap>> {
+
+        private static final int USERS_PER_LEAF = 256;
+
+        private final List<List<Long>> favoritesByUser;
+
+        private CountTask(List<List<Long>> favoritesByUser) {
+            this.favoritesByUser = favoritesByUser;
+        }
+
+        @Override
+        protected Map<Long, LongIntHashMap> compute() {
+            if (favoritesByUser.size() > USERS_PER_LEAF) {
+                int middle = favoritesByUser.size() / 2;
+                CountTask left = new CountTask(favoritesByUser.subList(0, middle));
+                left.fork();
+                Map<Long, LongIntHashMap> right = new CountTask(favoritesByUser.subList(middle, favoritesByUser.size())).compute();
+                return merge(left.join(), right);
+            }
+
+            Map<Long, LongIntHashMap> counts = new HashMap<>();
+            for (List<Long> favorites : favoritesByUser) {
+                for (int i = 0; i < favorites.size(); i++) {
+                    for (int j = i + 1; j < favorites.size(); j++) {
+                        counts.computeIfAbsent(favorites.get(i), id -> new LongIntHashMap()).addTo(favorites.get(j), 1);
+                        counts.computeIfAbsent(favorites.get(j), id -> new LongIntHashMap()).addTo(favorites.get(i), 1);
+                    }
+                }
+            }
+            return counts;
+        }
+
+        private static Map<Long, LongIntHashMap> merge(Map<Long, LongIntHashMap> into, Map<Long, LongIntHashMap> from) {
+            from.forEach((productId, counts) -> {
+                LongIntHashMap existing = into.putIfAbsent(productId, counts);
+                if (existing != null) {
+                    existing.addAll(counts);
+                }
+            });
+            return into;
+        }
+    }
+}
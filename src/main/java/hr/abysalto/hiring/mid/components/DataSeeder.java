@@ -0,0 +1,332 @@
+package hr.abysalto.hiring.mid.components;
+
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.dto.response.ProductResponse;
+import hr.abysalto.hiring.mid.exception.InsufficientStockException;
+import hr.abysalto.hiring.mid.service.Money;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+/**
+ * Fills the database with synthetic users, carts and favorites for testing at production-like sizes.
+ * <p>
+ * Product popularity follows a Zipf law over a shuffled catalog, and cart and favorites sizes a Pareto law, so a
+ * few products and a few users account for most rows. Every user is generated from its own random stream derived
+ * from {@code seed.random-seed}, which makes the data identical for any thread count. Users are split into chunks
+ * inserted in parallel, each chunk with JDBC batches in one transaction.
+ * <p>
+ * Cart lines carry price snapshots of the catalog fetched once up front, as lines added through the API do. Lines
+ * added within the last {@code stock.reservation-ttl-ms} also hold their stock; older ones are like lines whose hold
+ * has expired, which checkout tops up. Holds are taken one at a time in user order, so that where stock runs out
+ * it does so at the same lines on every run.
+ * <p>
+ * Runs while the context starts, before the web server takes requests and before the in-memory indexes load their
+ * data, so no registration can take a user id in the range being seeded. Does nothing if seeded users already exist.
+ */
+@Component
+@ConditionalOnProperty(name = "seed.enabled", havingValue = "true")
+public class DataSeeder {
+
+    private static final Logger log = LoggerFactory.getLogger(DataSeeder.class);
+
+    private static final String USERNAME_PREFIX = "seed";
+    private static final long STREAM_STRIDE = 0x9E3779B97F4A7C15L;
+    private static final String INSERT_USER_SQL = """
+            INSERT INTO users (user_id, username, email, password, first_name, last_name, two_factor_enabled, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, FALSE, ?)""";
+    private static final String INSERT_CART_ITEM_SQL = """
+            INSERT INTO cart_items (user_id, product_id, quantity, added_at, title, price_cents, discount_basis_points, thumbnail, catalog_version)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+    private static final String INSERT_FAVORITE_SQL = "INSERT INTO favorite_products (user_id, product_id, added_at) VALUES (?, ?, ?)";
+    private static final String[] FIRST_NAMES = {"Ana", "Ivan", "Marija", "Luka", "Petra", "Marko", "Lucija", "Josip", "Sara", "Filip"};
+    private static final String[] LAST_NAMES = {"Horvat", "Kovačević", "Babić", "Marić", "Jurić", "Novak", "Knežević", "Vuković"};
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final DummyJsonClient dummyJsonClient;
+    private final StockReservationEngine stockReservations;
+    private final CatalogVersion catalogVersion;
+    private final String cartStore;
+    private final boolean sharded;
+    private final int users;
+    private final int batchUsers;
+    private final int threads;
+    private final long randomSeed;
+    private final String password;
+    private final long historyMs;
+    private final long reservationTtlMs;
+    private final int productCount;
+    private final ZipfSampler products;
+    private final SizeSampler cartSizes;
+    private final SizeSampler favoritesSizes;
+
+    public DataSeeder(
+            DataSource dataSource,
+            JdbcTemplate jdbcTemplate,
+            PasswordEncoder passwordEncoder,
+            DummyJsonClient dummyJsonClient,
+            StockReservationEngine stockReservations,
+            CatalogVersion catalogVersion,
+            @Value("${cart.store}") String cartStore,
+            @Value("${sharding.enabled}") boolean sharded,
+            @Value("${seed.users}") int users,
+            @Value("${seed.batch-users}") int batchUsers,
+            @Value("${seed.threads}") int threads,
+            @Value("${seed.random-seed}") long randomSeed,
+            @Value("${seed.password}") String password,
+            @Value("${seed.history-days}") int historyDays,
+            @Value("${stock.reservation-ttl-ms}") long reservationTtlMs,
+            @Value("${seed.products}") int productCount,
+            @Value("${seed.zipf-exponent}") double zipfExponent,
+            @Value("${seed.cart.user-fraction}") double cartFraction,
+            @Value("${seed.cart.size-alpha}") double cartAlpha,
+            @Value("${seed.cart.max-size}") int cartMax,
+            @Value("${seed.favorites.user-fraction}") double favoritesFraction,
+            @Value("${seed.favorites.size-alpha}") double favoritesAlpha,
+            @Value("${seed.favorites.max-size}") int favoritesMax) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.dummyJsonClient = dummyJsonClient;
+        this.stockReservations = stockReservations;
+        this.catalogVersion = catalogVersion;
+        this.cartStore = cartStore;
+        this.sharded = sharded;
+        this.users = users;
+        this.batchUsers = batchUsers;
+        this.threads = threads;
+        this.randomSeed = randomSeed;
+        this.password = password;
+        this.historyMs = historyDays * 86_400_000L;
+        this.reservationTtlMs = reservationTtlMs;
+        this.productCount = productCount;
+        this.products = new ZipfSampler(productCount, zipfExponent, randomSeed);
+        this.cartSizes = new SizeSampler(cartFraction, cartAlpha, Math.min(cartMax, productCount));
+        this.favoritesSizes = new SizeSampler(favoritesFraction, favoritesAlpha, Math.min(favoritesMax, productCount));
+    }
+
+    @PostConstruct
+    public void seed() throws Exception {
+        // Both keep their own view of cart rows (in memory or on other databases) that bulk SQL would bypass
+        if (!"jdbc".equals(cartStore) || sharded) {
+            throw new IllegalStateException("Seeding requires cart.store=jdbc without sharding");
+        }
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT COUNT(*) > 0 FROM users WHERE username = ?",
+                Boolean.class, USERNAME_PREFIX + 0))) {
+            log.info("Seed data already present, skipping");
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        Map<Long, ProductResponse> catalog = dummyJsonClient.getProductsByIds(LongStream.rangeClosed(1, productCount).boxed().toList());
+        if (catalog.size() < productCount) {
+            throw new IllegalStateException("Seeding needs " + productCount + " products for cart price snapshots, DummyJSON returned " + catalog.size());
+        }
+        long firstUserId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(user_id), 0) + 1 FROM users", Long.class);
+        // Explicit user ids leave the identity behind, so it is moved past the seeded range before any are used
+        jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN user_id RESTART WITH " + (firstUserId + users));
+        String passwordHash = passwordEncoder.encode(password);
+        long now = System.currentTimeMillis();
+        long catalogVersionNow = catalogVersion.current();
+        AtomicLong cartItems = new AtomicLong();
+        AtomicLong favorites = new AtomicLong();
+        ConcurrentLinkedQueue<Hold> holds = new ConcurrentLinkedQueue<>();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> new Thread(runnable, "seeder-" + threadNumber.incrementAndGet()));
+        try {
+            List<Future<?>> chunks = new ArrayList<>();
+            for (int from = 0; from < users; from += batchUsers) {
+                int chunkFrom = from;
+                int chunkTo = Math.min(from + batchUsers, users);
+                chunks.add(pool.submit(() -> {
+                    seedChunk(chunkFrom, chunkTo, firstUserId, passwordHash, now, catalog, catalogVersionNow, cartItems, favorites, holds);
+                    return null;
+                }));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        int held = 0;
+        List<Hold> ordered = new ArrayList<>(holds);
+        ordered.sort(Comparator.comparingLong(Hold::userId).thenComparingLong(Hold::productId));
+        for (Hold hold : ordered) {
+            try {
+                stockReservations.reserve(hold.userId(), hold.productId(), hold.quantity());
+                held++;
+            } catch (InsufficientStockException e) {
+                // Left as a line whose hold has expired
+            }
+        }
+
+        log.info("Seeded {} users, {} cart items ({} holding stock, {} out of stock) and {} favorites in {} ms",
+                users, cartItems.get(), held, ordered.size() - held, favorites.get(), System.currentTimeMillis() - start);
+    }
+
+    private void seedChunk(int from, int to, long firstUserId, String passwordHash, long now, Map<Long, ProductResponse> catalog,
+                           long catalogVersionNow, AtomicLong cartItems, AtomicLong favorites, ConcurrentLinkedQueue<Hold> holds)
+            throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement userInsert = connection.prepareStatement(INSERT_USER_SQL);
+             PreparedStatement cartInsert = connection.prepareStatement(INSERT_CART_ITEM_SQL);
+             PreparedStatement favoriteInsert = connection.prepareStatement(INSERT_FAVORITE_SQL)) {
+            connection.setAutoCommit(false);
+            int cartRows = 0;
+            int favoriteRows = 0;
+            for (int index = from; index < to; index++) {
+                SplittableRandom random = new SplittableRandom(randomSeed + index * STREAM_STRIDE);
+                long userId = firstUserId + index;
+                long createdAt = now - (long) (random.nextDouble() * historyMs);
+
+                userInsert.setLong(1, userId);
+                userInsert.setString(2, USERNAME_PREFIX + index);
+                userInsert.setString(3, USERNAME_PREFIX + index + "@example.com");
+                userInsert.setString(4, passwordHash);
+                userInsert.setString(5, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+                userInsert.setString(6, LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+                userInsert.setTimestamp(7, new Timestamp(createdAt));
+                userInsert.addBatch();
+
+                for (long productId : products.distinct(random, cartSizes.sample(random))) {
+                    // Mostly single units, occasionally a few
+                    int quantity = random.nextInt(5) == 0 ? 2 + random.nextInt(4) : 1;
+                    long addedAt = createdAt + (long) (random.nextDouble() * (now - createdAt));
+                    ProductResponse product = catalog.get(productId);
+                    cartInsert.setLong(1, userId);
+                    cartInsert.setLong(2, productId);
+                    cartInsert.setInt(3, quantity);
+                    cartInsert.setTimestamp(4, new Timestamp(addedAt));
+                    cartInsert.setString(5, product.getTitle());
+                    cartInsert.setLong(6, Money.toCents(product.getPrice()));
+                    cartInsert.setInt(7, (int) Money.toCents(product.getDiscountPercentage()));
+                    cartInsert.setString(8, product.getThumbnail());
+                    cartInsert.setLong(9, catalogVersionNow);
+                    cartInsert.addBatch();
+                    cartRows++;
+                    if (now - addedAt < reservationTtlMs) {
+                        holds.add(new Hold(userId, productId, quantity));
+                    }
+                }
+                for (long productId : products.distinct(random, favoritesSizes.sample(random))) {
+                    favoriteInsert.setLong(1, userId);
+                    favoriteInsert.setLong(2, productId);
+                    favoriteInsert.setTimestamp(3, new Timestamp(createdAt + (long) (random.nextDouble() * (now - createdAt))));
+                    favoriteInsert.addBatch();
+                    favoriteRows++;
+                }
+            }
+            // Users first, so the cart and favorite rows find their foreign keys
+            userInsert.executeBatch();
+            cartInsert.executeBatch();
+            favoriteInsert.executeBatch();
+            connection.commit();
+            cartItems.addAndGet(cartRows);
+            favorites.addAndGet(favoriteRows);
+        }
+    }
+
+    private record Hold(long userId, long productId, int quantity) {
+    }
+
+    /**
+     * Product ids drawn by a Zipf law: the product of popularity rank {@code k} has weight {@code 1 / k^s}.
+     * Ranks are assigned to product ids in a fixed shuffled order, so the popular products are not simply the lowest ids.
+     */
+    private static final class ZipfSampler {
+
+        private final double[] cumulative;
+        private final long[] productByRank;
+
+        ZipfSampler(int productCount, double exponent, long seed) {
+            cumulative = new double[productCount];
+            double total = 0;
+            for (int rank = 0; rank < productCount; rank++) {
+                total += 1 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = total;
+            }
+            for (int rank = 0; rank < productCount; rank++) {
+                cumulative[rank] /= total;
+            }
+            productByRank = new long[productCount];
+            for (int rank = 0; rank < productCount; rank++) {
+                productByRank[rank] = rank + 1;
+            }
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int i = productCount - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                long swap = productByRank[i];
+                productByRank[i] = productByRank[j];
+                productByRank[j] = swap;
+            }
+        }
+
+        long sample(SplittableRandom random) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+            return productByRank[Math.min(rank < 0 ? -rank - 1 : rank, productByRank.length - 1)];
+        }
+
+        /**
+         * {@code count} different products; {@code count} never exceeds the catalog size.
+         */
+        long[] distinct(SplittableRandom random, int count) {
+            long[] picked = new long[count];
+            int size = 0;
+            while (size < count) {
+                long productId = sample(random);
+                boolean duplicate = false;
+                for (int i = 0; i < size && !duplicate; i++) {
+                    duplicate = picked[i] == productId;
+                }
+                if (!duplicate) {
+                    picked[size++] = productId;
+                }
+            }
+            return picked;
+        }
+    }
+
+    /**
+     * Zero for a {@code 1 - fraction} share of users; otherwise a Pareto-distributed size of at least one,
+     * with a heavier tail the smaller {@code alpha} is.
+     */
+    private record SizeSampler(double fraction, double alpha, int max) {
+
+        int sample(SplittableRandom random) {
+            if (random.nextDouble() >= fraction) {
+                return 0;
+            }
+            double pareto = Math.pow(1 - random.nextDouble(), -1 / alpha);
+            return (int) Math.min(Math.floor(pareto), max);
+        }
+    }
+}
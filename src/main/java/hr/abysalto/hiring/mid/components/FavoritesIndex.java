@@ -0,0 +1,103 @@
+package hr.abysalto.hiring.mid.components;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import hr.abysalto.hiring.mid.domain.repository.FavoriteProductRepository;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.UnaryOperator;
+
+/**
+ * Favorite product IDs of recently active users, so listings can be marked without touching the database.
+ * <p>
+ * A user's set is loaded on first use and evicted least-recently-used once the index is full. Sets are
+ * immutable {@link ProductIdSet}s replaced on change; changes are applied after the writing transaction
+ * commits, and an in-flight load of the same user finishes before a change is applied on top of it.
+ * <p>
+ * Entries are futures: the calling thread inserts an incomplete one and runs the query outside the map, so a
+ * database load never holds a hash bin lock (which would also pin a virtual thread to its carrier), and
+ * concurrent callers for the same user wait on that future.
+ */
+@Component
+public class FavoritesIndex {
+
+    private final UserRepository userRepository;
+    private final FavoriteProductRepository favoriteProductRepository;
+    private final AsyncCache<String, ProductIdSet> favoritesByUsername;
+
+    public FavoritesIndex(
+            UserRepository userRepository,
+            FavoriteProductRepository favoriteProductRepository,
+            @Value("${favorites.index.max-users}") long maxUsers) {
+        this.userRepository = userRepository;
+        this.favoriteProductRepository = favoriteProductRepository;
+        this.favoritesByUsername = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .buildAsync();
+    }
+
+    /**
+     * Returns the user's favorites, or {@code null} if there is no such user.
+     */
+    public ProductIdSet get(String username) {
+        CompletableFuture<ProductIdSet> loading = new CompletableFuture<>();
+        CompletableFuture<ProductIdSet> existing = favoritesByUsername.asMap().putIfAbsent(username, loading);
+        if (existing != null) {
+            return existing.join();
+        }
+        try {
+            loading.complete(load(username));
+        } catch (RuntimeException e) {
+            // Completing exceptionally also removes the entry, so the next call retries
+            loading.completeExceptionally(e);
+            throw e;
+        }
+        return loading.join();
+    }
+
+    /**
+     * Returns the user's favorites if they are already loaded, or {@code null} without touching the database.
+     */
+    public ProductIdSet getIfLoaded(String username) {
+        CompletableFuture<ProductIdSet> favorites = favoritesByUsername.getIfPresent(username);
+        return favorites != null && favorites.isDone() && !favorites.isCompletedExceptionally() ? favorites.join() : null;
+    }
+
+    public void added(String username, Collection<Long> productIds) {
+        afterCommit(username, favorites -> favorites.with(productIds));
+    }
+
+    public void removed(String username, Collection<Long> productIds) {
+        afterCommit(username, favorites -> favorites.without(productIds));
+    }
+
+    private ProductIdSet load(String username) {
+        return userRepository.findByUsername(username)
+                .map(user -> ProductIdSet.of(favoriteProductRepository.findProductIdsByUserId(user.getUserId())))
+                .orElse(null);
+    }
+
+    private void afterCommit(String username, UnaryOperator<ProductIdSet> change) {
+        // Users that are not loaded pick the change up from the database on their next load
+        // Chained on the entry's future, so it lands on top of an in-flight load rather than being lost
+        Runnable apply = () -> favoritesByUsername.asMap().computeIfPresent(username,
+                (key, favorites) -> favorites.thenApply(loaded -> loaded != null ? change.apply(loaded) : null));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package hr.abysalto.hiring.mid.components;
+
+import jakarta.annotation.PreDestroy;
+import org.h2.api.Trigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replicates the primary H2 database into a replica H2 database by change data capture.
+ * <p>
+ * A row trigger on every primary table writes the key of each changed row to {@code replication_log} inside the
+ * writing transaction, so entries appear exactly when the change commits and vanish with a rollback. A single
+ * applier thread drains the log, re-reads the current rows from the primary and upserts them into the replica,
+ * deleting those that are gone. Copying current row state instead of replaying statements keeps the apply
+ * idempotent and independent of the order concurrent transactions committed in.
+ */
+public class H2TriggerReplicator implements Replicator {
+
+    private static final Logger log = LoggerFactory.getLogger(H2TriggerReplicator.class);
+
+    private static final String LOG_TABLE = "REPLICATION_LOG";
+    private static final String INSERT_LOG_SQL = "INSERT INTO replication_log (table_name, key1, key2) VALUES (?, ?, ?)";
+    private static final int KEYS_PER_SELECT = 500;
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final TransactionTemplate replicaTransaction;
+    private final long pollIntervalMs;
+    private final int batchSize;
+    private final Map<String, Table> tables = new LinkedHashMap<>();
+    private final ScheduledExecutorService applier = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-applier");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long appliedUpTo;
+    private volatile boolean seeded;
+
+    public H2TriggerReplicator(DataSource primary, DataSource replica, long pollIntervalMs, int batchSize) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.replicaTransaction = new TransactionTemplate(new DataSourceTransactionManager(replica));
+        this.pollIntervalMs = pollIntervalMs;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public OptionalLong appliedUpTo() {
+        return seeded ? OptionalLong.of(appliedUpTo) : OptionalLong.empty();
+    }
+
+    /**
+     * Installs the capture triggers, seeds the replica with a full copy and starts applying the log.
+     * Reads stay on the primary until the copy completes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        primary.execute("""
+                CREATE TABLE IF NOT EXISTS replication_log (
+                    seq        BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    table_name VARCHAR(128) NOT NULL,
+                    key1       BIGINT       NOT NULL,
+                    key2       BIGINT
+                )""");
+        List<String> tableNames = primary.queryForList("""
+                SELECT table_name FROM information_schema.tables
+                WHERE table_schema = 'PUBLIC' AND table_type = 'BASE TABLE' AND table_name <> ?""", String.class, LOG_TABLE);
+        for (String tableName : tableNames) {
+            Table table = primary.execute((ConnectionCallback<Table>) connection -> describe(connection, "PUBLIC", tableName));
+            tables.put(tableName, table);
+            primary.execute("CREATE TRIGGER IF NOT EXISTS " + tableName + "_REPLICATION AFTER INSERT, UPDATE, DELETE ON "
+                    + tableName + " FOR EACH ROW CALL '" + CaptureTrigger.class.getName() + "'");
+        }
+
+        // Changes committed while copying are also in the log, and applying them again is harmless
+        long copyStart = System.nanoTime();
+        tables.values().forEach(this::copy);
+        appliedUpTo = copyStart;
+        seeded = true;
+        log.info("Replica seeded with {} tables in {} ms", tables.size(), (System.nanoTime() - copyStart) / 1_000_000);
+
+        applier.scheduleWithFixedDelay(this::applyPending, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        applier.shutdown();
+        applier.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private void applyPending() {
+        try {
+            long pollStart;
+            List<LogEntry> entries;
+            do {
+                pollStart = System.nanoTime();
+                entries = primary.query("SELECT seq, table_name, key1, key2 FROM replication_log ORDER BY seq LIMIT ?",
+                        (rs, rowNum) -> new LogEntry(rs.getLong("seq"), rs.getString("table_name"),
+                                new RowKey(rs.getLong("key1"), rs.getObject("key2", Long.class))),
+                        batchSize);
+                apply(entries);
+            } while (entries.size() == batchSize);
+            // The last poll saw every entry still in the log, so everything committed before it is applied
+            appliedUpTo = pollStart;
+        } catch (RuntimeException e) {
+            log.warn("Replica apply failed, retrying: {}", e.getMessage());
+        }
+    }
+
+    private void apply(List<LogEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Map<String, Set<RowKey>> keysByTable = new LinkedHashMap<>();
+        entries.forEach(entry -> keysByTable.computeIfAbsent(entry.tableName(), name -> new LinkedHashSet<>()).add(entry.key()));
+
+        keysByTable.forEach((tableName, keys) -> {
+            Table table = tables.get(tableName);
+            try {
+                applyRows(table, keys);
+            } catch (DataAccessException e) {
+                // E.g. a unique value moving between rows in an order one batch cannot reproduce
+                log.warn("Replica apply to {} failed, copying the table: {}", tableName, e.getMessage());
+                copy(table);
+            }
+        });
+        primary.batchUpdate("DELETE FROM replication_log WHERE seq = ?", entries, entries.size(),
+                (ps, entry) -> ps.setLong(1, entry.seq()));
+    }
+
+    private void applyRows(Table table, Set<RowKey> keys) {
+        Map<RowKey, Object[]> rows = new HashMap<>();
+        List<RowKey> keyList = new ArrayList<>(keys);
+        for (int from = 0; from < keyList.size(); from += KEYS_PER_SELECT) {
+            List<RowKey> chunk = keyList.subList(from, Math.min(from + KEYS_PER_SELECT, keyList.size()));
+            primary.query(table.selectByKeysSql(chunk.size()), rs -> {
+                Object[] row = table.read(rs);
+                rows.put(table.key(row), row);
+            }, table.keyArgs(chunk));
+        }
+        List<Object[]> deletes = keys.stream()
+                .filter(key -> !rows.containsKey(key))
+                .map(table::keyArgs)
+                .toList();
+
+        replicaTransaction.executeWithoutResult(status -> {
+            // Deletes first, so a unique value that moved to another row does not collide
+            replica.batchUpdate(table.deleteSql(), deletes);
+            replica.batchUpdate(table.mergeSql(), new ArrayList<>(rows.values()));
+        });
+    }
+
+    /**
+     * Replaces the replica's copy of a table with the primary's current rows.
+     */
+    private void copy(Table table) {
+        replicaTransaction.executeWithoutResult(status -> {
+            replica.update("DELETE FROM " + table.name());
+            List<Object[]> batch = new ArrayList<>(batchSize);
+            primary.query(table.selectAllSql(), rs -> {
+                batch.add(table.read(rs));
+                if (batch.size() == batchSize) {
+                    replica.batchUpdate(table.mergeSql(), batch);
+                    batch.clear();
+                }
+            });
+            replica.batchUpdate(table.mergeSql(), batch);
+        });
+    }
+
+    private static Table describe(Connection connection, String schema, String tableName) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        List<String> columns = new ArrayList<>();
+        Map<String, Integer> types = new HashMap<>();
+        try (ResultSet rs = metaData.getColumns(null, schema, tableName, null)) {
+            while (rs.next()) {
+                columns.add(rs.getString("COLUMN_NAME"));
+                types.put(rs.getString("COLUMN_NAME"), rs.getInt("DATA_TYPE"));
+            }
+        }
+        Map<Short, String> keyColumns = new TreeMap<>();
+        try (ResultSet rs = metaData.getPrimaryKeys(null, schema, tableName)) {
+            while (rs.next()) {
+                keyColumns.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+            }
+        }
+
+        boolean integerKey = keyColumns.values().stream().allMatch(column -> switch (types.get(column)) {
+            case Types.BIGINT, Types.INTEGER, Types.SMALLINT, Types.TINYINT -> true;
+            default -> false;
+        });
+        if (keyColumns.isEmpty() || keyColumns.size() > 2 || !integerKey) {
+            throw new IllegalStateException("Cannot replicate table " + tableName + ": needs a primary key of one or two integer columns");
+        }
+        return new Table(tableName, List.copyOf(columns), keyColumns.values().stream().mapToInt(columns::indexOf).toArray());
+    }
+
+    /**
+     * Row trigger installed on every primary table; H2 instantiates it by class name once per table.
+     */
+    public static class CaptureTrigger implements Trigger {
+
+        private Table table;
+
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type)
+                throws SQLException {
+            table = describe(conn, schemaName, tableName);
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+            try (PreparedStatement insert = conn.prepareStatement(INSERT_LOG_SQL)) {
+                if (newRow != null) {
+                    addKey(insert, table.key(newRow));
+                }
+                // An update that changes the key moves the row, so the replica has to drop the old one
+                if (oldRow != null && (newRow == null || !table.key(oldRow).equals(table.key(newRow)))) {
+                    addKey(insert, table.key(oldRow));
+                }
+                insert.executeBatch();
+            }
+        }
+
+        private void addKey(PreparedStatement insert, RowKey key) throws SQLException {
+            insert.setString(1, table.name());
+            insert.setLong(2, key.key1());
+            insert.setObject(3, key.key2(), Types.BIGINT);
+            insert.addBatch();
+        }
+    }
+
+    private record LogEntry(long seq, String tableName, RowKey key) {
+    }
+
+    private record RowKey(long key1, Long key2) {
+    }
+
+    private record Table(String name, List<String> columns, int[] keyIndexes) {
+
+        RowKey key(Object[] row) {
+            return new RowKey(((Number) row[keyIndexes[0]]).longValue(),
+                    keyIndexes.length > 1 ? ((Number) row[keyIndexes[1]]).longValue() : null);
+        }
+
+        Object[] keyArgs(RowKey key) {
+            return keyIndexes.length > 1 ? new Object[]{key.key1(), key.key2()} : new Object[]{key.key1()};
+        }
+
+        Object[] keyArgs(List<RowKey> keys) {
+            return keys.stream().flatMap(key -> Arrays.stream(keyArgs(key))).toArray();
+        }
+
+        Object[] read(ResultSet rs) throws SQLException {
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+            return row;
+        }
+
+        String selectAllSql() {
+            return "SELECT " + String.join(", ", columns) + " FROM " + name;
+        }
+
+        String selectByKeysSql(int keyCount) {
+            String tuple = keyIndexes.length > 1 ? "(?, ?)" : "?";
+            return selectAllSql() + " WHERE " + keyList() + " IN (" + String.join(", ", Collections.nCopies(keyCount, tuple)) + ")";
+        }
+
+        String mergeSql() {
+            return "MERGE INTO " + name + " (" + String.join(", ", columns) + ") KEY " + keyList()
+                    + " VALUES (" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        }
+
+        String deleteSql() {
+            List<String> conditions = new ArrayList<>();
+            for (int index : keyIndexes) {
+                conditions.add(columns.get(index) + " = ?");
+            }
+            return "DELETE FROM " + name + " WHERE " + String.join(" AND ", conditions);
+        }
+
+        private String keyList() {
+            List<String> keyColumns = new ArrayList<>();
+            for (int index : keyIndexes) {
+                keyColumns.add(columns.get(index));
+            }
+            return "(" + String.join(", ", keyColumns) + ")";
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package hr.abysalto.hiring.mid.components;
+
+import hr.abysalto.hiring.mid.domain.event.OrderPlacedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+public class OrderConfirmationNotifier {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderConfirmationNotifier.class);
+
+    @EventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        log.info("Order {} confirmed for user {}: {} items, {} cents",
+                event.order().getOrderId(), event.order().getUserId(),
+                event.order().getTotalQuantity(), event.order().getTotalDiscountedCents());
+    }
+}
@@ -0,0 +1,113 @@
+package hr.abysalto.hiring.mid.components;
+
+import hr.abysalto.hiring.mid.domain.event.OrderPlacedEvent;
+import hr.abysalto.hiring.mid.domain.model.Order;
+import hr.abysalto.hiring.mid.domain.repository.OrderLineRepository;
+import hr.abysalto.hiring.mid.domain.repository.OrderRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded in-process queue of committed orders awaiting post-checkout work, drained by a fixed pool of workers.
+ * <p>
+ * Submitting never blocks the checkout request: when the queue is full the order simply stays
+ * {@code CREATED} in the database and is picked up by the periodic retry sweep. Delivery to
+ * {@link OrderPlacedEvent} listeners is therefore at-least-once.
+ */
+@Component
+public class OrderFulfilmentQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderFulfilmentQueue.class);
+
+    private final OrderRepository orderRepository;
+    private final OrderLineRepository orderLineRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long retryAfterMs;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor executor;
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+
+    public OrderFulfilmentQueue(
+            OrderRepository orderRepository,
+            OrderLineRepository orderLineRepository,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${checkout.fulfilment.workers}") int workers,
+            @Value("${checkout.fulfilment.queue-capacity}") int queueCapacity,
+            @Value("${checkout.fulfilment.retry-after-ms}") long retryAfterMs) {
+        this.orderRepository = orderRepository;
+        this.orderLineRepository = orderLineRepository;
+        this.eventPublisher = eventPublisher;
+        this.retryAfterMs = retryAfterMs;
+        this.queueCapacity = queueCapacity;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "order-fulfilment-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @return false if the queue is full and the order was left for the retry sweep
+     */
+    public boolean submit(Long orderId) {
+        if (!queued.add(orderId)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> process(orderId));
+            return true;
+        } catch (RejectedExecutionException e) {
+            queued.remove(orderId);
+            log.warn("Fulfilment queue full, order {} will be retried by the sweep", orderId);
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${checkout.fulfilment.retry-after-ms}")
+    public void resubmitStalled() {
+        LocalDateTime before = LocalDateTime.now().minusNanos(retryAfterMs * 1_000_000);
+        orderRepository.findIdsByStatusCreatedBefore(Order.STATUS_CREATED, before, queueCapacity)
+                .forEach(this::submit);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private void process(Long orderId) {
+        try {
+            Order order = orderRepository.findById(orderId).orElse(null);
+            if (order == null || !Order.STATUS_CREATED.equals(order.getStatus())) {
+                return;
+            }
+
+            eventPublisher.publishEvent(new OrderPlacedEvent(order, orderLineRepository.findByOrderId(orderId)));
+            orderRepository.updateStatus(orderId, Order.STATUS_CREATED, Order.STATUS_FULFILLED);
+        } catch (Exception e) {
+            log.error("Fulfilment of order {} failed, it will be retried: {}", orderId, e.getMessage(), e);
+        } finally {
+            queued.remove(orderId);
+        }
+    }
+}
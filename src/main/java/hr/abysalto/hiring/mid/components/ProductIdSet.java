@@ -0,0 +1,119 @@
+package hr.abysalto.hiring.mid.components;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.LongConsumer;
+
+/**
+ * Immutable set of product IDs without boxing.
+ * Catalog IDs are small and dense, so they are kept in a bitset; IDs outside the bitset range fall back to
+ * a sorted array searched with binary search. Lookups never allocate.
+ */
+public final class ProductIdSet {
+
+    static final long BITSET_LIMIT = 1L << 16;
+
+    private static final long[] NONE = new long[0];
+
+    public static final ProductIdSet EMPTY = new ProductIdSet(NONE, NONE);
+
+    private final long[] bits;
+    private final long[] sparse;
+
+    private ProductIdSet(long[] bits, long[] sparse) {
+        this.bits = bits;
+        this.sparse = sparse;
+    }
+
+    public static ProductIdSet of(Collection<Long> productIds) {
+        return EMPTY.with(productIds);
+    }
+
+    public boolean contains(long productId) {
+        if (productId >= 0 && productId < BITSET_LIMIT) {
+            int word = (int) (productId >>> 6);
+            return word < bits.length && (bits[word] & (1L << productId)) != 0;
+        }
+        return Arrays.binarySearch(sparse, productId) >= 0;
+    }
+
+    public ProductIdSet with(Collection<Long> productIds) {
+        long[] newBits = bits;
+        long[] newSparse = sparse;
+        int sparseSize = sparse.length;
+
+        for (long id : productIds) {
+            if (id >= 0 && id < BITSET_LIMIT) {
+                int word = (int) (id >>> 6);
+                if (newBits == bits || word >= newBits.length) {
+                    newBits = Arrays.copyOf(newBits, Math.max(newBits.length, word + 1));
+                }
+                newBits[word] |= 1L << id;
+            } else if (!contains(newSparse, sparseSize, id)) {
+                if (newSparse == sparse || sparseSize == newSparse.length) {
+                    newSparse = Arrays.copyOf(newSparse, Math.max(4, sparseSize * 2));
+                }
+                newSparse[sparseSize++] = id;
+            }
+        }
+
+        if (newSparse != sparse) {
+            newSparse = Arrays.copyOf(newSparse, sparseSize);
+            Arrays.sort(newSparse);
+        }
+        return new ProductIdSet(newBits, newSparse);
+    }
+
+    public ProductIdSet without(Collection<Long> productIds) {
+        long[] newBits = bits.clone();
+        long[] newSparse = sparse;
+
+        for (long id : productIds) {
+            if (id >= 0 && id < BITSET_LIMIT) {
+                int word = (int) (id >>> 6);
+                if (word < newBits.length) {
+                    newBits[word] &= ~(1L << id);
+                }
+            } else {
+                int index = Arrays.binarySearch(newSparse, id);
+                if (index >= 0) {
+                    long[] shrunk = new long[newSparse.length - 1];
+                    System.arraycopy(newSparse, 0, shrunk, 0, index);
+                    System.arraycopy(newSparse, index + 1, shrunk, index, shrunk.length - index);
+                    newSparse = shrunk;
+                }
+            }
+        }
+        return new ProductIdSet(newBits, newSparse);
+    }
+
+    public void forEach(LongConsumer action) {
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                action.accept(((long) word << 6) + Long.numberOfTrailingZeros(remaining));
+                remaining &= remaining - 1;
+            }
+        }
+        for (long id : sparse) {
+            action.accept(id);
+        }
+    }
+
+    public int size() {
+        int size = sparse.length;
+        for (long word : bits) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    private static boolean contains(long[] unsorted, int size, long id) {
+        for (int i = 0; i < size; i++) {
+            if (unsorted[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,188 @@
+package hr.abysalto.hiring.mid.components;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary.
+ * <p>
+ * A read goes to the replica only while it lags the primary by at most {@code maxLagMs} and has applied the
+ * reader's last write, so users always read their own writes. Every write to the primary is remembered for
+ * {@code maxLagMs}, after which any replica fresh enough to be used has applied it anyway: a read-write transaction
+ * when it commits, and work outside a transaction when its connection is closed, if it ran anything but a query.
+ * Writes are remembered per authenticated user. A reader without one, such as a login, a sign-up or a thread
+ * the security context does not reach, cannot tell which writes are its own, so it waits for the replica to apply
+ * everyone's. Must sit behind a {@link LazyConnectionDataSourceProxy} so that the transaction's read-only flag is
+ * set by the time a connection is fetched.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final Replicator replicator;
+    private final long maxLagNanos;
+    private final Cache<String, Long> lastWriteByUser;
+    private final AtomicLong lastWrite = new AtomicLong(System.nanoTime());
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, Replicator replicator, long maxLagMs) {
+        this.replicator = replicator;
+        this.maxLagNanos = Duration.ofMillis(maxLagMs).toNanos();
+        this.lastWriteByUser = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(maxLagMs))
+                .build();
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return recordingWrites(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return recordingWrites(super.getConnection(username, password));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        // Outside a transaction there is no telling whether the statement writes
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Target.PRIMARY;
+        }
+        String user = currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            rememberCommit(user);
+            return Target.PRIMARY;
+        }
+        return replicaHasApplied(user) ? Target.REPLICA : Target.PRIMARY;
+    }
+
+    private boolean replicaHasApplied(String user) {
+        OptionalLong appliedUpTo = replicator.appliedUpTo();
+        if (appliedUpTo.isEmpty() || System.nanoTime() - appliedUpTo.getAsLong() > maxLagNanos) {
+            return false;
+        }
+        Long lastWriteOfReader = user != null ? lastWriteByUser.getIfPresent(user) : Long.valueOf(lastWrite.get());
+        return lastWriteOfReader == null || appliedUpTo.getAsLong() - lastWriteOfReader > 0;
+    }
+
+    private void rememberCommit(String user) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                // Taken after the commit returned, so a replica applied up to a later reading has the changes
+                if (status == STATUS_COMMITTED) {
+                    rememberWrite(user);
+                }
+            }
+        });
+    }
+
+    private void rememberWrite(String user) {
+        long now = System.nanoTime();
+        if (user != null) {
+            lastWriteByUser.put(user, now);
+        }
+        lastWrite.accumulateAndGet(now, (current, written) -> written - current > 0 ? written : current);
+    }
+
+    /**
+     * Connections used outside a transaction auto-commit every statement, so one that ran a write is remembered
+     * once it is closed. Transactions are remembered when they commit instead.
+     */
+    private Connection recordingWrites(Connection connection) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return connection;
+        }
+        String user = currentUser();
+        AtomicBoolean wrote = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement", "prepareCall" -> {
+                            if (!isQuery((String) args[0])) {
+                                wrote.set(true);
+                            }
+                        }
+                        case "close" -> {
+                            try {
+                                return invoke(connection, method, args);
+                            } finally {
+                                if (wrote.get()) {
+                                    rememberWrite(user);
+                                }
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                    Object result = invoke(connection, method, args);
+                    // Plain statements only show their SQL when executed
+                    return result instanceof Statement statement && !(result instanceof PreparedStatement)
+                            ? recordingWrites(statement, wrote)
+                            : result;
+                });
+    }
+
+    private static Statement recordingWrites(Statement statement, AtomicBoolean wrote) {
+        return (Statement) Proxy.newProxyInstance(ReadWriteRoutingDataSource.class.getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if (args != null && args.length > 0 && args[0] instanceof String sql && !method.getName().equals("executeQuery")
+                            && !isQuery(sql)) {
+                        wrote.set(true);
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static boolean isQuery(String sql) {
+        String trimmed = sql.stripLeading();
+        return trimmed.regionMatches(true, 0, "SELECT", 0, 6);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Returns the authenticated user, or {@code null} for anonymous requests and threads without a security context.
+     */
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
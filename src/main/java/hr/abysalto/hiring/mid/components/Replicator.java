@@ -0,0 +1,15 @@
+package hr.abysalto.hiring.mid.components;
+
+import java.util.OptionalLong;
+
+/**
+ * Keeps the read replica in step with the primary database and reports how far it has caught up.
+ */
+public interface Replicator {
+
+    /**
+     * Returns a {@link System#nanoTime()} reading such that every transaction committed on the primary before it
+     * is visible on the replica, or empty while the replica has not been seeded yet.
+     */
+    OptionalLong appliedUpTo();
+}
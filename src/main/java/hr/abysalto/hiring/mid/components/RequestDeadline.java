@@ -0,0 +1,32 @@
+package hr.abysalto.hiring.mid.components;
+
+import hr.abysalto.hiring.mid.exception.ExternalApiException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Upper bound on the concurrent work behind one request.
+ * <p>
+ * A request's independent upstream calls and database lookups are composed into one {@link Mono} and bounded here
+ * as a whole: when the deadline passes, the composition is cancelled, which aborts in-flight HTTP exchanges and
+ * interrupts offloaded queries, and the request fails like any other upstream outage.
+ */
+@Component
+public class RequestDeadline {
+
+    private final Duration deadline;
+
+    public RequestDeadline(@Value("${request.deadline-ms}") long deadlineMs) {
+        this.deadline = Duration.ofMillis(deadlineMs);
+    }
+
+    public <T> Mono<T> apply(Mono<T> work) {
+        return work.timeout(deadline)
+                .onErrorMap(TimeoutException.class,
+                        e -> new ExternalApiException("Request deadline of " + deadline.toMillis() + " ms exceeded", e));
+    }
+}
@@ -0,0 +1,137 @@
+package hr.abysalto.hiring.mid.components;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Time spent in each stage of serving one request, sent back by {@link ServerTimingFilter} as the
+ * {@code Server-Timing} header.
+ * <p>
+ * The filter binds an instance to the request thread. Code on the request path wraps a stage in {@link #time},
+ * which costs a thread-local lookup and two {@code nanoTime} calls, and does nothing outside an HTTP request.
+ * {@link #timed} does the same for a {@link Mono}, measuring from subscription until it terminates, so that calls
+ * completing on an event loop are still counted. A stage may run many times and concurrently; durations and counts
+ * add up.
+ */
+public final class RequestTimings {
+
+    public enum Stage {
+        JWT("jwt", "check", "checks"),
+        USER("user", "lookup", "lookups"),
+        DB("db", "query", "queries"),
+        CACHE("cache", "hit", "hits"),
+        UPSTREAM("upstream", "call", "calls");
+
+        private final String metric;
+        private final String one;
+        private final String many;
+
+        Stage(String metric, String one, String many) {
+            this.metric = metric;
+            this.one = one;
+            this.many = many;
+        }
+    }
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+    private static final Stage[] STAGES = Stage.values();
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLongArray nanos = new AtomicLongArray(STAGES.length);
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(STAGES.length);
+
+    public static <T> T time(Stage stage, Supplier<T> work) {
+        RequestTimings timings = CURRENT.get();
+        if (timings == null) {
+            return work.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            timings.add(stage, System.nanoTime() - start);
+        }
+    }
+
+    public static void time(Stage stage, Runnable work) {
+        time(stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static <T> Mono<T> timed(Stage stage, Mono<T> work) {
+        return Mono.defer(() -> {
+            RequestTimings timings = CURRENT.get();
+            if (timings == null) {
+                return work;
+            }
+            long start = System.nanoTime();
+            return work.doFinally(signal -> timings.add(stage, System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Counts a stage that took no measurable time, such as a cache hit.
+     */
+    public static void count(Stage stage) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.add(stage, 0);
+        }
+    }
+
+    static void bind(RequestTimings timings) {
+        CURRENT.set(timings);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    void add(Stage stage, long durationNanos) {
+        nanos.addAndGet(stage.ordinal(), durationNanos);
+        counts.incrementAndGet(stage.ordinal());
+    }
+
+    long elapsedNanos(long nowNanos) {
+        return nowNanos - startNanos;
+    }
+
+    /**
+     * Header value for the stages seen so far, e.g. {@code db;dur=2.150;desc="2 queries", app;dur=4.800}, where
+     * {@code app} is the time since the request arrived.
+     */
+    String header(long nowNanos) {
+        StringBuilder header = new StringBuilder(128);
+        for (Stage stage : STAGES) {
+            int count = counts.get(stage.ordinal());
+            if (count > 0) {
+                append(header, stage.metric, nanos.get(stage.ordinal()));
+                header.append(";desc=\"").append(count).append(' ').append(count == 1 ? stage.one : stage.many).append('"');
+                header.append(", ");
+            }
+        }
+        append(header, "app", elapsedNanos(nowNanos));
+        return header.toString();
+    }
+
+    /**
+     * Appends {@code metric;dur=<milliseconds>} with microsecond precision.
+     */
+    static void append(StringBuilder header, String metric, long durationNanos) {
+        long micros = durationNanos / 1000;
+        long fraction = micros % 1000;
+        header.append(metric).append(";dur=").append(micros / 1000).append('.');
+        if (fraction < 100) {
+            header.append('0');
+        }
+        if (fraction < 10) {
+            header.append('0');
+        }
+        header.append(fraction);
+    }
+}
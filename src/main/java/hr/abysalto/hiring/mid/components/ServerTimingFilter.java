@@ -0,0 +1,190 @@
+package hr.abysalto.hiring.mid.components;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Reports where each request spent its time in a {@code Server-Timing} header, and logs requests slower than
+ * {@code server-timing.slow-request-ms}.
+ * <p>
+ * Runs before the security filters, so token validation and the user lookup are covered. The header is set just
+ * before the response body starts, the last moment it can still be sent; how long writing the body took is only known
+ * afterwards and appears as {@code write} in the slow-request log. Async requests (the non-blocking browse
+ * controllers) keep the same {@link RequestTimings} across their dispatches and are logged when they complete.
+ * Event streams are not logged: they stay open for as long as the client listens, so their duration says nothing about
+ * how fast they were served.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "server-timing.enabled", havingValue = "true")
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+    private static final String HEADER = "Server-Timing";
+    private static final String ATTRIBUTE = ServerTimingFilter.class.getName() + ".response";
+
+    private final long slowRequestNanos;
+
+    public ServerTimingFilter(@Value("${server-timing.slow-request-ms}") long slowRequestMs) {
+        this.slowRequestNanos = slowRequestMs * 1_000_000;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        TimedResponse timedResponse = (TimedResponse) request.getAttribute(ATTRIBUTE);
+        if (timedResponse == null) {
+            timedResponse = new TimedResponse(response, new RequestTimings());
+            request.setAttribute(ATTRIBUTE, timedResponse);
+            response = timedResponse;
+        }
+
+        RequestTimings.bind(timedResponse.timings);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestTimings.unbind();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(request, timedResponse));
+            } else if (!isAsyncDispatch(request)) {
+                complete(request, timedResponse);
+            }
+        }
+    }
+
+    private void complete(HttpServletRequest request, TimedResponse response) {
+        long now = System.nanoTime();
+        // No body, so nothing has set the header yet
+        response.beforeBody();
+        if (isEventStream(response)) {
+            return;
+        }
+        long elapsed = response.timings.elapsedNanos(now);
+        if (elapsed >= slowRequestNanos) {
+            StringBuilder timings = new StringBuilder(response.header).append(", ");
+            RequestTimings.append(timings, "write", now - response.bodyStartNanos);
+            log.warn("Slow request {} {} answered {} in {} ms: {}", request.getMethod(), request.getRequestURI(),
+                    response.getStatus(), elapsed / 1_000_000, timings);
+        }
+    }
+
+    private static boolean isEventStream(HttpServletResponse response) {
+        String contentType = response.getContentType();
+        return contentType != null && MediaType.TEXT_EVENT_STREAM.isCompatibleWith(MediaType.parseMediaType(contentType));
+    }
+
+    /**
+     * Sets the header when the body is about to be written, or the response is about to be committed without one.
+     */
+    private static final class TimedResponse extends HttpServletResponseWrapper {
+
+        private final RequestTimings timings;
+        private String header;
+        private long bodyStartNanos;
+
+        TimedResponse(HttpServletResponse response, RequestTimings timings) {
+            super(response);
+            this.timings = timings;
+        }
+
+        void beforeBody() {
+            if (header == null) {
+                bodyStartNanos = System.nanoTime();
+                header = timings.header(bodyStartNanos);
+                if (!isCommitted()) {
+                    setHeader(HEADER, header);
+                }
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            beforeBody();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            beforeBody();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            beforeBody();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            beforeBody();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            beforeBody();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            beforeBody();
+            super.sendRedirect(location);
+        }
+    }
+
+    private final class CompletionListener implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final TimedResponse response;
+
+        CompletionListener(HttpServletRequest request, TimedResponse response) {
+            this.request = request;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            complete(request, response);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package hr.abysalto.hiring.mid.components;
+
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.domain.model.User;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import hr.abysalto.hiring.mid.security.JwtUtil;
+import hr.abysalto.hiring.mid.security.TotpUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Gets a freshly started instance ready for traffic before it reports ready.
+ * <p>
+ * Runs on {@link ApplicationReadyEvent}, after the other startup listeners; Spring Boot only moves the readiness
+ * state to ACCEPTING_TRAFFIC once every listener has returned, so {@code /actuator/health/readiness} stays
+ * OUT_OF_SERVICE meanwhile. The first product pages and the trending products are fetched into the caches
+ * concurrently, then the authenticated read paths (JWT filter, product listing, cart) are called over loopback as a
+ * system user that has no usable password and is deleted afterwards, and TOTP verification is exercised in process,
+ * so that the JIT has compiled them before real users arrive. Failures are logged and never stop startup, and the
+ * whole phase is bounded by {@code warmup.max-duration-ms}.
+ */
+@Component
+public class StartupWarmup {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    private final DummyJsonClient dummyJsonClient;
+    private final TrendingTracker trendingTracker;
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final JwtUtil jwtUtil;
+    private final TotpUtil totpUtil;
+    private final boolean enabled;
+    private final int productPages;
+    private final int pageSize;
+    private final int trendingProducts;
+    private final int requests;
+    private final String username;
+    private final long maxDurationMs;
+
+    // Checked at run time rather than with a condition, so that an AOT-processed build can still switch it
+    public StartupWarmup(
+            DummyJsonClient dummyJsonClient,
+            TrendingTracker trendingTracker,
+            UserRepository userRepository,
+            PasswordEncoder passwordEncoder,
+            JwtUtil jwtUtil,
+            TotpUtil totpUtil,
+            @Value("${warmup.enabled}") boolean enabled,
+            @Value("${warmup.product-pages}") int productPages,
+            @Value("${warmup.page-size}") int pageSize,
+            @Value("${warmup.trending-products}") int trendingProducts,
+            @Value("${warmup.requests}") int requests,
+            @Value("${warmup.username}") String username,
+            @Value("${warmup.max-duration-ms}") long maxDurationMs) {
+        this.dummyJsonClient = dummyJsonClient;
+        this.trendingTracker = trendingTracker;
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.jwtUtil = jwtUtil;
+        this.totpUtil = totpUtil;
+        this.enabled = enabled;
+        this.productPages = productPages;
+        this.pageSize = pageSize;
+        this.trendingProducts = trendingProducts;
+        this.requests = requests;
+        this.username = username;
+        this.maxDurationMs = maxDurationMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void warmUp(ApplicationReadyEvent event) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long deadline = start + maxDurationMs;
+
+        List<Integer> cachedPages = prefetch(deadline);
+        int sent = 0;
+        if (event.getApplicationContext() instanceof WebServerApplicationContext web) {
+            try {
+                sent = exercise(web.getWebServer().getPort(), cachedPages, deadline);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException | IOException e) {
+                log.warn("Warm-up requests failed, continuing startup: {}", e.toString());
+            }
+        }
+        log.info("Warm-up done in {} ms: {} of {} product pages cached, {} requests sent",
+                System.currentTimeMillis() - start, cachedPages.size(), productPages, sent);
+    }
+
+    /**
+     * Indexes of the product pages now in the cache.
+     */
+    private List<Integer> prefetch(long deadline) {
+        // Publish the rankings loaded from the database now instead of at the first scheduled pass
+        trendingTracker.rank();
+        List<Long> trendingIds = trendingTracker.top(TrendingTracker.Ranking.TRENDING, trendingProducts).stream()
+                .map(TrendingTracker.ProductScore::productId)
+                .toList();
+
+        List<Mono<Integer>> fetches = new ArrayList<>();
+        for (int page = 0; page < productPages; page++) {
+            int index = page;
+            fetches.add(dummyJsonClient.getProductsAsync(pageSize, page * pageSize, null, null)
+                    .map(response -> index)
+                    .onErrorResume(e -> {
+                        log.warn("Warm-up could not fetch product page {}: {}", index, e.getMessage());
+                        return Mono.empty();
+                    }));
+        }
+        fetches.add(dummyJsonClient.getProductsByIdsAsync(trendingIds)
+                .then(Mono.<Integer>empty())
+                .onErrorResume(e -> {
+                    log.warn("Warm-up could not fetch trending products: {}", e.getMessage());
+                    return Mono.empty();
+                }));
+
+        List<Integer> cachedPages = new ArrayList<>();
+        Flux.merge(fetches)
+                .take(Duration.ofMillis(Math.max(0, deadline - System.currentTimeMillis())))
+                .doOnNext(cachedPages::add)
+                .blockLast();
+        return cachedPages;
+    }
+
+    private int exercise(int port, List<Integer> cachedPages, long deadline) throws IOException, InterruptedException {
+        User user = warmupUser();
+        if (user == null) {
+            log.warn("User {} exists but was not created by the warm-up, skipping warm-up requests", username);
+            return 0;
+        }
+        try {
+            return exercise(port, user, cachedPages, deadline);
+        } finally {
+            // Its cart and any other rows go with it
+            userRepository.delete(user);
+        }
+    }
+
+    private int exercise(int port, User user, List<Integer> cachedPages, long deadline) throws IOException, InterruptedException {
+        String token = jwtUtil.generateAccessToken(user.getUsername(), Map.of("userId", user.getUserId()));
+        String totpSecret = totpUtil.generateSecret();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+        String baseUrl = "http://localhost:" + port;
+
+        int sent = 0;
+        for (int i = 0; i < requests && System.currentTimeMillis() < deadline; i++) {
+            // Only pages already cached, so that a slow or unreachable DummyJSON cannot stretch the warm-up
+            if (!cachedPages.isEmpty()) {
+                int page = cachedPages.get(i % cachedPages.size());
+                get(client, baseUrl + "/api/products?limit=" + pageSize + "&skip=" + page * pageSize, token);
+                sent++;
+            }
+            get(client, baseUrl + "/api/cart", token);
+            sent++;
+            totpUtil.verifyCode(totpSecret, "000000");
+        }
+        return sent;
+    }
+
+    private void get(HttpClient client, String url, String token) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(url))
+                        .header("Authorization", "Bearer " + token)
+                        .timeout(Duration.ofSeconds(5))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + url + " answered " + response.statusCode());
+        }
+    }
+
+    /**
+     * The warm-up user, created for this warm-up and deleted after it. One left behind by a warm-up that never
+     * finished is reused; null if someone else has registered the username, or if the account is an admin.
+     */
+    private User warmupUser() {
+        String email = username + "@localhost";
+        Optional<User> existing = userRepository.findByUsername(username);
+        if (existing.isPresent()) {
+            return email.equals(existing.get().getEmail()) && !existing.get().isAdmin() ? existing.get() : null;
+        }
+        return userRepository.save(User.builder()
+                .username(username)
+                .email(email)
+                // Random and never stored in plain text: nobody can log in as the warm-up user
+                .password(passwordEncoder.encode(UUID.randomUUID().toString()))
+                .firstName("Warm-up")
+                .lastName("System")
+                .admin(false)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+}
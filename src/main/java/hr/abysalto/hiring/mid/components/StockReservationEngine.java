@@ -0,0 +1,354 @@
+package hr.abysalto.hiring.mid.components;
+
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.exception.InsufficientStockException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Holds stock for cart lines so popular products cannot be oversold.
+ * <p>
+ * Available stock lives in per-product {@link AtomicLong} counters seeded from the catalog and decremented
+ * with compare-and-set, so concurrent carts never wait on a lock or a database row. Each user's hold on a
+ * product is a reservation that expires through a {@link TimerWheel} unless the line is checked out first.
+ * Counters and reservations are written to {@code product_stock}/{@code stock_reservations} asynchronously
+ * and reloaded on startup.
+ * <p>
+ * Holds live outside the database transaction, so a change made inside one is undone if it rolls back;
+ * otherwise a hold taken for a cart line that was never written would keep the stock until it expired.
+ */
+@Component
+public class StockReservationEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservationEngine.class);
+
+    private static final String UPSERT_STOCK_SQL = "MERGE INTO product_stock (product_id, available, updated_at) KEY (product_id) VALUES (?, ?, CURRENT_TIMESTAMP)";
+    private static final String UPSERT_RESERVATION_SQL = "MERGE INTO stock_reservations (user_id, product_id, quantity, expires_at) KEY (user_id, product_id) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_RESERVATION_SQL = "DELETE FROM stock_reservations WHERE user_id = ? AND product_id = ?";
+
+    private final DummyJsonClient dummyJsonClient;
+    private final JdbcTemplate jdbcTemplate;
+    private final long reservationTtlMs;
+    private final TimerWheel<ReservationKey> expiryWheel;
+
+    private final Map<Long, AtomicLong> available = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Long, Reservation>> reservations = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyProducts = ConcurrentHashMap.newKeySet();
+    private final Set<ReservationKey> dirtyReservations = ConcurrentHashMap.newKeySet();
+
+    public StockReservationEngine(
+            DummyJsonClient dummyJsonClient,
+            JdbcTemplate jdbcTemplate,
+            @Value("${stock.reservation-ttl-ms}") long reservationTtlMs,
+            @Value("${stock.expiry-tick-ms}") long expiryTickMs) {
+        this.dummyJsonClient = dummyJsonClient;
+        this.jdbcTemplate = jdbcTemplate;
+        this.reservationTtlMs = reservationTtlMs;
+        this.expiryWheel = new TimerWheel<>(expiryTickMs, 512, System.currentTimeMillis());
+    }
+
+    @PostConstruct
+    public void load() {
+        jdbcTemplate.query("SELECT product_id, available FROM product_stock",
+                rs -> { available.put(rs.getLong("product_id"), new AtomicLong(rs.getLong("available"))); });
+
+        long now = System.currentTimeMillis();
+        jdbcTemplate.query("SELECT user_id, product_id, quantity, expires_at FROM stock_reservations", rs -> {
+            ReservationKey key = new ReservationKey(rs.getLong("user_id"), rs.getLong("product_id"));
+            Reservation reservation = new Reservation(rs.getInt("quantity"), rs.getTimestamp("expires_at").getTime());
+            userReservations(key.userId()).put(key.productId(), reservation);
+            expiryWheel.schedule(key, reservation.expiresAtMs());
+        });
+        // Anything that expired while we were down is released on the first tick
+        expire(now);
+    }
+
+    /**
+     * Adds to the user's hold on the product.
+     *
+     * @throws InsufficientStockException if not enough stock is left; nothing is held in that case
+     */
+    public void reserve(Long userId, Long productId, int quantity) {
+        adjust(userId, productId, held -> held + quantity);
+    }
+
+    /**
+     * Takes back part of a hold, e.g. when the cart write it was made for failed.
+     */
+    public void cancel(Long userId, Long productId, int quantity) {
+        adjust(userId, productId, held -> held - quantity);
+    }
+
+    /**
+     * Reserves several products for one user, all or nothing.
+     */
+    public void reserveAll(Long userId, Map<Long, Integer> quantitiesByProductId) {
+        Map<Long, Integer> reserved = new LinkedHashMap<>();
+        try {
+            quantitiesByProductId.forEach((productId, quantity) -> {
+                reserve(userId, productId, quantity);
+                reserved.put(productId, quantity);
+            });
+        } catch (RuntimeException e) {
+            reserved.forEach((productId, quantity) -> cancel(userId, productId, quantity));
+            throw e;
+        }
+    }
+
+    /**
+     * Sets the user's hold on the product to exactly the given quantity, releasing it when not positive.
+     */
+    public void setReserved(Long userId, Long productId, int quantity) {
+        adjust(userId, productId, held -> quantity);
+    }
+
+    public void release(Long userId, Long productId) {
+        adjust(userId, productId, held -> 0);
+    }
+
+    public void releaseAll(Long userId) {
+        Map<Long, Reservation> held = reservations.get(userId);
+        if (held != null) {
+            held.keySet().forEach(productId -> release(userId, productId));
+        }
+    }
+
+    /**
+     * Converts the user's holds into sold stock at checkout, topping up holds that expired or fall short.
+     * All or nothing: on failure every hold already consumed is returned to stock, and so is everything sold
+     * if the surrounding transaction rolls back. The holds are released either way.
+     *
+     * @return the quantities taken from stock
+     */
+    public Map<Long, Integer> commit(Long userId, Map<Long, Integer> quantitiesByProductId) {
+        Map<Long, Integer> committed = new LinkedHashMap<>();
+        try {
+            quantitiesByProductId.forEach((productId, quantity) -> {
+                AtomicLong counter = counter(productId);
+                userReservations(userId).compute(productId, (id, current) -> {
+                    int held = current != null ? current.quantity() : 0;
+                    if (quantity > held) {
+                        take(counter, productId, quantity - held);
+                    } else if (held > quantity) {
+                        counter.addAndGet(held - quantity);
+                    }
+                    return null;
+                });
+                committed.put(productId, quantity);
+                dirtyProducts.add(productId);
+                dirtyReservations.add(new ReservationKey(userId, productId));
+            });
+            onRollback(() -> restore(committed));
+            return committed;
+        } catch (RuntimeException e) {
+            restore(committed);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns sold stock, e.g. when the order that consumed it failed to commit.
+     */
+    public void restore(Map<Long, Integer> quantitiesByProductId) {
+        quantitiesByProductId.forEach((productId, quantity) -> {
+            counter(productId).addAndGet(quantity);
+            dirtyProducts.add(productId);
+        });
+    }
+
+    public long getAvailable(Long productId) {
+        return counter(productId).get();
+    }
+
+    @Scheduled(fixedRateString = "${stock.expiry-tick-ms}")
+    public void expireReservations() {
+        expire(System.currentTimeMillis());
+    }
+
+    @Scheduled(fixedDelayString = "${stock.flush-interval-ms}")
+    @PreDestroy
+    public void flush() {
+        if (dirtyProducts.isEmpty() && dirtyReservations.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> stockRows = new ArrayList<>();
+        for (Long productId : drain(dirtyProducts)) {
+            stockRows.add(new Object[]{productId, available.get(productId).get()});
+        }
+
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        for (ReservationKey key : drain(dirtyReservations)) {
+            Reservation reservation = userReservations(key.userId()).get(key.productId());
+            if (reservation != null) {
+                upserts.add(new Object[]{key.userId(), key.productId(), reservation.quantity(),
+                        new Timestamp(reservation.expiresAtMs())});
+            } else {
+                deletes.add(new Object[]{key.userId(), key.productId()});
+            }
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_STOCK_SQL, stockRows);
+            jdbcTemplate.batchUpdate(UPSERT_RESERVATION_SQL, upserts);
+            jdbcTemplate.batchUpdate(DELETE_RESERVATION_SQL, deletes);
+        } catch (RuntimeException e) {
+            log.error("Stock flush failed, will retry: {}", e.getMessage(), e);
+            stockRows.forEach(row -> dirtyProducts.add((Long) row[0]));
+            upserts.forEach(row -> dirtyReservations.add(new ReservationKey((Long) row[0], (Long) row[1])));
+            deletes.forEach(row -> dirtyReservations.add(new ReservationKey((Long) row[0], (Long) row[1])));
+        }
+    }
+
+    private void adjust(Long userId, Long productId, IntUnaryOperator target) {
+        AtomicLong counter = counter(productId);
+        long expiresAt = System.currentTimeMillis() + reservationTtlMs;
+
+        int[] previous = new int[1];
+        Reservation updated = userReservations(userId).compute(productId, (id, current) -> {
+            int held = current != null ? current.quantity() : 0;
+            previous[0] = held;
+            int wanted = Math.max(0, target.applyAsInt(held));
+            if (wanted > held) {
+                take(counter, productId, wanted - held);
+            } else if (wanted < held) {
+                counter.addAndGet(held - wanted);
+            }
+            return wanted > 0 ? new Reservation(wanted, expiresAt) : null;
+        });
+
+        if (updated != null) {
+            expiryWheel.schedule(new ReservationKey(userId, productId), expiresAt);
+        }
+        dirtyProducts.add(productId);
+        dirtyReservations.add(new ReservationKey(userId, productId));
+        int delta = (updated != null ? updated.quantity() : 0) - previous[0];
+        if (delta != 0) {
+            onRollback(() -> revert(userId, productId, delta));
+        }
+    }
+
+    private void revert(Long userId, Long productId, int delta) {
+        try {
+            adjust(userId, productId, held -> held - delta);
+        } catch (InsufficientStockException e) {
+            // A released hold whose stock was taken meanwhile; checkout tops the line up if stock returns
+            log.warn("Could not restore hold on product {} of user {} after rollback: {}", productId, userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the undo if the surrounding transaction rolls back. Undos run newest first, so compensation
+     * already made by the caller cancels out.
+     */
+    private void onRollback(Runnable undo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        RollbackUndo rollback = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(RollbackUndo.class::isInstance)
+                .map(RollbackUndo.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    RollbackUndo created = new RollbackUndo();
+                    TransactionSynchronizationManager.registerSynchronization(created);
+                    return created;
+                });
+        rollback.undos.push(undo);
+    }
+
+    private void expire(long now) {
+        expiryWheel.advance(now, key -> {
+            Map<Long, Reservation> held = reservations.get(key.userId());
+            if (held == null) return;
+
+            held.computeIfPresent(key.productId(), (id, reservation) -> {
+                if (reservation.expiresAtMs() > now) {
+                    return reservation; // extended since this timeout was scheduled
+                }
+                available.get(id).addAndGet(reservation.quantity());
+                dirtyProducts.add(id);
+                dirtyReservations.add(key);
+                return null;
+            });
+        });
+    }
+
+    private static void take(AtomicLong counter, Long productId, long quantity) {
+        long current;
+        do {
+            current = counter.get();
+            if (current < quantity) {
+                throw new InsufficientStockException("Only " + Math.max(current, 0) + " left in stock for product " + productId);
+            }
+        } while (!counter.compareAndSet(current, current - quantity));
+    }
+
+    private AtomicLong counter(Long productId) {
+        AtomicLong counter = available.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        // Seed outside computeIfAbsent so the upstream call never blocks other products' bins
+        long stock = dummyJsonClient.getProductById(productId).getStock();
+        return available.computeIfAbsent(productId, id -> {
+            dirtyProducts.add(id);
+            return new AtomicLong(stock);
+        });
+    }
+
+    /**
+     * Per-user maps are never removed, so a concurrent caller can never write into a detached map.
+     */
+    private Map<Long, Reservation> userReservations(Long userId) {
+        return reservations.computeIfAbsent(userId, id -> new ConcurrentHashMap<>());
+    }
+
+    private static <T> List<T> drain(Set<T> dirty) {
+        List<T> drained = new ArrayList<>();
+        for (T item : dirty) {
+            if (dirty.remove(item)) {
+                drained.add(item);
+            }
+        }
+        return drained;
+    }
+
+    private record Reservation(int quantity, long expiresAtMs) {
+    }
+
+    private record ReservationKey(long userId, long productId) {
+    }
+
+    private static class RollbackUndo implements TransactionSynchronization {
+        private final Deque<Runnable> undos = new ArrayDeque<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status == STATUS_ROLLED_BACK) {
+                undos.forEach(Runnable::run);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package hr.abysalto.hiring.mid.components;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel: scheduling is O(1) and each tick only visits one bucket.
+ * Deadlines further away than one rotation stay in their bucket for the following rounds.
+ * {@link #schedule} is thread-safe; {@link #advance} must be driven by a single thread.
+ */
+public class TimerWheel<K> {
+
+    private final long tickMs;
+    private final List<Queue<Timeout<K>>> buckets;
+    private volatile long processedTick;
+
+    public TimerWheel(long tickMs, int wheelSize, long nowMs) {
+        this.tickMs = tickMs;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ConcurrentLinkedQueue<>());
+        }
+        this.processedTick = nowMs / tickMs;
+    }
+
+    public void schedule(K key, long deadlineMs) {
+        // Round up so the deadline has always passed by the time its bucket is processed
+        long tick = Math.max((deadlineMs + tickMs - 1) / tickMs, processedTick + 1);
+        buckets.get((int) (tick % buckets.size())).add(new Timeout<>(key, deadlineMs));
+    }
+
+    /**
+     * Fires every timeout whose deadline has passed, in tick order.
+     */
+    public void advance(long nowMs, Consumer<K> onExpired) {
+        long targetTick = nowMs / tickMs;
+        while (processedTick < targetTick) {
+            long tick = processedTick + 1;
+            Queue<Timeout<K>> bucket = buckets.get((int) (tick % buckets.size()));
+
+            List<Timeout<K>> later = new ArrayList<>();
+            Timeout<K> timeout;
+            while ((timeout = bucket.poll()) != null) {
+                if (timeout.deadlineMs() <= nowMs) {
+                    onExpired.accept(timeout.key());
+                } else {
+                    later.add(timeout);
+                }
+            }
+            bucket.addAll(later);
+            processedTick = tick;
+        }
+    }
+
+    private record Timeout<K>(K key, long deadlineMs) {
+    }
+}
@@ -0,0 +1,239 @@
+package hr.abysalto.hiring.mid.components;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Time-decayed popularity of products, ranked in memory.
+ * <p>
+ * Write paths only increment a striped {@link LongAdder} per product and signal, so recording never contends.
+ * A periodic pass folds the pending counts into exponentially decayed scores and rebuilds the top-K rankings
+ * with a bounded min-heap; readers get the last published ranking without any computation. Scores are
+ * flushed to {@code product_trending} in batches and decayed by the downtime when reloaded.
+ */
+@Component
+public class TrendingTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendingTracker.class);
+
+    private static final String UPSERT_SQL = "MERGE INTO product_trending (product_id, views, favorites, cart_adds, updated_at) KEY (product_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM product_trending WHERE product_id = ?";
+    private static final double NEGLIGIBLE_SCORE = 0.01;
+
+    public enum Signal {
+        VIEW(1), FAVORITE(5), CART_ADD(3);
+
+        private final double weight;
+
+        Signal(double weight) {
+            this.weight = weight;
+        }
+    }
+
+    public enum Ranking {
+        TRENDING(ProductScore::score), FAVORITES(ProductScore::favorites);
+
+        private final ToDoubleFunction<ProductScore> key;
+
+        Ranking(ToDoubleFunction<ProductScore> key) {
+            this.key = key;
+        }
+    }
+
+    public record ProductScore(long productId, double views, double favorites, double cartAdds) {
+
+        public double score() {
+            return views * Signal.VIEW.weight + favorites * Signal.FAVORITE.weight + cartAdds * Signal.CART_ADD.weight;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long halfLifeMs;
+    private final int topK;
+    private final Map<Long, Counters> countersByProduct = new ConcurrentHashMap<>();
+    private final Set<Long> removed = ConcurrentHashMap.newKeySet();
+    private volatile Map<Ranking, List<ProductScore>> rankings = Map.of(Ranking.TRENDING, List.of(), Ranking.FAVORITES, List.of());
+    private long lastRankedAt = System.currentTimeMillis();
+    // Not a monitor: flush holds it across JDBC calls, which would pin a virtual thread to its carrier
+    private final ReentrantLock passLock = new ReentrantLock();
+
+    public TrendingTracker(
+            JdbcTemplate jdbcTemplate,
+            @Value("${trending.half-life-ms}") long halfLifeMs,
+            @Value("${trending.top-k}") int topK) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.halfLifeMs = halfLifeMs;
+        this.topK = topK;
+    }
+
+    @PostConstruct
+    public void load() {
+        long now = System.currentTimeMillis();
+        jdbcTemplate.query("SELECT product_id, views, favorites, cart_adds, updated_at FROM product_trending", rs -> {
+            double decay = decay(now - rs.getTimestamp("updated_at").getTime());
+            Counters counters = new Counters();
+            counters.views = rs.getDouble("views") * decay;
+            counters.favorites = rs.getDouble("favorites") * decay;
+            counters.cartAdds = rs.getDouble("cart_adds") * decay;
+            countersByProduct.put(rs.getLong("product_id"), counters);
+        });
+        lastRankedAt = now;
+        rank();
+    }
+
+    public void record(Long productId, Signal signal) {
+        countersByProduct.computeIfAbsent(productId, id -> new Counters()).pending[signal.ordinal()].increment();
+    }
+
+    public void record(Iterable<Long> productIds, Signal signal) {
+        productIds.forEach(productId -> record(productId, signal));
+    }
+
+    public List<ProductScore> top(Ranking ranking, int limit) {
+        List<ProductScore> ranked = rankings.get(ranking);
+        return ranked.subList(0, Math.max(0, Math.min(limit, ranked.size())));
+    }
+
+    /**
+     * Decays every score by the time since the previous pass, adds the counts recorded since, and publishes
+     * fresh rankings.
+     */
+    @Scheduled(fixedDelayString = "${trending.rank-interval-ms}", initialDelayString = "${trending.rank-interval-ms}")
+    public void rank() {
+        passLock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            double decay = decay(now - lastRankedAt);
+            lastRankedAt = now;
+
+            Map<Ranking, PriorityQueue<ProductScore>> heaps = new EnumMap<>(Ranking.class);
+            for (Ranking ranking : Ranking.values()) {
+                heaps.put(ranking, new PriorityQueue<>(topK + 1, Comparator.comparingDouble(ranking.key)));
+            }
+
+            countersByProduct.forEach((productId, counters) -> {
+                long views = counters.pending[Signal.VIEW.ordinal()].sumThenReset();
+                long favorites = counters.pending[Signal.FAVORITE.ordinal()].sumThenReset();
+                long cartAdds = counters.pending[Signal.CART_ADD.ordinal()].sumThenReset();
+                counters.views = counters.views * decay + views;
+                counters.favorites = counters.favorites * decay + favorites;
+                counters.cartAdds = counters.cartAdds * decay + cartAdds;
+                // Stored rows are decayed by their age on load, so only new activity needs writing
+                counters.dirty |= views + favorites + cartAdds > 0;
+
+                ProductScore score = new ProductScore(productId, counters.views, counters.favorites, counters.cartAdds);
+                if (score.score() < NEGLIGIBLE_SCORE) {
+                    evict(productId, counters);
+                    return;
+                }
+                heaps.forEach((ranking, heap) -> {
+                    if (ranking.key.applyAsDouble(score) <= 0) return;
+                    heap.offer(score);
+                    if (heap.size() > topK) {
+                        heap.poll();
+                    }
+                });
+            });
+
+            Map<Ranking, List<ProductScore>> published = new EnumMap<>(Ranking.class);
+            heaps.forEach((ranking, heap) -> {
+                List<ProductScore> ranked = new ArrayList<>(heap);
+                ranked.sort(Comparator.comparingDouble(ranking.key).reversed());
+                published.put(ranking, List.copyOf(ranked));
+            });
+            rankings = published;
+        } finally {
+            passLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${trending.flush-interval-ms}", initialDelayString = "${trending.flush-interval-ms}")
+    @EventListener(ContextClosedEvent.class)
+    public void flush() {
+        passLock.lock();
+        try {
+            // Totals are as of the last ranking pass, so that is the age they decay from
+            Timestamp rankedAt = new Timestamp(lastRankedAt);
+            List<Object[]> upserts = new ArrayList<>();
+            countersByProduct.forEach((productId, counters) -> {
+                if (counters.dirty) {
+                    counters.dirty = false;
+                    upserts.add(new Object[]{productId, counters.views, counters.favorites, counters.cartAdds, rankedAt});
+                }
+            });
+            List<Object[]> deletes = removed.stream()
+                    .filter(productId -> !countersByProduct.containsKey(productId))
+                    .map(productId -> new Object[]{productId})
+                    .toList();
+            removed.clear();
+
+            try {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+                jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+            } catch (RuntimeException e) {
+                // Scores are only a ranking signal, so a failed flush is retried with the next one
+                log.warn("Trending flush failed: {}", e.getMessage());
+                upserts.forEach(row -> {
+                    Counters counters = countersByProduct.get((Long) row[0]);
+                    if (counters != null) counters.dirty = true;
+                });
+            }
+        } finally {
+            passLock.unlock();
+        }
+    }
+
+    private void evict(Long productId, Counters counters) {
+        countersByProduct.remove(productId, counters);
+        removed.add(productId);
+
+        // A write may have raced with the removal; carry its counts over to the replacement entry
+        for (Signal signal : Signal.values()) {
+            long late = counters.pending[signal.ordinal()].sumThenReset();
+            if (late > 0) {
+                countersByProduct.computeIfAbsent(productId, id -> new Counters()).pending[signal.ordinal()].add(late);
+            }
+        }
+    }
+
+    private double decay(long elapsedMs) {
+        return Math.pow(0.5, (double) Math.max(0, elapsedMs) / halfLifeMs);
+    }
+
+    /**
+     * Pending counts are written by request threads; the decayed totals only by the rank/flush passes under the pass lock.
+     */
+    private static final class Counters {
+        private final LongAdder[] pending = new LongAdder[Signal.values().length];
+        private double views;
+        private double favorites;
+        private double cartAdds;
+        private boolean dirty;
+
+        private Counters() {
+            for (int i = 0; i < pending.length; i++) {
+                pending[i] = new LongAdder();
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package hr.abysalto.hiring.mid.components;
+
+import hr.abysalto.hiring.mid.domain.event.CartChangedEvent;
+import hr.abysalto.hiring.mid.domain.event.FavoritesChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * In-process pub/sub from cart and favorites mutations to the users' Server-Sent Events streams.
+ * <p>
+ * Streams are async servlet requests, so an idle connection holds no request thread. Events are delivered
+ * after the publishing transaction commits, so a slow client never delays the request that made the change.
+ * Every stream has its own bounded queue, drained by at most one dispatcher thread at a time, so each
+ * stream sees changes in commit order and a client that stops reading only fills its own queue; when that
+ * is full the stream is closed and the client reconnects and reloads.
+ */
+@Component
+public class UserEventBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(UserEventBroadcaster.class);
+
+    // Events sent per turn before a stream gives its dispatcher thread to the others
+    private static final int DRAIN_BATCH = 16;
+
+    private final Map<Long, List<Connection>> connectionsByUser = new ConcurrentHashMap<>();
+    private final ExecutorService dispatcher;
+    private final long emitterTimeoutMs;
+    private final int maxConnectionsPerUser;
+    private final int maxQueuedPerConnection;
+
+    public UserEventBroadcaster(
+            @Value("${events.emitter-timeout-ms}") long emitterTimeoutMs,
+            @Value("${events.max-connections-per-user}") int maxConnectionsPerUser,
+            @Value("${events.dispatch-threads}") int dispatchThreads,
+            @Value("${events.max-queued-per-connection}") int maxQueuedPerConnection) {
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+        this.maxQueuedPerConnection = maxQueuedPerConnection;
+        AtomicInteger threads = new AtomicInteger();
+        // Each stream has at most one drain task queued, so the work queue is bounded by the number of streams
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sse-dispatch-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        Connection connection = new Connection(userId, new SseEmitter(emitterTimeoutMs));
+        List<Connection> evicted = new ArrayList<>();
+        connectionsByUser.compute(userId, (id, connections) -> {
+            List<Connection> current = connections != null ? connections : new CopyOnWriteArrayList<>();
+            current.add(connection);
+            // Oldest streams go first when a user opens more tabs than allowed
+            while (current.size() > maxConnectionsPerUser) {
+                evicted.add(current.remove(0));
+            }
+            return current;
+        });
+        evicted.forEach(Connection::complete);
+
+        SseEmitter emitter = connection.emitter;
+        emitter.onCompletion(() -> unsubscribe(connection));
+        emitter.onTimeout(() -> unsubscribe(connection));
+        emitter.onError(e -> unsubscribe(connection));
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCartChanged(CartChangedEvent event) {
+        publish(event.userId(), "cart", event.change());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoritesChanged(FavoritesChangedEvent event) {
+        publish(event.userId(), "favorites", event.change());
+    }
+
+    /**
+     * Keeps proxies from closing idle streams and detects clients that went away without closing. Streams that
+     * still have events waiting are skipped, since those events keep them busy anyway.
+     */
+    @Scheduled(fixedRateString = "${events.heartbeat-ms}")
+    public void heartbeat() {
+        connectionsByUser.values().forEach(connections -> connections.forEach(connection -> {
+            if (connection.isIdle()) {
+                connection.offer(() -> SseEmitter.event().comment("keepalive"));
+            }
+        }));
+    }
+
+    public int getConnectionCount() {
+        return connectionsByUser.values().stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * Ends open streams before the web server's graceful shutdown, which would otherwise wait for them.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        connectionsByUser.values().forEach(connections -> connections.forEach(Connection::complete));
+    }
+
+    private void publish(Long userId, String name, Object data) {
+        List<Connection> connections = connectionsByUser.get(userId);
+        if (connections != null) {
+            connections.forEach(connection -> connection.offer(() -> SseEmitter.event().name(name).data(data)));
+        }
+    }
+
+    private void unsubscribe(Connection connection) {
+        connection.closed = true;
+        connectionsByUser.computeIfPresent(connection.userId, (id, connections) -> {
+            connections.remove(connection);
+            return connections.isEmpty() ? null : connections;
+        });
+    }
+
+    private final class Connection {
+
+        final Long userId;
+        final SseEmitter emitter;
+        final Queue<Supplier<SseEmitter.SseEventBuilder>> queued = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queuedCount = new AtomicInteger();
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile boolean closed;
+
+        Connection(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        boolean isIdle() {
+            return queuedCount.get() == 0 && !draining.get();
+        }
+
+        void offer(Supplier<SseEmitter.SseEventBuilder> event) {
+            if (closed) {
+                return;
+            }
+            if (queuedCount.incrementAndGet() > maxQueuedPerConnection) {
+                queuedCount.decrementAndGet();
+                log.debug("Event stream of user {} is not keeping up, closing it", userId);
+                complete();
+                return;
+            }
+            queued.add(event);
+            schedule();
+        }
+
+        void complete() {
+            unsubscribe(this);
+            emitter.complete();
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                for (int i = 0; i < DRAIN_BATCH && !closed; i++) {
+                    Supplier<SseEmitter.SseEventBuilder> event = queued.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    queuedCount.decrementAndGet();
+                    send(event.get());
+                }
+            } finally {
+                draining.set(false);
+            }
+            if (closed) {
+                queued.clear();
+            } else if (!queued.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping event stream of user {}: {}", userId, e.getMessage());
+                unsubscribe(this);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
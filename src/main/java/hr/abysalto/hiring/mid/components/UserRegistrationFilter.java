@@ -0,0 +1,60 @@
+package hr.abysalto.hiring.mid.components;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory Bloom filters of registered usernames and emails.
+ * Lets registration skip the uniqueness queries when a value is definitely new;
+ * the unique constraints on the users table remain the final arbiter.
+ */
+@Component
+public class UserRegistrationFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(UserRegistrationFilter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BloomFilter usernames;
+    private final BloomFilter emails;
+    private volatile boolean loaded = false;
+
+    public UserRegistrationFilter(
+            JdbcTemplate jdbcTemplate,
+            @Value("${registration.bloom-filter.expected-insertions:1000000}") long expectedInsertions,
+            @Value("${registration.bloom-filter.false-positive-probability:0.01}") double falsePositiveProbability) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.usernames = new BloomFilter(expectedInsertions, falsePositiveProbability);
+        this.emails = new BloomFilter(expectedInsertions, falsePositiveProbability);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        int[] count = {0};
+        jdbcTemplate.query("SELECT username, email FROM users", rs -> {
+            usernames.put(rs.getString("username"));
+            emails.put(rs.getString("email"));
+            count[0]++;
+        });
+        this.loaded = true;
+        log.info("Loaded {} users into registration Bloom filters in {} ms", count[0], System.currentTimeMillis() - start);
+    }
+
+    public boolean mightContainUsername(String username) {
+        return !loaded || usernames.mightContain(username);
+    }
+
+    public boolean mightContainEmail(String email) {
+        return !loaded || emails.mightContain(email);
+    }
+
+    public void register(String username, String email) {
+        usernames.put(username);
+        emails.put(email);
+    }
+}
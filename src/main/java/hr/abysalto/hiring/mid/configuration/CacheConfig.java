@@ -1,25 +1,60 @@
 package hr.abysalto.hiring.mid.configuration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import org.springframework.cache.CacheManager;
+import hr.abysalto.hiring.mid.cache.DiskCacheStore;
+import hr.abysalto.hiring.mid.cache.HotKeyCacheManager;
+import hr.abysalto.hiring.mid.cache.WriteExpiry;
+import hr.abysalto.hiring.mid.dto.response.PaginatedProductResponse;
+import hr.abysalto.hiring.mid.dto.response.ProductResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
-    @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("products", "product");
-        cacheManager.setCaffeine(Caffeine.newBuilder()
+    private static final Duration MEMORY_TTL = Duration.ofMinutes(10);
+
+    // What each cache holds, for reading it back from disk
+    private static final Map<String, Class<?>> VALUE_TYPES = Map.of(
+            "products", PaginatedProductResponse.class,
+            "product", ProductResponse.class);
+
+    @Bean(destroyMethod = "close")
+    public HotKeyCacheManager cacheManager(ObjectMapper objectMapper,
+                                           @Value("${cache.l2.enabled}") boolean diskTierEnabled,
+                                           @Value("${cache.l2.directory}") String directory,
+                                           @Value("${cache.l2.file-bytes}") int fileBytes,
+                                           @Value("${cache.l2.ttl-ms}") long ttlMs) {
+        HotKeyCacheManager cacheManager = new HotKeyCacheManager(!diskTierEnabled ? null : name -> {
+            if (!VALUE_TYPES.containsKey(name)) {
+                return null;
+            }
+            try {
+                return new DiskCacheStore(Path.of(directory, name + ".cache"), fileBytes, Duration.ofMillis(ttlMs),
+                        VALUE_TYPES.get(name), objectMapper);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Caffeine<Object, Object> caffeine = Caffeine.newBuilder()
                 .maximumSize(500)
-                .expireAfterWrite(10, TimeUnit.MINUTES)
-                .recordStats());
+                .recordStats();
+        // Variable expiry so that a value read back from disk is kept in memory only for what it has left on disk
+        cacheManager.setCaffeine(diskTierEnabled
+                ? caffeine.expireAfter(new WriteExpiry(MEMORY_TTL))
+                : caffeine.expireAfterWrite(MEMORY_TTL));
+        cacheManager.setCacheNames(List.of("products", "product"));
         return cacheManager;
     }
 }
@@ -0,0 +1,22 @@
+package hr.abysalto.hiring.mid.configuration;
+
+import hr.abysalto.hiring.mid.domain.outbox.ChangeLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@ConditionalOnProperty(name = "outbox.enabled", havingValue = "true")
+public class OutboxConfig {
+
+    @Bean(destroyMethod = "close")
+    public ChangeLog changeLog(@Value("${outbox.changelog.directory}") String directory,
+                               @Value("${outbox.changelog.segment-bytes}") int segmentBytes,
+                               @Value("${outbox.changelog.fsync}") boolean fsync) throws IOException {
+        return new ChangeLog(Path.of(directory), segmentBytes, fsync);
+    }
+}
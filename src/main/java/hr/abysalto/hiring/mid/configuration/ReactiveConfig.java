@@ -0,0 +1,23 @@
+package hr.abysalto.hiring.mid.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+public class ReactiveConfig {
+
+    /**
+     * Where non-blocking request handling runs its JDBC calls, so they never block a Netty or servlet thread.
+     * Threads are created on demand and idle ones are released. Servlet mode runs its JDBC calls on the request thread.
+     */
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnProperty(name = "products.reactive.enabled", havingValue = "true")
+    public Scheduler jdbcScheduler(@Value("${products.reactive.jdbc-threads}") int threads,
+                                   @Value("${products.reactive.jdbc-queued-tasks}") int queuedTasks) {
+        return Schedulers.newBoundedElastic(threads, queuedTasks, "jdbc");
+    }
+}
@@ -0,0 +1,70 @@
+package hr.abysalto.hiring.mid.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hr.abysalto.hiring.mid.components.H2TriggerReplicator;
+import hr.abysalto.hiring.mid.components.ReadWriteRoutingDataSource;
+import hr.abysalto.hiring.mid.components.Replicator;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+/**
+ * Splits reads from writes: the application's {@link DataSource} routes read-only transactions to a replica
+ * and everything else to the primary configured under {@code spring.datasource}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.routing.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean(defaultCandidate = false)
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(defaultCandidate = false)
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${datasource.replica.url}") String url) {
+        HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+        replica.setPoolName("replica");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(replica);
+        // Rows arrive in whatever order they changed, not in foreign key order
+        new JdbcTemplate(replica).execute("SET REFERENTIAL_INTEGRITY FALSE");
+        return replica;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "datasource.replica.replicator", havingValue = "h2-trigger", matchIfMissing = true)
+    public H2TriggerReplicator replicator(@Qualifier("primaryDataSource") DataSource primary,
+                                          @Qualifier("replicaDataSource") DataSource replica,
+                                          @Value("${datasource.replica.poll-interval-ms}") long pollIntervalMs,
+                                          @Value("${datasource.replica.batch-size}") int batchSize) {
+        return new H2TriggerReplicator(primary, replica, pollIntervalMs, batchSize);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 Replicator replicator,
+                                 @Value("${datasource.replica.max-lag-ms}") long maxLagMs,
+                                 @Value("${cart.store}") String cartStore) {
+        if (!"jdbc".equals(cartStore)) {
+            throw new IllegalStateException("Read replicas require cart.store=jdbc; the write-behind store would cache carts read from the replica");
+        }
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, replicator, maxLagMs);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
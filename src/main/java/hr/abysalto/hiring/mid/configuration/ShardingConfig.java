@@ -0,0 +1,29 @@
+package hr.abysalto.hiring.mid.configuration;
+
+import hr.abysalto.hiring.mid.domain.repository.CartItemRepository;
+import hr.abysalto.hiring.mid.domain.repository.FavoriteProductRepository;
+import hr.abysalto.hiring.mid.domain.shard.ShardRouter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Puts the user-sharded repositories in front of the single-database ones for everything that injects them.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    @Primary
+    public CartItemRepository shardedCartItemRepository(ShardRouter shardRouter) {
+        return shardRouter.cartItemRepository();
+    }
+
+    @Bean
+    @Primary
+    public FavoriteProductRepository shardedFavoriteProductRepository(ShardRouter shardRouter) {
+        return shardRouter.favoriteProductRepository();
+    }
+}
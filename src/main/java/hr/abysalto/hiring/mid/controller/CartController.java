@@ -1,9 +1,14 @@
 package hr.abysalto.hiring.mid.controller;
 
+import hr.abysalto.hiring.mid.dto.request.CartBatchRequest;
 import hr.abysalto.hiring.mid.dto.request.CartItemRequest;
+import hr.abysalto.hiring.mid.dto.response.CartDeltaResponse;
+import hr.abysalto.hiring.mid.dto.response.CartItemResponse;
 import hr.abysalto.hiring.mid.dto.response.CartResponse;
+import hr.abysalto.hiring.mid.dto.response.CursorPageResponse;
 import hr.abysalto.hiring.mid.service.CartService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -27,6 +32,15 @@ public class CartController {
         return ResponseEntity.ok(cartService.getCart(userDetails.getUsername()));
     }
 
+    @Operation(summary = "Get one page of the current user's cart lines, most recently added first")
+    @GetMapping("/items")
+    public ResponseEntity<CursorPageResponse<CartItemResponse>> getCartItems(
+            @Parameter(description = "Page size, at most 100") @RequestParam(defaultValue = "20") int limit,
+            @Parameter(description = "nextCursor of the previous page; omit for the first page") @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(cartService.getCartItemsPage(userDetails.getUsername(), cursor, limit));
+    }
+
     @Operation(summary = "Add a product to the cart")
     @PostMapping("/items")
     public ResponseEntity<CartResponse> addToCart(
@@ -36,6 +50,24 @@ public class CartController {
                 .body(cartService.addToCart(request, userDetails.getUsername()));
     }
 
+    @Operation(summary = "Add a product to the cart, returning only the changed line and new totals")
+    @PostMapping(value = "/items", params = "view=delta")
+    public ResponseEntity<CartDeltaResponse> addToCartDelta(
+            @Valid @RequestBody CartItemRequest request,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(cartService.addToCartDelta(request, userDetails.getUsername()));
+    }
+
+    @Operation(summary = "Add many products to the cart in one request (e.g. merging a guest cart)")
+    @PostMapping("/items:batch")
+    public ResponseEntity<CartResponse> addItemsToCart(
+            @Valid @RequestBody CartBatchRequest request,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(cartService.addItemsToCart(request, userDetails.getUsername()));
+    }
+
     @Operation(summary = "Remove an item from the cart")
     @DeleteMapping("/items/{cartItemId}")
     public ResponseEntity<CartResponse> removeFromCart(
@@ -44,6 +76,14 @@ public class CartController {
         return ResponseEntity.ok(cartService.removeFromCart(cartItemId, userDetails.getUsername()));
     }
 
+    @Operation(summary = "Remove an item from the cart, returning only the removed line ID and new totals")
+    @DeleteMapping(value = "/items/{cartItemId}", params = "view=delta")
+    public ResponseEntity<CartDeltaResponse> removeFromCartDelta(
+            @PathVariable Long cartItemId,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(cartService.removeFromCartDelta(cartItemId, userDetails.getUsername()));
+    }
+
     @Operation(summary = "Update cart item quantity")
     @PatchMapping("/items/{cartItemId}")
     public ResponseEntity<CartResponse> updateQuantity(
@@ -53,6 +93,15 @@ public class CartController {
         return ResponseEntity.ok(cartService.updateCartItemQuantity(cartItemId, quantity, userDetails.getUsername()));
     }
 
+    @Operation(summary = "Update cart item quantity, returning only the changed line and new totals")
+    @PatchMapping(value = "/items/{cartItemId}", params = "view=delta")
+    public ResponseEntity<CartDeltaResponse> updateQuantityDelta(
+            @PathVariable Long cartItemId,
+            @RequestParam int quantity,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(cartService.updateCartItemQuantityDelta(cartItemId, quantity, userDetails.getUsername()));
+    }
+
     @Operation(summary = "Clear the entire cart")
     @DeleteMapping
     public ResponseEntity<Void> clearCart(@AuthenticationPrincipal UserDetails userDetails) {
@@ -0,0 +1,48 @@
+package hr.abysalto.hiring.mid.controller;
+
+import hr.abysalto.hiring.mid.dto.response.OrderResponse;
+import hr.abysalto.hiring.mid.service.OrderService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Tag(name = "Orders", description = "Checkout and order history")
+@RestController
+@RequestMapping("/api/orders")
+@RequiredArgsConstructor
+public class OrderController {
+
+    private final OrderService orderService;
+
+    @Operation(summary = "Check out the current cart into a new order")
+    @PostMapping
+    public ResponseEntity<OrderResponse> checkout(
+            @Parameter(description = "Client-generated key; retries with the same key return the original order")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(orderService.checkout(userDetails.getUsername(), idempotencyKey));
+    }
+
+    @Operation(summary = "Get all orders of the current user")
+    @GetMapping
+    public ResponseEntity<List<OrderResponse>> getOrders(@AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(orderService.getOrders(userDetails.getUsername()));
+    }
+
+    @Operation(summary = "Get a single order by ID")
+    @GetMapping("/{orderId}")
+    public ResponseEntity<OrderResponse> getOrder(
+            @PathVariable Long orderId,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(orderService.getOrder(orderId, userDetails.getUsername()));
+    }
+}
@@ -0,0 +1,78 @@
+package hr.abysalto.hiring.mid.controller;
+
+import hr.abysalto.hiring.mid.dto.response.PaginatedProductResponse;
+import hr.abysalto.hiring.mid.dto.response.ProductResponse;
+import hr.abysalto.hiring.mid.dto.response.TrendingProductResponse;
+import hr.abysalto.hiring.mid.service.ProductService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Product browsing on the servlet thread; {@link ReactiveProductBrowseController} replaces it when
+ * {@code products.reactive.enabled=true}.
+ */
+@Tag(name = "Products", description = "Product browsing, search, and favorites management")
+@RestController
+@RequestMapping("/api/products")
+@ConditionalOnProperty(name = "products.reactive.enabled", havingValue = "false", matchIfMissing = true)
+@RequiredArgsConstructor
+public class ProductBrowseController {
+
+    private final ProductService productService;
+
+    @Operation(summary = "Get all products with pagination and sorting")
+    @GetMapping
+    public ResponseEntity<PaginatedProductResponse> getProducts(
+            @Parameter(description = "Number of products to return") @RequestParam(defaultValue = "20") int limit,
+            @Parameter(description = "Number of products to skip") @RequestParam(defaultValue = "0") int skip,
+            @Parameter(description = "Field to sort by (e.g., title, price, rating)") @RequestParam(required = false) String sortBy,
+            @Parameter(description = "Sort order: asc or desc") @RequestParam(required = false) String order,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(productService.getProducts(limit, skip, sortBy, order, userDetails.getUsername()));
+    }
+
+    @Operation(summary = "Get the most popular products right now")
+    @GetMapping("/trending")
+    public ResponseEntity<List<TrendingProductResponse>> getTrendingProducts(
+            @Parameter(description = "Ranking: trending (views, cart adds and favorites) or favorites") @RequestParam(defaultValue = "trending") String by,
+            @Parameter(description = "Number of products to return") @RequestParam(defaultValue = "10") int limit,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(productService.getTrendingProducts(by, limit, userDetails.getUsername()));
+    }
+
+    @Operation(summary = "Get a single product by ID")
+    @GetMapping("/{id}")
+    public ResponseEntity<ProductResponse> getProduct(
+            @PathVariable Long id,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(productService.getProductById(id, userDetails.getUsername()));
+    }
+
+    @Operation(summary = "Get products also favorited by users who favorited this one")
+    @GetMapping("/{id}/related")
+    public ResponseEntity<List<ProductResponse>> getRelatedProducts(
+            @PathVariable Long id,
+            @Parameter(description = "Number of products to return") @RequestParam(defaultValue = "10") int limit,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(productService.getRelatedProducts(id, limit, userDetails.getUsername()));
+    }
+
+    @Operation(summary = "Search products by query")
+    @GetMapping("/search")
+    public ResponseEntity<PaginatedProductResponse> searchProducts(
+            @Parameter(description = "Search query") @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "0") int skip,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return ResponseEntity.ok(productService.searchProducts(q, limit, skip, userDetails.getUsername()));
+    }
+}
@@ -0,0 +1,79 @@
+package hr.abysalto.hiring.mid.controller;
+
+import hr.abysalto.hiring.mid.dto.response.PaginatedProductResponse;
+import hr.abysalto.hiring.mid.dto.response.ProductResponse;
+import hr.abysalto.hiring.mid.dto.response.TrendingProductResponse;
+import hr.abysalto.hiring.mid.service.ProductService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking product browsing: handlers return a {@link Mono}, so the servlet thread is released while DummyJSON
+ * answers and the response is written when it completes. Database reads on this path run on the JDBC scheduler.
+ */
+@Tag(name = "Products", description = "Product browsing, search, and favorites management")
+@RestController
+@RequestMapping("/api/products")
+@ConditionalOnProperty(name = "products.reactive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReactiveProductBrowseController {
+
+    private final ProductService productService;
+
+    @Operation(summary = "Get all products with pagination and sorting")
+    @GetMapping
+    public Mono<ResponseEntity<PaginatedProductResponse>> getProducts(
+            @Parameter(description = "Number of products to return") @RequestParam(defaultValue = "20") int limit,
+            @Parameter(description = "Number of products to skip") @RequestParam(defaultValue = "0") int skip,
+            @Parameter(description = "Field to sort by (e.g., title, price, rating)") @RequestParam(required = false) String sortBy,
+            @Parameter(description = "Sort order: asc or desc") @RequestParam(required = false) String order,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return productService.getProductsAsync(limit, skip, sortBy, order, userDetails.getUsername()).map(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "Get the most popular products right now")
+    @GetMapping("/trending")
+    public Mono<ResponseEntity<List<TrendingProductResponse>>> getTrendingProducts(
+            @Parameter(description = "Ranking: trending (views, cart adds and favorites) or favorites") @RequestParam(defaultValue = "trending") String by,
+            @Parameter(description = "Number of products to return") @RequestParam(defaultValue = "10") int limit,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return productService.getTrendingProductsAsync(by, limit, userDetails.getUsername()).map(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "Get a single product by ID")
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<ProductResponse>> getProduct(
+            @PathVariable Long id,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return productService.getProductByIdAsync(id, userDetails.getUsername()).map(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "Get products also favorited by users who favorited this one")
+    @GetMapping("/{id}/related")
+    public Mono<ResponseEntity<List<ProductResponse>>> getRelatedProducts(
+            @PathVariable Long id,
+            @Parameter(description = "Number of products to return") @RequestParam(defaultValue = "10") int limit,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return productService.getRelatedProductsAsync(id, limit, userDetails.getUsername()).map(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "Search products by query")
+    @GetMapping("/search")
+    public Mono<ResponseEntity<PaginatedProductResponse>> searchProducts(
+            @Parameter(description = "Search query") @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "0") int skip,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        return productService.searchProductsAsync(q, limit, skip, userDetails.getUsername()).map(ResponseEntity::ok);
+    }
+}
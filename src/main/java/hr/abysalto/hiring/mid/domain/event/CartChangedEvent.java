@@ -0,0 +1,13 @@
+package hr.abysalto.hiring.mid.domain.event;
+
+import hr.abysalto.hiring.mid.dto.response.CartDeltaResponse;
+
+/**
+ * Published by cart mutations; delivered to the user's open event streams once the change commits.
+ */
+public record CartChangedEvent(Long userId, CartDeltaResponse change) {
+
+    public static CartChangedEvent cleared(Long userId) {
+        return new CartChangedEvent(userId, CartDeltaResponse.builder().userId(userId).build());
+    }
+}
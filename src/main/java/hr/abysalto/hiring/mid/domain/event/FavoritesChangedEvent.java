@@ -0,0 +1,9 @@
+package hr.abysalto.hiring.mid.domain.event;
+
+import hr.abysalto.hiring.mid.dto.response.FavoritesDeltaResponse;
+
+/**
+ * Published by favorites mutations; delivered to the user's open event streams once the change commits.
+ */
+public record FavoritesChangedEvent(Long userId, FavoritesDeltaResponse change) {
+}
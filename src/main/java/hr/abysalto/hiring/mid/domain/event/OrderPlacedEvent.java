@@ -0,0 +1,13 @@
+package hr.abysalto.hiring.mid.domain.event;
+
+import hr.abysalto.hiring.mid.domain.model.Order;
+import hr.abysalto.hiring.mid.domain.model.OrderLine;
+
+import java.util.List;
+
+/**
+ * Published on a fulfilment worker thread after an order has been committed.
+ * Listeners run post-checkout work (stock updates, notifications) off the request path.
+ */
+public record OrderPlacedEvent(Order order, List<OrderLine> lines) {
+}
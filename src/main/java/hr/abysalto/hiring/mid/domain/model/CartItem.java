@@ -26,4 +26,16 @@ public class CartItem {
     private int quantity;
 
     private LocalDateTime addedAt;
+
+    // Product snapshot, so cart views need no upstream lookups
+
+    private String title;
+
+    private Long priceCents;
+
+    private Integer discountBasisPoints;
+
+    private String thumbnail;
+
+    private Long catalogVersion;
 }
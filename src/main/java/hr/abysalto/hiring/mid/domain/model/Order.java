@@ -0,0 +1,38 @@
+package hr.abysalto.hiring.mid.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("ORDERS")
+public class Order {
+
+    public static final String STATUS_CREATED = "CREATED";
+    public static final String STATUS_FULFILLED = "FULFILLED";
+
+    @Id
+    private Long orderId;
+
+    private Long userId;
+
+    private String status;
+
+    private String idempotencyKey;
+
+    private int totalQuantity;
+
+    private long totalCents;
+
+    private long totalDiscountedCents;
+
+    private LocalDateTime createdAt;
+}
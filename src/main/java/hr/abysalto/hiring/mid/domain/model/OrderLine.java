@@ -0,0 +1,37 @@
+package hr.abysalto.hiring.mid.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("ORDER_LINES")
+public class OrderLine {
+
+    @Id
+    private Long orderLineId;
+
+    private Long orderId;
+
+    private Long productId;
+
+    private String title;
+
+    private String thumbnail;
+
+    private int quantity;
+
+    private long priceCents;
+
+    private int discountBasisPoints;
+
+    private long totalCents;
+
+    private long discountedTotalCents;
+}
@@ -33,5 +33,10 @@ public class User {
 
     private boolean twoFactorEnabled;
 
+    /**
+     * Grants {@code ROLE_ADMIN}. Only set in the database, never from a request.
+     */
+    private boolean admin;
+
     private LocalDateTime createdAt;
 }
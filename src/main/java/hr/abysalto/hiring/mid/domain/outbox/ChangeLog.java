@@ -0,0 +1,403 @@
+package hr.abysalto.hiring.mid.domain.outbox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of change events in fixed-size, memory-mapped segment files.
+ * <p>
+ * A record is {@code [length][crc32c][payload]} and its offset is its byte position in the whole log, so a reader
+ * seeks straight to any offset: the segment holding it is the one with the greatest base offset not above it.
+ * A segment is rolled when the next record does not fit, and the new one starts exactly where the old one ended.
+ * {@link #append} writes a whole batch, forces it to disk once and only then makes it visible to readers.
+ * Named consumer cursors are kept in {@code consumers.properties} next to the segments.
+ * <p>
+ * Appends, retention and cursor commits come from the relay, scheduled and request threads, and the first and last
+ * do file I/O while they hold their lock, so the locks are {@link ReentrantLock}s rather than monitors, which would
+ * pin a virtual thread to its carrier for the duration.
+ */
+public class ChangeLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeLog.class);
+
+    private static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CURSORS_FILE = "consumers.properties";
+
+    public record Entry(long offset, long nextOffset, byte[] data) {
+    }
+
+    public record SegmentInfo(long baseOffset, int bytes, Instant lastModified) {
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> cursors = new ConcurrentHashMap<>();
+    private final CRC32C writeChecksum = new CRC32C();
+    private final ReentrantLock segmentsLock = new ReentrantLock();
+    private final ReentrantLock cursorsFileLock = new ReentrantLock();
+
+    private volatile long endOffset;
+
+    public ChangeLog(Path directory, int segmentBytes, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        for (int i = 0; i < files.size(); i++) {
+            long baseOffset = baseOffsetOf(files.get(i));
+            Segment segment = i < files.size() - 1
+                    ? Segment.open(files.get(i), baseOffset, segmentBytes, (int) (baseOffsetOf(files.get(i + 1)) - baseOffset))
+                    : Segment.recover(files.get(i), baseOffset, segmentBytes);
+            segments.put(baseOffset, segment);
+        }
+        if (segments.isEmpty()) {
+            segments.put(0L, Segment.create(directory, 0, segmentBytes));
+        }
+        Segment last = segments.lastEntry().getValue();
+        endOffset = last.baseOffset + last.limit;
+        loadCursors();
+        log.info("Opened change log {} with {} segments, offsets {} to {}", directory, segments.size(), startOffset(), endOffset);
+    }
+
+    /**
+     * Appends the records as one group commit and returns the offset after the last one.
+     */
+    public long append(List<byte[]> records) {
+        segmentsLock.lock();
+        try {
+            return appendLocked(records);
+        } finally {
+            segmentsLock.unlock();
+        }
+    }
+
+    private long appendLocked(List<byte[]> records) {
+        Segment segment = segments.lastEntry().getValue();
+        int position = segment.limit;
+        int batchStart = position;
+        for (byte[] record : records) {
+            if (HEADER_BYTES + record.length > segmentBytes) {
+                throw new IllegalArgumentException("Record of " + record.length + " bytes does not fit in a segment");
+            }
+            if (position + HEADER_BYTES + record.length > segmentBytes) {
+                seal(segment, batchStart, position);
+                segment.touch();
+                segment = Segment.create(directory, segment.baseOffset + position, segmentBytes);
+                segments.put(segment.baseOffset, segment);
+                position = 0;
+                batchStart = 0;
+            }
+            writeChecksum.reset();
+            writeChecksum.update(record);
+            segment.buffer.putInt(position, record.length);
+            segment.buffer.putInt(position + 4, (int) writeChecksum.getValue());
+            segment.buffer.put(position + HEADER_BYTES, record);
+            position += HEADER_BYTES + record.length;
+        }
+        seal(segment, batchStart, position);
+        endOffset = segment.baseOffset + position;
+        return endOffset;
+    }
+
+    /**
+     * Reads up to {@code maxRecords} committed records starting at {@code offset}; an offset that retention has
+     * already removed reads from the oldest record still kept.
+     */
+    public List<Entry> read(long offset, int maxRecords) {
+        List<Entry> entries = new ArrayList<>(Math.min(maxRecords, 1024));
+        long end = endOffset;
+        offset = Math.max(offset, startOffset());
+        while (entries.size() < maxRecords && offset < end) {
+            Segment segment = segments.floorEntry(offset).getValue();
+            int position = (int) (offset - segment.baseOffset);
+            int length = segment.buffer.getInt(position);
+            if (length <= 0 || position + HEADER_BYTES + length > segment.limit) {
+                throw new IllegalArgumentException("Offset " + offset + " is not the start of a record");
+            }
+            byte[] data = new byte[length];
+            segment.buffer.get(position + HEADER_BYTES, data);
+            long nextOffset = offset + HEADER_BYTES + length;
+            entries.add(new Entry(offset, nextOffset, data));
+            offset = nextOffset;
+        }
+        return entries;
+    }
+
+    /**
+     * The last {@code maxRecords} records, oldest first, looking no further back than the previous segment.
+     */
+    public List<Entry> tail(int maxRecords) {
+        Long previous = segments.lowerKey(segments.lastKey());
+        Deque<Entry> tail = new ArrayDeque<>(maxRecords);
+        long offset = previous != null ? previous : segments.lastKey();
+        List<Entry> batch;
+        while (!(batch = read(offset, 1024)).isEmpty()) {
+            for (Entry entry : batch) {
+                if (tail.size() == maxRecords) {
+                    tail.removeFirst();
+                }
+                tail.addLast(entry);
+            }
+            offset = batch.get(batch.size() - 1).nextOffset();
+        }
+        return new ArrayList<>(tail);
+    }
+
+    public long startOffset() {
+        return segments.firstKey();
+    }
+
+    public long endOffset() {
+        return endOffset;
+    }
+
+    public List<SegmentInfo> segments() {
+        return segments.values().stream()
+                .map(segment -> new SegmentInfo(segment.baseOffset, segment.limit, segment.lastModified))
+                .toList();
+    }
+
+    /**
+     * Deletes the oldest sealed segments while they are older than {@code maxAge} or the log is larger than
+     * {@code maxBytes}; the segment being written is always kept. Returns the number of segments deleted.
+     */
+    public int applyRetention(Duration maxAge, long maxBytes) {
+        Instant cutoff = Instant.now().minus(maxAge);
+        List<Segment> expired = new ArrayList<>();
+        segmentsLock.lock();
+        try {
+            while (segments.size() > 1) {
+                Segment oldest = segments.firstEntry().getValue();
+                if (!oldest.lastModified.isBefore(cutoff) && endOffset - oldest.baseOffset <= maxBytes) {
+                    break;
+                }
+                segments.remove(oldest.baseOffset);
+                expired.add(oldest);
+            }
+        } finally {
+            segmentsLock.unlock();
+        }
+        // Unmapped only when collected, so a reader still holding one of these segments reads on safely
+        expired.forEach(Segment::delete);
+        return expired.size();
+    }
+
+    public Map<String, Long> cursors() {
+        return new TreeMap<>(cursors);
+    }
+
+    /**
+     * The consumer's committed offset; a new consumer starts at the oldest record kept.
+     */
+    public long cursor(String consumer) {
+        return Math.max(cursors.getOrDefault(consumer, 0L), startOffset());
+    }
+
+    /**
+     * Moves the consumer's cursor to {@code offset}, which must be where a record starts or the end of the log.
+     * Offsets before the oldest record kept cannot be checked and are taken as they are.
+     */
+    public void commit(String consumer, long offset) {
+        if (!isRecordBoundary(offset)) {
+            throw new IllegalArgumentException("Offset " + offset + " is not the start of a record (log ends at " + endOffset + ")");
+        }
+        cursors.put(consumer, offset);
+        cursorsFileLock.lock();
+        try {
+            // Written from the map as it is now, so the last write holds every cursor committed before it
+            saveCursors();
+        } finally {
+            cursorsFileLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        segmentsLock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+        } finally {
+            segmentsLock.unlock();
+        }
+    }
+
+    private boolean isRecordBoundary(long offset) {
+        long end = endOffset;
+        if (offset < 0 || offset > end) {
+            return false;
+        }
+        if (offset == end || offset < startOffset()) {
+            return true;
+        }
+        Segment segment = segments.floorEntry(offset).getValue();
+        int target = (int) (offset - segment.baseOffset);
+        int position = 0;
+        while (position < target) {
+            int length = segment.buffer.getInt(position);
+            if (length <= 0) {
+                return false;
+            }
+            position += HEADER_BYTES + length;
+        }
+        return position == target;
+    }
+
+    private void seal(Segment segment, int from, int to) {
+        if (fsync && to > from) {
+            segment.buffer.force(from, to - from);
+        }
+        segment.limit = to;
+    }
+
+    private void loadCursors() throws IOException {
+        Path file = directory.resolve(CURSORS_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        properties.forEach((consumer, offset) -> cursors.put((String) consumer, Long.parseLong((String) offset)));
+    }
+
+    private void saveCursors() {
+        Properties properties = new Properties();
+        cursors.forEach((consumer, offset) -> properties.setProperty(consumer, Long.toString(offset)));
+        Path file = directory.resolve(CURSORS_FILE);
+        Path temporary = directory.resolve(CURSORS_FILE + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                properties.store(out, null);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long baseOffsetOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static final class Segment {
+
+        private final long baseOffset;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private volatile int limit;
+        private volatile Instant lastModified;
+
+        private Segment(long baseOffset, Path path, FileChannel channel, MappedByteBuffer buffer, int limit) throws IOException {
+            this.baseOffset = baseOffset;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.limit = limit;
+            this.lastModified = Files.getLastModifiedTime(path).toInstant();
+        }
+
+        static Segment create(Path directory, long baseOffset, int size) {
+            try {
+                return open(directory.resolve("%020d%s".formatted(baseOffset, SEGMENT_SUFFIX)), baseOffset, size, 0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        static Segment open(Path path, long baseOffset, int size, int limit) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(baseOffset, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), limit);
+        }
+
+        /**
+         * Opens the segment that was being written, keeping the records that are complete and intact. Whatever
+         * follows is a write torn by a crash; cutting the file there and mapping it again zeroes it.
+         */
+        static Segment recover(Path path, long baseOffset, int size) throws IOException {
+            int limit;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, channel.size()));
+                CRC32C checksum = new CRC32C();
+                limit = 0;
+                while (limit + HEADER_BYTES <= buffer.limit()) {
+                    int length = buffer.getInt(limit);
+                    if (length <= 0 || limit + HEADER_BYTES + length > buffer.limit()) {
+                        break;
+                    }
+                    checksum.reset();
+                    checksum.update(buffer.slice(limit + HEADER_BYTES, length));
+                    if ((int) checksum.getValue() != buffer.getInt(limit + 4)) {
+                        break;
+                    }
+                    limit += HEADER_BYTES + length;
+                }
+                if (limit < channel.size()) {
+                    channel.truncate(limit);
+                }
+            }
+            return open(path, baseOffset, size, limit);
+        }
+
+        /**
+         * Stamps the time the segment was sealed; writes through the mapping do not reliably update it.
+         */
+        void touch() {
+            lastModified = Instant.now();
+            try {
+                Files.setLastModifiedTime(path, FileTime.from(lastModified));
+            } catch (IOException e) {
+                log.warn("Could not stamp change log segment {}", path, e);
+            }
+        }
+
+        void delete() {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Could not delete change log segment {}", path, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package hr.abysalto.hiring.mid.domain.outbox;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/changelog}: segments, offsets and consumer lag. Consumers read from their cursor with
+ * {@code GET /actuator/changelog/{consumer}?max=} and move it with {@code POST /actuator/changelog/{consumer}
+ * {"offset": ...}}, passing the {@code nextOffset} of the last entry they processed; an offset that is not the
+ * start of a record is rejected with 400.
+ */
+@Component
+@Endpoint(id = "changelog")
+@ConditionalOnProperty(name = "outbox.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ChangeLogEndpoint {
+
+    private static final int DEFAULT_MAX = 100;
+
+    public record Status(long startOffset, long endOffset, List<ChangeLog.SegmentInfo> segments,
+                         Map<String, ConsumerStatus> consumers) {
+    }
+
+    public record ConsumerStatus(long offset, long lagBytes) {
+    }
+
+    public record LogEntry(long offset, long nextOffset, @JsonRawValue String event) {
+    }
+
+    private final ChangeLog changeLog;
+
+    @ReadOperation
+    public Status status() {
+        long end = changeLog.endOffset();
+        Map<String, ConsumerStatus> consumers = new LinkedHashMap<>();
+        changeLog.cursors().keySet().forEach(consumer -> {
+            long offset = changeLog.cursor(consumer);
+            consumers.put(consumer, new ConsumerStatus(offset, end - offset));
+        });
+        return new Status(changeLog.startOffset(), end, changeLog.segments(), consumers);
+    }
+
+    @ReadOperation
+    public List<LogEntry> poll(@Selector String consumer, @Nullable Integer max) {
+        return changeLog.read(changeLog.cursor(consumer), max != null ? max : DEFAULT_MAX).stream()
+                .map(entry -> new LogEntry(entry.offset(), entry.nextOffset(), new String(entry.data(), StandardCharsets.UTF_8)))
+                .toList();
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Void> commit(@Selector String consumer, long offset) {
+        try {
+            changeLog.commit(consumer, offset);
+        } catch (IllegalArgumentException e) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NO_CONTENT);
+    }
+}
@@ -0,0 +1,144 @@
+package hr.abysalto.hiring.mid.domain.outbox;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails {@code outbox_events} on a background thread and moves the events into the {@link ChangeLog}.
+ * <p>
+ * Each pass appends up to {@code batchSize} events as one group commit and only then deletes them from the outbox,
+ * so a crash in between leaves at most that one batch in both places. On startup the ids at the end of the log are
+ * compared with the outbox and the duplicates dropped. Rows are taken in id order but not filtered by the last id
+ * relayed, because a transaction that took a lower id can commit after a higher one was already relayed.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.enabled", havingValue = "true")
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private static final String SELECT_SQL = "SELECT event_id, event_type, user_id, payload, created_at FROM outbox_events ORDER BY event_id LIMIT ?";
+    private static final String DELETE_SQL = "DELETE FROM outbox_events WHERE event_id = ?";
+
+    /**
+     * A change as stored in the log; {@code change} is the JSON body published with the event.
+     */
+    public record ChangeEvent(long id, String type, Long userId, Instant createdAt, @JsonRawValue String change) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeLog changeLog;
+    private final ObjectMapper objectMapper;
+    private final long pollIntervalMs;
+    private final int batchSize;
+    private final Duration retention;
+    private final long retentionBytes;
+    private final ScheduledExecutorService relay = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OutboxRelay(
+            JdbcTemplate jdbcTemplate,
+            ChangeLog changeLog,
+            ObjectMapper objectMapper,
+            @Value("${outbox.relay.poll-interval-ms}") long pollIntervalMs,
+            @Value("${outbox.relay.batch-size}") int batchSize,
+            @Value("${outbox.changelog.retention-ms}") long retentionMs,
+            @Value("${outbox.changelog.retention-bytes}") long retentionBytes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.changeLog = changeLog;
+        this.objectMapper = objectMapper;
+        this.pollIntervalMs = pollIntervalMs;
+        this.batchSize = batchSize;
+        this.retention = Duration.ofMillis(retentionMs);
+        this.retentionBytes = retentionBytes;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Set<Long> alreadyLogged = new HashSet<>();
+        for (ChangeLog.Entry entry : changeLog.tail(batchSize)) {
+            alreadyLogged.add(eventIdOf(entry));
+        }
+        List<Long> duplicates = jdbcTemplate.queryForList("SELECT event_id FROM outbox_events ORDER BY event_id LIMIT ?",
+                Long.class, batchSize).stream().filter(alreadyLogged::contains).toList();
+        delete(duplicates);
+        if (!duplicates.isEmpty()) {
+            log.info("Dropped {} outbox events that were already in the change log", duplicates.size());
+        }
+        relay.scheduleWithFixedDelay(this::relayPending, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        relay.shutdown();
+        relay.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.changelog.retention-check-ms}")
+    public void applyRetention() {
+        int deleted = changeLog.applyRetention(retention, retentionBytes);
+        if (deleted > 0) {
+            log.info("Deleted {} change log segments past retention", deleted);
+        }
+    }
+
+    private void relayPending() {
+        try {
+            List<ChangeEvent> events;
+            do {
+                events = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> new ChangeEvent(rs.getLong("event_id"),
+                        rs.getString("event_type"), rs.getObject("user_id", Long.class),
+                        rs.getTimestamp("created_at").toInstant(), rs.getString("payload")), batchSize);
+                if (events.isEmpty()) {
+                    return;
+                }
+                List<byte[]> records = new ArrayList<>(events.size());
+                for (ChangeEvent event : events) {
+                    records.add(objectMapper.writeValueAsBytes(event));
+                }
+                changeLog.append(records);
+                delete(events.stream().map(ChangeEvent::id).toList());
+            } while (events.size() == batchSize);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Outbox relay failed, retrying: {}", e.getMessage());
+        }
+    }
+
+    private long eventIdOf(ChangeLog.Entry entry) {
+        try {
+            return objectMapper.readTree(entry.data()).get("id").asLong();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void delete(List<Long> eventIds) {
+        jdbcTemplate.batchUpdate(DELETE_SQL, eventIds, eventIds.size(), (ps, eventId) -> ps.setLong(1, eventId));
+    }
+}
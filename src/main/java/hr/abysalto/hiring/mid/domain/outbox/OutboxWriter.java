@@ -0,0 +1,39 @@
+package hr.abysalto.hiring.mid.domain.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.abysalto.hiring.mid.domain.event.CartChangedEvent;
+import hr.abysalto.hiring.mid.domain.event.FavoritesChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records cart and favorites changes in {@code outbox_events}. Listeners run synchronously in the publishing
+ * transaction, so an event is stored exactly when the change it describes commits; {@link OutboxRelay} does the rest.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class OutboxWriter {
+
+    static final String CART = "cart";
+    static final String FAVORITES = "favorites";
+
+    private static final String INSERT_SQL = "INSERT INTO outbox_events (event_type, user_id, payload) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @EventListener
+    public void onCartChanged(CartChangedEvent event) throws JsonProcessingException {
+        jdbcTemplate.update(INSERT_SQL, CART, event.userId(), objectMapper.writeValueAsString(event.change()));
+    }
+
+    @EventListener
+    public void onFavoritesChanged(FavoritesChangedEvent event) throws JsonProcessingException {
+        jdbcTemplate.update(INSERT_SQL, FAVORITES, event.userId(), objectMapper.writeValueAsString(event.change()));
+    }
+}
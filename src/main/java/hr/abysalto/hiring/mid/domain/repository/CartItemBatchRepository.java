@@ -0,0 +1,31 @@
+package hr.abysalto.hiring.mid.domain.repository;
+
+import hr.abysalto.hiring.mid.domain.model.CartItem;
+import hr.abysalto.hiring.mid.domain.store.CartTotals;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface CartItemBatchRepository {
+
+    /**
+     * Adds each line's quantity to the user's line for that product (creating missing lines)
+     * and stores the line's product snapshot, in a single JDBC batch.
+     */
+    void batchUpsert(List<CartItem> lines);
+
+    /**
+     * Overwrites the product snapshot of existing lines, identified by cart item ID.
+     */
+    void batchUpdateSnapshots(List<CartItem> lines);
+
+    /**
+     * Subtracts each line's quantity from the stored line with its cart item ID, deleting lines left with none.
+     */
+    void batchRemoveQuantities(List<CartItem> lines);
+
+    /**
+     * Sums the user's lines in one aggregate query, discounting each line like the cart view does.
+     */
+    CartTotals sumByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,92 @@
+package hr.abysalto.hiring.mid.domain.repository;
+
+import hr.abysalto.hiring.mid.domain.model.CartItem;
+import hr.abysalto.hiring.mid.domain.store.CartTotals;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class CartItemBatchRepositoryImpl implements CartItemBatchRepository {
+
+    private static final String UPSERT_SQL = """
+            MERGE INTO cart_items c
+            USING (VALUES (CAST(:userId AS BIGINT), CAST(:productId AS BIGINT), CAST(:quantity AS INT))) AS s(user_id, product_id, quantity)
+            ON c.user_id = s.user_id AND c.product_id = s.product_id
+            WHEN MATCHED THEN UPDATE SET c.quantity = c.quantity + s.quantity,
+                c.title = :title, c.price_cents = :priceCents, c.discount_basis_points = :discountBasisPoints,
+                c.thumbnail = :thumbnail, c.catalog_version = :catalogVersion
+            WHEN NOT MATCHED THEN INSERT (user_id, product_id, quantity, added_at,
+                    title, price_cents, discount_basis_points, thumbnail, catalog_version)
+                VALUES (s.user_id, s.product_id, s.quantity, CURRENT_TIMESTAMP,
+                    :title, :priceCents, :discountBasisPoints, :thumbnail, :catalogVersion)
+            """;
+
+    private static final String UPDATE_SNAPSHOT_SQL = """
+            UPDATE cart_items
+            SET title = :title, price_cents = :priceCents, discount_basis_points = :discountBasisPoints,
+                thumbnail = :thumbnail, catalog_version = :catalogVersion
+            WHERE cart_item_id = :cartItemId
+            """;
+
+    private static final String SUBTRACT_QUANTITY_SQL = """
+            UPDATE cart_items SET quantity = quantity - :quantity WHERE cart_item_id = :cartItemId AND user_id = :userId
+            """;
+
+    private static final String DELETE_EMPTIED_SQL = """
+            DELETE FROM cart_items WHERE cart_item_id = :cartItemId AND user_id = :userId AND quantity <= 0
+            """;
+
+    // Half-up rounding of the discounted line as in Money.applyDiscount; the operands are never negative
+    private static final String SUM_SQL = """
+            SELECT COUNT(*) AS products, COALESCE(SUM(quantity), 0) AS quantity,
+                COALESCE(SUM(price_cents * quantity), 0) AS total_cents,
+                COALESCE(SUM((price_cents * quantity * (10000 - discount_basis_points) + 5000) / 10000), 0) AS discounted_cents
+            FROM cart_items
+            WHERE user_id = :userId
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchUpsert(List<CartItem> lines) {
+        jdbcTemplate.batchUpdate(UPSERT_SQL, toParameters(lines));
+    }
+
+    @Override
+    public void batchUpdateSnapshots(List<CartItem> lines) {
+        jdbcTemplate.batchUpdate(UPDATE_SNAPSHOT_SQL, toParameters(lines));
+    }
+
+    @Override
+    public void batchRemoveQuantities(List<CartItem> lines) {
+        SqlParameterSource[] parameters = toParameters(lines);
+        jdbcTemplate.batchUpdate(SUBTRACT_QUANTITY_SQL, parameters);
+        jdbcTemplate.batchUpdate(DELETE_EMPTIED_SQL, parameters);
+    }
+
+    @Override
+    public CartTotals sumByUserId(Long userId) {
+        return jdbcTemplate.queryForObject(SUM_SQL, new MapSqlParameterSource("userId", userId),
+                (rs, rowNum) -> new CartTotals(rs.getInt("products"), rs.getInt("quantity"),
+                        rs.getLong("total_cents"), rs.getLong("discounted_cents")));
+    }
+
+    private SqlParameterSource[] toParameters(List<CartItem> lines) {
+        return lines.stream()
+                .map(line -> new MapSqlParameterSource()
+                        .addValue("cartItemId", line.getCartItemId())
+                        .addValue("userId", line.getUserId())
+                        .addValue("productId", line.getProductId())
+                        .addValue("quantity", line.getQuantity())
+                        .addValue("title", line.getTitle())
+                        .addValue("priceCents", line.getPriceCents())
+                        .addValue("discountBasisPoints", line.getDiscountBasisPoints())
+                        .addValue("thumbnail", line.getThumbnail())
+                        .addValue("catalogVersion", line.getCatalogVersion()))
+                .toArray(SqlParameterSource[]::new);
+    }
+}
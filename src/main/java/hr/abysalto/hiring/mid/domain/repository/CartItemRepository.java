@@ -7,22 +7,51 @@ import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CartItemRepository extends CrudRepository<CartItem, Long> {
+public interface CartItemRepository extends CrudRepository<CartItem, Long>, CartItemBatchRepository {
 
-    @Query("SELECT * FROM cart_items WHERE user_id = :userId ORDER BY added_at DESC")
+    @Query("SELECT * FROM cart_items WHERE user_id = :userId ORDER BY added_at DESC, cart_item_id DESC")
     List<CartItem> findByUserId(@Param("userId") Long userId);
 
+    @Query("SELECT * FROM cart_items WHERE user_id = :userId ORDER BY user_id, added_at DESC, cart_item_id DESC LIMIT :limit")
+    List<CartItem> findFirstPageByUserId(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /**
+     * Keyset page after the given line: the {@code added_at <=} bound is an index range, the OR only breaks ties.
+     * Ordering by the full index key, {@code user_id} included, lets H2 stop after {@code limit} rows instead of sorting.
+     */
+    @Query("""
+            SELECT * FROM cart_items
+            WHERE user_id = :userId
+              AND added_at <= :addedAt AND (added_at < :addedAt OR cart_item_id < :cartItemId)
+            ORDER BY user_id, added_at DESC, cart_item_id DESC
+            LIMIT :limit""")
+    List<CartItem> findPageByUserIdAfter(@Param("userId") Long userId,
+                                         @Param("addedAt") LocalDateTime addedAt,
+                                         @Param("cartItemId") Long cartItemId,
+                                         @Param("limit") int limit);
+
+    /**
+     * Reads the line and locks it until the surrounding transaction ends.
+     */
+    @Query("SELECT * FROM cart_items WHERE cart_item_id = :id AND user_id = :userId FOR UPDATE")
+    Optional<CartItem> findByIdAndUserIdForUpdate(@Param("id") Long id, @Param("userId") Long userId);
+
     @Query("SELECT * FROM cart_items WHERE user_id = :userId AND product_id = :productId")
     Optional<CartItem> findByUserIdAndProductId(@Param("userId") Long userId,
                                                 @Param("productId") Long productId);
 
+    @Modifying
+    @Query("UPDATE cart_items SET quantity = :quantity WHERE cart_item_id = :id AND user_id = :userId")
+    int updateQuantityByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId, @Param("quantity") int quantity);
+
     @Modifying
     @Query("DELETE FROM cart_items WHERE cart_item_id = :id AND user_id = :userId")
-    void deleteByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+    int deleteByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
 
     @Modifying
     @Query("DELETE FROM cart_items WHERE user_id = :userId")
@@ -0,0 +1,22 @@
+package hr.abysalto.hiring.mid.domain.repository;
+
+import java.util.Collection;
+
+public interface FavoriteProductBatchRepository {
+
+    /**
+     * Inserts the products the user has not favorited yet in a single JDBC batch;
+     * existing favorites are left untouched.
+     */
+    void batchInsertIgnoringExisting(Long userId, Collection<Long> productIds);
+
+    /**
+     * Passes every (user, product) pair to the consumer without mapping entities, for bulk readers such as index rebuilds.
+     */
+    void forEachUserProduct(UserProductConsumer consumer);
+
+    @FunctionalInterface
+    interface UserProductConsumer {
+        void accept(long userId, long productId);
+    }
+}
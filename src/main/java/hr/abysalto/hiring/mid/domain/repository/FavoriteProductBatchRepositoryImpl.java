@@ -0,0 +1,40 @@
+package hr.abysalto.hiring.mid.domain.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.Collection;
+
+@RequiredArgsConstructor
+public class FavoriteProductBatchRepositoryImpl implements FavoriteProductBatchRepository {
+
+    private static final String INSERT_IGNORE_SQL = """
+            MERGE INTO favorite_products f
+            USING (VALUES (CAST(:userId AS BIGINT), CAST(:productId AS BIGINT))) AS s(user_id, product_id)
+            ON f.user_id = s.user_id AND f.product_id = s.product_id
+            WHEN NOT MATCHED THEN INSERT (user_id, product_id, added_at)
+                VALUES (s.user_id, s.product_id, CURRENT_TIMESTAMP)
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchInsertIgnoringExisting(Long userId, Collection<Long> productIds) {
+        SqlParameterSource[] batch = productIds.stream()
+                .map(productId -> new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("productId", productId))
+                .toArray(SqlParameterSource[]::new);
+
+        jdbcTemplate.batchUpdate(INSERT_IGNORE_SQL, batch);
+    }
+
+    @Override
+    public void forEachUserProduct(UserProductConsumer consumer) {
+        jdbcTemplate.getJdbcTemplate().query("SELECT user_id, product_id FROM favorite_products",
+                (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1), rs.getLong(2)));
+    }
+}
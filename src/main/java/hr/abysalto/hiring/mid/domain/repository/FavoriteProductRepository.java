@@ -7,15 +7,34 @@ import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface FavoriteProductRepository extends CrudRepository<FavoriteProduct, Long> {
+public interface FavoriteProductRepository extends CrudRepository<FavoriteProduct, Long>, FavoriteProductBatchRepository {
 
-    @Query("SELECT * FROM favorite_products WHERE user_id = :userId ORDER BY added_at DESC")
+    @Query("SELECT * FROM favorite_products WHERE user_id = :userId ORDER BY added_at DESC, favorite_id DESC")
     List<FavoriteProduct> findByUserId(@Param("userId") Long userId);
 
+    @Query("SELECT * FROM favorite_products WHERE user_id = :userId ORDER BY user_id, added_at DESC, favorite_id DESC LIMIT :limit")
+    List<FavoriteProduct> findFirstPageByUserId(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /**
+     * Keyset page after the given favorite: the {@code added_at <=} bound is an index range, the OR only breaks ties.
+     * Ordering by the full index key, {@code user_id} included, lets H2 stop after {@code limit} rows instead of sorting.
+     */
+    @Query("""
+            SELECT * FROM favorite_products
+            WHERE user_id = :userId
+              AND added_at <= :addedAt AND (added_at < :addedAt OR favorite_id < :favoriteId)
+            ORDER BY user_id, added_at DESC, favorite_id DESC
+            LIMIT :limit""")
+    List<FavoriteProduct> findPageByUserIdAfter(@Param("userId") Long userId,
+                                                @Param("addedAt") LocalDateTime addedAt,
+                                                @Param("favoriteId") Long favoriteId,
+                                                @Param("limit") int limit);
+
     @Query("SELECT * FROM favorite_products WHERE user_id = :userId AND product_id = :productId")
     Optional<FavoriteProduct> findByUserIdAndProductId(@Param("userId") Long userId,
                                                        @Param("productId") Long productId);
@@ -0,0 +1,13 @@
+package hr.abysalto.hiring.mid.domain.repository;
+
+import hr.abysalto.hiring.mid.domain.model.OrderLine;
+
+import java.util.List;
+
+public interface OrderLineBatchRepository {
+
+    /**
+     * Inserts all lines in a single JDBC batch.
+     */
+    void batchInsert(List<OrderLine> lines);
+}
@@ -0,0 +1,26 @@
+package hr.abysalto.hiring.mid.domain.repository;
+
+import hr.abysalto.hiring.mid.domain.model.OrderLine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSourceUtils;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class OrderLineBatchRepositoryImpl implements OrderLineBatchRepository {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO order_lines (order_id, product_id, title, thumbnail, quantity, price_cents,
+                discount_basis_points, total_cents, discounted_total_cents)
+            VALUES (:orderId, :productId, :title, :thumbnail, :quantity, :priceCents,
+                :discountBasisPoints, :totalCents, :discountedTotalCents)
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchInsert(List<OrderLine> lines) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, SqlParameterSourceUtils.createBatch(lines));
+    }
+}
@@ -0,0 +1,20 @@
+package hr.abysalto.hiring.mid.domain.repository;
+
+import hr.abysalto.hiring.mid.domain.model.OrderLine;
+import org.springframework.data.jdbc.repository.query.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderLineRepository extends CrudRepository<OrderLine, Long>, OrderLineBatchRepository {
+
+    @Query("SELECT * FROM order_lines WHERE order_id = :orderId ORDER BY order_line_id")
+    List<OrderLine> findByOrderId(@Param("orderId") Long orderId);
+
+    @Query("SELECT * FROM order_lines WHERE order_id IN (:orderIds) ORDER BY order_line_id")
+    List<OrderLine> findByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+}
@@ -0,0 +1,34 @@
+package hr.abysalto.hiring.mid.domain.repository;
+
+import hr.abysalto.hiring.mid.domain.model.Order;
+import org.springframework.data.jdbc.repository.query.Modifying;
+import org.springframework.data.jdbc.repository.query.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OrderRepository extends CrudRepository<Order, Long> {
+
+    @Query("SELECT * FROM orders WHERE user_id = :userId ORDER BY created_at DESC")
+    List<Order> findByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT * FROM orders WHERE user_id = :userId AND idempotency_key = :idempotencyKey")
+    Optional<Order> findByUserIdAndIdempotencyKey(@Param("userId") Long userId,
+                                                  @Param("idempotencyKey") String idempotencyKey);
+
+    @Query("SELECT order_id FROM orders WHERE status = :status AND created_at < :before ORDER BY created_at LIMIT :limit")
+    List<Long> findIdsByStatusCreatedBefore(@Param("status") String status,
+                                            @Param("before") LocalDateTime before,
+                                            @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE orders SET status = :newStatus WHERE order_id = :orderId AND status = :expectedStatus")
+    int updateStatus(@Param("orderId") Long orderId,
+                     @Param("expectedStatus") String expectedStatus,
+                     @Param("newStatus") String newStatus);
+}
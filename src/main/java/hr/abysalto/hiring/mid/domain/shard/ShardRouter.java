@@ -0,0 +1,444 @@
+package hr.abysalto.hiring.mid.domain.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hr.abysalto.hiring.mid.domain.model.CartItem;
+import hr.abysalto.hiring.mid.domain.model.FavoriteProduct;
+import hr.abysalto.hiring.mid.domain.repository.CartItemBatchRepositoryImpl;
+import hr.abysalto.hiring.mid.domain.repository.CartItemRepository;
+import hr.abysalto.hiring.mid.domain.repository.FavoriteProductBatchRepositoryImpl;
+import hr.abysalto.hiring.mid.domain.repository.FavoriteProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.jdbc.core.convert.DataAccessStrategy;
+import org.springframework.data.jdbc.core.convert.DataAccessStrategyFactory;
+import org.springframework.data.jdbc.core.convert.InsertStrategyFactory;
+import org.springframework.data.jdbc.core.convert.JdbcConverter;
+import org.springframework.data.jdbc.core.convert.SqlGeneratorSource;
+import org.springframework.data.jdbc.core.convert.SqlParametersFactory;
+import org.springframework.data.jdbc.repository.support.JdbcRepositoryFactory;
+import org.springframework.data.relational.core.dialect.Dialect;
+import org.springframework.data.relational.core.mapping.RelationalMappingContext;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Partitions the per-user tables ({@code cart_items}, {@code favorite_products}) across independent databases
+ * by a hash of {@code user_id}.
+ * <p>
+ * Users hash into a fixed number of buckets and every bucket is assigned to a shard; the assignment is kept in
+ * {@code shard_buckets} on the primary database. Resharding moves whole buckets, so the bucket count bounds the
+ * shard count. Each bucket has a read/write lock: work on a user's rows holds the read lock until the
+ * surrounding transaction completes, and moving the bucket takes the write lock.
+ * <p>
+ * Inside an application transaction every shard touched gets its own transaction, committed just before the
+ * primary one. That is best effort: a primary commit failing after the shards committed is not undone.
+ * Identity values are interleaved across shards, so rows keep their IDs when they move.
+ */
+@Component
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+public class ShardRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRouter.class);
+
+    public static final int BUCKETS = 1024;
+
+    private static final List<Class<?>> SHARDED_ENTITIES = List.of(CartItem.class, FavoriteProduct.class);
+
+    record Shard(int index, HikariDataSource dataSource, NamedParameterJdbcTemplate jdbcTemplate,
+                 CartItemRepository cartItems, FavoriteProductRepository favoriteProducts) {
+    }
+
+    public record ShardStatus(int shard, int buckets, Map<String, Long> rows) {
+    }
+
+    private record ShardedTable(String name, String idColumn, String userIdColumn) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final RelationalMappingContext mappingContext;
+    private final JdbcConverter converter;
+    private final Dialect dialect;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String urlTemplate;
+    private final int poolSize;
+    private final long lockTimeoutMs;
+
+    private final List<ShardedTable> tables;
+    private final List<Shard> shards = new CopyOnWriteArrayList<>();
+    private final ReentrantReadWriteLock[] bucketLocks = new ReentrantReadWriteLock[BUCKETS];
+    private volatile int[] shardOfBucket;
+
+    public ShardRouter(
+            JdbcTemplate jdbcTemplate,
+            DataSourceProperties dataSourceProperties,
+            RelationalMappingContext mappingContext,
+            JdbcConverter converter,
+            Dialect dialect,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${sharding.shard-count}") int shardCount,
+            @Value("${sharding.url-template}") String urlTemplate,
+            @Value("${sharding.pool-size}") int poolSize,
+            @Value("${sharding.reshard-lock-timeout-ms}") long lockTimeoutMs,
+            @Value("${cart.store}") String cartStore) {
+        if (!"jdbc".equals(cartStore)) {
+            throw new IllegalStateException("Sharding requires cart.store=jdbc; the write-behind store manages cart_items itself");
+        }
+        if (shardCount < 1 || shardCount > BUCKETS) {
+            throw new IllegalArgumentException("Shard count must be between 1 and " + BUCKETS);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.mappingContext = mappingContext;
+        this.converter = converter;
+        this.dialect = dialect;
+        this.eventPublisher = eventPublisher;
+        this.urlTemplate = urlTemplate;
+        this.poolSize = poolSize;
+        this.lockTimeoutMs = lockTimeoutMs;
+        this.tables = SHARDED_ENTITIES.stream()
+                .map(mappingContext::getRequiredPersistentEntity)
+                .map(entity -> new ShardedTable(entity.getTableName().getReference(), entity.getIdColumn().getReference(),
+                        entity.getRequiredPersistentProperty("userId").getColumnName().getReference()))
+                .toList();
+        for (int i = 0; i < BUCKETS; i++) {
+            bucketLocks[i] = new ReentrantReadWriteLock();
+        }
+
+        int[] assignment = new int[BUCKETS];
+        List<Map<String, Object>> stored = jdbcTemplate.queryForList("SELECT bucket, shard FROM shard_buckets");
+        if (stored.size() == BUCKETS) {
+            stored.forEach(row -> assignment[((Number) row.get("BUCKET")).intValue()] = ((Number) row.get("SHARD")).intValue());
+        } else {
+            List<Object[]> rows = new ArrayList<>(BUCKETS);
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                assignment[bucket] = bucket % shardCount;
+                rows.add(new Object[]{bucket, assignment[bucket]});
+            }
+            jdbcTemplate.update("DELETE FROM shard_buckets");
+            jdbcTemplate.batchUpdate("INSERT INTO shard_buckets (bucket, shard) VALUES (?, ?)", rows);
+        }
+        int shardsInUse = 1 + Arrays.stream(assignment).max().orElse(0);
+        if (shardsInUse != shardCount) {
+            log.info("Keeping the stored assignment over {} shards; reshard to change it", shardsInUse);
+        }
+        for (int index = 0; index < shardsInUse; index++) {
+            shards.add(open(index));
+        }
+        shardOfBucket = assignment;
+    }
+
+    @PreDestroy
+    public void close() {
+        shards.forEach(shard -> shard.dataSource().close());
+    }
+
+    public CartItemRepository cartItemRepository() {
+        return ShardRoutingRepository.create(this, CartItemRepository.class, CartItem.class, CartItem::getUserId, Shard::cartItems);
+    }
+
+    public FavoriteProductRepository favoriteProductRepository() {
+        return ShardRoutingRepository.create(this, FavoriteProductRepository.class, FavoriteProduct.class,
+                FavoriteProduct::getUserId, Shard::favoriteProducts);
+    }
+
+    public static int bucketOf(long userId) {
+        return Math.floorMod(Long.hashCode(userId * 0x9E3779B97F4A7C15L), BUCKETS);
+    }
+
+    /**
+     * Runs work against the shard holding the user's rows, under the user's bucket lock.
+     */
+    <T> T onShardOf(Long userId, Function<Shard, T> work) {
+        int bucket = bucketOf(userId);
+        Lock lock = bucketLocks[bucket].readLock();
+        lock.lock();
+        ShardTransaction transaction = currentTransaction();
+        if (transaction != null) {
+            // Released when the transaction completes, so a move never sees uncommitted rows
+            transaction.locks.add(lock);
+        }
+        try {
+            Shard shard = shards.get(shardOfBucket[bucket]);
+            if (transaction != null) {
+                transaction.join(shard);
+            }
+            return work.apply(shard);
+        } finally {
+            if (transaction == null) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Runs work against every shard in turn. Buckets are not locked, so rows being moved may be seen twice or not at all.
+     */
+    <T> List<T> onAllShards(Function<Shard, T> work) {
+        ShardTransaction transaction = currentTransaction();
+        List<T> results = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            if (transaction != null) {
+                transaction.join(shard);
+            }
+            results.add(work.apply(shard));
+        }
+        return results;
+    }
+
+    public List<ShardStatus> status() {
+        int[] assignment = shardOfBucket;
+        List<ShardStatus> status = new ArrayList<>();
+        for (Shard shard : shards) {
+            int buckets = (int) Arrays.stream(assignment).filter(index -> index == shard.index()).count();
+            Map<String, Long> rows = new LinkedHashMap<>();
+            for (ShardedTable table : tables) {
+                rows.put(table.name().toLowerCase(), shard.jdbcTemplate().getJdbcTemplate()
+                        .queryForObject("SELECT COUNT(*) FROM " + table.name(), Long.class));
+            }
+            status.add(new ShardStatus(shard.index(), buckets, rows));
+        }
+        return status;
+    }
+
+    /**
+     * Spreads the buckets over {@code shardCount} shards, opening new ones as needed. Buckets are moved one source
+     * shard at a time; users in a moving bucket wait until it lands on its new shard.
+     */
+    public synchronized List<ShardStatus> reshard(int shardCount) {
+        if (shardCount < 1 || shardCount > BUCKETS) {
+            throw new IllegalArgumentException("Shard count must be between 1 and " + BUCKETS);
+        }
+        long start = System.currentTimeMillis();
+        while (shards.size() < shardCount) {
+            shards.add(open(shards.size()));
+        }
+
+        int moved = 0;
+        for (Shard source : shards) {
+            int[] assignment = shardOfBucket;
+            List<Integer> moving = new ArrayList<>();
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                if (assignment[bucket] == source.index() && bucket % shardCount != source.index()) {
+                    moving.add(bucket);
+                }
+            }
+            if (moving.isEmpty()) {
+                continue;
+            }
+
+            List<Lock> locked = lockForMove(moving);
+            try {
+                Map<Integer, Integer> targets = moving.stream().collect(Collectors.toMap(bucket -> bucket, bucket -> bucket % shardCount));
+                moveRows(source, targets);
+                jdbcTemplate.batchUpdate("UPDATE shard_buckets SET shard = ? WHERE bucket = ?",
+                        moving.stream().map(bucket -> new Object[]{targets.get(bucket), bucket}).toList());
+                int[] updated = shardOfBucket.clone();
+                targets.forEach((bucket, target) -> updated[bucket] = target);
+                shardOfBucket = updated;
+                deleteMovedRows(source, targets.keySet());
+                moved += moving.size();
+            } finally {
+                locked.forEach(Lock::unlock);
+            }
+        }
+        log.info("Resharded to {} shards: moved {} buckets in {} ms", shardCount, moved, System.currentTimeMillis() - start);
+        return status();
+    }
+
+    private List<Lock> lockForMove(List<Integer> buckets) {
+        List<Lock> locked = new ArrayList<>(buckets.size());
+        try {
+            for (int bucket : buckets) {
+                Lock lock = bucketLocks[bucket].writeLock();
+                if (!lock.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    throw new IllegalStateException("Bucket " + bucket + " is busy, retry the reshard");
+                }
+                locked.add(lock);
+            }
+            return locked;
+        } catch (InterruptedException | RuntimeException e) {
+            locked.forEach(Lock::unlock);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while locking buckets", e);
+            }
+            throw (RuntimeException) e;
+        }
+    }
+
+    /**
+     * Copies the rows of moving buckets to their target shards; on failure the copies are removed again.
+     */
+    private void moveRows(Shard source, Map<Integer, Integer> targets) {
+        Map<Shard, Map<ShardedTable, List<Object>>> copiedIds = new HashMap<>();
+        try {
+            for (ShardedTable table : tables) {
+                Map<Integer, List<Map<String, Object>>> rowsByTarget = new HashMap<>();
+                for (Map<String, Object> row : source.jdbcTemplate().getJdbcTemplate().queryForList("SELECT * FROM " + table.name())) {
+                    Integer target = targets.get(bucketOf(((Number) row.get(table.userIdColumn())).longValue()));
+                    if (target != null) {
+                        rowsByTarget.computeIfAbsent(target, index -> new ArrayList<>()).add(row);
+                    }
+                }
+                rowsByTarget.forEach((target, rows) -> {
+                    Set<String> columns = rows.get(0).keySet();
+                    String insertSql = "INSERT INTO " + table.name() + " (" + String.join(", ", columns) + ") VALUES ("
+                            + columns.stream().map(column -> ":" + column).collect(Collectors.joining(", ")) + ")";
+                    Shard shard = shards.get(target);
+                    shard.jdbcTemplate().batchUpdate(insertSql, rows.stream().map(MapSqlParameterSource::new).toArray(SqlParameterSource[]::new));
+                    copiedIds.computeIfAbsent(shard, key -> new HashMap<>())
+                            .put(table, rows.stream().map(row -> row.get(table.idColumn())).toList());
+                });
+            }
+        } catch (RuntimeException e) {
+            copiedIds.forEach((shard, idsByTable) -> idsByTable.forEach((table, ids) -> deleteByIds(shard, table, ids)));
+            throw e;
+        }
+    }
+
+    private void deleteMovedRows(Shard source, Set<Integer> buckets) {
+        for (ShardedTable table : tables) {
+            List<Object> ids = source.jdbcTemplate().getJdbcTemplate()
+                    .queryForList("SELECT " + table.idColumn() + ", " + table.userIdColumn() + " FROM " + table.name()).stream()
+                    .filter(row -> buckets.contains(bucketOf(((Number) row.get(table.userIdColumn())).longValue())))
+                    .map(row -> row.get(table.idColumn()))
+                    .toList();
+            deleteByIds(source, table, ids);
+        }
+    }
+
+    private void deleteByIds(Shard shard, ShardedTable table, List<Object> ids) {
+        shard.jdbcTemplate().getJdbcTemplate().batchUpdate("DELETE FROM " + table.name() + " WHERE " + table.idColumn() + " = ?",
+                ids.stream().map(id -> new Object[]{id}).toList());
+    }
+
+    private Shard open(int index) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(urlTemplate.replace("{shard}", String.valueOf(index)))
+                .build();
+        dataSource.setPoolName("shard-" + index);
+        dataSource.setMaximumPoolSize(poolSize);
+        new ResourceDatabasePopulator(new ClassPathResource("shard-schema.sql")).execute(dataSource);
+
+        // Shard i hands out IDs congruent to i + 1 modulo the bucket count, so IDs never collide across shards
+        JdbcTemplate shardJdbc = new JdbcTemplate(dataSource);
+        for (ShardedTable table : tables) {
+            Long lastOwnId = shardJdbc.queryForObject("SELECT MAX(" + table.idColumn() + ") FROM " + table.name()
+                    + " WHERE MOD(" + table.idColumn() + ", " + BUCKETS + ") = ?", Long.class, (index + 1) % BUCKETS);
+            long nextId = lastOwnId != null ? lastOwnId + BUCKETS : index + 1;
+            shardJdbc.execute("ALTER TABLE " + table.name() + " ALTER COLUMN " + table.idColumn()
+                    + " SET INCREMENT BY " + BUCKETS + " RESTART WITH " + nextId);
+        }
+
+        NamedParameterJdbcTemplate operations = new NamedParameterJdbcTemplate(dataSource);
+        DataAccessStrategy dataAccessStrategy = new DataAccessStrategyFactory(
+                new SqlGeneratorSource(mappingContext, converter, dialect), converter, operations,
+                new SqlParametersFactory(mappingContext, converter), new InsertStrategyFactory(operations, dialect)).create();
+        JdbcRepositoryFactory factory = new JdbcRepositoryFactory(dataAccessStrategy, mappingContext, converter, dialect, eventPublisher, operations);
+
+        return new Shard(index, dataSource, operations,
+                factory.getRepository(CartItemRepository.class, RepositoryFragments.just(new CartItemBatchRepositoryImpl(operations))),
+                factory.getRepository(FavoriteProductRepository.class, RepositoryFragments.just(new FavoriteProductBatchRepositoryImpl(operations))));
+    }
+
+    private ShardTransaction currentTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        ShardTransaction transaction = (ShardTransaction) TransactionSynchronizationManager.getResource(this);
+        if (transaction == null) {
+            transaction = new ShardTransaction();
+            TransactionSynchronizationManager.bindResource(this, transaction);
+            TransactionSynchronizationManager.registerSynchronization(transaction);
+        }
+        return transaction;
+    }
+
+    /**
+     * Shard connections and bucket locks held by one application transaction.
+     */
+    private final class ShardTransaction implements TransactionSynchronization {
+
+        private final Map<Shard, Connection> connections = new LinkedHashMap<>();
+        private final List<Lock> locks = new ArrayList<>();
+
+        void join(Shard shard) {
+            if (connections.containsKey(shard)) {
+                return;
+            }
+            try {
+                Connection connection = shard.dataSource().getConnection();
+                connection.setAutoCommit(false);
+                connections.put(shard, connection);
+                // Repositories on this shard pick the connection up like any transaction-bound one
+                TransactionSynchronizationManager.bindResource(shard.dataSource(), new ConnectionHolder(connection, true));
+            } catch (SQLException e) {
+                throw new CannotGetJdbcConnectionException("Could not open a transaction on shard " + shard.index(), e);
+            }
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            for (Map.Entry<Shard, Connection> entry : connections.entrySet()) {
+                try {
+                    entry.getValue().commit();
+                } catch (SQLException e) {
+                    throw new TransactionSystemException("Could not commit shard " + entry.getKey().index(), e);
+                }
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(ShardRouter.this);
+            connections.forEach((shard, connection) -> {
+                TransactionSynchronizationManager.unbindResource(shard.dataSource());
+                try (connection) {
+                    if (status != STATUS_COMMITTED) {
+                        connection.rollback();
+                    }
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    log.warn("Could not finish the transaction on shard {}: {}", shard.index(), e.getMessage());
+                }
+            });
+            Collections.reverse(locks);
+            locks.forEach(Lock::unlock);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package hr.abysalto.hiring.mid.domain.shard;
+
+import org.springframework.data.repository.query.Param;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Implements a repository interface by calling the same repository on the right shard.
+ * <p>
+ * Calls with a {@code userId} argument, or with an entity, go to the shard of that user, and collections of
+ * entities are split per user. Calls with neither, such as {@code findAll} or {@code deleteById}, go to every
+ * shard and their results are combined; identity values are unique across shards, so ID lookups stay exact.
+ */
+final class ShardRoutingRepository<R, T> implements InvocationHandler {
+
+    private static final String USER_ID = "userId";
+
+    private final ShardRouter router;
+    private final Class<R> repositoryType;
+    private final Class<T> entityType;
+    private final Function<T, Long> userIdOf;
+    private final Function<ShardRouter.Shard, R> repositoryOf;
+
+    private ShardRoutingRepository(ShardRouter router, Class<R> repositoryType, Class<T> entityType,
+                                   Function<T, Long> userIdOf, Function<ShardRouter.Shard, R> repositoryOf) {
+        this.router = router;
+        this.repositoryType = repositoryType;
+        this.entityType = entityType;
+        this.userIdOf = userIdOf;
+        this.repositoryOf = repositoryOf;
+    }
+
+    static <R, T> R create(ShardRouter router, Class<R> repositoryType, Class<T> entityType,
+                           Function<T, Long> userIdOf, Function<ShardRouter.Shard, R> repositoryOf) {
+        return repositoryType.cast(Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType},
+                new ShardRoutingRepository<>(router, repositoryType, entityType, userIdOf, repositoryOf)));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "Sharded " + repositoryType.getSimpleName();
+            };
+        }
+
+        Long userId = userIdArgument(method, args);
+        if (userId != null) {
+            return router.onShardOf(userId, shard -> call(shard, method, args));
+        }
+        if (args != null && args.length == 1 && entityType.isInstance(args[0])) {
+            return router.onShardOf(userIdOf.apply(entityType.cast(args[0])), shard -> call(shard, method, args));
+        }
+        if (args != null && args.length == 1 && args[0] instanceof Iterable<?> items && containsEntities(items)) {
+            Map<Long, List<T>> entitiesByUser = new LinkedHashMap<>();
+            items.forEach(item -> entitiesByUser.computeIfAbsent(userIdOf.apply(entityType.cast(item)), id -> new ArrayList<>())
+                    .add(entityType.cast(item)));
+            List<Object> results = new ArrayList<>(entitiesByUser.size());
+            entitiesByUser.forEach((user, entities) ->
+                    results.add(router.onShardOf(user, shard -> call(shard, method, new Object[]{entities}))));
+            return combine(method, results);
+        }
+        return combine(method, router.onAllShards(shard -> call(shard, method, args)));
+    }
+
+    private Object call(ShardRouter.Shard shard, Method method, Object[] args) {
+        try {
+            return method.invoke(repositoryOf.apply(shard), args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new UndeclaredThrowableException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean containsEntities(Iterable<?> items) {
+        var iterator = items.iterator();
+        return iterator.hasNext() && entityType.isInstance(iterator.next());
+    }
+
+    private static Long userIdArgument(Method method, Object[] args) {
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            Param param = parameters[i].getAnnotation(Param.class);
+            String name = param != null ? param.value() : parameters[i].getName();
+            if (USER_ID.equals(name) && args[i] instanceof Long userId) {
+                return userId;
+            }
+        }
+        return null;
+    }
+
+    private static Object combine(Method method, List<?> results) {
+        Class<?> returnType = method.getReturnType();
+        if (returnType == void.class) {
+            return null;
+        }
+        if (Iterable.class.isAssignableFrom(returnType)) {
+            List<Object> combined = new ArrayList<>();
+            results.forEach(result -> ((Iterable<?>) result).forEach(combined::add));
+            return combined;
+        }
+        if (returnType == Optional.class) {
+            return results.stream()
+                    .map(result -> (Optional<?>) result)
+                    .filter(Optional::isPresent)
+                    .findFirst()
+                    .orElse(Optional.empty());
+        }
+        if (returnType == long.class || returnType == Long.class) {
+            return results.stream().mapToLong(result -> (Long) result).sum();
+        }
+        if (returnType == int.class || returnType == Integer.class) {
+            return results.stream().mapToInt(result -> (Integer) result).sum();
+        }
+        if (returnType == boolean.class || returnType == Boolean.class) {
+            return results.stream().anyMatch(Boolean.TRUE::equals);
+        }
+        throw new UnsupportedOperationException(method.getName() + " cannot be combined across shards");
+    }
+}
@@ -0,0 +1,35 @@
+package hr.abysalto.hiring.mid.domain.shard;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code /actuator/shards}: buckets and rows per shard, and online resharding
+ * ({@code POST {"shardCount": 8}}).
+ * <p>
+ * A reshard locks and moves user data across databases, so {@code SecurityConfig} serves this endpoint to admins only.
+ */
+@Component
+@Endpoint(id = "shards")
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ShardsEndpoint {
+
+    private final ShardRouter shardRouter;
+
+    @ReadOperation
+    public List<ShardRouter.ShardStatus> shards() {
+        return shardRouter.status();
+    }
+
+    @WriteOperation
+    public List<ShardRouter.ShardStatus> reshard(int shardCount) {
+        return shardRouter.reshard(shardCount);
+    }
+}
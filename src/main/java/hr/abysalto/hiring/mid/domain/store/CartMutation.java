@@ -0,0 +1,24 @@
+package hr.abysalto.hiring.mid.domain.store;
+
+import hr.abysalto.hiring.mid.domain.model.CartItem;
+
+/**
+ * A single state change of a cart, as written to the mutation log and replayed onto {@code cart_items}.
+ * Upserts carry the full line state, so replaying a mutation more than once is harmless.
+ */
+record CartMutation(Type type, Long userId, Long cartItemId, CartItem line) {
+
+    enum Type { UPSERT, DELETE, CLEAR }
+
+    static CartMutation upsert(CartItem line) {
+        return new CartMutation(Type.UPSERT, line.getUserId(), line.getCartItemId(), line);
+    }
+
+    static CartMutation delete(Long userId, Long cartItemId) {
+        return new CartMutation(Type.DELETE, userId, cartItemId, null);
+    }
+
+    static CartMutation clear(Long userId) {
+        return new CartMutation(Type.CLEAR, userId, null, null);
+    }
+}
@@ -0,0 +1,76 @@
+package hr.abysalto.hiring.mid.domain.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only NDJSON log of cart mutations that have not been persisted to the database yet.
+ * Writes land in the OS page cache immediately (surviving a process crash) and are forced to disk on {@link #sync()}.
+ */
+class CartMutationLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(CartMutationLog.class);
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+
+    CartMutationLog(Path path, ObjectMapper objectMapper) throws IOException {
+        this.path = path;
+        this.objectMapper = objectMapper;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    void append(CartMutation mutation) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((objectMapper.writeValueAsString(mutation) + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    void sync() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Reads every complete entry; a torn final line from a crash mid-write is skipped.
+     */
+    List<CartMutation> readAll() throws IOException {
+        List<CartMutation> mutations = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) continue;
+            try {
+                mutations.add(objectMapper.readValue(line, CartMutation.class));
+            } catch (IOException e) {
+                log.warn("Skipping unreadable cart mutation log entry: {}", line);
+            }
+        }
+        return mutations;
+    }
+
+    void truncate() throws IOException {
+        channel.truncate(0);
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,76 @@
+package hr.abysalto.hiring.mid.domain.store;
+
+import hr.abysalto.hiring.mid.domain.model.CartItem;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage for cart lines. Selected with the {@code cart.store} property:
+ * {@code jdbc} (default) writes straight to {@code cart_items},
+ * {@code write-behind} serves carts from memory and persists them asynchronously.
+ */
+public interface CartStore {
+
+    /**
+     * Returns the user's cart lines, most recently added first.
+     */
+    List<CartItem> findByUserId(Long userId);
+
+    /**
+     * Returns up to {@code limit} of the user's lines in the order of {@link #findByUserId}, starting after
+     * the line identified by {@code afterAddedAt}/{@code afterCartItemId}, or from the first line when those are null.
+     */
+    List<CartItem> findPage(Long userId, LocalDateTime afterAddedAt, Long afterCartItemId, int limit);
+
+    /**
+     * Returns the user's line. Inside a transaction the JDBC store keeps the row locked until the transaction ends,
+     * so the line read is still the line an update in the same transaction changes.
+     */
+    Optional<CartItem> findLine(Long userId, Long cartItemId);
+
+    Optional<CartItem> findLineByProductId(Long userId, Long productId);
+
+    /**
+     * Sums the user's lines as of their current snapshots, without refreshing stale ones.
+     */
+    CartTotals totals(Long userId);
+
+    /**
+     * Adds the line's quantity to the user's line for the same product, creating the line if missing,
+     * and stores the line's product snapshot.
+     */
+    void addQuantity(CartItem line);
+
+    /**
+     * Adds each line's quantity to the user's line for that product, creating missing lines,
+     * and stores the lines' product snapshots.
+     */
+    void addQuantities(Long userId, List<CartItem> lines);
+
+    /**
+     * Overwrites the product snapshot of the user's existing lines, identified by cart item ID.
+     */
+    void updateSnapshots(Long userId, List<CartItem> lines);
+
+    /**
+     * Sets the line's quantity, removing the line when the quantity is not positive.
+     *
+     * @return false if the user has no such line
+     */
+    boolean updateQuantity(Long userId, Long cartItemId, int quantity);
+
+    /**
+     * @return false if the user has no such line
+     */
+    boolean remove(Long userId, Long cartItemId);
+
+    /**
+     * Subtracts each line's quantity from the user's line with the same cart item ID, removing lines left with
+     * none. Lines added or increased since the given ones were read keep the difference.
+     */
+    void removeQuantities(Long userId, List<CartItem> lines);
+
+    void clear(Long userId);
+}
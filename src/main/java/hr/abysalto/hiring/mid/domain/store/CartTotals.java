@@ -0,0 +1,7 @@
+package hr.abysalto.hiring.mid.domain.store;
+
+/**
+ * Totals of a cart over the lines' price snapshots, in cents.
+ */
+public record CartTotals(int products, int quantity, long totalCents, long discountedTotalCents) {
+}
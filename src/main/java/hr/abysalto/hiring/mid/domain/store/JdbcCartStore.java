@@ -0,0 +1,100 @@
+package hr.abysalto.hiring.mid.domain.store;
+
+import hr.abysalto.hiring.mid.components.RequestTimings;
+import hr.abysalto.hiring.mid.domain.model.CartItem;
+import hr.abysalto.hiring.mid.domain.repository.CartItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "cart.store", havingValue = "jdbc", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JdbcCartStore implements CartStore {
+
+    private final CartItemRepository cartItemRepository;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CartItem> findByUserId(Long userId) {
+        return RequestTimings.time(RequestTimings.Stage.DB, () -> cartItemRepository.findByUserId(userId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CartItem> findPage(Long userId, LocalDateTime afterAddedAt, Long afterCartItemId, int limit) {
+        return RequestTimings.time(RequestTimings.Stage.DB, () -> afterAddedAt == null
+                ? cartItemRepository.findFirstPageByUserId(userId, limit)
+                : cartItemRepository.findPageByUserIdAfter(userId, afterAddedAt, afterCartItemId, limit));
+    }
+
+    @Override
+    public Optional<CartItem> findLine(Long userId, Long cartItemId) {
+        return RequestTimings.time(RequestTimings.Stage.DB, () -> cartItemRepository.findByIdAndUserIdForUpdate(cartItemId, userId));
+    }
+
+    @Override
+    public Optional<CartItem> findLineByProductId(Long userId, Long productId) {
+        return RequestTimings.time(RequestTimings.Stage.DB, () -> cartItemRepository.findByUserIdAndProductId(userId, productId));
+    }
+
+    @Override
+    public CartTotals totals(Long userId) {
+        return RequestTimings.time(RequestTimings.Stage.DB, () -> cartItemRepository.sumByUserId(userId));
+    }
+
+    /**
+     * Adds the quantity with a single MERGE, so concurrent adds never lose an increment.
+     */
+    @Override
+    public void addQuantity(CartItem line) {
+        RequestTimings.time(RequestTimings.Stage.DB, () -> {
+            try {
+                cartItemRepository.batchUpsert(List.of(line));
+            } catch (DuplicateKeyException e) {
+                // A concurrent first insert of the same product committed in between; the row now matches
+                cartItemRepository.batchUpsert(List.of(line));
+            }
+        });
+    }
+
+    @Override
+    public void addQuantities(Long userId, List<CartItem> lines) {
+        RequestTimings.time(RequestTimings.Stage.DB, () -> cartItemRepository.batchUpsert(lines));
+    }
+
+    @Override
+    public void updateSnapshots(Long userId, List<CartItem> lines) {
+        RequestTimings.time(RequestTimings.Stage.DB, () -> cartItemRepository.batchUpdateSnapshots(lines));
+    }
+
+    @Override
+    public boolean updateQuantity(Long userId, Long cartItemId, int quantity) {
+        int updated = RequestTimings.time(RequestTimings.Stage.DB, () -> quantity <= 0
+                ? cartItemRepository.deleteByIdAndUserId(cartItemId, userId)
+                : cartItemRepository.updateQuantityByIdAndUserId(cartItemId, userId, quantity));
+        return updated > 0;
+    }
+
+    @Override
+    public boolean remove(Long userId, Long cartItemId) {
+        int deleted = RequestTimings.time(RequestTimings.Stage.DB, () -> cartItemRepository.deleteByIdAndUserId(cartItemId, userId));
+        return deleted > 0;
+    }
+
+    @Override
+    public void removeQuantities(Long userId, List<CartItem> lines) {
+        RequestTimings.time(RequestTimings.Stage.DB, () -> cartItemRepository.batchRemoveQuantities(lines));
+    }
+
+    @Override
+    public void clear(Long userId) {
+        RequestTimings.time(RequestTimings.Stage.DB, () -> cartItemRepository.deleteAllByUserId(userId));
+    }
+}
@@ -0,0 +1,624 @@
+package hr.abysalto.hiring.mid.domain.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.abysalto.hiring.mid.components.RequestTimings;
+import hr.abysalto.hiring.mid.domain.model.CartItem;
+import hr.abysalto.hiring.mid.domain.repository.CartItemRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Keeps active users' carts in memory and persists them to {@code cart_items} asynchronously.
+ * <p>
+ * Every mutation is appended to a local {@link CartMutationLog} before it is applied in memory, and a
+ * background thread flushes queued mutations to the database in JDBC batches. On startup the log left
+ * behind by a crash is replayed onto the table before any cart is served. Carts are loaded lazily from
+ * the table and evicted once idle with nothing left to flush.
+ * <p>
+ * A mutation the database fails to write is retried on every flush, together with the later mutations of the
+ * same user, and stays in the log until it is written. One that breaks a constraint, such as a line of a user
+ * who no longer exists, can never be written: it is moved to a {@code .rejected} file next to the log and the
+ * user's cart is reloaded from the table, so that what is served matches what is stored. Replayed mutations
+ * are handled the same way. The log only makes the database durable against a crash of this process, so with
+ * an in-memory database carts are lost on restart like everything else and a replay finds no users to apply to.
+ * <p>
+ * Carts are read from and flushed to the one application database, so the store cannot be combined with read
+ * replicas, which could hand it a stale cart to cache, or with sharding; both refuse to start alongside it.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.store", havingValue = "write-behind")
+public class WriteBehindCartStore implements CartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindCartStore.class);
+    private static final int LOCK_STRIPES = 64;
+    private static final Comparator<CartItem> NEWEST_FIRST =
+            Comparator.comparing(CartItem::getAddedAt).thenComparing(CartItem::getCartItemId).reversed();
+
+    private static final String UPSERT_SQL = """
+            MERGE INTO cart_items (cart_item_id, user_id, product_id, quantity, added_at,
+                title, price_cents, discount_basis_points, thumbnail, catalog_version)
+            KEY (cart_item_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final String DELETE_SQL = "DELETE FROM cart_items WHERE cart_item_id = ?";
+    private static final String CLEAR_SQL = "DELETE FROM cart_items WHERE user_id = ?";
+
+    private final CartItemRepository cartItemRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Path logPath;
+    private final long flushIntervalMs;
+    private final int batchSize;
+    private final long idleEvictionMs;
+
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final Map<Long, UserCart> carts = new ConcurrentHashMap<>();
+    private final Queue<CartMutation> pending = new ConcurrentLinkedQueue<>();
+    // Held across log appends; a monitor there would pin a virtual thread to its carrier during the write
+    private final ReentrantLock logLock = new ReentrantLock();
+    private final AtomicLong nextCartItemId = new AtomicLong();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cart-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Mutations not written yet because the database failed, oldest first; only touched by the flushing thread
+    private final List<CartMutation> parked = new ArrayList<>();
+
+    private CartMutationLog mutationLog;
+    private CartMutationLog rejectedLog;
+
+    public WriteBehindCartStore(
+            CartItemRepository cartItemRepository,
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${cart.write-behind.log-path}") String logPath,
+            @Value("${cart.write-behind.flush-interval-ms}") long flushIntervalMs,
+            @Value("${cart.write-behind.batch-size}") int batchSize,
+            @Value("${cart.write-behind.idle-eviction-ms}") long idleEvictionMs) {
+        this.cartItemRepository = cartItemRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.logPath = Path.of(logPath);
+        this.flushIntervalMs = flushIntervalMs;
+        this.batchSize = batchSize;
+        this.idleEvictionMs = idleEvictionMs;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        String url = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getURL());
+        if (url != null && url.startsWith("jdbc:h2:mem:")) {
+            log.warn("Write-behind cart store on the in-memory database {}: carts are not kept across restarts", url);
+        }
+        mutationLog = new CartMutationLog(logPath, objectMapper);
+        rejectedLog = new CartMutationLog(logPath.resolveSibling(logPath.getFileName() + ".rejected"), objectMapper);
+
+        List<CartMutation> unflushed = mutationLog.readAll();
+        if (!unflushed.isEmpty()) {
+            log.info("Replaying {} unflushed cart mutations from {}", unflushed.size(), logPath);
+            parked.addAll(write(unflushed, new HashSet<>()));
+        }
+        if (parked.isEmpty()) {
+            mutationLog.truncate();
+        } else {
+            log.error("{} replayed cart mutations could not be written; they stay in {} and are retried",
+                    parked.size(), logPath);
+        }
+
+        // Past every line in the table and every line still waiting in the log
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(cart_item_id), 0) FROM cart_items", Long.class);
+        long maxParkedId = parked.stream()
+                .filter(mutation -> mutation.type() == CartMutation.Type.UPSERT)
+                .mapToLong(CartMutation::cartItemId)
+                .max()
+                .orElse(0);
+        nextCartItemId.set(Math.max(maxId != null ? maxId : 0, maxParkedId));
+
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::evictIdleCarts, idleEvictionMs, idleEvictionMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+        if (!parked.isEmpty()) {
+            log.error("{} cart mutations could not be written; they stay in {} and are replayed on the next start",
+                    parked.size(), logPath);
+        }
+        mutationLog.close();
+        rejectedLog.close();
+
+        // Line IDs were assigned here, so move the identity past them for the synchronous store
+        jdbcTemplate.execute("ALTER TABLE cart_items ALTER COLUMN cart_item_id RESTART WITH " + (nextCartItemId.get() + 1));
+    }
+
+    @Override
+    public List<CartItem> findByUserId(Long userId) {
+        return withCart(userId, cart -> cart.items.values().stream()
+                .sorted(NEWEST_FIRST)
+                .map(WriteBehindCartStore::copy)
+                .toList());
+    }
+
+    /**
+     * Carts are held in memory whole, so a page is a filtered sort of the user's lines.
+     */
+    @Override
+    public List<CartItem> findPage(Long userId, LocalDateTime afterAddedAt, Long afterCartItemId, int limit) {
+        CartItem after = afterAddedAt == null ? null
+                : CartItem.builder().addedAt(afterAddedAt).cartItemId(afterCartItemId).build();
+        return withCart(userId, cart -> cart.items.values().stream()
+                .filter(item -> after == null || NEWEST_FIRST.compare(item, after) > 0)
+                .sorted(NEWEST_FIRST)
+                .limit(limit)
+                .map(WriteBehindCartStore::copy)
+                .toList());
+    }
+
+    @Override
+    public Optional<CartItem> findLine(Long userId, Long cartItemId) {
+        return withCart(userId, cart -> Optional.ofNullable(findLine(cart, cartItemId)).map(WriteBehindCartStore::copy));
+    }
+
+    @Override
+    public Optional<CartItem> findLineByProductId(Long userId, Long productId) {
+        return withCart(userId, cart -> Optional.ofNullable(cart.items.get(productId)).map(WriteBehindCartStore::copy));
+    }
+
+    @Override
+    public CartTotals totals(Long userId) {
+        return withCart(userId, cart -> {
+            int quantity = 0;
+            long totalCents = 0;
+            long discountedCents = 0;
+            for (CartItem item : cart.items.values()) {
+                long lineCents = item.getPriceCents() * item.getQuantity();
+                quantity += item.getQuantity();
+                totalCents += lineCents;
+                // Half-up to the cent, as the cart view rounds each line
+                discountedCents += (lineCents * (10_000 - item.getDiscountBasisPoints()) + 5_000) / 10_000;
+            }
+            return new CartTotals(cart.items.size(), quantity, totalCents, discountedCents);
+        });
+    }
+
+    @Override
+    public void addQuantity(CartItem line) {
+        withCart(line.getUserId(), cart -> {
+            addLine(cart, line);
+            return null;
+        });
+    }
+
+    @Override
+    public void addQuantities(Long userId, List<CartItem> lines) {
+        withCart(userId, cart -> {
+            lines.forEach(line -> addLine(cart, line));
+            return null;
+        });
+    }
+
+    @Override
+    public void updateSnapshots(Long userId, List<CartItem> lines) {
+        withCart(userId, cart -> {
+            for (CartItem line : lines) {
+                CartItem item = findLine(cart, line.getCartItemId());
+                if (item == null) continue;
+
+                CartItem updated = copy(item);
+                copySnapshot(line, updated);
+                record(cart, CartMutation.upsert(updated));
+                cart.items.put(updated.getProductId(), updated);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean updateQuantity(Long userId, Long cartItemId, int quantity) {
+        return withCart(userId, cart -> {
+            CartItem item = findLine(cart, cartItemId);
+            if (item == null) {
+                return false;
+            }
+            if (quantity <= 0) {
+                record(cart, CartMutation.delete(userId, cartItemId));
+                cart.items.remove(item.getProductId());
+            } else {
+                CartItem updated = copy(item);
+                updated.setQuantity(quantity);
+                record(cart, CartMutation.upsert(updated));
+                cart.items.put(updated.getProductId(), updated);
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public boolean remove(Long userId, Long cartItemId) {
+        return withCart(userId, cart -> {
+            CartItem item = findLine(cart, cartItemId);
+            if (item == null) {
+                return false;
+            }
+            record(cart, CartMutation.delete(userId, cartItemId));
+            cart.items.remove(item.getProductId());
+            return true;
+        });
+    }
+
+    /**
+     * Called by checkout inside the order's transaction. The lines leave the cart at once, so a concurrent
+     * checkout cannot order them again, and are put back if that transaction rolls back.
+     */
+    @Override
+    public void removeQuantities(Long userId, List<CartItem> lines) {
+        List<CartItem> removed = withCart(userId, cart -> {
+            List<CartItem> taken = new ArrayList<>();
+            for (CartItem line : lines) {
+                CartItem item = findLine(cart, line.getCartItemId());
+                if (item == null) continue;
+
+                CartItem before = copy(item);
+                before.setQuantity(Math.min(item.getQuantity(), line.getQuantity()));
+                taken.add(before);
+
+                int remaining = item.getQuantity() - line.getQuantity();
+                if (remaining <= 0) {
+                    record(cart, CartMutation.delete(userId, item.getCartItemId()));
+                    cart.items.remove(item.getProductId());
+                } else {
+                    CartItem updated = copy(item);
+                    updated.setQuantity(remaining);
+                    record(cart, CartMutation.upsert(updated));
+                    cart.items.put(updated.getProductId(), updated);
+                }
+            }
+            return taken;
+        });
+        if (!removed.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        restoreQuantities(userId, removed);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Puts back what {@link #removeQuantities} took: onto the line if it is still there, otherwise as the
+     * original line, unless the product has since been added again as a new one.
+     */
+    private void restoreQuantities(Long userId, List<CartItem> removed) {
+        withCart(userId, cart -> {
+            for (CartItem taken : removed) {
+                CartItem item = findLine(cart, taken.getCartItemId());
+                if (item == null && cart.items.containsKey(taken.getProductId())) {
+                    item = cart.items.get(taken.getProductId());
+                }
+                CartItem restored = item != null ? copy(item) : copy(taken);
+                if (item != null) {
+                    restored.setQuantity(item.getQuantity() + taken.getQuantity());
+                }
+                record(cart, CartMutation.upsert(restored));
+                cart.items.put(restored.getProductId(), restored);
+            }
+            return null;
+        });
+        log.info("Restored {} cart lines of user {} after their order rolled back", removed.size(), userId);
+    }
+
+    @Override
+    public void clear(Long userId) {
+        withCart(userId, cart -> {
+            record(cart, CartMutation.clear(userId));
+            cart.items.clear();
+            return null;
+        });
+    }
+
+    private void addLine(UserCart cart, CartItem line) {
+        CartItem existing = cart.items.get(line.getProductId());
+        CartItem updated = existing != null
+                ? copy(existing)
+                : CartItem.builder()
+                        .cartItemId(nextCartItemId.incrementAndGet())
+                        .userId(line.getUserId())
+                        .productId(line.getProductId())
+                        .quantity(0)
+                        .addedAt(LocalDateTime.now())
+                        .build();
+        updated.setQuantity(updated.getQuantity() + line.getQuantity());
+        copySnapshot(line, updated);
+
+        record(cart, CartMutation.upsert(updated));
+        cart.items.put(updated.getProductId(), updated);
+    }
+
+    private CartItem findLine(UserCart cart, Long cartItemId) {
+        return cart.items.values().stream()
+                .filter(item -> item.getCartItemId().equals(cartItemId))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Makes the mutation durable in the log and queues it for the database.
+     * Must be called before the in-memory cart is changed, so a failed append leaves the cart untouched.
+     */
+    private void record(UserCart cart, CartMutation mutation) {
+        logLock.lock();
+        try {
+            mutationLog.append(mutation);
+            pending.add(mutation);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to cart mutation log", e);
+        } finally {
+            logLock.unlock();
+        }
+        cart.pending.incrementAndGet();
+    }
+
+    private <T> T withCart(Long userId, Function<UserCart, T> action) {
+        ReentrantLock lock = locks[Math.floorMod(userId.hashCode(), LOCK_STRIPES)];
+        lock.lock();
+        try {
+            // Loaded outside computeIfAbsent: the stripe lock already serializes this user, and a query inside
+            // the map's bin lock would block other users' bins (and pin a virtual thread)
+            UserCart cart = carts.get(userId);
+            if (cart == null || (cart.reload && cart.pending.get() == 0)) {
+                cart = new UserCart(RequestTimings.time(RequestTimings.Stage.DB, () -> cartItemRepository.findByUserId(userId)));
+                carts.put(userId, cart);
+            }
+            cart.lastAccess = System.currentTimeMillis();
+            return action.apply(cart);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Cart write-behind flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void flush() throws IOException {
+        if (pending.isEmpty() && parked.isEmpty()) {
+            return;
+        }
+        mutationLog.sync();
+
+        // Users with a mutation still parked: their later ones wait behind it, so none is applied out of order
+        Set<Long> heldBack = new HashSet<>();
+        List<CartMutation> retries = new ArrayList<>(parked);
+        parked.clear();
+        parked.addAll(write(retries, heldBack));
+
+        while (!pending.isEmpty()) {
+            List<CartMutation> batch = new ArrayList<>(batchSize);
+            CartMutation mutation;
+            while (batch.size() < batchSize && (mutation = pending.poll()) != null) {
+                batch.add(mutation);
+            }
+            parked.addAll(write(batch, heldBack));
+        }
+
+        // Parked mutations are only safe in the log, so it is kept whole until they are written
+        logLock.lock();
+        try {
+            if (pending.isEmpty() && parked.isEmpty()) {
+                mutationLog.truncate();
+            }
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the mutations in one transaction, or one by one if that fails. Mutations that break a constraint
+     * are rejected; those that fail otherwise, and the later ones of the same users, are returned to be retried.
+     */
+    private List<CartMutation> write(List<CartMutation> mutations, Set<Long> heldBack) {
+        List<CartMutation> writable = mutations.stream().filter(m -> !heldBack.contains(m.userId())).toList();
+        if (writable.size() == mutations.size() && !mutations.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(mutations));
+                mutations.forEach(this::written);
+                return List.of();
+            } catch (RuntimeException e) {
+                log.warn("Cart write-behind batch of {} failed, retrying one by one: {}", mutations.size(), e.getMessage());
+            }
+        }
+
+        List<CartMutation> failed = new ArrayList<>();
+        for (CartMutation single : mutations) {
+            if (heldBack.contains(single.userId())) {
+                failed.add(single);
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(List.of(single)));
+                written(single);
+            } catch (DataIntegrityViolationException e) {
+                if (reject(single)) {
+                    log.error("Rejected cart mutation {}, moved to the rejected log: {}", single, e.getMessage());
+                } else {
+                    heldBack.add(single.userId());
+                    failed.add(single);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Cart mutation {} failed to flush, retrying later: {}", single, e.getMessage());
+                heldBack.add(single.userId());
+                failed.add(single);
+            }
+        }
+        return failed;
+    }
+
+    private void written(CartMutation mutation) {
+        UserCart cart = carts.get(mutation.userId());
+        if (cart != null) {
+            cart.pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Moves the mutation to the rejected log. The in-memory cart has a change the table never will, so it is
+     * reloaded once its other mutations are written.
+     *
+     * @return false if the rejected log could not be written, leaving the mutation to be retried
+     */
+    private boolean reject(CartMutation mutation) {
+        try {
+            rejectedLog.append(mutation);
+            rejectedLog.sync();
+        } catch (IOException e) {
+            log.error("Could not move cart mutation {} to the rejected log: {}", mutation, e.getMessage());
+            return false;
+        }
+        UserCart cart = carts.get(mutation.userId());
+        if (cart != null) {
+            cart.reload = true;
+            cart.pending.decrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * Applies mutations in order, sending each run of same-type mutations as one JDBC batch.
+     * Consecutive upserts of the same line collapse into the latest state.
+     */
+    private void apply(List<CartMutation> mutations) {
+        int start = 0;
+        while (start < mutations.size()) {
+            CartMutation.Type type = mutations.get(start).type();
+            int end = start;
+            while (end < mutations.size() && mutations.get(end).type() == type) {
+                end++;
+            }
+            List<CartMutation> run = mutations.subList(start, end);
+
+            switch (type) {
+                case UPSERT -> {
+                    Map<Long, CartMutation> latest = new LinkedHashMap<>();
+                    run.forEach(m -> latest.put(m.cartItemId(), m));
+                    jdbcTemplate.batchUpdate(UPSERT_SQL, latest.values().stream()
+                            .map(CartMutation::line)
+                            .map(line -> new Object[]{line.getCartItemId(), line.getUserId(), line.getProductId(),
+                                    line.getQuantity(), Timestamp.valueOf(line.getAddedAt()), line.getTitle(),
+                                    line.getPriceCents(), line.getDiscountBasisPoints(), line.getThumbnail(),
+                                    line.getCatalogVersion()})
+                            .toList());
+                }
+                case DELETE -> jdbcTemplate.batchUpdate(DELETE_SQL, run.stream()
+                        .map(m -> new Object[]{m.cartItemId()})
+                        .toList());
+                case CLEAR -> jdbcTemplate.batchUpdate(CLEAR_SQL, run.stream()
+                        .map(m -> new Object[]{m.userId()})
+                        .toList());
+            }
+            start = end;
+        }
+    }
+
+    private void evictIdleCarts() {
+        long cutoff = System.currentTimeMillis() - idleEvictionMs;
+        carts.forEach((userId, cart) -> {
+            if (cart.lastAccess >= cutoff || cart.pending.get() > 0) {
+                return;
+            }
+            ReentrantLock lock = locks[Math.floorMod(userId.hashCode(), LOCK_STRIPES)];
+            if (lock.tryLock()) {
+                try {
+                    if (cart.lastAccess < cutoff && cart.pending.get() == 0) {
+                        carts.remove(userId);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        });
+    }
+
+    private static CartItem copy(CartItem item) {
+        CartItem copy = CartItem.builder()
+                .cartItemId(item.getCartItemId())
+                .userId(item.getUserId())
+                .productId(item.getProductId())
+                .quantity(item.getQuantity())
+                .addedAt(item.getAddedAt())
+                .build();
+        copySnapshot(item, copy);
+        return copy;
+    }
+
+    private static void copySnapshot(CartItem from, CartItem to) {
+        to.setTitle(from.getTitle());
+        to.setPriceCents(from.getPriceCents());
+        to.setDiscountBasisPoints(from.getDiscountBasisPoints());
+        to.setThumbnail(from.getThumbnail());
+        to.setCatalogVersion(from.getCatalogVersion());
+    }
+
+    private static class UserCart {
+        private final Map<Long, CartItem> items = new LinkedHashMap<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile long lastAccess;
+        private volatile boolean reload;
+
+        UserCart(List<CartItem> persisted) {
+            persisted.forEach(item -> items.put(item.getProductId(), item));
+        }
+    }
+}
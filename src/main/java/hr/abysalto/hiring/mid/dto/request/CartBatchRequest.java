@@ -0,0 +1,20 @@
+package hr.abysalto.hiring.mid.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartBatchRequest {
+
+    @NotEmpty(message = "At least one item is required")
+    @Size(max = 100, message = "At most 100 items can be added at once")
+    private List<@Valid CartItemRequest> items;
+}
@@ -0,0 +1,20 @@
+package hr.abysalto.hiring.mid.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FavoriteBatchRequest {
+
+    @NotEmpty(message = "At least one product ID is required")
+    @Size(max = 100, message = "At most 100 products can be added at once")
+    private List<@NotNull(message = "Product ID is required") Long> productIds;
+}
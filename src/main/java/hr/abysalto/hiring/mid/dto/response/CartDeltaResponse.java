@@ -0,0 +1,29 @@
+package hr.abysalto.hiring.mid.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CartDeltaResponse {
+
+    private Long userId;
+
+    private CartItemResponse item;
+
+    private Long removedCartItemId;
+
+    private int totalProducts;
+
+    private int totalQuantity;
+
+    private double totalPrice;
+
+    private double totalDiscountedPrice;
+}
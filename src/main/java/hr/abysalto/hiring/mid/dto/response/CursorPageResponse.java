@@ -0,0 +1,22 @@
+package hr.abysalto.hiring.mid.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+
+    private List<T> items;
+
+    /**
+     * Opaque token for the following page; null on the last page.
+     */
+    private String nextCursor;
+}
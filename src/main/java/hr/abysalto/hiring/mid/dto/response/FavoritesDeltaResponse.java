@@ -0,0 +1,21 @@
+package hr.abysalto.hiring.mid.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Collection;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FavoritesDeltaResponse {
+
+    private Collection<Long> addedProductIds;
+
+    private Collection<Long> removedProductIds;
+}
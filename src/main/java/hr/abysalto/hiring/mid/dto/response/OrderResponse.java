@@ -0,0 +1,32 @@
+package hr.abysalto.hiring.mid.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderResponse {
+
+    private Long orderId;
+
+    private String status;
+
+    private List<OrderLineResponse> items;
+
+    private int totalProducts;
+
+    private int totalQuantity;
+
+    private double totalPrice;
+
+    private double totalDiscountedPrice;
+
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,25 @@
+package hr.abysalto.hiring.mid.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendingProductResponse {
+
+    private int rank;
+
+    private double score;
+
+    private double views;
+
+    private double favorites;
+
+    private double cartAdds;
+
+    private ProductResponse product;
+}
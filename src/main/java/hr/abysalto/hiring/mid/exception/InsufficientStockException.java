@@ -0,0 +1,7 @@
+package hr.abysalto.hiring.mid.exception;
+
+public class InsufficientStockException extends RuntimeException {
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,26 @@
+package hr.abysalto.hiring.mid.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A product cache miss, lasting until the value was loaded from DummyJSON and stored, or the load failed.
+ */
+@Name("hr.abysalto.CacheMiss")
+@Label("Cache Miss")
+@Category({"Abysalto", "Cache"})
+@StackTrace(false)
+public class CacheMissEvent extends Event {
+
+    @Label("Cache")
+    public String cache;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Loaded")
+    public boolean loaded;
+}
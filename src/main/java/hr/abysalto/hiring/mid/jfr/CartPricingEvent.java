@@ -0,0 +1,26 @@
+package hr.abysalto.hiring.mid.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Pricing of one cart response, including the re-snapshot of lines priced under an older catalog version.
+ */
+@Name("hr.abysalto.CartPricing")
+@Label("Cart Pricing")
+@Category({"Abysalto", "Cart"})
+public class CartPricingEvent extends Event {
+
+    @Label("User ID")
+    public long userId;
+
+    @Label("Lines")
+    public int lines;
+
+    @Label("Refreshed Snapshots")
+    @Description("Lines re-priced from DummyJSON because their snapshot was stale")
+    public int refreshedSnapshots;
+}
@@ -0,0 +1,172 @@
+package hr.abysalto.hiring.mid.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * {@code /actuator/flightrecorder}: Java Flight Recorder recordings, including the application's own events
+ * ({@code hr.abysalto.*}) next to GC, lock and I/O events in one timeline.
+ * <p>
+ * {@code POST {"settings": "profile", "durationSeconds": 60}} starts a recording (both fields optional; settings is
+ * a JDK configuration name, {@code default} or {@code profile}, and the duration must be positive), {@code POST /{id} {"action": "stop"}} stops one,
+ * {@code GET /{id}} downloads a snapshot of what it has recorded so far as a {@code .jfr} file for JDK Mission
+ * Control or {@code jfr print}, and {@code DELETE /{id}} discards it. Recordings started with
+ * {@code -XX:StartFlightRecording} are listed and can be dumped too.
+ * <p>
+ * Recordings hold stack traces, request timings and I/O details, so {@code SecurityConfig} serves this endpoint to
+ * admins only.
+ */
+@Component
+@WebEndpoint(id = "flightrecorder")
+@ConditionalOnProperty(name = "jfr.endpoint.enabled", havingValue = "true")
+public class FlightRecorderEndpoint {
+
+    private static final String DEFAULT_SETTINGS = "profile";
+
+    public record RecordingInfo(long id, String name, RecordingState state, Instant startTime, Duration duration,
+                                long sizeBytes, Duration maxAge, long maxSizeBytes) {
+
+        static RecordingInfo of(Recording recording) {
+            return new RecordingInfo(recording.getId(), recording.getName(), recording.getState(),
+                    recording.getStartTime(), recording.getDuration(), recording.getSize(), recording.getMaxAge(),
+                    recording.getMaxSize());
+        }
+    }
+
+    private final Duration maxAge;
+    private final long maxSizeBytes;
+
+    public FlightRecorderEndpoint(
+            @Value("${jfr.max-age-ms}") long maxAgeMs,
+            @Value("${jfr.max-size-mb}") long maxSizeMb) {
+        this.maxAge = Duration.ofMillis(maxAgeMs);
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+    }
+
+    @ReadOperation
+    public List<RecordingInfo> recordings() {
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .map(RecordingInfo::of)
+                .toList();
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<RecordingInfo> start(@Nullable String settings, @Nullable Long durationSeconds)
+            throws IOException {
+        if (durationSeconds != null && durationSeconds <= 0) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings != null ? settings : DEFAULT_SETTINGS);
+        } catch (ParseException | IOException e) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        Recording recording = new Recording(configuration);
+        recording.setName("actuator-" + configuration.getName());
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSizeBytes);
+        if (durationSeconds != null) {
+            recording.setDuration(Duration.ofSeconds(durationSeconds));
+        }
+        recording.start();
+        return new WebEndpointResponse<>(RecordingInfo.of(recording));
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<RecordingInfo> stop(@Selector long id, String action) {
+        if (!"stop".equals(action)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        Recording recording = find(id);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        return new WebEndpointResponse<>(RecordingInfo.of(recording));
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> dump(@Selector long id) throws IOException {
+        Recording recording = find(id);
+        if (recording == null || recording.getState() == RecordingState.NEW) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Path file = Files.createTempFile("recording-" + id + "-", ".jfr");
+        try {
+            recording.dump(file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new WebEndpointResponse<>(new TemporaryFileResource(file));
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<Void> discard(@Selector long id) {
+        Recording recording = find(id);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        recording.close();
+        return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NO_CONTENT);
+    }
+
+    private static Recording find(long id) {
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .filter(recording -> recording.getId() == id)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * A dump file deleted once it has been sent.
+     */
+    private static final class TemporaryFileResource extends FileSystemResource {
+
+        TemporaryFileResource(Path file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(getFile().toPath());
+                    }
+                }
+            };
+        }
+    }
+}
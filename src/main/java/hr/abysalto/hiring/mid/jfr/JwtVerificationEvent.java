@@ -0,0 +1,25 @@
+package hr.abysalto.hiring.mid.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Signature and expiry check of one bearer token.
+ */
+@Name("hr.abysalto.JwtVerification")
+@Label("JWT Verification")
+@Category({"Abysalto", "Security"})
+@StackTrace(false)
+public class JwtVerificationEvent extends Event {
+
+    @Label("Valid")
+    public boolean valid;
+
+    @Label("Failure")
+    @Description("expired, or the exception type of a malformed or forged token")
+    public String failure;
+}
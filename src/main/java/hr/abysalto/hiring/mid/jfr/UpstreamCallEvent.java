@@ -0,0 +1,30 @@
+package hr.abysalto.hiring.mid.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One HTTP call to DummyJSON, from subscription until the response is mapped or the call fails. Committed on the
+ * thread that completes it, usually a reactor-netty event loop.
+ */
+@Name("hr.abysalto.UpstreamCall")
+@Label("DummyJSON Call")
+@Category({"Abysalto", "Upstream"})
+@StackTrace(false)
+public class UpstreamCallEvent extends Event {
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Key")
+    @Description("Product ID, page or search query")
+    public String key;
+
+    @Label("Outcome")
+    @Description("ok, empty, not-found, cancelled, or the exception type")
+    public String outcome;
+}
@@ -1,5 +1,6 @@
 package hr.abysalto.hiring.mid.security;
 
+import hr.abysalto.hiring.mid.components.RequestTimings;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -39,15 +40,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         String token = authHeader.substring(7);
 
-        if (!jwtUtil.isTokenValid(token) || jwtUtil.isTwoFactorToken(token)) {
-            filterChain.doFilter(request, response);
-            return;
-        }
-
-        String username = jwtUtil.extractUsername(token);
+        String username = RequestTimings.time(RequestTimings.Stage.JWT,
+                () -> jwtUtil.isTokenValid(token) && !jwtUtil.isTwoFactorToken(token) ? jwtUtil.extractUsername(token) : null);
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            UserDetails userDetails = RequestTimings.time(RequestTimings.Stage.USER,
+                    () -> userDetailsService.loadUserByUsername(username));
 
             UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                     userDetails, null, userDetails.getAuthorities());
@@ -1,5 +1,6 @@
 package hr.abysalto.hiring.mid.security;
 
+import hr.abysalto.hiring.mid.jfr.JwtVerificationEvent;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
@@ -50,12 +51,21 @@ public class JwtUtil {
     }
 
     public boolean isTokenValid(String token) {
+        JwtVerificationEvent event = new JwtVerificationEvent();
+        event.begin();
+        boolean valid = false;
         try {
             Claims claims = extractClaims(token);
-            return !claims.getExpiration().before(new Date());
+            valid = !claims.getExpiration().before(new Date());
+            if (!valid) {
+                event.failure = "expired";
+            }
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            event.failure = e.getClass().getSimpleName();
         }
+        event.valid = valid;
+        event.commit();
+        return valid;
     }
 
     public boolean isTwoFactorToken(String token) {
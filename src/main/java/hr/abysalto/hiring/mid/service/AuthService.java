@@ -1,5 +1,7 @@
 package hr.abysalto.hiring.mid.service;
 
+import hr.abysalto.hiring.mid.components.AuditLog;
+import hr.abysalto.hiring.mid.components.UserRegistrationFilter;
 import hr.abysalto.hiring.mid.domain.model.User;
 import hr.abysalto.hiring.mid.domain.repository.UserRepository;
 import hr.abysalto.hiring.mid.dto.request.LoginRequest;
@@ -13,13 +15,20 @@ import hr.abysalto.hiring.mid.exception.ResourceNotFoundException;
 import hr.abysalto.hiring.mid.security.JwtUtil;
 import hr.abysalto.hiring.mid.security.TotpUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.audit.AuditEvent;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.relational.core.conversion.DbActionExecutionException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -29,13 +38,18 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
     private final TotpUtil totpUtil;
+    private final UserRegistrationFilter userRegistrationFilter;
+    private final Optional<AuditLog> auditLog;
 
     @Transactional
     public AuthResponse register(RegisterRequest request) {
-        if (userRepository.existsByUsername(request.getUsername())) {
+        // Bloom filters give a definite "absent" answer, so the DB checks only run on possible duplicates
+        if (userRegistrationFilter.mightContainUsername(request.getUsername())
+                && userRepository.existsByUsername(request.getUsername())) {
             throw new DuplicateResourceException("Username already exists: " + request.getUsername());
         }
-        if (userRepository.existsByEmail(request.getEmail())) {
+        if (userRegistrationFilter.mightContainEmail(request.getEmail())
+                && userRepository.existsByEmail(request.getEmail())) {
             throw new DuplicateResourceException("Email already exists: " + request.getEmail());
         }
 
@@ -46,12 +60,23 @@ public class AuthService {
                 .firstName(request.getFirstName())
                 .lastName(request.getLastName())
                 .twoFactorEnabled(false)
+                .admin(false)
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        user = userRepository.save(user);
+        try {
+            user = userRepository.save(user);
+        } catch (DbActionExecutionException e) {
+            // A concurrent registration won the race; the unique constraints are the final arbiter
+            if (e.getCause() instanceof DuplicateKeyException) {
+                throw new DuplicateResourceException("Username or email already exists");
+            }
+            throw e;
+        }
+        userRegistrationFilter.register(user.getUsername(), user.getEmail());
+        audit(user.getUsername(), AuditLog.REGISTRATION, null);
 
-        String token = jwtUtil.generateAccessToken(user.getUsername(), Map.of("userId", user.getUserId()));
+        String token = issueAccessToken(user, "registration");
 
         return AuthResponse.builder()
                 .accessToken(token)
@@ -61,10 +86,15 @@ public class AuthService {
     }
 
     public AuthResponse login(LoginRequest request) {
-        User user = userRepository.findByUsername(request.getUsername())
-                .orElseThrow(() -> new BadCredentialsException("Invalid credentials"));
+        User user = userRepository.findByUsername(request.getUsername()).orElse(null);
+        if (user == null) {
+            // Not the submitted name, which may be a mistyped password or someone else's account
+            audit("", AuditLog.AUTHENTICATION_FAILURE, "unknown user");
+            throw new BadCredentialsException("Invalid credentials");
+        }
 
         if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+            audit(user.getUsername(), AuditLog.AUTHENTICATION_FAILURE, "bad password");
             throw new BadCredentialsException("Invalid credentials");
         }
 
@@ -73,6 +103,7 @@ public class AuthService {
             if (request.getTotpCode() == null || request.getTotpCode().isBlank()) {
                 // Return a temporary 2FA token so the client can submit the code
                 String twoFactorToken = jwtUtil.generateTwoFactorToken(user.getUsername());
+                audit(user.getUsername(), AuditLog.TWO_FACTOR_CHALLENGE, null);
                 return AuthResponse.builder()
                         .twoFactorRequired(true)
                         .twoFactorToken(twoFactorToken)
@@ -81,11 +112,13 @@ public class AuthService {
             }
 
             if (!totpUtil.verifyCode(user.getTotpSecret(), request.getTotpCode())) {
+                audit(user.getUsername(), AuditLog.AUTHENTICATION_FAILURE, "bad two-factor code");
                 throw new InvalidTotpException("Invalid two-factor authentication code");
             }
         }
 
-        String token = jwtUtil.generateAccessToken(user.getUsername(), Map.of("userId", user.getUserId()));
+        audit(user.getUsername(), AuditLog.AUTHENTICATION_SUCCESS, "password");
+        String token = issueAccessToken(user, "login");
 
         return AuthResponse.builder()
                 .accessToken(token)
@@ -96,6 +129,7 @@ public class AuthService {
 
     public AuthResponse verifyTwoFactor(String twoFactorToken, String code) {
         if (!jwtUtil.isTokenValid(twoFactorToken) || !jwtUtil.isTwoFactorToken(twoFactorToken)) {
+            audit("", AuditLog.AUTHENTICATION_FAILURE, "invalid two-factor token");
             throw new InvalidTotpException("Invalid or expired two-factor token");
         }
 
@@ -104,10 +138,12 @@ public class AuthService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
         if (!totpUtil.verifyCode(user.getTotpSecret(), code)) {
+            audit(user.getUsername(), AuditLog.AUTHENTICATION_FAILURE, "bad two-factor code");
             throw new InvalidTotpException("Invalid two-factor authentication code");
         }
 
-        String token = jwtUtil.generateAccessToken(user.getUsername(), Map.of("userId", user.getUserId()));
+        audit(user.getUsername(), AuditLog.AUTHENTICATION_SUCCESS, "two-factor");
+        String token = issueAccessToken(user, "two-factor login");
 
         return AuthResponse.builder()
                 .accessToken(token)
@@ -116,6 +152,7 @@ public class AuthService {
                 .build();
     }
 
+    @Transactional(readOnly = true)
     public UserResponse getCurrentUser(String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
@@ -132,6 +169,8 @@ public class AuthService {
         user.setTotpSecret(secret);
         userRepository.save(user);
 
+        audit(username, AuditLog.TWO_FACTOR_SETUP, null);
+
         String otpAuthUri = totpUtil.generateOtpAuthUri(secret, username);
 
         return TwoFactorSetupResponse.builder()
@@ -152,13 +191,15 @@ public class AuthService {
         }
 
         if (!totpUtil.verifyCode(user.getTotpSecret(), code)) {
+            audit(username, AuditLog.TWO_FACTOR_SETUP_FAILURE, "bad two-factor code");
             throw new InvalidTotpException("Invalid code. Please try again.");
         }
 
         user.setTwoFactorEnabled(true);
         userRepository.save(user);
+        audit(username, AuditLog.TWO_FACTOR_ENABLED, null);
 
-        String token = jwtUtil.generateAccessToken(user.getUsername(), Map.of("userId", user.getUserId()));
+        String token = issueAccessToken(user, "two-factor enabled");
 
         return AuthResponse.builder()
                 .accessToken(token)
@@ -175,6 +216,27 @@ public class AuthService {
         user.setTwoFactorEnabled(false);
         user.setTotpSecret(null);
         userRepository.save(user);
+        audit(username, AuditLog.TWO_FACTOR_DISABLED, null);
+    }
+
+    private String issueAccessToken(User user, String reason) {
+        String token = jwtUtil.generateAccessToken(user.getUsername(), Map.of("userId", user.getUserId()));
+        audit(user.getUsername(), AuditLog.TOKEN_ISSUED, reason);
+        return token;
+    }
+
+    private void audit(String username, String type, String reason) {
+        if (auditLog.isEmpty()) {
+            return;
+        }
+        Map<String, Object> data = new HashMap<>(4);
+        if (reason != null) {
+            data.put("reason", reason);
+        }
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes request) {
+            data.put("remoteAddress", request.getRequest().getRemoteAddr());
+        }
+        auditLog.get().add(new AuditEvent(username, type, data));
     }
 
     private UserResponse toUserResponse(User user) {
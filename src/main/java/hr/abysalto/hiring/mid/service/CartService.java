@@ -1,139 +1,430 @@
 package hr.abysalto.hiring.mid.service;
 
 import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.components.CatalogVersion;
+import hr.abysalto.hiring.mid.components.RequestDeadline;
+import hr.abysalto.hiring.mid.components.RequestTimings;
+import hr.abysalto.hiring.mid.components.StockReservationEngine;
+import hr.abysalto.hiring.mid.components.TrendingTracker;
+import hr.abysalto.hiring.mid.domain.event.CartChangedEvent;
 import hr.abysalto.hiring.mid.domain.model.CartItem;
 import hr.abysalto.hiring.mid.domain.model.User;
-import hr.abysalto.hiring.mid.domain.repository.CartItemRepository;
 import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import hr.abysalto.hiring.mid.domain.store.CartStore;
+import hr.abysalto.hiring.mid.domain.store.CartTotals;
+import hr.abysalto.hiring.mid.dto.request.CartBatchRequest;
 import hr.abysalto.hiring.mid.dto.request.CartItemRequest;
+import hr.abysalto.hiring.mid.dto.response.CartDeltaResponse;
 import hr.abysalto.hiring.mid.dto.response.CartItemResponse;
 import hr.abysalto.hiring.mid.dto.response.CartResponse;
+import hr.abysalto.hiring.mid.dto.response.CursorPageResponse;
 import hr.abysalto.hiring.mid.dto.response.ProductResponse;
+import hr.abysalto.hiring.mid.exception.ExternalApiException;
 import hr.abysalto.hiring.mid.exception.ResourceNotFoundException;
+import hr.abysalto.hiring.mid.jfr.CartPricingEvent;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class CartService {
 
-    private final CartItemRepository cartItemRepository;
+    private static final Logger log = LoggerFactory.getLogger(CartService.class);
+
+    private final CartStore cartStore;
     private final UserRepository userRepository;
     private final DummyJsonClient dummyJsonClient;
+    private final CatalogVersion catalogVersion;
+    private final StockReservationEngine stockReservations;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TrendingTracker trendingTracker;
+    private final RequestDeadline requestDeadline;
 
     public CartResponse getCart(String username) {
         User user = getUser(username);
-        List<CartItem> cartItems = cartItemRepository.findByUserId(user.getUserId());
+        List<CartItem> cartItems = cartStore.findByUserId(user.getUserId());
         return buildCartResponse(user.getUserId(), cartItems);
     }
 
+    /**
+     * Returns one page of the user's cart lines, newest first. Cart totals stay on {@link #getCart}.
+     */
+    public CursorPageResponse<CartItemResponse> getCartItemsPage(String username, String cursor, int limit) {
+        User user = getUser(username);
+        PageCursor after = PageCursor.decode(cursor);
+        int pageSize = PageCursor.clampLimit(limit);
+
+        // One extra line tells whether another page follows
+        List<CartItem> lines = new ArrayList<>(cartStore.findPage(user.getUserId(),
+                after != null ? after.addedAt() : null, after != null ? after.id() : null, pageSize + 1));
+        String nextCursor = null;
+        if (lines.size() > pageSize) {
+            lines = lines.subList(0, pageSize);
+            CartItem last = lines.get(pageSize - 1);
+            nextCursor = new PageCursor(last.getAddedAt(), last.getCartItemId()).encode();
+        }
+
+        refreshStaleSnapshots(user.getUserId(), lines);
+        List<CartItemResponse> items = new ArrayList<>(lines.size());
+        for (CartItem line : lines) {
+            if (line.getPriceCents() == null) {
+                throw new ResourceNotFoundException("Product not found with id: " + line.getProductId());
+            }
+            items.add(toCartItemResponse(line));
+        }
+
+        return CursorPageResponse.<CartItemResponse>builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
     @Transactional
     public CartResponse addToCart(CartItemRequest request, String username) {
         User user = getUser(username);
+        upsertCartItem(user.getUserId(), request);
+
+        CartResponse cart = buildCartResponse(user.getUserId(), cartStore.findByUserId(user.getUserId()));
+        publishChange(toCartDelta(cart, findByProductId(cart, request.getProductId()), null));
+        return cart;
+    }
 
-        // Verify product exists in DummyJSON
-        dummyJsonClient.getProductById(request.getProductId());
-
-        Optional<CartItem> existing = cartItemRepository.findByUserIdAndProductId(user.getUserId(), request.getProductId());
-
-        if (existing.isPresent()) {
-            CartItem item = existing.get();
-            item.setQuantity(item.getQuantity() + request.getQuantity());
-            cartItemRepository.save(item);
-        } else {
-            CartItem cartItem = CartItem.builder()
-                    .userId(user.getUserId())
-                    .productId(request.getProductId())
-                    .quantity(request.getQuantity())
-                    .addedAt(LocalDateTime.now())
-                    .build();
-            cartItemRepository.save(cartItem);
+    @Transactional
+    public CartDeltaResponse addToCartDelta(CartItemRequest request, String username) {
+        User user = getUser(username);
+        upsertCartItem(user.getUserId(), request);
+
+        CartItem line = cartStore.findLineByProductId(user.getUserId(), request.getProductId())
+                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found"));
+        return publishChange(toCartDelta(user.getUserId(), toCartItemResponse(line), null));
+    }
+
+    @Transactional
+    public CartResponse addItemsToCart(CartBatchRequest request, String username) {
+        User user = getUser(username);
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        request.getItems().forEach(item -> quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+
+        Map<Long, ProductResponse> products = dummyJsonClient.getProductsByIds(quantities.keySet());
+        List<Long> missing = quantities.keySet().stream()
+                .filter(productId -> !products.containsKey(productId))
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("Products not found with ids: " + missing);
         }
 
-        return getCart(username);
+        List<CartItem> lines = quantities.entrySet().stream()
+                .map(entry -> toCartLine(user.getUserId(), products.get(entry.getKey()), entry.getValue()))
+                .toList();
+        stockReservations.reserveAll(user.getUserId(), quantities);
+        try {
+            cartStore.addQuantities(user.getUserId(), lines);
+        } catch (RuntimeException e) {
+            quantities.forEach((productId, quantity) -> stockReservations.cancel(user.getUserId(), productId, quantity));
+            throw e;
+        }
+        trendingTracker.record(quantities.keySet(), TrendingTracker.Signal.CART_ADD);
+
+        CartResponse cart = buildCartResponse(user.getUserId(), cartStore.findByUserId(user.getUserId()));
+        publishChange(toCartDelta(cart, null, null));
+        return cart;
     }
 
     @Transactional
     public CartResponse removeFromCart(Long cartItemId, String username) {
         User user = getUser(username);
+        deleteCartItem(cartItemId, user.getUserId());
 
-        cartItemRepository.findById(cartItemId)
-                .filter(item -> item.getUserId().equals(user.getUserId()))
-                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found"));
+        CartResponse cart = buildCartResponse(user.getUserId(), cartStore.findByUserId(user.getUserId()));
+        publishChange(toCartDelta(cart, null, cartItemId));
+        return cart;
+    }
+
+    @Transactional
+    public CartDeltaResponse removeFromCartDelta(Long cartItemId, String username) {
+        User user = getUser(username);
+        deleteCartItem(cartItemId, user.getUserId());
 
-        cartItemRepository.deleteByIdAndUserId(cartItemId, user.getUserId());
-        return getCart(username);
+        return publishChange(toCartDelta(user.getUserId(), null, cartItemId));
     }
 
     @Transactional
     public CartResponse updateCartItemQuantity(Long cartItemId, int quantity, String username) {
         User user = getUser(username);
+        setCartItemQuantity(cartItemId, quantity, user.getUserId());
 
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
-                .filter(item -> item.getUserId().equals(user.getUserId()))
-                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found"));
+        CartResponse cart = buildCartResponse(user.getUserId(), cartStore.findByUserId(user.getUserId()));
+        publishChange(quantity <= 0
+                ? toCartDelta(cart, null, cartItemId)
+                : toCartDelta(cart, findByCartItemId(cart, cartItemId), null));
+        return cart;
+    }
+
+    @Transactional
+    public CartDeltaResponse updateCartItemQuantityDelta(Long cartItemId, int quantity, String username) {
+        User user = getUser(username);
+        setCartItemQuantity(cartItemId, quantity, user.getUserId());
 
         if (quantity <= 0) {
-            cartItemRepository.deleteByIdAndUserId(cartItemId, user.getUserId());
-        } else {
-            cartItem.setQuantity(quantity);
-            cartItemRepository.save(cartItem);
+            return publishChange(toCartDelta(user.getUserId(), null, cartItemId));
         }
-
-        return getCart(username);
+        CartItem line = cartStore.findLine(user.getUserId(), cartItemId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found"));
+        return publishChange(toCartDelta(user.getUserId(), toCartItemResponse(line), null));
     }
 
     @Transactional
     public void clearCart(String username) {
         User user = getUser(username);
-        cartItemRepository.deleteAllByUserId(user.getUserId());
+        cartStore.clear(user.getUserId());
+        stockReservations.releaseAll(user.getUserId());
+        eventPublisher.publishEvent(CartChangedEvent.cleared(user.getUserId()));
+    }
+
+    /**
+     * Returns the user's cart lines with price snapshots valid for the current catalog version.
+     */
+    public List<CartItem> getPricedLines(Long userId) {
+        List<CartItem> lines = cartStore.findByUserId(userId);
+        refreshStaleSnapshots(userId, lines);
+        return lines;
+    }
+
+    /**
+     * Takes checked-out lines out of the user's cart. Lines added after they were read, and quantity added to
+     * them since, stay in the cart.
+     */
+    public void removeOrderedLines(Long userId, List<CartItem> orderedLines) {
+        cartStore.removeQuantities(userId, orderedLines);
+        publishChange(toCartDelta(userId, null, null));
+    }
+
+    private void upsertCartItem(Long userId, CartItemRequest request) {
+        // Verify product exists in DummyJSON and snapshot its current price
+        ProductResponse product = dummyJsonClient.getProductById(request.getProductId());
+
+        stockReservations.reserve(userId, product.getId(), request.getQuantity());
+        try {
+            cartStore.addQuantity(toCartLine(userId, product, request.getQuantity()));
+        } catch (RuntimeException e) {
+            stockReservations.cancel(userId, product.getId(), request.getQuantity());
+            throw e;
+        }
+        trendingTracker.record(product.getId(), TrendingTracker.Signal.CART_ADD);
+    }
+
+    private void setCartItemQuantity(Long cartItemId, int quantity, Long userId) {
+        CartItem line = getCartLine(userId, cartItemId);
+
+        stockReservations.setReserved(userId, line.getProductId(), quantity);
+        boolean updated;
+        try {
+            updated = cartStore.updateQuantity(userId, cartItemId, quantity);
+        } catch (RuntimeException e) {
+            stockReservations.setReserved(userId, line.getProductId(), line.getQuantity());
+            throw e;
+        }
+        if (!updated) {
+            stockReservations.setReserved(userId, line.getProductId(), line.getQuantity());
+            throw new ResourceNotFoundException("Cart item not found");
+        }
+    }
+
+    private void deleteCartItem(Long cartItemId, Long userId) {
+        CartItem line = getCartLine(userId, cartItemId);
+        if (!cartStore.remove(userId, cartItemId)) {
+            throw new ResourceNotFoundException("Cart item not found");
+        }
+        stockReservations.release(userId, line.getProductId());
+    }
+
+    private CartItem getCartLine(Long userId, Long cartItemId) {
+        return cartStore.findLine(userId, cartItemId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found"));
+    }
+
+    private CartDeltaResponse publishChange(CartDeltaResponse delta) {
+        eventPublisher.publishEvent(new CartChangedEvent(delta.getUserId(), delta));
+        return delta;
+    }
+
+    private static CartItemResponse findByProductId(CartResponse cart, Long productId) {
+        return cart.getItems().stream()
+                .filter(item -> item.getProductId().equals(productId))
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found"));
+    }
+
+    private static CartItemResponse findByCartItemId(CartResponse cart, Long cartItemId) {
+        return cart.getItems().stream()
+                .filter(item -> item.getCartItemId().equals(cartItemId))
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found"));
+    }
+
+    private CartDeltaResponse toCartDelta(CartResponse cart, CartItemResponse changed, Long removedCartItemId) {
+        return CartDeltaResponse.builder()
+                .userId(cart.getUserId())
+                .item(changed)
+                .removedCartItemId(removedCartItemId)
+                .totalProducts(cart.getTotalProducts())
+                .totalQuantity(cart.getTotalQuantity())
+                .totalPrice(cart.getTotalPrice())
+                .totalDiscountedPrice(cart.getTotalDiscountedPrice())
+                .build();
+    }
+
+    /**
+     * Delta with totals from one aggregate query over the snapshots, so the rest of the cart is neither read nor
+     * re-priced.
+     */
+    private CartDeltaResponse toCartDelta(Long userId, CartItemResponse changed, Long removedCartItemId) {
+        CartTotals totals = cartStore.totals(userId);
+        return CartDeltaResponse.builder()
+                .userId(userId)
+                .item(changed)
+                .removedCartItemId(removedCartItemId)
+                .totalProducts(totals.products())
+                .totalQuantity(totals.quantity())
+                .totalPrice(Money.toAmount(totals.totalCents()))
+                .totalDiscountedPrice(Money.toAmount(totals.discountedTotalCents()))
+                .build();
     }
 
     private CartResponse buildCartResponse(Long userId, List<CartItem> cartItems) {
-        List<CartItemResponse> items = cartItems.stream()
-                .map(this::toCartItemResponse)
-                .toList();
+        CartPricingEvent event = new CartPricingEvent();
+        event.begin();
+        event.userId = userId;
+        event.lines = cartItems.size();
+        try {
+            event.refreshedSnapshots = refreshStaleSnapshots(userId, cartItems);
+            return priceCart(userId, cartItems);
+        } finally {
+            event.commit();
+        }
+    }
+
+    private CartResponse priceCart(Long userId, List<CartItem> cartItems) {
+        List<CartItemResponse> items = new ArrayList<>(cartItems.size());
+        long totalCents = 0;
+        long totalDiscountedCents = 0;
+        int totalQuantity = 0;
+
+        for (CartItem cartItem : cartItems) {
+            if (cartItem.getPriceCents() == null) {
+                throw new ResourceNotFoundException("Product not found with id: " + cartItem.getProductId());
+            }
+
+            long lineCents = cartItem.getPriceCents() * cartItem.getQuantity();
+            long discountedLineCents = Money.applyDiscount(lineCents, cartItem.getDiscountBasisPoints());
+            items.add(toCartItemResponse(cartItem, lineCents, discountedLineCents));
 
-        double totalPrice = items.stream().mapToDouble(CartItemResponse::getTotal).sum();
-        double totalDiscountedPrice = items.stream().mapToDouble(CartItemResponse::getDiscountedTotal).sum();
-        int totalQuantity = items.stream().mapToInt(CartItemResponse::getQuantity).sum();
+            totalCents += lineCents;
+            totalDiscountedCents += discountedLineCents;
+            totalQuantity += cartItem.getQuantity();
+        }
 
         return CartResponse.builder()
                 .userId(userId)
                 .items(items)
                 .totalProducts(items.size())
                 .totalQuantity(totalQuantity)
-                .totalPrice(Math.round(totalPrice * 100.0) / 100.0)
-                .totalDiscountedPrice(Math.round(totalDiscountedPrice * 100.0) / 100.0)
+                .totalPrice(Money.toAmount(totalCents))
+                .totalDiscountedPrice(Money.toAmount(totalDiscountedCents))
                 .build();
     }
 
-    private CartItemResponse toCartItemResponse(CartItem cartItem) {
-        ProductResponse product = dummyJsonClient.getProductById(cartItem.getProductId());
-
-        double total = product.getPrice() * cartItem.getQuantity();
-        double discountedTotal = total * (1 - product.getDiscountPercentage() / 100.0);
+    private static CartItemResponse toCartItemResponse(CartItem cartItem) {
+        long lineCents = cartItem.getPriceCents() * cartItem.getQuantity();
+        return toCartItemResponse(cartItem, lineCents, Money.applyDiscount(lineCents, cartItem.getDiscountBasisPoints()));
+    }
 
+    private static CartItemResponse toCartItemResponse(CartItem cartItem, long lineCents, long discountedLineCents) {
         return CartItemResponse.builder()
                 .cartItemId(cartItem.getCartItemId())
                 .productId(cartItem.getProductId())
-                .title(product.getTitle())
-                .price(product.getPrice())
+                .title(cartItem.getTitle())
+                .price(Money.toAmount(cartItem.getPriceCents()))
                 .quantity(cartItem.getQuantity())
-                .total(Math.round(total * 100.0) / 100.0)
-                .discountPercentage(product.getDiscountPercentage())
-                .discountedTotal(Math.round(discountedTotal * 100.0) / 100.0)
-                .thumbnail(product.getThumbnail())
+                .total(Money.toAmount(lineCents))
+                .discountPercentage(Money.toAmount(cartItem.getDiscountBasisPoints()))
+                .discountedTotal(Money.toAmount(discountedLineCents))
+                .thumbnail(cartItem.getThumbnail())
+                .build();
+    }
+
+    /**
+     * Re-snapshots lines taken under an older catalog version, fetching all of their products in one batch.
+     * If DummyJSON is unavailable, lines that already have a snapshot keep serving it.
+     *
+     * @return how many lines got a fresh snapshot
+     */
+    private int refreshStaleSnapshots(Long userId, List<CartItem> cartItems) {
+        List<CartItem> stale = cartItems.stream()
+                .filter(item -> !catalogVersion.isCurrent(item.getCatalogVersion()))
+                .toList();
+        if (stale.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, ProductResponse> products;
+        try {
+            // Bounded by the request deadline: past it the cart is served from the previous snapshots
+            products = requestDeadline.apply(dummyJsonClient.getProductsByIdsAsync(
+                    stale.stream().map(CartItem::getProductId).toList())).block();
+        } catch (ExternalApiException e) {
+            if (stale.stream().anyMatch(item -> item.getPriceCents() == null)) {
+                throw e;
+            }
+            log.warn("Serving cart of user {} from previous price snapshots: {}", userId, e.getMessage());
+            return 0;
+        }
+
+        long version = catalogVersion.current();
+        List<CartItem> refreshed = new ArrayList<>();
+        for (CartItem item : stale) {
+            ProductResponse product = products.get(item.getProductId());
+            if (product != null) {
+                applySnapshot(item, product, version);
+                refreshed.add(item);
+            }
+        }
+        if (!refreshed.isEmpty()) {
+            cartStore.updateSnapshots(userId, refreshed);
+        }
+        return refreshed.size();
+    }
+
+    private CartItem toCartLine(Long userId, ProductResponse product, int quantity) {
+        CartItem line = CartItem.builder()
+                .userId(userId)
+                .productId(product.getId())
+                .quantity(quantity)
                 .build();
+        applySnapshot(line, product, catalogVersion.current());
+        return line;
+    }
+
+    private static void applySnapshot(CartItem item, ProductResponse product, long version) {
+        item.setTitle(product.getTitle());
+        item.setPriceCents(Money.toCents(product.getPrice()));
+        item.setDiscountBasisPoints((int) Money.toCents(product.getDiscountPercentage()));
+        item.setThumbnail(product.getThumbnail());
+        item.setCatalogVersion(version);
     }
 
     private User getUser(String username) {
-        return userRepository.findByUsername(username)
+        return RequestTimings.time(RequestTimings.Stage.USER, () -> userRepository.findByUsername(username))
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
     }
 }
@@ -0,0 +1,23 @@
+package hr.abysalto.hiring.mid.service;
+
+import hr.abysalto.hiring.mid.components.UserEventBroadcaster;
+import hr.abysalto.hiring.mid.domain.model.User;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import hr.abysalto.hiring.mid.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Service
+@RequiredArgsConstructor
+public class EventService {
+
+    private final UserRepository userRepository;
+    private final UserEventBroadcaster userEventBroadcaster;
+
+    public SseEmitter subscribe(String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        return userEventBroadcaster.subscribe(user.getUserId());
+    }
+}
@@ -0,0 +1,31 @@
+package hr.abysalto.hiring.mid.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Exact integer-cent arithmetic for prices coming from DummyJSON as two-decimal doubles.
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    /**
+     * Converts a two-decimal amount (a price, or a percentage into basis points) to an exact integer.
+     */
+    public static long toCents(double amount) {
+        return BigDecimal.valueOf(amount).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Applies a discount given in basis points, rounding half-up to the nearest cent.
+     */
+    public static long applyDiscount(long cents, int discountBasisPoints) {
+        return (cents * (10_000 - discountBasisPoints) + 5_000) / 10_000;
+    }
+}
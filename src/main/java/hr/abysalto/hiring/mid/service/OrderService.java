@@ -0,0 +1,187 @@
+package hr.abysalto.hiring.mid.service;
+
+import hr.abysalto.hiring.mid.components.OrderFulfilmentQueue;
+import hr.abysalto.hiring.mid.components.StockReservationEngine;
+import hr.abysalto.hiring.mid.domain.model.CartItem;
+import hr.abysalto.hiring.mid.domain.model.Order;
+import hr.abysalto.hiring.mid.domain.model.OrderLine;
+import hr.abysalto.hiring.mid.domain.model.User;
+import hr.abysalto.hiring.mid.domain.repository.OrderLineRepository;
+import hr.abysalto.hiring.mid.domain.repository.OrderRepository;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import hr.abysalto.hiring.mid.dto.response.OrderLineResponse;
+import hr.abysalto.hiring.mid.dto.response.OrderResponse;
+import hr.abysalto.hiring.mid.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.relational.core.conversion.DbActionExecutionException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class OrderService {
+
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 100;
+
+    private final OrderRepository orderRepository;
+    private final OrderLineRepository orderLineRepository;
+    private final UserRepository userRepository;
+    private final CartService cartService;
+    private final OrderFulfilmentQueue fulfilmentQueue;
+    private final StockReservationEngine stockReservations;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Converts the user's cart into an order in one transaction and queues post-checkout work after commit.
+     * Retries carrying the same idempotency key return the order created by the first attempt. A retry racing that
+     * attempt fails on the key's unique constraint, which rolls its transaction back; the winner's order is then
+     * read in a fresh one.
+     */
+    public OrderResponse checkout(String username, String idempotencyKey) {
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new IllegalArgumentException("Idempotency key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+        try {
+            return transactionTemplate.execute(status -> placeOrder(username, idempotencyKey));
+        } catch (DbActionExecutionException e) {
+            if (idempotencyKey == null || !(e.getCause() instanceof DuplicateKeyException)) {
+                throw e;
+            }
+            User user = getUser(username);
+            return orderRepository.findByUserIdAndIdempotencyKey(user.getUserId(), idempotencyKey)
+                    .map(winner -> toOrderResponse(winner, orderLineRepository.findByOrderId(winner.getOrderId())))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private OrderResponse placeOrder(String username, String idempotencyKey) {
+        User user = getUser(username);
+
+        if (idempotencyKey != null) {
+            Optional<Order> existing = orderRepository.findByUserIdAndIdempotencyKey(user.getUserId(), idempotencyKey);
+            if (existing.isPresent()) {
+                return toOrderResponse(existing.get(), orderLineRepository.findByOrderId(existing.get().getOrderId()));
+            }
+        }
+
+        List<CartItem> cartItems = cartService.getPricedLines(user.getUserId());
+        if (cartItems.isEmpty()) {
+            throw new IllegalArgumentException("Cart is empty");
+        }
+
+        List<OrderLine> lines = cartItems.stream().map(this::toOrderLine).toList();
+
+        Order order = Order.builder()
+                .userId(user.getUserId())
+                .status(Order.STATUS_CREATED)
+                .idempotencyKey(idempotencyKey)
+                .totalQuantity(lines.stream().mapToInt(OrderLine::getQuantity).sum())
+                .totalCents(lines.stream().mapToLong(OrderLine::getTotalCents).sum())
+                .totalDiscountedCents(lines.stream().mapToLong(OrderLine::getDiscountedTotalCents).sum())
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        order = orderRepository.save(order);
+
+        // Convert cart holds into sold stock; handed back by the engine if the order does not commit
+        stockReservations.commit(user.getUserId(), lines.stream()
+                .collect(Collectors.toMap(OrderLine::getProductId, OrderLine::getQuantity, Integer::sum)));
+
+        Long orderId = order.getOrderId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                fulfilmentQueue.submit(orderId);
+            }
+        });
+
+        lines.forEach(line -> line.setOrderId(orderId));
+        orderLineRepository.batchInsert(lines);
+        cartService.removeOrderedLines(user.getUserId(), cartItems);
+
+        return toOrderResponse(order, lines);
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderResponse> getOrders(String username) {
+        User user = getUser(username);
+        List<Order> orders = orderRepository.findByUserId(user.getUserId());
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, List<OrderLine>> linesByOrder = orderLineRepository
+                .findByOrderIdIn(orders.stream().map(Order::getOrderId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(OrderLine::getOrderId));
+
+        return orders.stream()
+                .map(order -> toOrderResponse(order, linesByOrder.getOrDefault(order.getOrderId(), List.of())))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public OrderResponse getOrder(Long orderId, String username) {
+        User user = getUser(username);
+        Order order = orderRepository.findById(orderId)
+                .filter(o -> o.getUserId().equals(user.getUserId()))
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        return toOrderResponse(order, orderLineRepository.findByOrderId(orderId));
+    }
+
+    private OrderLine toOrderLine(CartItem cartItem) {
+        long totalCents = cartItem.getPriceCents() * cartItem.getQuantity();
+
+        return OrderLine.builder()
+                .productId(cartItem.getProductId())
+                .title(cartItem.getTitle())
+                .thumbnail(cartItem.getThumbnail())
+                .quantity(cartItem.getQuantity())
+                .priceCents(cartItem.getPriceCents())
+                .discountBasisPoints(cartItem.getDiscountBasisPoints())
+                .totalCents(totalCents)
+                .discountedTotalCents(Money.applyDiscount(totalCents, cartItem.getDiscountBasisPoints()))
+                .build();
+    }
+
+    private OrderResponse toOrderResponse(Order order, List<OrderLine> lines) {
+        List<OrderLineResponse> items = lines.stream()
+                .map(line -> OrderLineResponse.builder()
+                        .productId(line.getProductId())
+                        .title(line.getTitle())
+                        .price(Money.toAmount(line.getPriceCents()))
+                        .quantity(line.getQuantity())
+                        .total(Money.toAmount(line.getTotalCents()))
+                        .discountPercentage(Money.toAmount(line.getDiscountBasisPoints()))
+                        .discountedTotal(Money.toAmount(line.getDiscountedTotalCents()))
+                        .thumbnail(line.getThumbnail())
+                        .build())
+                .toList();
+
+        return OrderResponse.builder()
+                .orderId(order.getOrderId())
+                .status(order.getStatus())
+                .items(items)
+                .totalProducts(items.size())
+                .totalQuantity(order.getTotalQuantity())
+                .totalPrice(Money.toAmount(order.getTotalCents()))
+                .totalDiscountedPrice(Money.toAmount(order.getTotalDiscountedCents()))
+                .createdAt(order.getCreatedAt())
+                .build();
+    }
+
+    private User getUser(String username) {
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+}
@@ -1,21 +1,39 @@
 package hr.abysalto.hiring.mid.service;
 
 import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.components.CoFavoriteIndex;
+import hr.abysalto.hiring.mid.components.FavoritesIndex;
+import hr.abysalto.hiring.mid.components.ProductIdSet;
+import hr.abysalto.hiring.mid.components.RequestDeadline;
+import hr.abysalto.hiring.mid.components.TrendingTracker;
+import hr.abysalto.hiring.mid.domain.event.FavoritesChangedEvent;
 import hr.abysalto.hiring.mid.domain.model.FavoriteProduct;
 import hr.abysalto.hiring.mid.domain.model.User;
 import hr.abysalto.hiring.mid.domain.repository.FavoriteProductRepository;
 import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import hr.abysalto.hiring.mid.dto.request.FavoriteBatchRequest;
+import hr.abysalto.hiring.mid.dto.response.FavoritesDeltaResponse;
+import hr.abysalto.hiring.mid.dto.response.CursorPageResponse;
 import hr.abysalto.hiring.mid.dto.response.PaginatedProductResponse;
 import hr.abysalto.hiring.mid.dto.response.ProductResponse;
+import hr.abysalto.hiring.mid.dto.response.TrendingProductResponse;
 import hr.abysalto.hiring.mid.exception.DuplicateResourceException;
 import hr.abysalto.hiring.mid.exception.ResourceNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 
 @Service
@@ -25,23 +43,54 @@ public class ProductService {
     private final DummyJsonClient dummyJsonClient;
     private final FavoriteProductRepository favoriteProductRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FavoritesIndex favoritesIndex;
+    private final TrendingTracker trendingTracker;
+    private final CoFavoriteIndex coFavoriteIndex;
+    // Only in products.reactive.enabled mode
+    private final Optional<Scheduler> jdbcScheduler;
+    private final RequestDeadline requestDeadline;
 
+    /**
+     * Lists products with the user's favorites marked. The DummyJSON call and the favorites lookup run concurrently
+     * under the request deadline, so latency is the slower of the two rather than their sum. The other browsing
+     * methods work the same way; each has an Async variant that returns the composition instead of waiting for it.
+     */
     public PaginatedProductResponse getProducts(int limit, int skip, String sortBy, String order, String username) {
-        PaginatedProductResponse response = dummyJsonClient.getProducts(limit, skip, sortBy, order);
-        enrichWithFavoriteStatus(response.getProducts(), username);
-        return response;
+        return getProductsAsync(limit, skip, sortBy, order, username).block();
+    }
+
+    public Mono<PaginatedProductResponse> getProductsAsync(int limit, int skip, String sortBy, String order, String username) {
+        return requestDeadline.apply(dummyJsonClient.getProductsAsync(limit, skip, sortBy, order)
+                .zipWith(favoriteIdsAsync(username), (response, favoriteIds) -> {
+                    markFavorites(response.getProducts(), favoriteIds.orElse(null));
+                    return response;
+                }));
     }
 
     public ProductResponse getProductById(Long id, String username) {
-        ProductResponse product = dummyJsonClient.getProductById(id);
-        enrichSingleProductWithFavoriteStatus(product, username);
-        return product;
+        return getProductByIdAsync(id, username).block();
+    }
+
+    public Mono<ProductResponse> getProductByIdAsync(Long id, String username) {
+        return requestDeadline.apply(dummyJsonClient.getProductByIdAsync(id)
+                .doOnNext(product -> trendingTracker.record(id, TrendingTracker.Signal.VIEW))
+                .zipWith(favoriteIdsAsync(username), (product, favoriteIds) -> {
+                    markFavorites(List.of(product), favoriteIds.orElse(null));
+                    return product;
+                }));
     }
 
     public PaginatedProductResponse searchProducts(String query, int limit, int skip, String username) {
-        PaginatedProductResponse response = dummyJsonClient.searchProducts(query, limit, skip);
-        enrichWithFavoriteStatus(response.getProducts(), username);
-        return response;
+        return searchProductsAsync(query, limit, skip, username).block();
+    }
+
+    public Mono<PaginatedProductResponse> searchProductsAsync(String query, int limit, int skip, String username) {
+        return requestDeadline.apply(dummyJsonClient.searchProductsAsync(query, limit, skip)
+                .zipWith(favoriteIdsAsync(username), (response, favoriteIds) -> {
+                    markFavorites(response.getProducts(), favoriteIds.orElse(null));
+                    return response;
+                }));
     }
 
     @Transactional
@@ -55,6 +104,8 @@ public class ProductService {
             throw new DuplicateResourceException("Product already in favorites");
         }
 
+        ProductIdSet existing = favoritesIndex.get(username);
+
         FavoriteProduct favorite = FavoriteProduct.builder()
                 .userId(user.getUserId())
                 .productId(productId)
@@ -62,11 +113,48 @@ public class ProductService {
                 .build();
 
         favoriteProductRepository.save(favorite);
+        favoritesIndex.added(username, List.of(productId));
+        trendingTracker.record(productId, TrendingTracker.Signal.FAVORITE);
+        coFavoriteIndex.added(List.of(productId), existing);
+        eventPublisher.publishEvent(new FavoritesChangedEvent(user.getUserId(),
+                FavoritesDeltaResponse.builder().addedProductIds(List.of(productId)).build()));
 
         product.setFavorited(true);
         return product;
     }
 
+    @Transactional
+    public List<ProductResponse> addAllToFavorites(FavoriteBatchRequest request, String username) {
+        User user = getUser(username);
+
+        Set<Long> productIds = new LinkedHashSet<>(request.getProductIds());
+        Map<Long, ProductResponse> products = dummyJsonClient.getProductsByIds(productIds);
+        List<Long> missing = productIds.stream()
+                .filter(productId -> !products.containsKey(productId))
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("Products not found with ids: " + missing);
+        }
+
+        Set<Long> existingIds = new HashSet<>(favoriteProductRepository.findProductIdsByUserId(user.getUserId()));
+        List<Long> addedIds = productIds.stream().filter(productId -> !existingIds.contains(productId)).toList();
+
+        favoriteProductRepository.batchInsertIgnoringExisting(user.getUserId(), productIds);
+        favoritesIndex.added(username, productIds);
+        trendingTracker.record(addedIds, TrendingTracker.Signal.FAVORITE);
+        coFavoriteIndex.added(addedIds, ProductIdSet.of(existingIds));
+        eventPublisher.publishEvent(new FavoritesChangedEvent(user.getUserId(),
+                FavoritesDeltaResponse.builder().addedProductIds(productIds).build()));
+
+        return productIds.stream()
+                .map(productId -> {
+                    ProductResponse product = products.get(productId);
+                    product.setFavorited(true);
+                    return product;
+                })
+                .toList();
+    }
+
     @Transactional
     public void removeFromFavorites(Long productId, String username) {
         User user = getUser(username);
@@ -74,44 +162,155 @@ public class ProductService {
         favoriteProductRepository.findByUserIdAndProductId(user.getUserId(), productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found in favorites"));
 
+        ProductIdSet remaining = favoritesIndex.get(username).without(List.of(productId));
+
         favoriteProductRepository.deleteByUserIdAndProductId(user.getUserId(), productId);
+        favoritesIndex.removed(username, List.of(productId));
+        coFavoriteIndex.removed(productId, remaining);
+        eventPublisher.publishEvent(new FavoritesChangedEvent(user.getUserId(),
+                FavoritesDeltaResponse.builder().removedProductIds(List.of(productId)).build()));
+    }
+
+    /**
+     * Returns products most often favorited by the same users as the given one, served from the co-favorite index.
+     */
+    public List<ProductResponse> getRelatedProducts(Long productId, int limit, String username) {
+        return getRelatedProductsAsync(productId, limit, username).block();
     }
 
+    public Mono<List<ProductResponse>> getRelatedProductsAsync(Long productId, int limit, String username) {
+        return requestDeadline.apply(Mono.defer(() -> {
+            List<Long> relatedIds = coFavoriteIndex.related(productId, limit);
+            return dummyJsonClient.getProductsByIdsAsync(relatedIds)
+                    .zipWith(favoriteIdsAsync(username), (products, favoriteIds) -> {
+                        List<ProductResponse> related = relatedIds.stream()
+                                .map(products::get)
+                                .filter(Objects::nonNull)
+                                .toList();
+                        markFavorites(related, favoriteIds.orElse(null));
+                        return related;
+                    });
+        }));
+    }
+
+    /**
+     * Returns the most popular products from the in-memory ranking, either by overall activity
+     * ({@code trending}) or by favorites alone ({@code favorites}).
+     */
+    public List<TrendingProductResponse> getTrendingProducts(String by, int limit, String username) {
+        return getTrendingProductsAsync(by, limit, username).block();
+    }
+
+    public Mono<List<TrendingProductResponse>> getTrendingProductsAsync(String by, int limit, String username) {
+        return requestDeadline.apply(Mono.defer(() -> {
+            List<TrendingTracker.ProductScore> top = trendingTracker.top(parseRanking(by), limit);
+            return dummyJsonClient.getProductsByIdsAsync(top.stream().map(TrendingTracker.ProductScore::productId).toList())
+                    .zipWith(favoriteIdsAsync(username), (products, favoriteIds) -> toTrending(top, products, favoriteIds.orElse(null)));
+        }));
+    }
+
+    @Transactional(readOnly = true)
     public List<ProductResponse> getFavorites(String username) {
         User user = getUser(username);
-        List<Long> productIds = favoriteProductRepository.findProductIdsByUserId(user.getUserId());
+        List<Long> productIds = favoriteProductRepository.findByUserId(user.getUserId()).stream()
+                .map(FavoriteProduct::getProductId)
+                .toList();
+        return toFavoriteProducts(productIds);
+    }
+
+    /**
+     * Returns one page of the user's favorites, most recently added first.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ProductResponse> getFavoritesPage(String username, String cursor, int limit) {
+        User user = getUser(username);
+        PageCursor after = PageCursor.decode(cursor);
+        int pageSize = PageCursor.clampLimit(limit);
 
+        // One extra row tells whether another page follows
+        List<FavoriteProduct> favorites = after == null
+                ? favoriteProductRepository.findFirstPageByUserId(user.getUserId(), pageSize + 1)
+                : favoriteProductRepository.findPageByUserIdAfter(user.getUserId(), after.addedAt(), after.id(), pageSize + 1);
+        String nextCursor = null;
+        if (favorites.size() > pageSize) {
+            favorites = favorites.subList(0, pageSize);
+            FavoriteProduct last = favorites.get(pageSize - 1);
+            nextCursor = new PageCursor(last.getAddedAt(), last.getFavoriteId()).encode();
+        }
+
+        return CursorPageResponse.<ProductResponse>builder()
+                .items(toFavoriteProducts(favorites.stream().map(FavoriteProduct::getProductId).toList()))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private TrendingTracker.Ranking parseRanking(String by) {
+        try {
+            return TrendingTracker.Ranking.valueOf(by.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown ranking: " + by + ", expected trending or favorites");
+        }
+    }
+
+    private List<TrendingProductResponse> toTrending(List<TrendingTracker.ProductScore> top, Map<Long, ProductResponse> products,
+                                                     ProductIdSet favoriteIds) {
+        List<TrendingProductResponse> trending = new ArrayList<>(top.size());
+        for (TrendingTracker.ProductScore score : top) {
+            ProductResponse product = products.get(score.productId());
+            if (product == null) continue;
+            product.setFavorited(favoriteIds != null && favoriteIds.contains(product.getId()));
+
+            trending.add(TrendingProductResponse.builder()
+                    .rank(trending.size() + 1)
+                    .score(score.score())
+                    .views(score.views())
+                    .favorites(score.favorites())
+                    .cartAdds(score.cartAdds())
+                    .product(product)
+                    .build());
+        }
+        return trending;
+    }
+
+    /**
+     * Resolves favorites in one batched lookup; products that no longer exist upstream are left out.
+     */
+    private List<ProductResponse> toFavoriteProducts(List<Long> productIds) {
+        Map<Long, ProductResponse> products = dummyJsonClient.getProductsByIds(productIds);
         return productIds.stream()
-                .map(id -> {
-                    ProductResponse product = dummyJsonClient.getProductById(id);
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .map(product -> {
                     product.setFavorited(true);
                     return product;
                 })
                 .toList();
     }
 
-    private void enrichWithFavoriteStatus(List<ProductResponse> products, String username) {
-        if (username == null) return;
-
-        User user = userRepository.findByUsername(username).orElse(null);
-        if (user == null) return;
-
-        Set<Long> favoriteIds = new HashSet<>(favoriteProductRepository.findProductIdsByUserId(user.getUserId()));
+    private void markFavorites(List<ProductResponse> products, ProductIdSet favoriteIds) {
+        if (favoriteIds == null) return;
 
         products.forEach(product -> product.setFavorited(favoriteIds.contains(product.getId())));
     }
 
-    private void enrichSingleProductWithFavoriteStatus(ProductResponse product, String username) {
-        if (username == null) return;
-
-        User user = userRepository.findByUsername(username).orElse(null);
-        if (user == null) return;
-
-        boolean isFavorited = favoriteProductRepository
-                .findByUserIdAndProductId(user.getUserId(), product.getId())
-                .isPresent();
-
-        product.setFavorited(isFavorited);
+    /**
+     * The user's favorites: served from the index when loaded, otherwise loaded on the JDBC scheduler in reactive
+     * mode, so no Netty or released servlet thread blocks on it, and on the subscribing thread in servlet mode, where
+     * that is the request thread that is waiting anyway. Both subscribe after the DummyJSON call has been sent, so the
+     * two still overlap. Empty when there is no user.
+     */
+    private Mono<Optional<ProductIdSet>> favoriteIdsAsync(String username) {
+        return Mono.defer(() -> {
+            if (username == null) {
+                return Mono.just(Optional.<ProductIdSet>empty());
+            }
+            ProductIdSet loaded = favoritesIndex.getIfLoaded(username);
+            if (loaded != null) {
+                return Mono.just(Optional.of(loaded));
+            }
+            Mono<Optional<ProductIdSet>> load = Mono.fromCallable(() -> Optional.ofNullable(favoritesIndex.get(username)));
+            return jdbcScheduler.map(load::subscribeOn).orElse(load);
+        });
     }
 
     private User getUser(String username) {
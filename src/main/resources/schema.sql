@@ -8,6 +8,7 @@ CREATE TABLE IF NOT EXISTS users (
     last_name   VARCHAR(100) NOT NULL,
     totp_secret VARCHAR(64),
     two_factor_enabled BOOLEAN DEFAULT FALSE,
+    admin       BOOLEAN DEFAULT FALSE,
     created_at  TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
@@ -18,6 +19,12 @@ CREATE TABLE IF NOT EXISTS cart_items (
     product_id   BIGINT  NOT NULL,
     quantity     INT     NOT NULL DEFAULT 1,
     added_at     TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    -- Product snapshot taken at add time, refreshed when the catalog version changes
+    title                 VARCHAR(255),
+    price_cents           BIGINT,
+    discount_basis_points INT,
+    thumbnail             VARCHAR(500),
+    catalog_version       BIGINT,
     CONSTRAINT fk_cart_user FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
     CONSTRAINT uk_cart_user_product UNIQUE (user_id, product_id)
 );
@@ -32,6 +39,79 @@ CREATE TABLE IF NOT EXISTS favorite_products (
     CONSTRAINT uk_fav_user_product UNIQUE (user_id, product_id)
 );
 
+-- Orders table
+CREATE TABLE IF NOT EXISTS orders (
+    order_id                BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id                 BIGINT      NOT NULL,
+    status                  VARCHAR(20) NOT NULL,
+    idempotency_key         VARCHAR(100),
+    total_quantity          INT         NOT NULL,
+    total_cents             BIGINT      NOT NULL,
+    total_discounted_cents  BIGINT      NOT NULL,
+    created_at              TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_order_user FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
+    CONSTRAINT uk_order_idempotency UNIQUE (user_id, idempotency_key)
+);
+
+-- Order lines table
+CREATE TABLE IF NOT EXISTS order_lines (
+    order_line_id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id               BIGINT  NOT NULL,
+    product_id             BIGINT  NOT NULL,
+    title                  VARCHAR(255),
+    thumbnail              VARCHAR(500),
+    quantity               INT     NOT NULL,
+    price_cents            BIGINT  NOT NULL,
+    discount_basis_points  INT     NOT NULL,
+    total_cents            BIGINT  NOT NULL,
+    discounted_total_cents BIGINT  NOT NULL,
+    CONSTRAINT fk_order_line_order FOREIGN KEY (order_id) REFERENCES orders(order_id) ON DELETE CASCADE
+);
+
+-- Available stock per product, persisted asynchronously from the in-memory counters
+CREATE TABLE IF NOT EXISTS product_stock (
+    product_id BIGINT PRIMARY KEY,
+    available  BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Stock held for cart lines until checkout or expiry
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    user_id    BIGINT    NOT NULL,
+    product_id BIGINT    NOT NULL,
+    quantity   INT       NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, product_id)
+);
+
+-- Time-decayed popularity signals per product, as of updated_at
+CREATE TABLE IF NOT EXISTS product_trending (
+    product_id BIGINT PRIMARY KEY,
+    views      DOUBLE    NOT NULL,
+    favorites  DOUBLE    NOT NULL,
+    cart_adds  DOUBLE    NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
+-- Shard holding each user bucket when cart items and favorites are sharded
+CREATE TABLE IF NOT EXISTS shard_buckets (
+    bucket INT PRIMARY KEY,
+    shard  INT NOT NULL
+);
+
+-- Cart and favorites changes waiting to be relayed to the change log
+CREATE TABLE IF NOT EXISTS outbox_events (
+    event_id   BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(20)    NOT NULL,
+    user_id    BIGINT,
+    payload    VARCHAR(65535) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Indexes for performance
-CREATE INDEX IF NOT EXISTS idx_cart_items_user_id ON cart_items(user_id);
-CREATE INDEX IF NOT EXISTS idx_favorite_products_user_id ON favorite_products(user_id);
+-- Keyset pagination order (added_at, id) per user; the user_id prefix also serves plain per-user lookups
+CREATE INDEX IF NOT EXISTS idx_cart_items_user_added ON cart_items(user_id, added_at DESC, cart_item_id DESC);
+CREATE INDEX IF NOT EXISTS idx_favorite_products_user_added ON favorite_products(user_id, added_at DESC, favorite_id DESC);
+CREATE INDEX IF NOT EXISTS idx_orders_user_id ON orders(user_id);
+CREATE INDEX IF NOT EXISTS idx_orders_status_created_at ON orders(status, created_at);
+CREATE INDEX IF NOT EXISTS idx_order_lines_order_id ON order_lines(order_id);
@@ -0,0 +1,26 @@
+-- Per-user tables held by each shard; users live on the primary database, so there are no foreign keys here
+
+CREATE TABLE IF NOT EXISTS cart_items (
+    cart_item_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id      BIGINT  NOT NULL,
+    product_id   BIGINT  NOT NULL,
+    quantity     INT     NOT NULL DEFAULT 1,
+    added_at     TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    title                 VARCHAR(255),
+    price_cents           BIGINT,
+    discount_basis_points INT,
+    thumbnail             VARCHAR(500),
+    catalog_version       BIGINT,
+    CONSTRAINT uk_cart_user_product UNIQUE (user_id, product_id)
+);
+
+CREATE TABLE IF NOT EXISTS favorite_products (
+    favorite_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id     BIGINT NOT NULL,
+    product_id  BIGINT NOT NULL,
+    added_at    TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_fav_user_product UNIQUE (user_id, product_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_cart_items_user_added ON cart_items(user_id, added_at DESC, cart_item_id DESC);
+CREATE INDEX IF NOT EXISTS idx_favorite_products_user_added ON favorite_products(user_id, added_at DESC, favorite_id DESC);
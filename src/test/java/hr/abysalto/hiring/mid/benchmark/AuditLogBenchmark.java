@@ -0,0 +1,88 @@
+package hr.abysalto.hiring.mid.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import hr.abysalto.hiring.mid.components.AuditLog;
+import org.springframework.boot.actuate.audit.AuditEvent;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Cost of {@link AuditLog#add} on the calling thread, for 1, 2 and 4 concurrent callers, and how many of the
+ * events the writer thread kept up with.
+ * <p>
+ * Run with {@code ./mvnw spring-boot:test-run
+ * -Dspring-boot.run.main-class=hr.abysalto.hiring.mid.benchmark.AuditLogBenchmark}, optionally adding
+ * {@code -Dspring-boot.run.arguments="<events per thread>"}. The rate is kept below what the writer drains so that
+ * the numbers measure the ring rather than the drop path.
+ */
+public class AuditLogBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int eventsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        // Untimed pass so that the first measured run is not the one paying for JIT compilation
+        run(objectMapper, 1, eventsPerThread);
+        for (int threads : new int[]{1, 2, 4}) {
+            run(objectMapper, threads, eventsPerThread);
+        }
+    }
+
+    private static void run(ObjectMapper objectMapper, int threads, int eventsPerThread) throws Exception {
+        Path directory = Files.createTempDirectory("audit-bench");
+        AuditLog auditLog = new AuditLog(objectMapper, directory.toString(), 65536, 1024, 5, 64 * 1024 * 1024, 4);
+        auditLog.start();
+        try {
+            long[] nanos = new long[threads];
+            List<Thread> callers = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                int caller = t;
+                callers.add(new Thread(() -> {
+                    Map<String, Object> data = Map.of("reason", "bad password", "remoteAddress", "10.0.0.1");
+                    String[] usernames = new String[1024];
+                    for (int i = 0; i < usernames.length; i++) {
+                        usernames[i] = "user" + i;
+                    }
+                    for (int i = 0; i < eventsPerThread; i++) {
+                        long start = System.nanoTime();
+                        auditLog.add(new AuditEvent(usernames[i & 1023], AuditLog.AUTHENTICATION_FAILURE, data));
+                        nanos[caller] += System.nanoTime() - start;
+                        // Pace the callers so the writer is not simply overrun
+                        if ((i & 63) == 63) {
+                            try {
+                                Thread.sleep(1);
+                            } catch (InterruptedException e) {
+                                return;
+                            }
+                        }
+                    }
+                }));
+            }
+            callers.forEach(Thread::start);
+            for (Thread caller : callers) {
+                caller.join();
+            }
+            long totalNanos = 0;
+            for (long callerNanos : nanos) {
+                totalNanos += callerNanos;
+            }
+            long events = (long) threads * eventsPerThread;
+            System.out.printf("%d thread(s): %,.0f ns per add, %,d of %,d events dropped%n",
+                    threads, totalNanos / (double) events, auditLog.getDroppedCount(), events);
+        } finally {
+            auditLog.stop();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package hr.abysalto.hiring.mid.benchmark;
+
+import hr.abysalto.hiring.mid.domain.outbox.ChangeLog;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append and read throughput of the change log for several group commit sizes, with and without fsync.
+ * <p>
+ * Run with {@code ./mvnw spring-boot:test-run
+ * -Dspring-boot.run.main-class=hr.abysalto.hiring.mid.benchmark.ChangeLogBenchmark}, optionally adding
+ * {@code -Dspring-boot.run.arguments="<events per run>"}. Events are about 200 bytes, like a favorites change.
+ */
+public class ChangeLogBenchmark {
+
+    private static final int SEGMENT_BYTES = 64 * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        byte[] event = ("{\"id\":123456,\"type\":\"favorites\",\"userId\":4242,\"createdAt\":\"2025-01-01T12:00:00.000000Z\","
+                + "\"change\":{\"addedProductIds\":[1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19,20,21,22,23,24,25]}}")
+                .getBytes(StandardCharsets.UTF_8);
+
+        // Untimed pass so that the first measured run is not the one paying for JIT compilation
+        run(events, 1000, false, event);
+        for (boolean fsync : new boolean[]{false, true}) {
+            for (int batchSize : new int[]{1, 100, 1000}) {
+                // Forcing every single event is far slower; keep that run short
+                int count = fsync && batchSize == 1 ? Math.min(events, 10_000) : events;
+                run(count, batchSize, fsync, event);
+            }
+        }
+    }
+
+    private static void run(int events, int batchSize, boolean fsync, byte[] event) throws Exception {
+        Path directory = Files.createTempDirectory("changelog-bench");
+        try (ChangeLog changeLog = new ChangeLog(directory, SEGMENT_BYTES, fsync)) {
+            List<byte[]> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                batch.add(event);
+            }
+            long start = System.nanoTime();
+            for (int appended = 0; appended < events; appended += batchSize) {
+                changeLog.append(batch);
+            }
+            double appendSeconds = (System.nanoTime() - start) / 1e9;
+
+            start = System.nanoTime();
+            long read = 0;
+            long offset = changeLog.startOffset();
+            List<ChangeLog.Entry> entries;
+            while (!(entries = changeLog.read(offset, 1000)).isEmpty()) {
+                read += entries.size();
+                offset = entries.get(entries.size() - 1).nextOffset();
+            }
+            double readSeconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("batch %4d, fsync %-5s: append %,12.0f events/s, read %,12.0f events/s (%,d events)%n",
+                    batchSize, fsync, events / appendSeconds, read / readSeconds, read);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
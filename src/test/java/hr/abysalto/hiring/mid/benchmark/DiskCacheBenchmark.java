@@ -0,0 +1,101 @@
+package hr.abysalto.hiring.mid.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.abysalto.hiring.mid.cache.DiskCacheStore;
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.dto.response.PaginatedProductResponse;
+import hr.abysalto.hiring.mid.dto.response.ProductResponse;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Latency of reading a product and a 20-product page back from the disk cache tier ({@link DiskCacheStore}, what an
+ * in-memory miss costs after a restart) against fetching them from DummyJSON, one call at a time.
+ * <p>
+ * DummyJSON is a local stub answering after {@code <upstream delay ms>} (default 0), so the upstream numbers are a
+ * lower bound: HTTP over loopback plus JSON mapping, without the network. The disk store is reopened before it is
+ * read, so its index comes from replaying the file as on startup. Run with {@code ./mvnw spring-boot:test-run
+ * -Dspring-boot.run.main-class=hr.abysalto.hiring.mid.benchmark.DiskCacheBenchmark}, optionally adding
+ * {@code -Dspring-boot.run.arguments="<reads> <upstream delay ms>"}.
+ */
+public class DiskCacheBenchmark {
+
+    private static final int PRODUCTS = 1000;
+    private static final int PAGE_SIZE = 20;
+    private static final int PAGES = 50;
+    private static final int FILE_BYTES = 64 * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int reads = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        long upstreamDelayMs = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        ObjectMapper objectMapper = new ObjectMapper();
+        Path directory = Files.createTempDirectory("disk-cache-bench");
+
+        try (SlowUpstream upstream = new SlowUpstream(upstreamDelayMs)) {
+            // No caches, so every call goes to DummyJSON
+            CaffeineCacheManager noCaches = new CaffeineCacheManager();
+            noCaches.setCacheNames(List.of());
+            DummyJsonClient client = new DummyJsonClient(upstream.baseUrl(), 16, 1000, noCaches);
+
+            Path productFile = directory.resolve("product.cache");
+            Path pageFile = directory.resolve("products.cache");
+            try (DiskCacheStore products = new DiskCacheStore(productFile, FILE_BYTES, Duration.ofHours(1),
+                    ProductResponse.class, objectMapper);
+                 DiskCacheStore pages = new DiskCacheStore(pageFile, FILE_BYTES, Duration.ofHours(1),
+                         PaginatedProductResponse.class, objectMapper)) {
+                for (long id = 1; id <= PRODUCTS; id++) {
+                    products.put(id, client.getProductByIdAsync(id).block());
+                }
+                for (int page = 0; page < PAGES; page++) {
+                    pages.put(pageKey(page), client.getProductsAsync(PAGE_SIZE, page * PAGE_SIZE, null, null).block());
+                }
+            }
+
+            System.out.printf("%d reads each, upstream delay %d ms, Java %d%n", reads, upstreamDelayMs,
+                    Runtime.version().feature());
+            try (DiskCacheStore products = new DiskCacheStore(productFile, FILE_BYTES, Duration.ofHours(1),
+                    ProductResponse.class, objectMapper);
+                 DiskCacheStore pages = new DiskCacheStore(pageFile, FILE_BYTES, Duration.ofHours(1),
+                         PaginatedProductResponse.class, objectMapper)) {
+                measure("product, disk tier", reads, i -> products.get(1 + i % PRODUCTS));
+                measure("product, upstream", reads, i -> client.getProductByIdAsync(1 + i % PRODUCTS).block());
+                measure("page, disk tier", reads, i -> pages.get(pageKey((int) (i % PAGES))));
+                measure("page, upstream", reads,
+                        i -> client.getProductsAsync(PAGE_SIZE, (int) (i % PAGES) * PAGE_SIZE, null, null).block());
+            }
+        }
+    }
+
+    private static void measure(String name, int reads, LongFunction<Object> read) {
+        // Untimed pass so that the measured one is not paying for JIT compilation
+        for (int i = 0; i < reads; i++) {
+            requireValue(read.apply(i));
+        }
+        long[] nanos = new long[reads];
+        for (int i = 0; i < reads; i++) {
+            long start = System.nanoTime();
+            Object value = read.apply(i);
+            nanos[i] = System.nanoTime() - start;
+            requireValue(value);
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-18s p50 %8.1f us   p99 %8.1f us   max %8.1f us%n", name, nanos[reads / 2] / 1000.0,
+                nanos[(int) Math.ceil(reads * 0.99) - 1] / 1000.0, nanos[reads - 1] / 1000.0);
+    }
+
+    private static void requireValue(Object value) {
+        if (value == null) {
+            throw new IllegalStateException("Read returned nothing");
+        }
+    }
+
+    private static String pageKey(int page) {
+        return "all_" + PAGE_SIZE + "_" + page * PAGE_SIZE + "_null_null";
+    }
+}
@@ -0,0 +1,64 @@
+package hr.abysalto.hiring.mid.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent {@code GET /api/products/{id}} bursts against a running application, each for a product not asked
+ * for before so that none is served from the cache.
+ */
+final class ProductLoad {
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final AtomicLong nextProductId;
+    private final String baseUrl;
+    private final String token;
+
+    ProductLoad(int port, AtomicLong nextProductId) throws Exception {
+        this.baseUrl = "http://localhost:" + port;
+        this.nextProductId = nextProductId;
+        this.token = register();
+    }
+
+    /**
+     * Fires {@code size} requests at once and waits for all of them; returns how many answered 200.
+     */
+    int burst(int size) {
+        List<CompletableFuture<Integer>> responses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/" + nextProductId.getAndIncrement()))
+                    .header("Authorization", "Bearer " + token)
+                    .timeout(Duration.ofMinutes(2))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenApply(HttpResponse::statusCode)
+                    .exceptionally(e -> -1));
+        }
+        int ok = 0;
+        for (CompletableFuture<Integer> response : responses) {
+            if (response.join() == 200) {
+                ok++;
+            }
+        }
+        return ok;
+    }
+
+    private String register() throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/register"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("""
+                                {"username":"bench","email":"bench@example.com","password":"password1","firstName":"Bench","lastName":"User"}"""))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        String body = response.body();
+        int start = body.indexOf("\"accessToken\":\"") + "\"accessToken\":\"".length();
+        return body.substring(start, body.indexOf('"', start));
+    }
+}
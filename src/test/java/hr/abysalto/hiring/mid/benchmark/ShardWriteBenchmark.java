@@ -0,0 +1,83 @@
+package hr.abysalto.hiring.mid.benchmark;
+
+import hr.abysalto.hiring.mid.Application;
+import hr.abysalto.hiring.mid.domain.repository.FavoriteProductRepository;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+/**
+ * Favorite write throughput for 1, 2, 4 and 8 user shards, each run against fresh in-memory databases.
+ * <p>
+ * Run with {@code ./mvnw spring-boot:test-run
+ * -Dspring-boot.run.main-class=hr.abysalto.hiring.mid.benchmark.ShardWriteBenchmark}, optionally adding
+ * {@code -Dspring-boot.run.arguments="<seconds> <writer threads>"}. The writer count is the same for every shard count, so
+ * the runs differ only in how many databases the writes are spread over; scaling is bounded by the cores available to the JVM.
+ */
+public class ShardWriteBenchmark {
+
+    private static final int PRODUCTS_PER_WRITE = 10;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        System.out.printf("%d cores, %d s per run, %d writer threads%n",
+                Runtime.getRuntime().availableProcessors(), seconds, threads);
+
+        // Untimed pass so that the first measured run is not the one paying for JIT compilation
+        run(8, threads, seconds, "warm-up");
+        double baseline = 0;
+        for (int shardCount : new int[]{1, 2, 4, 8}) {
+            double writesPerSecond = run(shardCount, threads, seconds, "bench-" + shardCount);
+            baseline = baseline == 0 ? writesPerSecond : baseline;
+            System.out.printf("%d shard(s): %,.0f writes/s (%.2fx)%n", shardCount, writesPerSecond, writesPerSecond / baseline);
+        }
+    }
+
+    private static double run(int shardCount, int threads, int seconds, String run) throws Exception {
+        SpringApplication application = new SpringApplication(Application.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+
+        try (ConfigurableApplicationContext context = application.run(
+                "--spring.datasource.url=jdbc:h2:mem:" + run + ";DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE",
+                "--sharding.enabled=true",
+                "--sharding.shard-count=" + shardCount,
+                "--sharding.pool-size=" + threads,
+                "--sharding.url-template=jdbc:h2:mem:" + run + "-{shard};DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE",
+                "--logging.level.root=WARN")) {
+            FavoriteProductRepository favorites = context.getBean(FavoriteProductRepository.class);
+            AtomicBoolean running = new AtomicBoolean(true);
+            ExecutorService writers = Executors.newFixedThreadPool(threads);
+            List<Future<Long>> results = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                long firstUser = t * 1_000_000L;
+                results.add(writers.submit(() -> {
+                    long writes = 0;
+                    // A new user per write, so every write inserts and users spread evenly over the buckets
+                    for (long userId = firstUser; running.get(); userId++) {
+                        favorites.batchInsertIgnoringExisting(userId, LongStream.rangeClosed(1, PRODUCTS_PER_WRITE).boxed().toList());
+                        writes++;
+                    }
+                    return writes;
+                }));
+            }
+            Thread.sleep(seconds * 1000L);
+            running.set(false);
+
+            long writes = 0;
+            for (Future<Long> result : results) {
+                writes += result.get();
+            }
+            writers.shutdown();
+            return writes / (double) seconds;
+        }
+    }
+}
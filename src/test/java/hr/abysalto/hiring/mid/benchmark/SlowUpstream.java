@@ -0,0 +1,82 @@
+package hr.abysalto.hiring.mid.benchmark;
+
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Stand-in for DummyJSON that answers {@code GET /products/{id}} and product pages ({@code GET /products}) after a
+ * configurable delay, without holding a thread while it waits, and records the peak number of calls pending at once.
+ */
+final class SlowUpstream implements AutoCloseable {
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+    // Own event loops: closing an application context disposes the shared reactor-netty resources
+    private final LoopResources loops = LoopResources.create("upstream-stub");
+    private final DisposableServer server;
+    private volatile long delayMs;
+
+    SlowUpstream(long delayMs) {
+        this.delayMs = delayMs;
+        this.server = HttpServer.create()
+                .runOn(loops)
+                .port(0)
+                .route(routes -> routes
+                        .get("/products/{id}", (request, response) -> delayed(response, product(request.param("id"))))
+                        .get("/products", (request, response) -> {
+                            QueryStringDecoder query = new QueryStringDecoder(request.uri());
+                            int limit = Integer.parseInt(query.parameters().getOrDefault("limit", List.of("30")).get(0));
+                            int skip = Integer.parseInt(query.parameters().getOrDefault("skip", List.of("0")).get(0));
+                            String products = IntStream.rangeClosed(skip + 1, skip + limit)
+                                    .mapToObj(id -> product(String.valueOf(id)))
+                                    .collect(Collectors.joining(","));
+                            return delayed(response, "{\"products\":[" + products + "],\"total\":100000,\"skip\":" + skip
+                                    + ",\"limit\":" + limit + "}");
+                        }))
+                .bindNow();
+    }
+
+    private Publisher<Void> delayed(HttpServerResponse response, String json) {
+        peak.accumulateAndGet(pending.incrementAndGet(), Math::max);
+        return response.header("Content-Type", "application/json")
+                .sendString(Mono.just(json)
+                        .delayElement(Duration.ofMillis(delayMs))
+                        .doFinally(signal -> pending.decrementAndGet()));
+    }
+
+    private static String product(String id) {
+        return "{\"id\":" + id + ",\"title\":\"Product " + id + "\",\"price\":9.99,\"stock\":100}";
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    void setDelayMs(long delayMs) {
+        this.delayMs = delayMs;
+    }
+
+    /**
+     * Peak pending calls since the previous call.
+     */
+    int takePeak() {
+        return peak.getAndSet(0);
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+        loops.dispose();
+    }
+}
@@ -0,0 +1,77 @@
+package hr.abysalto.hiring.mid.benchmark;
+
+import hr.abysalto.hiring.mid.Application;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How many concurrent product requests one small instance holds while DummyJSON is slow, with the blocking and the
+ * non-blocking ({@code products.reactive.enabled=true}) browse controllers.
+ * <p>
+ * A local stub stands in for DummyJSON and answers every product after a fixed delay. The application gets a
+ * deliberately small Tomcat pool, then bursts of concurrent {@code GET /api/products/{id}} are fired at it and the
+ * peak number of calls pending at the stub is recorded. Run with {@code ./mvnw spring-boot:test-run
+ * -Dspring-boot.run.main-class=hr.abysalto.hiring.mid.benchmark.SlowUpstreamBenchmark}, optionally adding
+ * {@code -Dspring-boot.run.arguments="<upstream delay ms> <tomcat threads> <burst sizes...>"}.
+ */
+public class SlowUpstreamBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        long delayMs = args.length > 0 ? Long.parseLong(args[0]) : 500;
+        int tomcatThreads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        List<Integer> bursts = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            bursts.add(Integer.parseInt(args[i]));
+        }
+        if (bursts.isEmpty()) {
+            bursts = List.of(100, 400, 1600);
+        }
+        System.out.printf("%d cores, upstream delay %d ms, %d Tomcat threads%n",
+                Runtime.getRuntime().availableProcessors(), delayMs, tomcatThreads);
+
+        try (SlowUpstream upstream = new SlowUpstream(delayMs)) {
+            AtomicLong nextProductId = new AtomicLong(1);
+            for (boolean reactive : new boolean[]{false, true}) {
+                run(reactive, upstream, tomcatThreads, bursts, delayMs, nextProductId);
+            }
+        }
+    }
+
+    private static void run(boolean reactive, SlowUpstream upstream, int tomcatThreads, List<Integer> bursts, long delayMs,
+                            AtomicLong nextProductId) throws Exception {
+        String mode = reactive ? "reactive" : "blocking";
+        Path dataDirectory = Files.createTempDirectory("slow-upstream-" + mode);
+        SpringApplication application = new SpringApplication(Application.class);
+
+        try (ConfigurableApplicationContext context = application.run(
+                "--server.port=0",
+                "--server.tomcat.threads.max=" + tomcatThreads,
+                "--spring.datasource.url=jdbc:h2:mem:slow-upstream-" + mode + ";DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE",
+                "--dummyjson.base-url=" + upstream.baseUrl(),
+                "--products.reactive.enabled=" + reactive,
+                "--outbox.changelog.directory=" + dataDirectory.resolve("changelog"),
+                "--audit.directory=" + dataDirectory.resolve("audit"),
+                "--logging.level.root=WARN",
+                "--logging.level.hr.abysalto.hiring.mid=WARN")) {
+            ProductLoad load = new ProductLoad(((WebServerApplicationContext) context).getWebServer().getPort(), nextProductId);
+
+            // Untimed burst so that the first measured one is not the one paying for JIT compilation and connection setup
+            load.burst(tomcatThreads * 2);
+            for (int size : bursts) {
+                upstream.takePeak();
+                long start = System.nanoTime();
+                int ok = load.burst(size);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%-8s burst %5d: %5d ok in %6.2f s (ideal %.2f s), peak %5d upstream calls pending, %,.0f req/s%n",
+                        mode, size, ok, seconds, delayMs / 1000.0, upstream.takePeak(), ok / seconds);
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package hr.abysalto.hiring.mid.benchmark;
+
+import hr.abysalto.hiring.mid.Application;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Time from launching the JVM until the application serves its first request and until request latency settles,
+ * for a cold start and for a start with the warm-up ({@code warmup.enabled=true}).
+ * <p>
+ * Every run starts the application in a fresh JVM against a local DummyJSON stub and polls
+ * {@code /actuator/health/readiness} the way a load balancer would. As soon as it is UP a user registers, asks for
+ * the first product page, and then a few concurrent clients keep requesting the popular product pages and their
+ * cart. p99 latency is computed per window; steady state is reached at the first window from which p99 stays below
+ * 1.5 times the p99 of the final windows. By default the application runs from the test classpath; given the
+ * executable jar extracted from a {@code -Pfast-startup} build (see README) with {@code application.jsa} beside it,
+ * the AOT + CDS start is measured too. Run with {@code ./mvnw spring-boot:test-run
+ * -Dspring-boot.run.main-class=hr.abysalto.hiring.mid.benchmark.StartupBenchmark}, optionally adding
+ * {@code -Dspring-boot.run.arguments="<load seconds> <application jar>"}.
+ */
+public class StartupBenchmark {
+
+    private static final int CLIENTS = 8;
+    private static final int PAGES = 5;
+    private static final long UPSTREAM_DELAY_MS = 100;
+    private static final long WINDOW_MS = 500;
+    private static final int FINAL_WINDOWS = 5;
+
+    private static final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(200))
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        long loadMs = args.length > 0 ? Long.parseLong(args[0]) * 1000 : 20_000;
+        Path jar = args.length > 1 ? Path.of(args[1]).toAbsolutePath() : null;
+        System.out.printf("%d cores, Java %d, %d clients for %d s per run, upstream delay %d ms%n",
+                Runtime.getRuntime().availableProcessors(), Runtime.version().feature(), CLIENTS, loadMs / 1000,
+                UPSTREAM_DELAY_MS);
+
+        try (SlowUpstream upstream = new SlowUpstream(UPSTREAM_DELAY_MS)) {
+            List<String> classpath = List.of("-cp", System.getProperty("java.class.path"), Application.class.getName());
+            run("classpath", classpath, false, upstream, loadMs);
+            run("classpath", classpath, true, upstream, loadMs);
+            if (jar != null) {
+                List<String> aotCds = List.of("-XX:SharedArchiveFile=" + jar.resolveSibling("application.jsa"),
+                        "-Dspring.aot.enabled=true", "-jar", jar.toString());
+                run("aot+cds", aotCds, false, upstream, loadMs);
+                run("aot+cds", aotCds, true, upstream, loadMs);
+            }
+        }
+    }
+
+    private static void run(String launch, List<String> javaArguments, boolean warmup, SlowUpstream upstream, long loadMs)
+            throws Exception {
+        Path dataDirectory = Files.createTempDirectory("startup");
+        int port = freePort();
+        String baseUrl = "http://localhost:" + port;
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(javaArguments);
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--dummyjson.base-url=" + upstream.baseUrl(),
+                "--warmup.enabled=" + warmup,
+                "--warmup.product-pages=" + PAGES,
+                "--outbox.changelog.directory=" + dataDirectory.resolve("changelog"),
+                "--audit.directory=" + dataDirectory.resolve("audit"),
+                "--logging.level.root=WARN",
+                "--logging.level.hr.abysalto.hiring.mid=WARN"));
+
+        long launchedAt = System.nanoTime();
+        Process application = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(dataDirectory.resolve("application.log").toFile())
+                .start();
+        try {
+            while (status(baseUrl + "/actuator/health/readiness", null) != 200) {
+                if (!application.isAlive()) {
+                    throw new IllegalStateException("Application exited, see " + dataDirectory.resolve("application.log"));
+                }
+                Thread.sleep(10);
+            }
+            long readyMs = millisSince(launchedAt);
+            String token = register(baseUrl);
+            long firstRequestStart = System.nanoTime();
+            if (status(baseUrl + "/api/products?limit=20&skip=0", token) != 200) {
+                throw new IllegalStateException("First product page failed");
+            }
+            long firstRequestMs = millisSince(launchedAt);
+            long firstRequestLatencyMs = millisSince(firstRequestStart);
+
+            List<long[]> samples = load(baseUrl, token, launchedAt, loadMs);
+            report(launch, warmup, readyMs, firstRequestMs, firstRequestLatencyMs, samples);
+        } finally {
+            application.destroy();
+            application.waitFor();
+        }
+    }
+
+    /**
+     * Completion time since launch and latency, both in microseconds, of every request sent.
+     */
+    private static List<long[]> load(String baseUrl, String token, long launchedAt, long loadMs) throws InterruptedException {
+        List<List<long[]>> perClient = new ArrayList<>();
+        List<Thread> clients = new ArrayList<>();
+        long until = System.nanoTime() + loadMs * 1_000_000;
+        for (int i = 0; i < CLIENTS; i++) {
+            List<long[]> samples = new ArrayList<>();
+            perClient.add(samples);
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < until) {
+                    String url = ThreadLocalRandom.current().nextInt(4) == 0
+                            ? baseUrl + "/api/cart"
+                            : baseUrl + "/api/products?limit=20&skip=" + 20 * ThreadLocalRandom.current().nextInt(PAGES);
+                    long start = System.nanoTime();
+                    status(url, token);
+                    long end = System.nanoTime();
+                    samples.add(new long[]{(end - launchedAt) / 1000, (end - start) / 1000});
+                }
+            });
+            thread.start();
+            clients.add(thread);
+        }
+        for (Thread thread : clients) {
+            thread.join();
+        }
+        return perClient.stream().flatMap(List::stream).toList();
+    }
+
+    private static void report(String launch, boolean warmup, long readyMs, long firstRequestMs, long firstRequestLatencyMs,
+                               List<long[]> samples) {
+        long firstWindow = samples.stream().mapToLong(sample -> sample[0]).min().orElseThrow() / 1000 / WINDOW_MS;
+        long lastWindow = samples.stream().mapToLong(sample -> sample[0]).max().orElseThrow() / 1000 / WINDOW_MS;
+        // The last window is cut short by the end of the load
+        int windows = (int) (lastWindow - firstWindow);
+        List<List<Long>> latencies = new ArrayList<>();
+        for (int i = 0; i < windows; i++) {
+            latencies.add(new ArrayList<>());
+        }
+        for (long[] sample : samples) {
+            int window = (int) (sample[0] / 1000 / WINDOW_MS - firstWindow);
+            if (window < windows) {
+                latencies.get(window).add(sample[1]);
+            }
+        }
+        double[] p99 = latencies.stream().mapToDouble(StartupBenchmark::p99).toArray();
+        double[] tail = Arrays.copyOfRange(p99, Math.max(0, windows - FINAL_WINDOWS), windows);
+        Arrays.sort(tail);
+        double steadyP99 = tail[tail.length / 2];
+        int steadyWindow = windows;
+        while (steadyWindow > 0 && p99[steadyWindow - 1] <= steadyP99 * 1.5) {
+            steadyWindow--;
+        }
+        long steadyMs = (firstWindow + steadyWindow) * WINDOW_MS;
+
+        System.out.printf("%-9s warm-up %-3s: ready %6d ms, first request %6d ms (%4d ms), p99 %7.1f ms in the first %d ms,"
+                        + " steady p99 %5.1f ms from %6d ms, %,d requests%n",
+                launch, warmup ? "on" : "off", readyMs, firstRequestMs, firstRequestLatencyMs, p99[0] / 1000, WINDOW_MS,
+                steadyP99 / 1000, steadyMs, samples.size());
+    }
+
+    private static double p99(List<Long> latencies) {
+        if (latencies.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = latencies.stream().sorted().toList();
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(sorted.size() * 0.99) - 1));
+    }
+
+    private static int status(String url, String token) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        try {
+            return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private static String register(String baseUrl) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/register"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("""
+                                {"username":"bench","email":"bench@example.com","password":"password1","firstName":"Bench","lastName":"User"}"""))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        String body = response.body();
+        int start = body.indexOf("\"accessToken\":\"") + "\"accessToken\":\"".length();
+        return body.substring(start, body.indexOf('"', start));
+    }
+
+    private static long millisSince(long nanos) {
+        return (System.nanoTime() - nanos) / 1_000_000;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
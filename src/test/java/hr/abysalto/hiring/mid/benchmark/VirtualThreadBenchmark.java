@@ -0,0 +1,82 @@
+package hr.abysalto.hiring.mid.benchmark;
+
+import hr.abysalto.hiring.mid.Application;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Blocking product requests under slow upstream latency, on Tomcat's default platform-thread pool and on virtual
+ * threads ({@code spring.threads.virtual.enabled=true}).
+ * <p>
+ * For each upstream delay a burst of concurrent {@code GET /api/products/{id}} goes through the blocking browse
+ * controller, so every request holds its thread for the whole upstream call. The DummyJSON connection pool is sized
+ * to the burst so that only the thread model limits concurrency. Virtual threads need a JDK 21; on older runtimes
+ * only the platform mode runs. Pinned virtual threads are reported on standard output. Run with
+ * {@code ./mvnw -Pjava21 spring-boot:test-run
+ * -Dspring-boot.run.main-class=hr.abysalto.hiring.mid.benchmark.VirtualThreadBenchmark}, optionally adding
+ * {@code -Dspring-boot.run.arguments="<burst size> <delays ms...>"}.
+ */
+public class VirtualThreadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int burst = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        List<Long> delays = args.length > 1
+                ? Arrays.stream(args, 1, args.length).map(Long::parseLong).toList()
+                : List.of(200L, 1000L, 2000L);
+        boolean virtualThreads = Runtime.version().feature() >= 21;
+        // Read once when the first virtual thread starts
+        System.setProperty("jdk.tracePinnedThreads", System.getProperty("jdk.tracePinnedThreads", "short"));
+        System.out.printf("%d cores, Java %d, burst %d%n", Runtime.getRuntime().availableProcessors(), Runtime.version().feature(), burst);
+        if (!virtualThreads) {
+            System.out.println("Virtual threads need Java 21, measuring platform threads only");
+        }
+
+        try (SlowUpstream upstream = new SlowUpstream(delays.get(0))) {
+            AtomicLong nextProductId = new AtomicLong(1);
+            run(false, upstream, burst, delays, nextProductId);
+            if (virtualThreads) {
+                run(true, upstream, burst, delays, nextProductId);
+            }
+        }
+    }
+
+    private static void run(boolean virtual, SlowUpstream upstream, int burst, List<Long> delays, AtomicLong nextProductId)
+            throws Exception {
+        String mode = virtual ? "virtual" : "platform";
+        Path dataDirectory = Files.createTempDirectory("virtual-threads-" + mode);
+        SpringApplication application = new SpringApplication(Application.class);
+
+        try (ConfigurableApplicationContext context = application.run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--spring.datasource.url=jdbc:h2:mem:virtual-threads-" + mode + ";DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE",
+                "--dummyjson.base-url=" + upstream.baseUrl(),
+                "--dummyjson.max-connections=" + burst,
+                "--outbox.changelog.directory=" + dataDirectory.resolve("changelog"),
+                "--audit.directory=" + dataDirectory.resolve("audit"),
+                "--logging.level.root=WARN",
+                "--logging.level.hr.abysalto.hiring.mid=WARN")) {
+            ProductLoad load = new ProductLoad(((WebServerApplicationContext) context).getWebServer().getPort(), nextProductId);
+
+            // Untimed burst so that the first measured one is not the one paying for JIT compilation and connection setup
+            upstream.setDelayMs(delays.get(0));
+            load.burst(burst);
+            for (long delayMs : delays) {
+                upstream.setDelayMs(delayMs);
+                upstream.takePeak();
+                long start = System.nanoTime();
+                int ok = load.burst(burst);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%-8s delay %4d ms: %5d ok in %6.2f s, peak %5d upstream calls pending, %,.0f req/s%n",
+                        mode, delayMs, ok, seconds, upstream.takePeak(), ok / seconds);
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package hr.abysalto.hiring.mid.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.exception.ExternalApiException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.cache.Cache;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The {@code product} cache has a disk tier, {@code products} is in memory only.
+ */
+class CacheAdminEndpointTest {
+
+    @TempDir
+    private Path directory;
+
+    private final DummyJsonClient dummyJsonClient = mock(DummyJsonClient.class);
+
+    private HotKeyCacheManager cacheManager;
+    private CacheAdminEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new HotKeyCacheManager(name -> {
+            if (!"product".equals(name)) {
+                return null;
+            }
+            try {
+                return new DiskCacheStore(directory.resolve(name + ".cache"), 1024 * 1024, Duration.ofMinutes(10),
+                        String.class, new ObjectMapper());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        cacheManager.setCacheNames(List.of("product", "products"));
+        endpoint = new CacheAdminEndpoint(cacheManager, dummyJsonClient, 300);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        cacheManager.close();
+    }
+
+    @Test
+    void evictsAnExactLongKeyOrEveryKeyPrintedWithAPrefix() {
+        Cache cache = cacheManager.getCache("products");
+        for (long key : new long[]{1, 10, 100, 2, 21}) {
+            cache.put(key, "value " + key);
+        }
+
+        // "1" is only the key 1, not 10 or 100
+        assertThat(endpoint.evict("products", "1").getBody().evicted()).isEqualTo(1);
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.get(10L)).isNotNull();
+        assertThat(endpoint.evict("products", "1").getBody().evicted()).isZero();
+
+        assertThat(endpoint.evict("products", "1*").getBody().evicted()).isEqualTo(2);
+        assertThat(cache.get(10L)).isNull();
+        assertThat(cache.get(100L)).isNull();
+        assertThat(cache.get(2L)).isNotNull();
+
+        assertThat(endpoint.evict("products", "*").getBody().evicted()).isEqualTo(2);
+        assertThat(endpoint.evict("products", "").getStatus()).isEqualTo(WebEndpointResponse.STATUS_BAD_REQUEST);
+        assertThat(endpoint.evict("nope", "1").getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+
+    @Test
+    void prefixEvictionReachesTheDiskTier() throws Exception {
+        TieredCache cache = (TieredCache) cacheManager.getCache("product");
+        for (long key : new long[]{1, 10, 100, 2}) {
+            cache.put(key, "value " + key);
+        }
+        await(() -> cache.getDiskStore().keys().size() == 4);
+        // Only on disk, as after a restart
+        cache.getDiskStore().put(11L, "value 11");
+        cache.getNativeCache().invalidate(10L);
+
+        assertThat(endpoint.evict("product", "1*").getBody().evicted()).isEqualTo(4);
+
+        assertThat(cache.keys()).containsExactly(2L);
+        assertThat(cache.getDiskStore().keys()).containsExactly(2L);
+        assertThat(cache.get(11L)).isNull();
+    }
+
+    @Test
+    void reportsTheHottestCachedKeys() {
+        Cache cache = cacheManager.getCache("products");
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.put(3L, "three");
+        for (int i = 0; i < 5; i++) {
+            cache.get(2L);
+        }
+        cache.get(3L);
+        cache.get(3L);
+        cache.get(1L);
+        // Hot but not cached, so not listed
+        for (int i = 0; i < 10; i++) {
+            cache.get(4L);
+        }
+
+        CacheAdminEndpoint.CacheStatus status = endpoint.cache("products", 2).getBody();
+
+        assertThat(status.hotKeys()).containsExactly(new CacheAdminEndpoint.HotKey("2", 5), new CacheAdminEndpoint.HotKey("3", 2));
+        assertThat(status.size()).isEqualTo(3);
+        assertThat(status.disk()).isNull();
+        assertThat(endpoint.caches(0)).containsOnlyKeys("product", "products")
+                .allSatisfy((name, cacheStatus) -> assertThat(cacheStatus.hotKeys()).isEmpty());
+        assertThat(endpoint.caches(null).get("product").disk()).isNotNull();
+        assertThat(endpoint.cache("nope", null).getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+
+    @Test
+    void prewarmReportsWhatLoadedFailedOrWasStillPendingAtTheTimeout() {
+        when(dummyJsonClient.refresh("product", "1")).thenReturn(Mono.empty());
+        when(dummyJsonClient.refresh("product", "2")).thenReturn(Mono.never());
+        when(dummyJsonClient.refresh("product", "3")).thenReturn(Mono.error(new ExternalApiException("DummyJSON API error: 404")));
+
+        CacheAdminEndpoint.Prewarm prewarm = endpoint.prewarm("product", " 1, 2,3,,1 ").getBody();
+
+        assertThat(prewarm.loaded()).containsExactly("1");
+        assertThat(prewarm.failed()).containsExactly(
+                Map.entry("2", "Not loaded within 300 ms"),
+                Map.entry("3", "ExternalApiException: DummyJSON API error: 404"));
+        assertThat(endpoint.prewarm("nope", "1").getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package hr.abysalto.hiring.mid.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A record for a {@code Long} key and a value such as {@code "value-07"} is 8 header bytes, 10 meta bytes, a 9-byte
+ * key and a 10-byte value: 37 bytes. Its tombstone has no value: 27 bytes.
+ */
+class DiskCacheStoreTest {
+
+    private static final int RECORD_BYTES = 37;
+    private static final int TOMBSTONE_BYTES = 27;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void reopeningServesWhatWasStoredBeforeIncludingRemovals() throws IOException {
+        try (DiskCacheStore store = open(64 * 1024, Duration.ofMinutes(10))) {
+            store.put(1L, "value-01");
+            store.put(2L, "value-02");
+            store.put("search_phone_20_0", "value-03");
+            store.put(1L, "value-04");
+            // A tombstone, replayed on reopen
+            assertThat(store.remove(2L)).isTrue();
+            assertThat(store.remove(2L)).isFalse();
+            // Neither a Long nor a String key: not stored
+            store.put(1.5, "value-05");
+        }
+
+        try (DiskCacheStore store = open(64 * 1024, Duration.ofMinutes(10))) {
+            assertThat(store.keys()).containsExactlyInAnyOrder(1L, "search_phone_20_0");
+            assertThat(store.get(1L)).isEqualTo("value-04");
+            assertThat(store.get(2L)).isNull();
+            assertThat(store.get("search_phone_20_0")).isEqualTo("value-03");
+            DiskCacheStore.Stats stats = store.stats();
+            assertThat(stats.entries()).isEqualTo(2);
+            assertThat(stats.liveBytes()).isLessThan(stats.usedBytes());
+            assertThat(store.find(1L).expiresAtMillis()).isGreaterThan(System.currentTimeMillis());
+        }
+    }
+
+    @Test
+    void reopeningSkipsEntriesThatExpiredMeanwhile() throws Exception {
+        try (DiskCacheStore store = open(64 * 1024, Duration.ofMillis(50))) {
+            store.put(1L, "value-01");
+        }
+        Thread.sleep(100);
+
+        try (DiskCacheStore store = open(64 * 1024, Duration.ofMillis(50))) {
+            assertThat(store.keys()).isEmpty();
+            assertThat(store.get(1L)).isNull();
+        }
+    }
+
+    @Test
+    void reopeningDropsATornWriteAndKeepsAppending() throws IOException {
+        long used;
+        try (DiskCacheStore store = open(64 * 1024, Duration.ofMinutes(10))) {
+            store.put(1L, "value-01");
+            store.put(2L, "value-02");
+            used = store.stats().usedBytes();
+        }
+        // A crash halfway through the next record: its header is written, most of its payload is not
+        write(used, ByteBuffer.allocate(12).putInt(RECORD_BYTES - 8).putInt(0x12345678).putInt(0x7fffffff).flip());
+
+        try (DiskCacheStore store = open(64 * 1024, Duration.ofMinutes(10))) {
+            assertThat(store.keys()).containsExactlyInAnyOrder(1L, 2L);
+            assertThat(store.stats().usedBytes()).isEqualTo(used);
+            store.put(3L, "value-03");
+        }
+        try (DiskCacheStore store = open(64 * 1024, Duration.ofMinutes(10))) {
+            assertThat(store.get(3L)).isEqualTo("value-03");
+            assertThat(store.keys()).hasSize(3);
+        }
+    }
+
+    @Test
+    void reopeningStopsAtTheFirstRecordWhoseChecksumDoesNotMatch() throws IOException {
+        try (DiskCacheStore store = open(64 * 1024, Duration.ofMinutes(10))) {
+            store.put(1L, "value-01");
+            store.put(2L, "value-02");
+            store.put(3L, "value-03");
+        }
+        // One byte of the second value; the third record is intact but comes after it
+        write(2L * RECORD_BYTES - 3, ByteBuffer.wrap(new byte[]{'X'}));
+
+        try (DiskCacheStore store = open(64 * 1024, Duration.ofMinutes(10))) {
+            assertThat(store.keys()).containsExactly(1L);
+            assertThat(store.stats().usedBytes()).isEqualTo(RECORD_BYTES);
+        }
+    }
+
+    @Test
+    void compactionKeepsTheEntriesThatExpireLastInHalfTheFile() throws Exception {
+        // Room for ten records
+        try (DiskCacheStore store = open(10 * RECORD_BYTES + 10, Duration.ofMinutes(10))) {
+            for (long key = 0; key < 8; key++) {
+                store.put(key, "value-%02d".formatted(key));
+                // Every entry expires a little later than the one before
+                Thread.sleep(2);
+            }
+            store.put(1L, "value-11");
+            assertThat(store.remove(6L)).isTrue();
+            assertThat(store.stats().usedBytes()).isEqualTo(9 * RECORD_BYTES + TOMBSTONE_BYTES);
+
+            store.put(20L, "value-20");
+
+            // Superseded values and tombstones are gone, and of the rest only what fits in half the file is kept
+            DiskCacheStore.Stats stats = store.stats();
+            assertThat(stats.compactions()).isEqualTo(1);
+            assertThat(store.keys()).containsExactlyInAnyOrder(1L, 3L, 4L, 5L, 7L, 20L);
+            assertThat(store.get(1L)).isEqualTo("value-11");
+            assertThat(store.get(7L)).isEqualTo("value-07");
+            assertThat(store.get(0L)).isNull();
+            assertThat(stats.usedBytes()).isEqualTo(6 * RECORD_BYTES);
+            assertThat(stats.liveBytes()).isEqualTo(6 * RECORD_BYTES);
+        }
+
+        try (DiskCacheStore store = open(10 * RECORD_BYTES + 10, Duration.ofMinutes(10))) {
+            assertThat(store.keys()).containsExactlyInAnyOrder(1L, 3L, 4L, 5L, 7L, 20L);
+            assertThat(LongStream.of(1, 3, 4, 5, 7, 20).mapToObj(store::get)).doesNotContainNull();
+        }
+    }
+
+    private DiskCacheStore open(int capacityBytes, Duration ttl) throws IOException {
+        return new DiskCacheStore(directory.resolve("product.cache"), capacityBytes, ttl, String.class, new ObjectMapper());
+    }
+
+    private void write(long position, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve("product.cache"), StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package hr.abysalto.hiring.mid.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A sketch for 16 keys has rows 64 counters wide and ages after 640 increments.
+ */
+class FrequencySketchTest {
+
+    @Test
+    void countsEachKeyWithoutUnderestimating() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int key = 0; key < 16; key++) {
+            for (int i = 0; i <= key; i++) {
+                sketch.increment((long) key);
+            }
+        }
+
+        assertThat(IntStream.range(0, 16)).allSatisfy(key -> assertThat(sketch.frequency((long) key)).isGreaterThanOrEqualTo(key + 1));
+        assertThat(sketch.frequency(15L)).isEqualTo(16);
+        assertThat(sketch.sizeBytes()).isEqualTo(4 * 64 * Integer.BYTES);
+        assertThatThrownBy(() -> new FrequencySketch(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void halvesEveryCountOnceTheSampleIsFull() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("once hot");
+        }
+        for (int i = 0; i < 539; i++) {
+            sketch.increment("hot now");
+        }
+        assertThat(sketch.frequency("once hot")).isEqualTo(100);
+        assertThat(sketch.frequency("hot now")).isEqualTo(539);
+
+        // The 640th increment ages the sketch
+        sketch.increment("hot now");
+
+        assertThat(sketch.frequency("once hot")).isEqualTo(50);
+        assertThat(sketch.frequency("hot now")).isEqualTo(270);
+        // Half a sample is left before the next aging
+        for (int i = 0; i < 319; i++) {
+            sketch.increment("hot now");
+        }
+        assertThat(sketch.frequency("once hot")).isEqualTo(50);
+        sketch.increment("hot now");
+        assertThat(sketch.frequency("once hot")).isEqualTo(25);
+    }
+
+    @Test
+    void hotKeyCacheCountsLookupsButNotWrites() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        HotKeyCache cache = new HotKeyCache("product", Caffeine.newBuilder().build(), false, sketch);
+
+        cache.put(1L, "one");
+        assertThat(sketch.frequency(1L)).isZero();
+
+        cache.get(1L);
+        cache.get(2L);
+        cache.get(1L, () -> "loaded");
+        cache.get(3L, () -> "loaded");
+        cache.evict(1L);
+
+        assertThat(sketch.frequency(1L)).isEqualTo(2);
+        assertThat(sketch.frequency(2L)).isEqualTo(1);
+        assertThat(sketch.frequency(3L)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,161 @@
+package hr.abysalto.hiring.mid.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TieredCacheTest {
+
+    @TempDir
+    private Path directory;
+
+    private DiskCacheStore diskStore;
+    private ExecutorService diskWriter;
+    private Cache<Object, Object> memory;
+    private TieredCache cache;
+
+    @BeforeEach
+    void open() throws IOException {
+        diskStore = new DiskCacheStore(directory.resolve("product.cache"), 1024 * 1024, Duration.ofSeconds(30),
+                String.class, new ObjectMapper());
+        diskWriter = Executors.newSingleThreadExecutor();
+        memory = Caffeine.newBuilder().expireAfter(new WriteExpiry(Duration.ofMinutes(10))).build();
+        cache = new TieredCache("product", memory, false, new FrequencySketch(16), diskStore, diskWriter);
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        diskWriter.shutdown();
+        diskWriter.awaitTermination(10, TimeUnit.SECONDS);
+        diskStore.close();
+    }
+
+    @Test
+    void valueReadBackFromDiskKeepsOnlyItsRemainingLifetime() {
+        diskStore.put(1L, "written before the restart");
+
+        assertThat(cache.get(1L, String.class)).isEqualTo("written before the restart");
+
+        Duration inMemory = memory.policy().expireVariably().orElseThrow().getExpiresAfter(1L).orElseThrow();
+        assertThat(inMemory).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void valueThatExpiresWhileItIsReadBackIsStillServedOnce() throws IOException {
+        // As if the entry expired between the store's expiry check and the promotion
+        DiskCacheStore expiring = new DiskCacheStore(directory.resolve("expiring.cache"), 1024 * 1024,
+                Duration.ofSeconds(30), String.class, new ObjectMapper()) {
+            @Override
+            public Entry find(Object key) {
+                return new Entry("expired meanwhile", System.currentTimeMillis() - 1000);
+            }
+        };
+        try {
+            TieredCache tiered = new TieredCache("product", memory, false, new FrequencySketch(16), expiring, diskWriter);
+
+            assertThat(tiered.get(4L, String.class)).isEqualTo("expired meanwhile");
+            assertThat(memory.getIfPresent(4L)).isNull();
+        } finally {
+            expiring.close();
+        }
+    }
+
+    @Test
+    void freshValuesGetTheFullMemoryLifetime() {
+        cache.put(2L, "fetched now");
+
+        Duration inMemory = memory.policy().expireVariably().orElseThrow().getExpiresAfter(2L).orElseThrow();
+        assertThat(inMemory).isGreaterThan(Duration.ofMinutes(9));
+    }
+
+    @Test
+    void putReturnsBeforeTheDiskWriteAndEvictionWaitsForIt() throws Exception {
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        diskWriter.execute(() -> {
+            try {
+                writerBusy.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        cache.put(3L, "queued");
+
+        assertThat(cache.get(3L, String.class)).isEqualTo("queued");
+        assertThat(diskStore.get(3L)).isNull();
+
+        // Evicted while the write is still queued; the write must not bring the value back afterwards
+        CompletableFuture<Void> eviction = CompletableFuture.runAsync(() -> cache.evict(3L));
+        writerBusy.countDown();
+        eviction.get(10, TimeUnit.SECONDS);
+        diskWriter.submit(() -> { }).get();
+        assertThat(diskStore.get(3L)).isNull();
+        assertThat(cache.get(3L)).isNull();
+    }
+
+    @Test
+    void evictingManyKeysTakesOneTripToTheDiskWriter() throws Exception {
+        for (long key = 10; key < 20; key++) {
+            cache.put(key, "value " + key);
+        }
+        diskWriter.submit(() -> { }).get();
+        diskStore.put(20L, "on disk only");
+        AtomicInteger trips = new AtomicInteger();
+        ExecutorService countingWriter = new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable command) {
+                trips.incrementAndGet();
+                diskWriter.execute(command);
+            }
+
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return List.of();
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return false;
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return false;
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) {
+                return true;
+            }
+        };
+        TieredCache counted = new TieredCache("product", memory, false, new FrequencySketch(16), diskStore, countingWriter);
+
+        assertThat(counted.evictAll(List.of(10L, 11L, 12L, 20L, 99L))).isEqualTo(4);
+
+        assertThat(trips).hasValue(1);
+        assertThat(diskStore.keys()).doesNotContain(10L, 11L, 12L, 20L).contains(13L);
+        assertThat(memory.asMap()).doesNotContainKeys(10L, 11L, 12L).containsKey(13L);
+    }
+}
@@ -0,0 +1,38 @@
+package hr.abysalto.hiring.mid.client;
+
+import hr.abysalto.hiring.mid.exception.ExternalApiException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DummyJsonClientTest {
+
+    private DummyJsonClient client;
+
+    @BeforeEach
+    void pointAtAClosedPort() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheNames(List.of("products", "product"));
+        client = new DummyJsonClient("http://127.0.0.1:" + port, 4, 100, cacheManager);
+    }
+
+    @Test
+    void unreachableUpstreamFailsLikeAnErrorResponse() {
+        assertThatThrownBy(() -> client.getProductsByIds(List.of(1L, 2L)))
+                .isInstanceOf(ExternalApiException.class)
+                .hasMessageStartingWith("DummyJSON API unreachable");
+        assertThatThrownBy(() -> client.getProductById(1L)).isInstanceOf(ExternalApiException.class);
+        assertThatThrownBy(() -> client.getProductsAsync(20, 0, null, null).block()).isInstanceOf(ExternalApiException.class);
+        assertThatThrownBy(() -> client.searchProductsAsync("phone", 20, 0).block()).isInstanceOf(ExternalApiException.class);
+    }
+}
@@ -0,0 +1,120 @@
+package hr.abysalto.hiring.mid.components;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.audit.AuditEvent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditLogTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void fullRingDropsEventsAndDrainedSlotsAreReused() throws Exception {
+        AuditLog auditLog = auditLog(4, 1024, 1 << 20, 10);
+        // Nothing drains the ring before the writer starts
+        for (int i = 0; i < 5; i++) {
+            auditLog.add(event(i, "user-" + i, AuditLog.AUTHENTICATION_SUCCESS));
+        }
+        assertThat(auditLog.getDroppedCount()).isEqualTo(1);
+
+        auditLog.start();
+        await(() -> auditLog.find(null, null, null).size() == 4);
+        // The second lap goes round the same four slots
+        for (int i = 5; i < 9; i++) {
+            auditLog.add(event(i, "user-" + i, AuditLog.AUTHENTICATION_SUCCESS));
+        }
+        auditLog.stop();
+
+        assertThat(auditLog.find(null, null, null)).map(AuditEvent::getPrincipal)
+                .containsExactly("user-0", "user-1", "user-2", "user-3", "user-5", "user-6", "user-7", "user-8");
+        assertThat(auditLog.getDroppedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rollsSegmentsKeepsTheNewestAndContinuesNumberingAfterARestart() throws Exception {
+        // Every event fills a segment, so each one is written to a file of its own
+        AuditLog auditLog = auditLog(64, 1, 100, 3);
+        auditLog.start();
+        for (int i = 0; i < 10; i++) {
+            auditLog.add(event(i, "user-" + i, AuditLog.TOKEN_ISSUED));
+        }
+        auditLog.stop();
+
+        assertThat(segmentFiles()).containsExactly("audit-0000000008.ndjson", "audit-0000000009.ndjson", "audit-0000000010.ndjson");
+        assertThat(auditLog.find(null, null, null)).map(AuditEvent::getPrincipal).containsExactly("user-8", "user-9");
+
+        AuditLog restarted = auditLog(64, 1, 100, 3);
+        restarted.start();
+        restarted.add(event(10, "user-10", AuditLog.TOKEN_ISSUED));
+        restarted.stop();
+
+        assertThat(segmentFiles()).containsExactly("audit-0000000009.ndjson", "audit-0000000010.ndjson", "audit-0000000011.ndjson");
+        assertThat(restarted.find(null, null, null)).map(AuditEvent::getPrincipal).containsExactly("user-9", "user-10");
+    }
+
+    @Test
+    void findFiltersByPrincipalTypeAndTime() throws Exception {
+        AuditLog auditLog = auditLog(64, 1024, 1 << 20, 10);
+        auditLog.start();
+        auditLog.add(event(0, "alice", AuditLog.AUTHENTICATION_SUCCESS));
+        auditLog.add(event(1, "alice-admin", AuditLog.AUTHENTICATION_SUCCESS));
+        auditLog.add(event(2, "bob", AuditLog.AUTHENTICATION_FAILURE));
+        auditLog.add(event(3, "alice", AuditLog.AUTHENTICATION_FAILURE));
+        auditLog.add(event(4, "alice", AuditLog.TWO_FACTOR_ENABLED));
+        auditLog.stop();
+
+        // "alice" is part of "alice-admin", but only the exact principal matches
+        assertThat(auditLog.find("alice", null, null)).map(AuditEvent::getTimestamp)
+                .containsExactly(START, START.plusSeconds(3), START.plusSeconds(4));
+        assertThat(auditLog.find(null, null, AuditLog.AUTHENTICATION_FAILURE)).map(AuditEvent::getPrincipal)
+                .containsExactly("bob", "alice");
+        assertThat(auditLog.find("alice", START.plusSeconds(3), null)).map(AuditEvent::getType)
+                .containsExactly(AuditLog.TWO_FACTOR_ENABLED);
+        assertThat(auditLog.find("carol", null, null)).isEmpty();
+        assertThat(auditLog.find("alice", null, AuditLog.AUTHENTICATION_SUCCESS)).singleElement()
+                .satisfies(event -> assertThat(event.getData()).containsEntry("remoteAddress", "127.0.0.1"));
+    }
+
+    private AuditLog auditLog(int ringCapacity, int batchSize, long segmentBytes, int maxSegments) {
+        return new AuditLog(objectMapper, directory.toString(), ringCapacity, batchSize, 1, segmentBytes, maxSegments);
+    }
+
+    private List<String> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    private static AuditEvent event(int second, String principal, String type) {
+        return new AuditEvent(START.plusSeconds(second), principal, type, Map.of("remoteAddress", "127.0.0.1"));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package hr.abysalto.hiring.mid.components;
+
+import hr.abysalto.hiring.mid.domain.repository.FavoriteProductBatchRepository.UserProductConsumer;
+import hr.abysalto.hiring.mid.domain.repository.FavoriteProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class CoFavoriteIndexTest {
+
+    private final FavoriteProductRepository favoriteProductRepository = mock(FavoriteProductRepository.class);
+    private final CoFavoriteIndex index = new CoFavoriteIndex(favoriteProductRepository, 10, 2);
+
+    @Test
+    void changesAreCountedFromTheUsersFavoritesInMemory() {
+        // Two users favorite 1 and 2, one of them also 3
+        index.added(List.of(1L), ProductIdSet.EMPTY);
+        index.added(List.of(2L), ProductIdSet.of(List.of(1L)));
+        index.added(List.of(1L, 2L, 3L), ProductIdSet.EMPTY);
+
+        assertThat(index.related(1L, 10)).containsExactly(2L, 3L);
+        assertThat(index.related(3L, 10)).containsExactly(1L, 2L);
+        assertThat(index.related(1L, 1)).containsExactly(2L);
+        verifyNoInteractions(favoriteProductRepository);
+    }
+
+    @Test
+    void removalTakesThePairsWithTheRemainingFavoritesAway() {
+        index.added(List.of(1L, 2L, 3L), ProductIdSet.EMPTY);
+
+        index.removed(3L, ProductIdSet.of(List.of(1L, 2L)));
+
+        assertThat(index.related(1L, 10)).containsExactly(2L);
+        assertThat(index.related(3L, 10)).isEmpty();
+        verifyNoInteractions(favoriteProductRepository);
+    }
+
+    @Test
+    void rebuildCountsEveryUsersPairs() {
+        doAnswer(invocation -> {
+            UserProductConsumer consumer = invocation.getArgument(0);
+            consumer.accept(1L, 10L);
+            consumer.accept(1L, 20L);
+            consumer.accept(2L, 10L);
+            consumer.accept(2L, 20L);
+            consumer.accept(2L, 30L);
+            consumer.accept(3L, 30L);
+            consumer.accept(3L, 10L);
+            consumer.accept(4L, 40L);
+            return null;
+        }).when(favoriteProductRepository).forEachUserProduct(any());
+
+        index.added(List.of(99L), ProductIdSet.of(List.of(98L)));
+        index.rebuild();
+
+        assertThat(index.related(10L, 10)).containsExactly(20L, 30L);
+        assertThat(index.related(30L, 10)).containsExactly(10L, 20L);
+        assertThat(index.related(40L, 10)).isEmpty();
+        // Counted before the rebuild but not in the table it read
+        assertThat(index.related(99L, 10)).isEmpty();
+    }
+}
@@ -0,0 +1,193 @@
+package hr.abysalto.hiring.mid.components;
+
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.domain.model.User;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import hr.abysalto.hiring.mid.dto.response.ProductResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs seeders of its own on a database of its own, with the catalog served by a mock.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:data-seeder-test;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE")
+class DataSeederTest {
+
+    private static final int USERS = 3000;
+    private static final int PRODUCTS = 194;
+    private static final int STOCK = 1_000_000;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private StockReservationEngine stockReservations;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private DummyJsonClient dummyJsonClient;
+
+    @BeforeEach
+    void setUp() {
+        when(dummyJsonClient.getProductById(anyLong())).thenAnswer(invocation -> product(invocation.getArgument(0)));
+        when(dummyJsonClient.getProductsByIds(anyCollection())).thenAnswer(invocation -> ((Collection<Long>) invocation.getArgument(0))
+                .stream().collect(Collectors.toMap(Function.identity(), DataSeederTest::product)));
+        jdbcTemplate.update("DELETE FROM cart_items WHERE user_id IN (SELECT user_id FROM users WHERE username LIKE 'seed%')");
+        jdbcTemplate.update("DELETE FROM favorite_products WHERE user_id IN (SELECT user_id FROM users WHERE username LIKE 'seed%')");
+        jdbcTemplate.update("DELETE FROM users WHERE username LIKE 'seed%'");
+    }
+
+    @Test
+    void sameSeedGivesTheSameDataWhateverTheThreadCount() throws Exception {
+        seeder(42, 1, 90).seed();
+        List<String> sequential = seededRows();
+        setUp();
+        seeder(42, 4, 90).seed();
+
+        assertThat(seededRows()).isEqualTo(sequential);
+
+        setUp();
+        seeder(43, 4, 90).seed();
+        assertThat(seededRows()).isNotEqualTo(sequential);
+    }
+
+    @Test
+    void popularityAndSizesFollowTheirDistributions() throws Exception {
+        seeder(42, 2, 90).seed();
+
+        List<Integer> cartSizes = sizes("cart_items");
+        List<Integer> favoritesSizes = sizes("favorite_products");
+        // Zero for the users outside user-fraction, Pareto-distributed and capped for the rest
+        assertThat(cartSizes.size() / (double) USERS).isBetween(0.25, 0.35);
+        assertThat(favoritesSizes.size() / (double) USERS).isBetween(0.45, 0.55);
+        assertThat(cartSizes).allSatisfy(size -> assertThat(size).isBetween(1, 30));
+        assertThat(favoritesSizes).allSatisfy(size -> assertThat(size).isBetween(1, 50));
+        assertThat(mostCommon(cartSizes)).isEqualTo(1);
+        assertThat(mostCommon(favoritesSizes)).isEqualTo(1);
+        assertThat(cartSizes).anySatisfy(size -> assertThat(size).isGreaterThanOrEqualTo(10));
+
+        // Zipf: the favourite product is picked far more often than the median one
+        List<Integer> favoritesPerProduct = jdbcTemplate.queryForList("""
+                SELECT COUNT(*) FROM favorite_products f JOIN users u ON u.user_id = f.user_id
+                WHERE u.username LIKE 'seed%' GROUP BY f.product_id ORDER BY COUNT(*) DESC""", Integer.class);
+        assertThat(favoritesPerProduct.get(0)).isGreaterThan(10 * favoritesPerProduct.get(favoritesPerProduct.size() / 2));
+    }
+
+    @Test
+    void takesItsUserIdsAheadOfLaterRegistrations() throws Exception {
+        long firstUserId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(user_id), 0) + 1 FROM users", Long.class);
+
+        seeder(42, 4, 90).seed();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT MIN(user_id) FROM users WHERE username LIKE 'seed%'", Long.class))
+                .isEqualTo(firstUserId);
+        assertThat(jdbcTemplate.queryForObject("SELECT MAX(user_id) FROM users WHERE username LIKE 'seed%'", Long.class))
+                .isEqualTo(firstUserId + USERS - 1);
+        User registered = userRepository.save(User.builder()
+                .username("seeder-probe")
+                .email("seeder-probe@example.com")
+                .password("unused")
+                .firstName("Seeder")
+                .lastName("Probe")
+                .build());
+        assertThat(registered.getUserId()).isEqualTo(firstUserId + USERS);
+    }
+
+    @Test
+    void cartLinesCarryPriceSnapshotsAndRecentOnesHoldStock() throws Exception {
+        Map<Long, Long> availableBefore = new HashMap<>();
+        for (long productId = 1; productId <= PRODUCTS; productId++) {
+            availableBefore.put(productId, stockReservations.getAvailable(productId));
+        }
+
+        // Everything is added just now, so every line is within the hold window
+        seeder(42, 4, 0).seed();
+
+        assertThat(jdbcTemplate.queryForList("""
+                SELECT c.product_id, c.title, c.price_cents, c.discount_basis_points, c.catalog_version
+                FROM cart_items c JOIN users u ON u.user_id = c.user_id WHERE u.username LIKE 'seed%'""")).isNotEmpty()
+                .allSatisfy(line -> {
+                    long productId = ((Number) line.get("PRODUCT_ID")).longValue();
+                    assertThat(line.get("TITLE")).isEqualTo("Product " + productId);
+                    assertThat(((Number) line.get("PRICE_CENTS")).longValue()).isEqualTo(productId * 100 + 99);
+                    assertThat(((Number) line.get("DISCOUNT_BASIS_POINTS")).intValue()).isEqualTo(1250);
+                    assertThat(((Number) line.get("CATALOG_VERSION")).longValue()).isEqualTo(catalogVersion.current());
+                });
+        Map<Long, Long> quantities = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT c.product_id, SUM(c.quantity) FROM cart_items c JOIN users u ON u.user_id = c.user_id
+                WHERE u.username LIKE 'seed%' GROUP BY c.product_id""", rs -> {
+            quantities.put(rs.getLong(1), rs.getLong(2));
+        });
+        assertThat(quantities).allSatisfy((productId, quantity) ->
+                assertThat(availableBefore.get(productId) - stockReservations.getAvailable(productId)).isEqualTo(quantity));
+    }
+
+    private DataSeeder seeder(long randomSeed, int threads, int historyDays) {
+        return new DataSeeder(dataSource, jdbcTemplate, passwordEncoder, dummyJsonClient, stockReservations, catalogVersion,
+                "jdbc", false, USERS, 200, threads, randomSeed, "password1", historyDays, 900_000, PRODUCTS, 1.0,
+                0.3, 1.5, 30, 0.5, 1.2, 50);
+    }
+
+    private List<String> seededRows() {
+        List<String> rows = new java.util.ArrayList<>(jdbcTemplate.queryForList("""
+                SELECT username || ' ' || first_name || ' ' || last_name FROM users WHERE username LIKE 'seed%' ORDER BY 1""", String.class));
+        rows.addAll(jdbcTemplate.queryForList("""
+                SELECT u.username || ' cart ' || c.product_id || ' x' || c.quantity
+                FROM cart_items c JOIN users u ON u.user_id = c.user_id WHERE u.username LIKE 'seed%' ORDER BY 1""", String.class));
+        rows.addAll(jdbcTemplate.queryForList("""
+                SELECT u.username || ' favorite ' || f.product_id
+                FROM favorite_products f JOIN users u ON u.user_id = f.user_id WHERE u.username LIKE 'seed%' ORDER BY 1""", String.class));
+        return rows;
+    }
+
+    private List<Integer> sizes(String table) {
+        return jdbcTemplate.queryForList("SELECT COUNT(*) FROM " + table + " t JOIN users u ON u.user_id = t.user_id"
+                + " WHERE u.username LIKE 'seed%' GROUP BY t.user_id", Integer.class);
+    }
+
+    private static int mostCommon(List<Integer> sizes) {
+        return sizes.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
+                .entrySet().stream().max(Map.Entry.comparingByValue()).orElseThrow().getKey();
+    }
+
+    private static ProductResponse product(Long id) {
+        return ProductResponse.builder()
+                .id(id)
+                .title("Product " + id)
+                .price(id + 0.99)
+                .discountPercentage(12.5)
+                .thumbnail("https://example.com/" + id + ".png")
+                .stock(STOCK)
+                .build();
+    }
+}
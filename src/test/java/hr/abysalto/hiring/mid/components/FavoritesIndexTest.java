@@ -0,0 +1,105 @@
+package hr.abysalto.hiring.mid.components;
+
+import hr.abysalto.hiring.mid.domain.model.User;
+import hr.abysalto.hiring.mid.domain.repository.FavoriteProductRepository;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FavoritesIndexTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final FavoriteProductRepository favoriteProductRepository = mock(FavoriteProductRepository.class);
+    private FavoritesIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(User.builder().userId(1L).username("alice").build()));
+        when(favoriteProductRepository.findProductIdsByUserId(1L)).thenReturn(List.of(10L, 20L));
+        index = new FavoritesIndex(userRepository, favoriteProductRepository, 100);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void loadsAUserOnceAndServesLaterCallsFromMemory() {
+        assertThat(index.getIfLoaded("alice")).isNull();
+
+        ProductIdSet favorites = index.get("alice");
+        index.get("alice");
+
+        assertThat(favorites.contains(10L)).isTrue();
+        assertThat(favorites.contains(30L)).isFalse();
+        assertThat(index.getIfLoaded("alice")).isSameAs(favorites);
+        verify(favoriteProductRepository, times(1)).findProductIdsByUserId(1L);
+    }
+
+    @Test
+    void unknownUserHasNoFavorites() {
+        assertThat(index.get("nobody")).isNull();
+    }
+
+    @Test
+    void changesApplyOnlyOnceTheirTransactionCommits() {
+        index.get("alice");
+
+        TransactionSynchronizationManager.initSynchronization();
+        index.added("alice", List.of(30L));
+        index.removed("alice", List.of(10L));
+        assertThat(index.get("alice").contains(30L)).isFalse();
+        assertThat(index.get("alice").contains(10L)).isTrue();
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        ProductIdSet favorites = index.get("alice");
+        assertThat(favorites.contains(30L)).isTrue();
+        assertThat(favorites.contains(10L)).isFalse();
+        assertThat(favorites.contains(20L)).isTrue();
+    }
+
+    @Test
+    void changesOfARolledBackTransactionAreDropped() {
+        index.get("alice");
+
+        TransactionSynchronizationManager.initSynchronization();
+        index.added("alice", List.of(30L));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(index.get("alice").contains(30L)).isFalse();
+    }
+
+    @Test
+    void usersThatAreNotLoadedReadTheChangeFromTheDatabase() {
+        index.added("alice", List.of(30L));
+        assertThat(index.getIfLoaded("alice")).isNull();
+
+        when(favoriteProductRepository.findProductIdsByUserId(1L)).thenReturn(List.of(10L, 20L, 30L));
+        assertThat(index.get("alice").size()).isEqualTo(3);
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
@@ -0,0 +1,138 @@
+package hr.abysalto.hiring.mid.components;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class H2TriggerReplicatorTest {
+
+    private static final String SCHEMA = """
+            CREATE TABLE users (user_id BIGINT PRIMARY KEY, name VARCHAR(64) NOT NULL UNIQUE);
+            CREATE TABLE favorites (user_id BIGINT, product_id BIGINT, note VARCHAR(64), PRIMARY KEY (user_id, product_id));
+            """;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private DataSource primaryDataSource;
+    private H2TriggerReplicator replicator;
+
+    @BeforeEach
+    void setUp() {
+        primaryDataSource = database("primary");
+        DataSource replicaDataSource = database("replica");
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        primary.update("INSERT INTO users (user_id, name) VALUES (1, 'seeded')");
+        replicator = new H2TriggerReplicator(primaryDataSource, replicaDataSource, 10, 2);
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        replicator.stop();
+    }
+
+    @Test
+    void seedsTheReplicaBeforeReportingProgress() {
+        assertThat(replicator.appliedUpTo()).isEmpty();
+
+        replicator.start();
+
+        assertThat(replicator.appliedUpTo()).isPresent();
+        assertThat(rows(replica, "users")).isEqualTo(rows(primary, "users"));
+    }
+
+    @Test
+    void appliesInsertsUpdatesAndDeletesOfCommittedTransactions() throws Exception {
+        replicator.start();
+
+        primary.update("INSERT INTO users (user_id, name) VALUES (2, 'two'), (3, 'three'), (4, 'four')");
+        primary.update("UPDATE users SET name = 'renamed' WHERE user_id = 2");
+        primary.update("DELETE FROM users WHERE user_id = 1");
+        primary.update("INSERT INTO favorites (user_id, product_id, note) VALUES (2, 10, 'a'), (2, 11, 'b')");
+        primary.update("UPDATE favorites SET note = 'c' WHERE user_id = 2 AND product_id = 11");
+        awaitApplied();
+
+        assertThat(rows(replica, "users")).isEqualTo(rows(primary, "users"));
+        assertThat(rows(replica, "favorites")).isEqualTo(rows(primary, "favorites"));
+        assertThat(primary.queryForObject("SELECT COUNT(*) FROM replication_log", Long.class)).isZero();
+    }
+
+    @Test
+    void rowWhoseKeyChangesMovesOnTheReplica() throws Exception {
+        replicator.start();
+
+        primary.update("UPDATE users SET user_id = 5 WHERE user_id = 1");
+        awaitApplied();
+
+        assertThat(replica.queryForList("SELECT user_id FROM users", Long.class)).containsExactly(5L);
+    }
+
+    @Test
+    void uniqueValueMovingBetweenRowsIsRepairedByCopyingTheTable() throws Exception {
+        replicator.start();
+
+        // Swapping two names cannot be replayed as merges of current rows in any order
+        primary.update("INSERT INTO users (user_id, name) VALUES (2, 'other')");
+        awaitApplied();
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(primaryDataSource));
+        transaction.executeWithoutResult(status -> {
+            primary.update("UPDATE users SET name = 'swap' WHERE user_id = 1");
+            primary.update("UPDATE users SET name = 'seeded' WHERE user_id = 2");
+            primary.update("UPDATE users SET name = 'other' WHERE user_id = 1");
+        });
+        awaitApplied();
+
+        assertThat(rows(replica, "users")).isEqualTo(rows(primary, "users"));
+    }
+
+    @Test
+    void rolledBackChangesAreNotReplicated() throws Exception {
+        replicator.start();
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(primaryDataSource));
+
+        assertThatThrownBy(() -> transaction.executeWithoutResult(status -> {
+            primary.update("INSERT INTO users (user_id, name) VALUES (9, 'rolled back')");
+            throw new IllegalStateException("rollback");
+        })).hasMessage("rollback");
+        awaitApplied();
+
+        assertThat(replica.queryForList("SELECT user_id FROM users", Long.class)).containsExactly(1L);
+        assertThat(primary.queryForObject("SELECT COUNT(*) FROM replication_log", Long.class)).isZero();
+    }
+
+    /**
+     * Waits until the replica reports a point after this call, so everything committed before it is applied.
+     */
+    private void awaitApplied() throws InterruptedException {
+        long committed = System.nanoTime();
+        long deadline = committed + TimeUnit.SECONDS.toNanos(10);
+        while (replicator.appliedUpTo().getAsLong() - committed <= 0) {
+            assertThat(System.nanoTime()).as("replica did not catch up").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static List<Map<String, Object>> rows(JdbcTemplate jdbcTemplate, String table) {
+        return jdbcTemplate.queryForList("SELECT * FROM " + table + " ORDER BY 1, 2");
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:replication-" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        new JdbcTemplate(dataSource).execute(SCHEMA);
+        return dataSource;
+    }
+}
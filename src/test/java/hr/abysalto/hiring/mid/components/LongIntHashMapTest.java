@@ -0,0 +1,88 @@
+package hr.abysalto.hiring.mid.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongIntHashMapTest {
+
+    @Test
+    void removingFromACollidingChainKeepsTheRestReachable() {
+        // Eight slots while the map holds at most four keys; pick keys that all hash to the last slot so the
+        // chain wraps around to the start of the table
+        LongIntHashMap map = new LongIntHashMap(4);
+        List<Long> colliding = keysWithHome(7, 8, 4);
+        colliding.forEach(key -> map.addTo(key, 1));
+
+        map.addTo(colliding.get(0), -1);
+        map.addTo(colliding.get(2), -1);
+
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.get(colliding.get(0))).isZero();
+        assertThat(map.get(colliding.get(1))).isEqualTo(1);
+        assertThat(map.get(colliding.get(2))).isZero();
+        assertThat(map.get(colliding.get(3))).isEqualTo(1);
+
+        map.addTo(colliding.get(0), 5);
+        assertThat(map.get(colliding.get(0))).isEqualTo(5);
+        assertThat(map.size()).isEqualTo(3);
+    }
+
+    @Test
+    void countsDroppingToZeroOrBelowRemoveTheKey() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.addTo(1, 3);
+        map.addTo(1, -5);
+        map.addTo(2, -1);
+
+        assertThat(map.size()).isZero();
+        assertThat(map.get(1)).isZero();
+        assertThat(map.get(2)).isZero();
+        assertThatThrownBy(() -> map.addTo(Long.MIN_VALUE, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void matchesAHashMapUnderRandomAddsAndRemovals() {
+        Random random = new Random(42);
+        LongIntHashMap map = new LongIntHashMap(16);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            // A small key range keeps chains long and deletions frequent
+            long key = random.nextInt(300) - 150;
+            int delta = random.nextInt(7) - 3;
+            map.addTo(key, delta);
+            int count = expected.getOrDefault(key, 0) + delta;
+            if (count > 0) {
+                expected.put(key, count);
+            } else {
+                expected.remove(key);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        Map<Long, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertThat(actual).isEqualTo(expected);
+        for (long key = -150; key < 150; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, 0));
+        }
+    }
+
+    private static List<Long> keysWithHome(int slot, int capacity, int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 1; keys.size() < count; key++) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            if (((int) (h ^ (h >>> 32)) & (capacity - 1)) == slot) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
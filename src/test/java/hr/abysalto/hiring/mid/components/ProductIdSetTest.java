@@ -0,0 +1,108 @@
+package hr.abysalto.hiring.mid.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductIdSetTest {
+
+    @Test
+    void holdsIdsInsideAndOutsideTheBitsetRange() {
+        long large = ProductIdSet.BITSET_LIMIT + 7;
+        ProductIdSet set = ProductIdSet.of(List.of(0L, 63L, 64L, ProductIdSet.BITSET_LIMIT - 1, large, -3L, Long.MAX_VALUE));
+
+        assertThat(set.size()).isEqualTo(7);
+        for (long id : new long[]{0, 63, 64, ProductIdSet.BITSET_LIMIT - 1, large, -3, Long.MAX_VALUE}) {
+            assertThat(set.contains(id)).as("contains %d", id).isTrue();
+        }
+        for (long id : new long[]{1, 62, 65, ProductIdSet.BITSET_LIMIT, large + 1, -4, Long.MIN_VALUE}) {
+            assertThat(set.contains(id)).as("contains %d", id).isFalse();
+        }
+    }
+
+    @Test
+    void duplicatesAreCountedOnce() {
+        long large = ProductIdSet.BITSET_LIMIT * 2;
+        ProductIdSet set = ProductIdSet.of(List.of(5L, 5L, large, large)).with(List.of(5L, large));
+
+        assertThat(set.size()).isEqualTo(2);
+    }
+
+    @Test
+    void changesReturnANewSetAndLeaveTheOriginal() {
+        long large = ProductIdSet.BITSET_LIMIT + 1;
+        ProductIdSet original = ProductIdSet.of(List.of(1L, large));
+
+        ProductIdSet added = original.with(List.of(2L, 1000L, large + 1));
+        ProductIdSet removed = original.without(List.of(1L, large));
+
+        assertThat(original.size()).isEqualTo(2);
+        assertThat(original.contains(2L)).isFalse();
+        assertThat(original.contains(1L)).isTrue();
+        assertThat(original.contains(large)).isTrue();
+
+        assertThat(added.size()).isEqualTo(5);
+        assertThat(added.contains(1000L)).isTrue();
+        assertThat(added.contains(large + 1)).isTrue();
+
+        assertThat(removed.size()).isZero();
+        assertThat(removed.contains(1L)).isFalse();
+        assertThat(removed.contains(large)).isFalse();
+        assertThat(ProductIdSet.EMPTY.size()).isZero();
+    }
+
+    @Test
+    void removingIdsThatAreNotThereChangesNothing() {
+        ProductIdSet set = ProductIdSet.of(List.of(3L, ProductIdSet.BITSET_LIMIT + 3));
+
+        ProductIdSet same = set.without(List.of(4L, 100_000L, ProductIdSet.BITSET_LIMIT + 4, -1L));
+
+        assertThat(same.size()).isEqualTo(2);
+        assertThat(same.contains(3L)).isTrue();
+        assertThat(same.contains(ProductIdSet.BITSET_LIMIT + 3)).isTrue();
+    }
+
+    @Test
+    void visitsEveryIdOnce() {
+        long large = ProductIdSet.BITSET_LIMIT + 5;
+        ProductIdSet set = ProductIdSet.of(List.of(0L, 63L, 64L, 129L, large, -2L));
+
+        List<Long> visited = new ArrayList<>();
+        set.forEach(visited::add);
+
+        assertThat(visited).containsExactlyInAnyOrder(0L, 63L, 64L, 129L, large, -2L);
+    }
+
+    @Test
+    void matchesAHashSetUnderRandomChanges() {
+        Random random = new Random(34);
+        Set<Long> expected = new HashSet<>();
+        ProductIdSet set = ProductIdSet.EMPTY;
+
+        for (int round = 0; round < 2_000; round++) {
+            // Mostly dense catalog IDs, some far outside the bitset
+            long id = random.nextInt(10) == 0 ? random.nextLong() : random.nextInt(300);
+            if (random.nextBoolean()) {
+                set = set.with(List.of(id));
+                expected.add(id);
+            } else {
+                set = set.without(List.of(id));
+                expected.remove(id);
+            }
+        }
+
+        assertThat(set.size()).isEqualTo(expected.size());
+        for (long id : expected) {
+            assertThat(set.contains(id)).isTrue();
+        }
+        for (long id = 0; id < 300; id++) {
+            assertThat(set.contains(id)).isEqualTo(expected.contains(id));
+        }
+    }
+}
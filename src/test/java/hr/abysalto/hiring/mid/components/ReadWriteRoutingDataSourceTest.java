@@ -0,0 +1,162 @@
+package hr.abysalto.hiring.mid.components;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private static final long MAX_LAG_MS = 10_000;
+
+    private volatile OptionalLong appliedUpTo = OptionalLong.empty();
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = database("primary");
+        DataSource replica = database("replica");
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, () -> appliedUpTo, MAX_LAG_MS);
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void clearUser() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsUseAFreshReplicaAndEverythingElseThePrimary() {
+        replicaCaughtUp();
+
+        assertThat(readOnlyServer()).isEqualTo("replica");
+        assertThat(readWriteServer()).isEqualTo("primary");
+        assertThat(server()).isEqualTo("primary");
+    }
+
+    @Test
+    void replicaThatIsNotSeededOrLagsTooFarIsNotUsed() {
+        assertThat(readOnlyServer()).isEqualTo("primary");
+
+        appliedUpTo = OptionalLong.of(System.nanoTime() - 2 * MAX_LAG_MS * 1_000_000);
+        assertThat(readOnlyServer()).isEqualTo("primary");
+    }
+
+    @Test
+    void usersReadTheirOwnCommitsWhileOthersUseTheReplica() {
+        replicaCaughtUp();
+        actAs("alice");
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("INSERT INTO items (id) VALUES (?)", 1));
+
+        assertThat(readOnlyServer()).isEqualTo("primary");
+        actAs("bob");
+        assertThat(readOnlyServer()).isEqualTo("replica");
+
+        replicaCaughtUp();
+        actAs("alice");
+        assertThat(readOnlyServer()).isEqualTo("replica");
+    }
+
+    @Test
+    void rolledBackTransactionsAreNotRemembered() {
+        replicaCaughtUp();
+        actAs("alice");
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO items (id) VALUES (?)", 1);
+            status.setRollbackOnly();
+        });
+
+        assertThat(readOnlyServer()).isEqualTo("replica");
+    }
+
+    @Test
+    void writesOutsideATransactionAreRemembered() {
+        replicaCaughtUp();
+        actAs("alice");
+        jdbcTemplate.update("INSERT INTO items (id) VALUES (?)", 1);
+        actAs("bob");
+        jdbcTemplate.execute("DELETE FROM items");
+
+        actAs("alice");
+        assertThat(readOnlyServer()).isEqualTo("primary");
+        actAs("bob");
+        assertThat(readOnlyServer()).isEqualTo("primary");
+    }
+
+    @Test
+    void queriesOutsideATransactionAreNotWrites() {
+        replicaCaughtUp();
+        actAs("alice");
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Long.class);
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items WHERE id > ?", Long.class, 0);
+
+        assertThat(readOnlyServer()).isEqualTo("replica");
+    }
+
+    @Test
+    void readersWithoutAUserWaitForEveryonesWrites() {
+        replicaCaughtUp();
+        actAs("alice");
+        jdbcTemplate.update("INSERT INTO items (id) VALUES (?)", 1);
+
+        // E.g. a scheduler thread the request's security context does not reach
+        SecurityContextHolder.clearContext();
+        assertThat(readOnlyServer()).isEqualTo("primary");
+
+        replicaCaughtUp();
+        assertThat(readOnlyServer()).isEqualTo("replica");
+    }
+
+    private void replicaCaughtUp() {
+        appliedUpTo = OptionalLong.of(System.nanoTime());
+    }
+
+    private String readOnlyServer() {
+        return readOnly.execute(status -> server());
+    }
+
+    private String readWriteServer() {
+        return readWrite.execute(status -> server());
+    }
+
+    private String server() {
+        return jdbcTemplate.queryForObject("SELECT name FROM server", String.class);
+    }
+
+    private static void actAs(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(username, null, List.of()));
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:routing-" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE server (name VARCHAR(16))");
+        jdbcTemplate.update("INSERT INTO server (name) VALUES (?)", name);
+        jdbcTemplate.execute("CREATE TABLE items (id BIGINT PRIMARY KEY)");
+        return dataSource;
+    }
+}
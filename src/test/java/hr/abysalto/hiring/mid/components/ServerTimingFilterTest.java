@@ -0,0 +1,111 @@
+package hr.abysalto.hiring.mid.components;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(OutputCaptureExtension.class)
+class ServerTimingFilterTest {
+
+    @Test
+    void reportsTheStagesSeenBeforeTheBodyInTheHeader() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new ServerTimingFilter(60_000).doFilter(request("/api/cart"), response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                RequestTimings.time(RequestTimings.Stage.DB, () -> { });
+                RequestTimings.time(RequestTimings.Stage.DB, () -> { });
+                RequestTimings.count(RequestTimings.Stage.CACHE);
+                response.getWriter().write("{}");
+                // After the body has started, too late for the header
+                RequestTimings.count(RequestTimings.Stage.UPSTREAM);
+            }
+        }));
+
+        assertThat(response.getHeader("Server-Timing"))
+                .matches("db;dur=\\d+\\.\\d{3};desc=\"2 queries\", cache;dur=0\\.000;desc=\"1 hit\", app;dur=\\d+\\.\\d{3}");
+        assertThat(response.getContentAsString()).isEqualTo("{}");
+    }
+
+    @Test
+    void setsTheHeaderOnResponsesWithoutABody() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new ServerTimingFilter(60_000).doFilter(request("/api/cart"), response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+            }
+        }));
+
+        assertThat(response.getHeader("Server-Timing")).startsWith("app;dur=");
+    }
+
+    @Test
+    void logsSlowRequestsWithTheirBreakdownOnceTheyComplete(CapturedOutput output) throws Exception {
+        ServerTimingFilter filter = new ServerTimingFilter(0);
+
+        filter.doFilter(request("/api/cart"), new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                RequestTimings.time(RequestTimings.Stage.USER, () -> { });
+                response.getWriter().write("{}");
+            }
+        }));
+        assertThat(output).containsPattern("Slow request GET /api/cart answered 200 in \\d+ ms: user;dur=[0-9.]+;desc=\"1 lookup\", "
+                + "app;dur=[0-9.]+, write;dur=[0-9.]+");
+
+        // An async request is logged when it completes, not when its first dispatch returns
+        MockHttpServletRequest async = request("/api/products");
+        filter.doFilter(async, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                request.startAsync();
+            }
+        }));
+        assertThat(output).doesNotContain("Slow request GET /api/products");
+        async.getAsyncContext().complete();
+        assertThat(output).contains("Slow request GET /api/products answered 200");
+    }
+
+    @Test
+    void neverLogsEventStreams(CapturedOutput output) throws Exception {
+        MockHttpServletRequest request = request("/api/events");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new ServerTimingFilter(0).doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                request.startAsync();
+                response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE + ";charset=UTF-8");
+                response.getWriter().write(":\n\n");
+                response.flushBuffer();
+            }
+        }));
+        request.getAsyncContext().complete();
+
+        assertThat(response.getHeader("Server-Timing")).startsWith("app;dur=");
+        assertThat(output).doesNotContain("Slow request");
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setAsyncSupported(true);
+        request.setDispatcherType(DispatcherType.REQUEST);
+        return request;
+    }
+}
@@ -0,0 +1,129 @@
+package hr.abysalto.hiring.mid.components;
+
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.domain.model.User;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import hr.abysalto.hiring.mid.dto.response.PaginatedProductResponse;
+import hr.abysalto.hiring.mid.dto.response.ProductResponse;
+import hr.abysalto.hiring.mid.security.JwtUtil;
+import hr.abysalto.hiring.mid.security.TotpUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs a warm-up of its own against the application's real web server, one page and three rounds of requests long.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class StartupWarmupTest {
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Autowired
+    private TrendingTracker trendingTracker;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private TotpUtil totpUtil;
+
+    @MockitoBean
+    private DummyJsonClient dummyJsonClient;
+
+    private String username;
+
+    @BeforeEach
+    void setUp() {
+        username = "warmup-" + UUID.randomUUID();
+        when(dummyJsonClient.getProductsAsync(anyInt(), anyInt(), any(), any())).thenAnswer(invocation -> Mono.just(
+                PaginatedProductResponse.builder()
+                        .products(List.of(ProductResponse.builder().id(1L).title("Product 1").price(9.99).build()))
+                        .total(1)
+                        .limit(20)
+                        .build()));
+        when(dummyJsonClient.getProductsByIdsAsync(any())).thenReturn(Mono.just(Map.of()));
+    }
+
+    @Test
+    void exercisesTheReadPathsAsAUserItDeletesAfterwards() {
+        warmUp();
+
+        // One page prefetched, then one listing in each of the three rounds
+        verify(dummyJsonClient, times(4)).getProductsAsync(anyInt(), anyInt(), any(), any());
+        assertThat(userRepository.findByUsername(username)).isEmpty();
+    }
+
+    @Test
+    void reusesAndDeletesAUserLeftByAnUnfinishedWarmUp() {
+        User leftOver = save(username + "@localhost", false);
+
+        warmUp();
+
+        verify(dummyJsonClient, times(4)).getProductsAsync(anyInt(), anyInt(), any(), any());
+        assertThat(userRepository.findById(leftOver.getUserId())).isEmpty();
+    }
+
+    @Test
+    void neverActsAsSomeoneElsesAccountOrAnAdmin() {
+        User registered = save(username + "@example.com", false);
+
+        warmUp();
+
+        verify(dummyJsonClient, times(1)).getProductsAsync(anyInt(), anyInt(), any(), any());
+        assertThat(userRepository.findById(registered.getUserId())).isPresent();
+
+        userRepository.delete(registered);
+        User admin = save(username + "@localhost", true);
+        clearInvocations(dummyJsonClient);
+
+        warmUp();
+
+        verify(dummyJsonClient, times(1)).getProductsAsync(anyInt(), anyInt(), any(), any());
+        assertThat(userRepository.findById(admin.getUserId())).get().extracting(User::isAdmin).isEqualTo(true);
+    }
+
+    private void warmUp() {
+        StartupWarmup warmup = new StartupWarmup(dummyJsonClient, trendingTracker, userRepository, passwordEncoder, jwtUtil,
+                totpUtil, true, 1, 20, 20, 3, username, 30_000);
+        warmup.warmUp(new ApplicationReadyEvent(new SpringApplication(), new String[0], context, Duration.ZERO));
+    }
+
+    private User save(String email, boolean admin) {
+        return userRepository.save(User.builder()
+                .username(username)
+                .email(email)
+                .password("unused")
+                .firstName("Warm-up")
+                .lastName("Test")
+                .admin(admin)
+                .build());
+    }
+}
@@ -0,0 +1,118 @@
+package hr.abysalto.hiring.mid.components;
+
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.dto.response.ProductResponse;
+import hr.abysalto.hiring.mid.exception.InsufficientStockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class StockReservationEngineTest {
+
+    private static final int STOCK = 10;
+
+    @Autowired
+    private StockReservationEngine stockReservations;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private DummyJsonClient dummyJsonClient;
+
+    private TransactionTemplate transactionTemplate;
+    private Long productId;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // Counters outlive a test, so each one holds a product and user of its own
+        productId = ThreadLocalRandom.current().nextLong(1_000_000, Long.MAX_VALUE);
+        userId = ThreadLocalRandom.current().nextLong(1_000_000, Long.MAX_VALUE);
+        when(dummyJsonClient.getProductById(anyLong())).thenAnswer(invocation -> ProductResponse.builder()
+                .id(invocation.getArgument(0))
+                .stock(STOCK)
+                .build());
+    }
+
+    @Test
+    void holdTakenInARolledBackTransactionIsReleased() {
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            stockReservations.reserve(userId, productId, 3);
+            assertThat(stockReservations.getAvailable(productId)).isEqualTo(STOCK - 3);
+            throw new IllegalStateException("cart write failed");
+        })).hasMessage("cart write failed");
+
+        assertThat(stockReservations.getAvailable(productId)).isEqualTo(STOCK);
+        stockReservations.reserve(userId + 1, productId, STOCK);
+        assertThat(stockReservations.getAvailable(productId)).isZero();
+    }
+
+    @Test
+    void rollbackReturnsHoldsToWhatTheyWereBeforeTheTransaction() {
+        stockReservations.reserve(userId, productId, 2);
+
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            stockReservations.reserve(userId, productId, 3);
+            // Compensation the caller already made is undone too, leaving the hold it had before
+            stockReservations.cancel(userId, productId, 3);
+            stockReservations.setReserved(userId, productId, 6);
+            stockReservations.release(userId, productId);
+            throw new IllegalStateException("cart write failed");
+        })).hasMessage("cart write failed");
+
+        assertThat(stockReservations.getAvailable(productId)).isEqualTo(STOCK - 2);
+    }
+
+    @Test
+    void holdsOfACommittedTransactionAreKept() {
+        transactionTemplate.executeWithoutResult(status -> stockReservations.reserveAll(userId, Map.of(productId, 4)));
+
+        assertThat(stockReservations.getAvailable(productId)).isEqualTo(STOCK - 4);
+    }
+
+    @Test
+    void checkoutRolledBackReturnsTheSoldStockAndReleasesTheHold() {
+        stockReservations.reserve(userId, productId, 3);
+
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            stockReservations.commit(userId, Map.of(productId, 5));
+            assertThat(stockReservations.getAvailable(productId)).isEqualTo(STOCK - 5);
+            throw new IllegalStateException("order insert failed");
+        })).hasMessage("order insert failed");
+
+        assertThat(stockReservations.getAvailable(productId)).isEqualTo(STOCK);
+    }
+
+    @Test
+    void checkoutCommittedKeepsTheStockSold() {
+        stockReservations.reserve(userId, productId, 3);
+
+        transactionTemplate.executeWithoutResult(status -> stockReservations.commit(userId, Map.of(productId, 3)));
+
+        assertThat(stockReservations.getAvailable(productId)).isEqualTo(STOCK - 3);
+    }
+
+    @Test
+    void failedReservationInsideATransactionHoldsNothing() {
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status ->
+                stockReservations.reserve(userId, productId, STOCK + 1)))
+                .isInstanceOf(InsufficientStockException.class);
+
+        assertThat(stockReservations.getAvailable(productId)).isEqualTo(STOCK);
+    }
+}
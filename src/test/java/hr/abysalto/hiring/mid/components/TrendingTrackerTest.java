@@ -0,0 +1,126 @@
+package hr.abysalto.hiring.mid.components;
+
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.components.TrendingTracker.ProductScore;
+import hr.abysalto.hiring.mid.components.TrendingTracker.Ranking;
+import hr.abysalto.hiring.mid.components.TrendingTracker.Signal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Runs trackers of its own against the application's {@code product_trending} table.
+ */
+@SpringBootTest
+class TrendingTrackerTest {
+
+    private static final long HOUR_MS = 3_600_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private DummyJsonClient dummyJsonClient;
+
+    @BeforeEach
+    void emptyTable() {
+        jdbcTemplate.update("DELETE FROM product_trending");
+    }
+
+    @Test
+    void ranksByWeightedScoreAndFavoritesAlone() {
+        TrendingTracker tracker = newTracker(HOUR_MS, 10);
+        record(tracker, 1L, Signal.VIEW, 10);
+        record(tracker, 2L, Signal.FAVORITE, 1);
+        record(tracker, 2L, Signal.VIEW, 1);
+        record(tracker, 3L, Signal.CART_ADD, 3);
+
+        assertThat(tracker.top(Ranking.TRENDING, 10)).isEmpty();
+        tracker.rank();
+
+        // 10 views = 10, 9 for three cart adds, 6 for a favorite and a view
+        assertThat(tracker.top(Ranking.TRENDING, 10)).extracting(ProductScore::productId).containsExactly(1L, 3L, 2L);
+        assertThat(tracker.top(Ranking.TRENDING, 2)).extracting(ProductScore::productId).containsExactly(1L, 3L);
+        assertThat(tracker.top(Ranking.FAVORITES, 10)).extracting(ProductScore::productId).containsExactly(2L);
+    }
+
+    @Test
+    void keepsOnlyTheTopK() {
+        TrendingTracker tracker = newTracker(HOUR_MS, 2);
+        for (long productId = 1; productId <= 5; productId++) {
+            record(tracker, productId, Signal.VIEW, (int) productId);
+        }
+        tracker.rank();
+
+        assertThat(tracker.top(Ranking.TRENDING, 10)).extracting(ProductScore::productId).containsExactly(5L, 4L);
+    }
+
+    @Test
+    void scoresDecayUntilNegligibleProductsAreDropped() throws Exception {
+        TrendingTracker tracker = newTracker(20, 10);
+        record(tracker, 1L, Signal.VIEW, 1);
+        tracker.rank();
+        tracker.flush();
+        assertThat(storedProductIds()).containsExactly(1L);
+
+        // Seven half-lives take one view below the negligible score
+        Thread.sleep(200);
+        tracker.rank();
+        tracker.flush();
+
+        assertThat(tracker.top(Ranking.TRENDING, 10)).isEmpty();
+        assertThat(storedProductIds()).isEmpty();
+    }
+
+    @Test
+    void flushWritesOnlyNewActivityAndReloadDecaysByAge() {
+        TrendingTracker tracker = newTracker(HOUR_MS, 10);
+        record(tracker, 1L, Signal.VIEW, 8);
+        tracker.rank();
+        tracker.flush();
+
+        Timestamp stored = jdbcTemplate.queryForObject("SELECT updated_at FROM product_trending WHERE product_id = 1", Timestamp.class);
+        tracker.rank();
+        tracker.flush();
+        assertThat(jdbcTemplate.queryForObject("SELECT updated_at FROM product_trending WHERE product_id = 1", Timestamp.class))
+                .isEqualTo(stored);
+
+        // As if written an hour ago, one half-life
+        jdbcTemplate.update("UPDATE product_trending SET updated_at = ? WHERE product_id = 1",
+                new Timestamp(System.currentTimeMillis() - HOUR_MS));
+        TrendingTracker restarted = newTracker(HOUR_MS, 10);
+
+        List<ProductScore> top = restarted.top(Ranking.TRENDING, 10).stream()
+                .filter(score -> score.productId() == 1L)
+                .toList();
+        assertThat(top).extracting(ProductScore::productId).containsExactly(1L);
+        assertThat(top.get(0).views()).isCloseTo(4, within(0.01));
+    }
+
+    private TrendingTracker newTracker(long halfLifeMs, int topK) {
+        TrendingTracker tracker = new TrendingTracker(jdbcTemplate, halfLifeMs, topK);
+        tracker.load();
+        return tracker;
+    }
+
+    private List<Long> storedProductIds() {
+        // The application's own tracker may flush its products meanwhile
+        return jdbcTemplate.queryForList("SELECT product_id FROM product_trending WHERE product_id IN (1, 2, 3) ORDER BY product_id",
+                Long.class);
+    }
+
+    private static void record(TrendingTracker tracker, Long productId, Signal signal, int times) {
+        for (int i = 0; i < times; i++) {
+            tracker.record(productId, signal);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package hr.abysalto.hiring.mid.components;
+
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.domain.event.CartChangedEvent;
+import hr.abysalto.hiring.mid.domain.model.User;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import hr.abysalto.hiring.mid.dto.response.CartDeltaResponse;
+import hr.abysalto.hiring.mid.security.JwtUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Streams run against MockMvc, whose responses take what the dispatcher writes. One dispatcher thread is
+ * stalled by an event that blocks while it is serialized, which lets a test hold a stream busy.
+ */
+@SpringBootTest(properties = {
+        "events.dispatch-threads=1",
+        "events.max-queued-per-connection=3"
+})
+@AutoConfigureMockMvc
+class UserEventBroadcasterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserEventBroadcaster broadcaster;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @MockitoBean
+    private DummyJsonClient dummyJsonClient;
+
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    @AfterEach
+    void releaseDispatcher() {
+        unblock.countDown();
+    }
+
+    @Test
+    void deliversTheUsersChangesInOrder() throws Exception {
+        Long userId = createUser();
+        MockHttpServletResponse stream = subscribe(userId);
+
+        // As many as the stream may have queued
+        for (int quantity = 1; quantity <= 3; quantity++) {
+            broadcaster.onCartChanged(new CartChangedEvent(userId, delta(userId, quantity)));
+        }
+
+        await(() -> content(stream).contains("\"totalQuantity\":3"));
+        String content = content(stream);
+        for (int quantity = 1; quantity < 3; quantity++) {
+            assertThat(content.indexOf("\"totalQuantity\":" + quantity))
+                    .isLessThan(content.indexOf("\"totalQuantity\":" + (quantity + 1)));
+        }
+        assertThat(content).contains("event:cart");
+    }
+
+    @Test
+    void streamThatStopsKeepingUpIsClosedWithoutHoldingUpOthers() throws Exception {
+        Long slowUserId = createUser();
+        subscribe(slowUserId);
+        int connectionsBefore = broadcaster.getConnectionCount();
+
+        broadcaster.onCartChanged(new CartChangedEvent(slowUserId, new BlockingDelta(slowUserId, unblock)));
+        // Closing the stream waits for the stalled send, so the overflow is published off the test thread
+        CompletableFuture<Void> overflow = CompletableFuture.runAsync(() -> {
+            for (int quantity = 1; quantity <= 4; quantity++) {
+                broadcaster.onCartChanged(new CartChangedEvent(slowUserId, delta(slowUserId, quantity)));
+            }
+        });
+
+        await(() -> broadcaster.getConnectionCount() == connectionsBefore - 1);
+        unblock.countDown();
+        overflow.get(10, TimeUnit.SECONDS);
+
+        Long otherUserId = createUser();
+        MockHttpServletResponse other = subscribe(otherUserId);
+        broadcaster.onCartChanged(new CartChangedEvent(otherUserId, delta(otherUserId, 7)));
+        await(() -> content(other).contains("\"totalQuantity\":7"));
+    }
+
+    @Test
+    void heartbeatGoesOnlyToIdleStreams() throws Exception {
+        Long busyUserId = createUser();
+        Long idleUserId = createUser();
+        MockHttpServletResponse busy = subscribe(busyUserId);
+        MockHttpServletResponse idle = subscribe(idleUserId);
+
+        broadcaster.onCartChanged(new CartChangedEvent(busyUserId, new BlockingDelta(busyUserId, unblock)));
+        broadcaster.onCartChanged(new CartChangedEvent(busyUserId, delta(busyUserId, 2)));
+        broadcaster.heartbeat();
+        unblock.countDown();
+
+        await(() -> content(idle).contains(":keepalive"));
+        await(() -> content(busy).contains("\"totalQuantity\":2"));
+        assertThat(content(busy)).doesNotContain("keepalive");
+    }
+
+    private MockHttpServletResponse subscribe(Long userId) throws Exception {
+        String username = userRepository.findById(userId).orElseThrow().getUsername();
+        return mockMvc.perform(get("/api/events")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateAccessToken(username, Map.of())))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+    }
+
+    private Long createUser() {
+        String username = "events-" + UUID.randomUUID();
+        return userRepository.save(User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("unused")
+                .firstName("Event")
+                .lastName("Stream")
+                .build()).getUserId();
+    }
+
+    private static CartDeltaResponse delta(Long userId, int totalQuantity) {
+        return CartDeltaResponse.builder().userId(userId).totalQuantity(totalQuantity).build();
+    }
+
+    private static String content(MockHttpServletResponse response) {
+        try {
+            return response.getContentAsString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Holds the dispatcher thread while it is written to the stream.
+     */
+    private static class BlockingDelta extends CartDeltaResponse {
+
+        private final CountDownLatch unblock;
+
+        BlockingDelta(Long userId, CountDownLatch unblock) {
+            setUserId(userId);
+            this.unblock = unblock;
+        }
+
+        @Override
+        public int getTotalQuantity() {
+            try {
+                unblock.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.getTotalQuantity();
+        }
+    }
+}
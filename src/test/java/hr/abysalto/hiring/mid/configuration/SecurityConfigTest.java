@@ -0,0 +1,139 @@
+package hr.abysalto.hiring.mid.configuration;
+
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.domain.model.User;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import hr.abysalto.hiring.mid.security.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "outbox.enabled=true",
+        "outbox.changelog.directory=target/security-config-test-changelog",
+        "audit.enabled=true",
+        "audit.directory=target/security-config-test-audit",
+        "jfr.endpoint.enabled=true",
+        "cache.admin.enabled=true"
+})
+@AutoConfigureMockMvc
+class SecurityConfigTest {
+
+    private static final String ADMIN = "actuator-admin";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @MockitoBean
+    private DummyJsonClient dummyJsonClient;
+
+    @Test
+    void healthAndInfoArePublic() throws Exception {
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/health/liveness")).andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/info")).andExpect(status().isOk());
+    }
+
+    @Test
+    void otherEndpointsRequireTheAdminRole() throws Exception {
+        String user = bearer("actuator-user-" + UUID.randomUUID());
+
+        mockMvc.perform(get("/actuator/changelog")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/changelog").header(HttpHeaders.AUTHORIZATION, user))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/actuator/changelog/intruder")
+                        .header(HttpHeaders.AUTHORIZATION, user)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"offset\": 0}"))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(get("/actuator/auditevents")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/auditevents").header(HttpHeaders.AUTHORIZATION, user))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(get("/actuator/changelog").header(HttpHeaders.AUTHORIZATION, bearer(ADMIN)))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/actuator/changelog/admin-consumer")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(ADMIN))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"offset\": -1}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/actuator/auditevents").header(HttpHeaders.AUTHORIZATION, bearer(ADMIN)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void flightRecordingsRequireTheAdminRole() throws Exception {
+        String user = bearer("actuator-user-" + UUID.randomUUID());
+
+        mockMvc.perform(post("/actuator/flightrecorder")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"durationSeconds\": 1}"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/actuator/flightrecorder")
+                        .header(HttpHeaders.AUTHORIZATION, user)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"durationSeconds\": 1}"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/flightrecorder/1").header(HttpHeaders.AUTHORIZATION, user))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/actuator/flightrecorder/1").header(HttpHeaders.AUTHORIZATION, user))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(get("/actuator/flightrecorder").header(HttpHeaders.AUTHORIZATION, bearer(ADMIN)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void cacheAdministrationRequiresTheAdminRole() throws Exception {
+        String user = bearer("actuator-user-" + UUID.randomUUID());
+
+        mockMvc.perform(delete("/actuator/cacheadmin/products").param("key", "*"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/actuator/cacheadmin/products").param("key", "*").header(HttpHeaders.AUTHORIZATION, user))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/actuator/cacheadmin/product")
+                        .header(HttpHeaders.AUTHORIZATION, user)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"keys\": \"1,2\"}"))
+                .andExpect(status().isForbidden());
+        verifyNoInteractions(dummyJsonClient);
+
+        mockMvc.perform(get("/actuator/cacheadmin").header(HttpHeaders.AUTHORIZATION, bearer(ADMIN)))
+                .andExpect(status().isOk());
+    }
+
+    private String bearer(String username) {
+        if (userRepository.findByUsername(username).isEmpty()) {
+            userRepository.save(User.builder()
+                    .username(username)
+                    .email(username + "@example.com")
+                    .password("unused")
+                    .firstName("Actuator")
+                    .lastName("Test")
+                    .admin(ADMIN.equals(username))
+                    .build());
+        }
+        return "Bearer " + jwtUtil.generateAccessToken(username, Map.of());
+    }
+}
@@ -0,0 +1,170 @@
+package hr.abysalto.hiring.mid.controller;
+
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.domain.model.User;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import hr.abysalto.hiring.mid.dto.request.FavoriteBatchRequest;
+import hr.abysalto.hiring.mid.dto.response.PaginatedProductResponse;
+import hr.abysalto.hiring.mid.dto.response.ProductResponse;
+import hr.abysalto.hiring.mid.exception.ExternalApiException;
+import hr.abysalto.hiring.mid.security.JwtUtil;
+import hr.abysalto.hiring.mid.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "products.reactive.enabled=true",
+        "request.deadline-ms=500"
+})
+@AutoConfigureMockMvc
+class ReactiveProductBrowseControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @MockitoBean
+    private DummyJsonClient dummyJsonClient;
+
+    private String username;
+
+    @BeforeEach
+    void createUser() {
+        username = "reactive-" + UUID.randomUUID();
+        userRepository.save(User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("unused")
+                .firstName("Reactive")
+                .lastName("Test")
+                .build());
+        when(dummyJsonClient.getProductsByIds(any())).thenAnswer(invocation ->
+                Map.of(2L, product(2L)));
+    }
+
+    @Test
+    void releasesTheRequestThreadUntilDummyJsonAnswers() throws Exception {
+        Sinks.One<ProductResponse> upstream = Sinks.one();
+        when(dummyJsonClient.getProductByIdAsync(2L)).thenReturn(upstream.asMono());
+        favorite(2L);
+
+        MvcResult result = mockMvc.perform(get("/api/products/2").header(HttpHeaders.AUTHORIZATION, bearer()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // The handler has returned and nothing is written while the upstream call is pending
+        assertThat(result.getResponse().getContentAsString()).isEmpty();
+
+        upstream.tryEmitValue(product(2L));
+        result.getAsyncResult(5000);
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(2))
+                .andExpect(jsonPath("$.favorited").value(true));
+    }
+
+    @Test
+    void upstreamFailuresAndTheDeadlineBecomeServiceUnavailable() throws Exception {
+        when(dummyJsonClient.getProductByIdAsync(anyLong())).thenReturn(Mono.error(new ExternalApiException("DummyJSON API error")));
+        when(dummyJsonClient.searchProductsAsync("slow", 20, 0)).thenReturn(Mono.never());
+
+        MvcResult failed = mockMvc.perform(get("/api/products/3").header(HttpHeaders.AUTHORIZATION, bearer()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        failed.getAsyncResult(5000);
+        mockMvc.perform(asyncDispatch(failed)).andExpect(status().isServiceUnavailable());
+
+        MvcResult timedOut = mockMvc.perform(get("/api/products/search").param("q", "slow").header(HttpHeaders.AUTHORIZATION, bearer()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(timedOut.getAsyncResult(5000)).isInstanceOf(ExternalApiException.class)
+                .hasFieldOrPropertyWithValue("message", "Request deadline of 500 ms exceeded");
+        mockMvc.perform(asyncDispatch(timedOut)).andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void loadsFavoritesOnTheJdbcSchedulerUntilTheIndexHasThem() {
+        favorite(2L);
+        when(dummyJsonClient.getProductsAsync(2, 0, null, null)).thenAnswer(invocation -> Mono.just(page()));
+        // Only controllers of the reactive mode are mapped
+        assertThat(applicationContext.getBeansOfType(ProductBrowseController.class)).isEmpty();
+        assertThat(applicationContext.getBeansOfType(Scheduler.class)).containsKey("jdbcScheduler");
+
+        // The upstream answer is already there, so the composition completes where the favorites are loaded
+        String loadingThread = productService.getProductsAsync(2, 0, null, null, username)
+                .map(response -> Thread.currentThread().getName())
+                .block();
+        PaginatedProductResponse cached = productService.getProductsAsync(2, 0, null, null, username).block();
+        String cachedThread = productService.getProductsAsync(2, 0, null, null, username)
+                .map(response -> Thread.currentThread().getName())
+                .block();
+
+        assertThat(loadingThread).startsWith("jdbc-");
+        assertThat(cachedThread).isEqualTo(Thread.currentThread().getName());
+        assertThat(cached.getProducts()).extracting(ProductResponse::getId, ProductResponse::isFavorited)
+                .containsExactly(tuple(1L, false), tuple(2L, true));
+    }
+
+    private void favorite(Long productId) {
+        FavoriteBatchRequest request = new FavoriteBatchRequest();
+        request.setProductIds(List.of(productId));
+        productService.addAllToFavorites(request, username);
+    }
+
+    private String bearer() {
+        return "Bearer " + jwtUtil.generateAccessToken(username, Map.of());
+    }
+
+    private static PaginatedProductResponse page() {
+        return PaginatedProductResponse.builder()
+                .products(List.of(product(1L), product(2L)))
+                .total(2)
+                .limit(2)
+                .build();
+    }
+
+    private static ProductResponse product(Long id) {
+        return ProductResponse.builder()
+                .id(id)
+                .title("Product " + id)
+                .price(9.99)
+                .stock(100)
+                .build();
+    }
+}
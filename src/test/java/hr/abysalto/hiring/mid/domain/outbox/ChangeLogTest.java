@@ -0,0 +1,220 @@
+package hr.abysalto.hiring.mid.domain.outbox;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Records are 8 header bytes and a 12-byte payload, so each 64-byte segment holds three of them and the segments
+ * start at offsets 0, 60, 120 and so on.
+ */
+class ChangeLogTest {
+
+    private static final int SEGMENT_BYTES = 64;
+    private static final int RECORD_BYTES = 20;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void readsRecordsBackAcrossSegments() throws IOException {
+        try (ChangeLog changeLog = open()) {
+            assertThat(changeLog.append(records(0, 4))).isEqualTo(4 * RECORD_BYTES);
+            assertThat(changeLog.append(records(4, 3))).isEqualTo(7 * RECORD_BYTES);
+
+            List<ChangeLog.Entry> entries = changeLog.read(0, 100);
+            assertThat(entries).map(ChangeLog.Entry::offset).containsExactly(0L, 20L, 40L, 60L, 80L, 100L, 120L);
+            assertThat(entries).map(entry -> text(entry.data())).isEqualTo(texts(0, 7));
+            assertThat(changeLog.segments()).map(ChangeLog.SegmentInfo::baseOffset).containsExactly(0L, 60L, 120L);
+            assertThat(changeLog.read(40, 2)).map(entry -> text(entry.data())).isEqualTo(texts(2, 2));
+            assertThat(changeLog.tail(2)).map(entry -> text(entry.data())).isEqualTo(texts(5, 2));
+        }
+    }
+
+    @Test
+    void reopeningDropsATornWriteAndKeepsAppending() throws IOException {
+        try (ChangeLog changeLog = open()) {
+            changeLog.append(records(0, 5));
+        }
+        // A crash halfway through the next record: its header is written, most of its payload is not
+        write(segment(60), 40, ByteBuffer.allocate(12).putInt(12).putInt(0x12345678).putInt(0x7265636f).flip());
+
+        try (ChangeLog changeLog = open()) {
+            assertThat(changeLog.endOffset()).isEqualTo(100);
+            assertThat(changeLog.append(records(5, 1))).isEqualTo(120);
+            assertThat(changeLog.read(0, 100)).map(entry -> text(entry.data())).isEqualTo(texts(0, 6));
+        }
+    }
+
+    @Test
+    void reopeningStopsAtARecordWhoseChecksumDoesNotMatch() throws IOException {
+        try (ChangeLog changeLog = open()) {
+            changeLog.append(records(0, 5));
+        }
+        write(segment(60), RECORD_BYTES + 8, ByteBuffer.wrap(new byte[]{'X'}));
+
+        try (ChangeLog changeLog = open()) {
+            assertThat(changeLog.endOffset()).isEqualTo(80);
+            assertThat(changeLog.read(0, 100)).map(entry -> text(entry.data())).isEqualTo(texts(0, 4));
+        }
+    }
+
+    @Test
+    void cursorsSurviveAReopen() throws IOException {
+        try (ChangeLog changeLog = open()) {
+            changeLog.append(records(0, 5));
+            changeLog.commit("search", 40);
+            changeLog.commit("mailer", 100);
+        }
+
+        try (ChangeLog changeLog = open()) {
+            assertThat(changeLog.cursors()).isEqualTo(Map.of("mailer", 100L, "search", 40L));
+            assertThat(changeLog.cursor("new")).isZero();
+        }
+    }
+
+    @Test
+    void commitAcceptsOnlyOffsetsWhereARecordStarts() throws IOException {
+        try (ChangeLog changeLog = open()) {
+            changeLog.append(records(0, 5));
+
+            for (long offset : new long[]{-1, 1, 30, 61, 99, 101}) {
+                assertThatThrownBy(() -> changeLog.commit("search", offset))
+                        .isInstanceOf(IllegalArgumentException.class)
+                        .hasMessageContaining("Offset " + offset);
+            }
+            assertThat(changeLog.cursors()).isEmpty();
+
+            for (long offset : new long[]{0, 40, 60, 80, 100}) {
+                changeLog.commit("search", offset);
+                assertThat(changeLog.cursor("search")).isEqualTo(offset);
+            }
+        }
+    }
+
+    @Test
+    void retentionBySizeDeletesTheOldestSegmentsButNeverTheOneBeingWritten() throws IOException {
+        try (ChangeLog changeLog = open()) {
+            changeLog.append(records(0, 7));
+            changeLog.commit("behind", 20);
+
+            assertThat(changeLog.applyRetention(Duration.ofDays(1), 80)).isEqualTo(1);
+            assertThat(changeLog.startOffset()).isEqualTo(60);
+            assertThat(changeLog.applyRetention(Duration.ofDays(1), 0)).isEqualTo(1);
+            assertThat(changeLog.startOffset()).isEqualTo(120);
+
+            assertThat(segmentFiles()).containsExactly(segment(120));
+            assertThat(changeLog.read(0, 100)).map(entry -> text(entry.data())).isEqualTo(texts(6, 1));
+            assertThat(changeLog.cursor("behind")).isEqualTo(120);
+            assertThat(changeLog.cursor("new")).isEqualTo(120);
+            // A consumer that read what retention has since removed can still commit its position
+            changeLog.commit("behind", 40);
+        }
+    }
+
+    @Test
+    void retentionByAgeGoesByWhenEachSegmentWasSealed() throws IOException {
+        try (ChangeLog changeLog = open()) {
+            changeLog.append(records(0, 7));
+            assertThat(changeLog.applyRetention(Duration.ofDays(1), Long.MAX_VALUE)).isZero();
+        }
+        Files.setLastModifiedTime(segment(0), FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+
+        try (ChangeLog changeLog = open()) {
+            assertThat(changeLog.applyRetention(Duration.ofDays(1), Long.MAX_VALUE)).isEqualTo(1);
+            assertThat(changeLog.startOffset()).isEqualTo(60);
+        }
+    }
+
+    @Test
+    void concurrentAppendsCommitsAndRetentionKeepEveryRecordWhole() throws Exception {
+        try (ChangeLog changeLog = new ChangeLog(directory, 64 * RECORD_BYTES, false)) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> appenders = new ArrayList<>();
+                for (int writer = 0; writer < 2; writer++) {
+                    appenders.add(executor.submit(() -> {
+                        for (int batch = 0; batch < 200; batch++) {
+                            changeLog.append(records(0, 3));
+                        }
+                    }));
+                }
+                Future<?> committer = executor.submit(() -> {
+                    while (!appenders.stream().allMatch(Future::isDone)) {
+                        changeLog.commit("search", changeLog.endOffset());
+                    }
+                });
+                Future<?> retention = executor.submit(() -> {
+                    while (!appenders.stream().allMatch(Future::isDone)) {
+                        changeLog.applyRetention(Duration.ofDays(1), 16 * RECORD_BYTES * 64L);
+                    }
+                });
+                for (Future<?> task : List.of(appenders.get(0), appenders.get(1), committer, retention)) {
+                    task.get(30, TimeUnit.SECONDS);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            assertThat(changeLog.endOffset()).isEqualTo(2 * 200 * 3 * RECORD_BYTES);
+            List<ChangeLog.Entry> kept = changeLog.read(0, Integer.MAX_VALUE);
+            assertThat(kept).isNotEmpty().allSatisfy(entry -> assertThat(text(entry.data())).startsWith("record-0000"));
+            assertThat(kept.get(kept.size() - 1).nextOffset()).isEqualTo(changeLog.endOffset());
+            assertThat(changeLog.cursor("search")).isLessThanOrEqualTo(changeLog.endOffset());
+        }
+    }
+
+    private ChangeLog open() throws IOException {
+        return new ChangeLog(directory, SEGMENT_BYTES, true);
+    }
+
+    private Path segment(long baseOffset) {
+        return directory.resolve("%020d.log".formatted(baseOffset));
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static void write(Path file, long position, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+    }
+
+    private static List<byte[]> records(int first, int count) {
+        return texts(first, count).stream().map(text -> text.getBytes(StandardCharsets.UTF_8)).toList();
+    }
+
+    private static List<String> texts(int first, int count) {
+        return IntStream.range(first, first + count).mapToObj("record-%05d"::formatted).toList();
+    }
+
+    private static String text(byte[] data) {
+        return new String(data, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,174 @@
+package hr.abysalto.hiring.mid.domain.outbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.domain.event.CartChangedEvent;
+import hr.abysalto.hiring.mid.domain.event.FavoritesChangedEvent;
+import hr.abysalto.hiring.mid.dto.response.CartDeltaResponse;
+import hr.abysalto.hiring.mid.dto.response.FavoritesDeltaResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs a writer and relay of its own on a database of its own, with the application's outbox off, so that nothing
+ * else takes rows from {@code outbox_events}.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox-relay-test;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE",
+        "outbox.enabled=false"
+})
+class OutboxRelayTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private DummyJsonClient dummyJsonClient;
+
+    @TempDir
+    private Path directory;
+
+    private ChangeLog changeLog;
+    private OutboxWriter writer;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        changeLog = new ChangeLog(directory, 64 * 1024, false);
+        writer = new OutboxWriter(jdbcTemplate, objectMapper);
+        relay = new OutboxRelay(jdbcTemplate, changeLog, objectMapper, 10, 2, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        relay.stop();
+        changeLog.close();
+    }
+
+    @Test
+    void relaysCommittedChangesInOrderAndEmptiesTheOutbox() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            cartChanged(7L, 3);
+            favoritesChanged(7L, FavoritesDeltaResponse.builder().addedProductIds(List.of(1L)).build());
+        });
+        // A change whose transaction rolls back never reaches the outbox, so it is never relayed
+        assertThatThrownBy(() -> transaction.executeWithoutResult(status -> {
+            favoritesChanged(8L, FavoritesDeltaResponse.builder().addedProductIds(List.of(2L)).build());
+            throw new IllegalStateException("favorite insert failed");
+        })).hasMessage("favorite insert failed");
+        transaction.executeWithoutResult(status ->
+                favoritesChanged(7L, FavoritesDeltaResponse.builder().removedProductIds(List.of(1L)).build()));
+
+        relay.start();
+
+        // More events than one batch, so the relay keeps going until the outbox is empty
+        await(() -> changeLog.read(0, 100).size() == 3);
+        List<JsonNode> events = events();
+        assertThat(events).map(event -> event.get("type").asText()).containsExactly("cart", "favorites", "favorites");
+        assertThat(events).map(event -> event.get("userId").asLong()).containsOnly(7L);
+        assertThat(events).map(event -> event.get("id").asLong()).isSorted().doesNotHaveDuplicates();
+        assertThat(events.get(0).get("change").get("totalQuantity").asInt()).isEqualTo(3);
+        assertThat(events.get(2).get("change").get("removedProductIds").get(0).asLong()).isEqualTo(1L);
+        await(() -> outboxSize() == 0);
+    }
+
+    @Test
+    void startDropsEventsTheLogAlreadyHas() throws Exception {
+        cartChanged(9L, 1);
+        cartChanged(9L, 2);
+        List<Long> ids = jdbcTemplate.queryForList("SELECT event_id FROM outbox_events ORDER BY event_id", Long.class);
+        // As a relay that crashed after appending the first event but before deleting it would have left it
+        changeLog.append(List.of(objectMapper.writeValueAsBytes(
+                new OutboxRelay.ChangeEvent(ids.get(0), OutboxWriter.CART, 9L, Instant.now(), "{\"totalQuantity\":1}"))));
+
+        relay.start();
+
+        await(() -> outboxSize() == 0);
+        assertThat(events()).map(event -> event.get("id").asLong()).containsExactlyElementsOf(ids);
+        assertThat(events()).map(event -> event.get("change").get("totalQuantity").asInt()).containsExactly(1, 2);
+    }
+
+    @Test
+    void retentionDeletesSegmentsPastTheConfiguredSize() throws Exception {
+        changeLog.close();
+        changeLog = new ChangeLog(directory, 256, false);
+        relay = new OutboxRelay(jdbcTemplate, changeLog, objectMapper, 10, 100, Long.MAX_VALUE, 0);
+        for (int quantity = 1; quantity <= 10; quantity++) {
+            cartChanged(5L, quantity);
+        }
+        relay.start();
+        await(() -> outboxSize() == 0);
+        assertThat(changeLog.segments()).hasSizeGreaterThan(1);
+
+        relay.applyRetention();
+
+        assertThat(changeLog.segments()).hasSize(1);
+        assertThat(changeLog.startOffset()).isPositive();
+    }
+
+    private void cartChanged(Long userId, int totalQuantity) {
+        try {
+            writer.onCartChanged(new CartChangedEvent(userId, CartDeltaResponse.builder().userId(userId).totalQuantity(totalQuantity).build()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void favoritesChanged(Long userId, FavoritesDeltaResponse change) {
+        try {
+            writer.onFavoritesChanged(new FavoritesChangedEvent(userId, change));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<JsonNode> events() {
+        return changeLog.read(0, 100).stream().map(entry -> {
+            try {
+                return objectMapper.readTree(entry.data());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).toList();
+    }
+
+    private int outboxSize() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events", Integer.class);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
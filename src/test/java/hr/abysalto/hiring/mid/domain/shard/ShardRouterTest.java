@@ -0,0 +1,247 @@
+package hr.abysalto.hiring.mid.domain.shard;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.domain.model.FavoriteProduct;
+import hr.abysalto.hiring.mid.domain.model.User;
+import hr.abysalto.hiring.mid.domain.repository.FavoriteProductRepository;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import hr.abysalto.hiring.mid.security.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs on databases of its own, so that the bucket assignment it reshards is not seen by other tests.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shard-router-test;DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE",
+        "sharding.enabled=true",
+        "sharding.shard-count=2",
+        "sharding.url-template=jdbc:h2:mem:shard-router-test-{shard};DB_CLOSE_DELAY=-1;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+})
+@AutoConfigureMockMvc
+class ShardRouterTest {
+
+    private static final String ADMIN = "shard-admin";
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private FavoriteProductRepository favorites;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private DummyJsonClient dummyJsonClient;
+
+    @BeforeEach
+    void setUp() {
+        shardRouter.reshard(2);
+        favorites.deleteAll();
+    }
+
+    @Test
+    void keepsEveryUsersRowsOnTheShardOfTheirBucket() {
+        List<Long> users = users(40);
+        users.forEach(userId -> favorites.batchInsertIgnoringExisting(userId, List.of(1L, 2L)));
+
+        assertRowsOnTheirShards(users, 2);
+        assertThat(users).allSatisfy(userId -> assertThat(favorites.findProductIdsByUserId(userId)).containsExactlyInAnyOrder(1L, 2L));
+    }
+
+    @Test
+    void combinesCallsWithoutAUserAcrossShards() {
+        Long first = userOnShard(0);
+        Long second = userOnShard(1);
+        FavoriteProduct onFirst = favorites.save(FavoriteProduct.builder().userId(first).productId(1L).build());
+        FavoriteProduct onSecond = favorites.save(FavoriteProduct.builder().userId(second).productId(2L).build());
+
+        assertThat(favorites.findAll()).extracting(FavoriteProduct::getFavoriteId)
+                .containsExactlyInAnyOrder(onFirst.getFavoriteId(), onSecond.getFavoriteId());
+        assertThat(favorites.count()).isEqualTo(2);
+        assertThat(favorites.findById(onSecond.getFavoriteId())).map(FavoriteProduct::getUserId).contains(second);
+        assertThat(favorites.findById(-1L)).isEqualTo(Optional.empty());
+        assertThat(favorites.existsById(onFirst.getFavoriteId())).isTrue();
+        assertThat(favorites.existsById(-1L)).isFalse();
+
+        favorites.deleteById(onFirst.getFavoriteId());
+        assertThat(favorites.count()).isEqualTo(1);
+        assertThat(favorites.findByUserId(first)).isEmpty();
+    }
+
+    @Test
+    void splitsASaveOfSeveralUsersByShard() {
+        Long first = userOnShard(0);
+        Long second = userOnShard(1);
+
+        favorites.saveAll(List.of(
+                FavoriteProduct.builder().userId(first).productId(1L).build(),
+                FavoriteProduct.builder().userId(second).productId(2L).build(),
+                FavoriteProduct.builder().userId(first).productId(3L).build()));
+
+        assertRowsOnTheirShards(List.of(first, second), 2);
+        assertThat(favorites.findProductIdsByUserId(first)).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(favorites.findProductIdsByUserId(second)).containsExactly(2L);
+    }
+
+    @Test
+    void rollsBackShardWritesWithTheApplicationTransaction() {
+        Long userId = userOnShard(1);
+
+        assertThatThrownBy(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            favorites.batchInsertIgnoringExisting(userId, List.of(1L, 2L));
+            throw new IllegalStateException("primary write failed");
+        })).hasMessage("primary write failed");
+
+        assertThat(favorites.findByUserId(userId)).isEmpty();
+    }
+
+    @Test
+    void reshardingMovesRowsAndKeepsTheirIds() {
+        List<Long> users = users(60);
+        users.forEach(userId -> favorites.batchInsertIgnoringExisting(userId, List.of(1L, 2L, 3L)));
+        Map<Long, List<Long>> idsBefore = favoriteIdsByUser(users);
+
+        List<ShardRouter.ShardStatus> status = shardRouter.reshard(4);
+
+        assertThat(status).extracting(ShardRouter.ShardStatus::buckets).containsExactly(256, 256, 256, 256);
+        assertThat(status.stream().mapToLong(shard -> shard.rows().get("favorite_products")).sum()).isEqualTo(users.size() * 3L);
+        assertRowsOnTheirShards(users, 4);
+        assertThat(favoriteIdsByUser(users)).isEqualTo(idsBefore);
+
+        // Back down: the emptied shards stay open without buckets
+        shardRouter.reshard(2);
+        assertRowsOnTheirShards(users, 2);
+        assertThat(favoriteIdsByUser(users)).isEqualTo(idsBefore);
+        assertThat(shardRouter.status()).extracting(ShardRouter.ShardStatus::buckets).containsExactly(512, 512, 0, 0);
+    }
+
+    @Test
+    void reshardingRequiresTheAdminRole() throws Exception {
+        String user = bearer("shard-user-" + UUID.randomUUID());
+
+        mockMvc.perform(post("/actuator/shards")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"shardCount\": 4}"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/actuator/shards")
+                        .header(HttpHeaders.AUTHORIZATION, user)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"shardCount\": 4}"))
+                .andExpect(status().isForbidden());
+        assertThat(shardRouter.status()).extracting(ShardRouter.ShardStatus::buckets).startsWith(512, 512);
+
+        mockMvc.perform(post("/actuator/shards")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(ADMIN))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"shardCount\": 4}"))
+                .andExpect(status().isOk());
+        assertThat(shardRouter.status()).extracting(ShardRouter.ShardStatus::buckets).containsExactly(256, 256, 256, 256);
+    }
+
+    @Test
+    void registeringCannotGrantTheAdminRole() throws Exception {
+        String username = "admin-" + UUID.randomUUID();
+        String response = mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of(
+                                "username", username,
+                                "email", username + "@example.com",
+                                "password", "password1",
+                                "firstName", "Not",
+                                "lastName", "Admin",
+                                "admin", true))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String accessToken = objectMapper.readTree(response).get("accessToken").asText();
+
+        assertThat(userRepository.findByUsername(username)).get().extracting(User::isAdmin).isEqualTo(false);
+        mockMvc.perform(get("/actuator/shards").header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/actuator/shards")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"shardCount\": 4}"))
+                .andExpect(status().isForbidden());
+    }
+
+    private void assertRowsOnTheirShards(List<Long> users, int shardCount) {
+        List<Map.Entry<Integer, List<Long>>> usersByShard = shardRouter.onAllShards(shard -> Map.entry(shard.index(),
+                shard.jdbcTemplate().getJdbcTemplate().queryForList("SELECT DISTINCT user_id FROM favorite_products", Long.class)));
+        for (Map.Entry<Integer, List<Long>> shard : usersByShard) {
+            assertThat(shard.getValue()).as("users on shard %d", shard.getKey())
+                    .allSatisfy(userId -> assertThat(ShardRouter.bucketOf(userId) % shardCount).isEqualTo(shard.getKey()));
+        }
+        assertThat(usersByShard.stream().mapToLong(shard -> shard.getValue().size()).sum()).isEqualTo(users.size());
+    }
+
+    private Map<Long, List<Long>> favoriteIdsByUser(List<Long> users) {
+        Map<Long, List<Long>> ids = new HashMap<>();
+        users.forEach(userId -> ids.put(userId, favorites.findByUserId(userId).stream().map(FavoriteProduct::getFavoriteId).sorted().toList()));
+        return ids;
+    }
+
+    private static List<Long> users(int count) {
+        long first = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE / 2);
+        return LongStream.range(first, first + count).boxed().toList();
+    }
+
+    private static Long userOnShard(int shard) {
+        long userId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE / 2);
+        while (ShardRouter.bucketOf(userId) % 2 != shard) {
+            userId++;
+        }
+        return userId;
+    }
+
+    private String bearer(String username) {
+        if (userRepository.findByUsername(username).isEmpty()) {
+            userRepository.save(User.builder()
+                    .username(username)
+                    .email(username + "@example.com")
+                    .password("unused")
+                    .firstName("Shard")
+                    .lastName("Test")
+                    .admin(ADMIN.equals(username))
+                    .build());
+        }
+        return "Bearer " + jwtUtil.generateAccessToken(username, Map.of());
+    }
+}
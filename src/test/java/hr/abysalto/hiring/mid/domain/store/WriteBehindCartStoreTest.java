@@ -0,0 +1,191 @@
+package hr.abysalto.hiring.mid.domain.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.domain.model.CartItem;
+import hr.abysalto.hiring.mid.domain.model.User;
+import hr.abysalto.hiring.mid.domain.repository.CartItemRepository;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Runs a write-behind store of its own against the application's database, with the application on the JDBC store.
+ */
+@SpringBootTest
+class WriteBehindCartStoreTest {
+
+    private static final long MISSING_USER_ID = -1L;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private DummyJsonClient dummyJsonClient;
+
+    @TempDir
+    private Path directory;
+
+    private Path logPath;
+    private Path rejectedPath;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        logPath = directory.resolve("cart-mutations.log");
+        rejectedPath = directory.resolve("cart-mutations.log.rejected");
+        String username = "write-behind-" + UUID.randomUUID();
+        userId = userRepository.save(User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("unused")
+                .firstName("Write")
+                .lastName("Behind")
+                .build()).getUserId();
+    }
+
+    @Test
+    void replaysTheLogLeftByACrashAndSetsAsideWhatCannotBeWritten() throws Exception {
+        long firstId = nextFreeId();
+        try (CartMutationLog crashed = new CartMutationLog(logPath, objectMapper)) {
+            crashed.append(CartMutation.upsert(line(firstId, userId, 1L, 2)));
+            crashed.append(CartMutation.upsert(line(firstId + 1, MISSING_USER_ID, 1L, 1)));
+            crashed.append(CartMutation.upsert(line(firstId + 2, userId, 2L, 1)));
+            crashed.append(CartMutation.upsert(line(firstId, userId, 1L, 5)));
+            crashed.append(CartMutation.delete(userId, firstId + 2));
+        }
+
+        WriteBehindCartStore store = newStore();
+        store.start();
+        try {
+            List<CartItem> persisted = cartItemRepository.findByUserId(userId);
+            assertThat(persisted).extracting(CartItem::getCartItemId, CartItem::getQuantity)
+                    .containsExactly(tuple(firstId, 5));
+            assertThat(Files.size(logPath)).isZero();
+            assertThat(rejected())
+                    .extracting(CartMutation::userId)
+                    .containsExactly(MISSING_USER_ID);
+
+            // New lines are numbered past the replayed ones
+            store.addQuantity(line(null, userId, 3L, 1));
+            assertThat(store.findByUserId(userId)).extracting(CartItem::getCartItemId).allMatch(id -> id >= firstId);
+        } finally {
+            store.stop();
+        }
+        assertThat(cartItemRepository.findByUserId(userId)).hasSize(2);
+    }
+
+    @Test
+    void cartIsReloadedWhenTheDatabaseRejectsItsChange() throws Exception {
+        WriteBehindCartStore store = newStore();
+        store.start();
+        try {
+            store.addQuantity(line(null, userId, 1L, 2));
+            assertThat(store.findByUserId(userId)).hasSize(1);
+            userRepository.deleteById(userId);
+        } finally {
+            store.stop();
+        }
+
+        assertThat(Files.size(logPath)).isZero();
+        assertThat(rejected())
+                .extracting(CartMutation::userId)
+                .containsExactly(userId);
+        assertThat(store.findByUserId(userId)).isEmpty();
+    }
+
+    @Test
+    void checkoutRemovalIsUndoneWhenTheOrderRollsBack() throws Exception {
+        WriteBehindCartStore store = newStore();
+        store.start();
+        try {
+            store.addQuantity(line(null, userId, 1L, 3));
+            store.addQuantity(line(null, userId, 2L, 1));
+            List<CartItem> cart = store.findByUserId(userId);
+            List<CartItem> ordered = cart.stream()
+                    .map(item -> line(item.getCartItemId(), userId, item.getProductId(), item.getProductId() == 1L ? 2 : 1))
+                    .toList();
+
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+                store.removeQuantities(userId, ordered);
+                assertThat(store.findByUserId(userId)).extracting(CartItem::getProductId, CartItem::getQuantity)
+                        .containsExactly(tuple(1L, 1));
+                throw new IllegalStateException("order failed");
+            })).hasMessage("order failed");
+
+            assertThat(store.findByUserId(userId))
+                    .extracting(CartItem::getCartItemId, CartItem::getProductId, CartItem::getQuantity)
+                    .containsExactlyInAnyOrderElementsOf(cart.stream()
+                            .map(item -> tuple(item.getCartItemId(), item.getProductId(), item.getQuantity()))
+                            .toList());
+
+            transactionTemplate.executeWithoutResult(status -> store.removeQuantities(userId, ordered));
+            assertThat(store.findByUserId(userId)).extracting(CartItem::getProductId, CartItem::getQuantity)
+                    .containsExactly(tuple(1L, 1));
+        } finally {
+            store.stop();
+        }
+        assertThat(cartItemRepository.findByUserId(userId)).extracting(CartItem::getProductId, CartItem::getQuantity)
+                .containsExactly(tuple(1L, 1));
+    }
+
+    private WriteBehindCartStore newStore() {
+        return new WriteBehindCartStore(cartItemRepository, jdbcTemplate, objectMapper, transactionManager,
+                logPath.toString(), 60_000, 1000, 600_000);
+    }
+
+    private List<CartMutation> rejected() throws IOException {
+        try (CartMutationLog rejectedLog = new CartMutationLog(rejectedPath, objectMapper)) {
+            return rejectedLog.readAll();
+        }
+    }
+
+    private long nextFreeId() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(cart_item_id), 0) FROM cart_items", Long.class) + 1000;
+    }
+
+    private static CartItem line(Long cartItemId, Long userId, Long productId, int quantity) {
+        return CartItem.builder()
+                .cartItemId(cartItemId)
+                .userId(userId)
+                .productId(productId)
+                .quantity(quantity)
+                .addedAt(LocalDateTime.now())
+                .title("Product " + productId)
+                .priceCents(100L)
+                .discountBasisPoints(0)
+                .catalogVersion(1L)
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+package hr.abysalto.hiring.mid.jfr;
+
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlightRecorderEndpointTest {
+
+    private final FlightRecorderEndpoint endpoint = new FlightRecorderEndpoint(3_600_000, 16);
+    private final List<Long> started = new ArrayList<>();
+
+    @AfterEach
+    void discardRecordings() {
+        started.forEach(endpoint::discard);
+    }
+
+    @Test
+    void rejectsDurationsThatAreNotPositiveAndUnknownSettings() throws Exception {
+        assertThat(endpoint.start(null, 0L).getStatus()).isEqualTo(WebEndpointResponse.STATUS_BAD_REQUEST);
+        assertThat(endpoint.start(null, -5L).getStatus()).isEqualTo(WebEndpointResponse.STATUS_BAD_REQUEST);
+        assertThat(endpoint.start("no-such-settings", null).getStatus()).isEqualTo(WebEndpointResponse.STATUS_BAD_REQUEST);
+        assertThat(endpoint.recordings()).noneMatch(recording -> recording.name().startsWith("actuator-"));
+    }
+
+    @Test
+    void startsWithTheConfiguredLimitsAndStops() throws Exception {
+        FlightRecorderEndpoint.RecordingInfo recording = start("default", 600L);
+
+        assertThat(recording.name()).isEqualTo("actuator-default");
+        assertThat(recording.state()).isEqualTo(RecordingState.RUNNING);
+        assertThat(recording.duration()).isEqualTo(Duration.ofMinutes(10));
+        assertThat(recording.maxAge()).isEqualTo(Duration.ofHours(1));
+        assertThat(recording.maxSizeBytes()).isEqualTo(16L * 1024 * 1024);
+        assertThat(endpoint.recordings()).extracting(FlightRecorderEndpoint.RecordingInfo::id).contains(recording.id());
+
+        assertThat(endpoint.stop(recording.id(), "pause").getStatus()).isEqualTo(WebEndpointResponse.STATUS_BAD_REQUEST);
+        WebEndpointResponse<FlightRecorderEndpoint.RecordingInfo> stopped = endpoint.stop(recording.id(), "stop");
+        assertThat(stopped.getBody().state()).isEqualTo(RecordingState.STOPPED);
+        // Stopping twice leaves it as it is
+        assertThat(endpoint.stop(recording.id(), "stop").getBody().state()).isEqualTo(RecordingState.STOPPED);
+        assertThat(endpoint.stop(-1, "stop").getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+
+    @Test
+    void dumpsWhatHasBeenRecordedIntoAFileDeletedOnceRead() throws Exception {
+        FlightRecorderEndpoint.RecordingInfo recording = start("default", null);
+        CacheMissEvent event = new CacheMissEvent();
+        event.cache = "product";
+        event.key = "dump-test";
+        event.loaded = true;
+        event.commit();
+
+        WebEndpointResponse<Resource> dump = endpoint.dump(recording.id());
+
+        assertThat(dump.getStatus()).isEqualTo(WebEndpointResponse.STATUS_OK);
+        Path copy = Files.createTempFile("recording-copy-", ".jfr");
+        try {
+            Path file = dump.getBody().getFile().toPath();
+            try (InputStream in = dump.getBody().getInputStream()) {
+                Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+            assertThat(file).doesNotExist();
+            List<RecordedEvent> events = RecordingFile.readAllEvents(copy);
+            assertThat(events).filteredOn(recorded -> recorded.getEventType().getName().equals("hr.abysalto.CacheMiss"))
+                    .anySatisfy(recorded -> assertThat(recorded.getString("key")).isEqualTo("dump-test"));
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+        assertThat(endpoint.dump(-1).getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+
+    @Test
+    void discardsARecording() throws Exception {
+        FlightRecorderEndpoint.RecordingInfo recording = start(null, null);
+        assertThat(recording.name()).isEqualTo("actuator-profile");
+
+        assertThat(endpoint.discard(recording.id()).getStatus()).isEqualTo(WebEndpointResponse.STATUS_NO_CONTENT);
+
+        assertThat(endpoint.recordings()).extracting(FlightRecorderEndpoint.RecordingInfo::id).doesNotContain(recording.id());
+        assertThat(endpoint.discard(recording.id()).getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+        assertThat(endpoint.dump(recording.id()).getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+
+    private FlightRecorderEndpoint.RecordingInfo start(String settings, Long durationSeconds) throws Exception {
+        WebEndpointResponse<FlightRecorderEndpoint.RecordingInfo> response = endpoint.start(settings, durationSeconds);
+        assertThat(response.getStatus()).isEqualTo(WebEndpointResponse.STATUS_OK);
+        started.add(response.getBody().id());
+        return response.getBody();
+    }
+}
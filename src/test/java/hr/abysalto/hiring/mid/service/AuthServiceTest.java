@@ -0,0 +1,85 @@
+package hr.abysalto.hiring.mid.service;
+
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.components.UserRegistrationFilter;
+import hr.abysalto.hiring.mid.domain.model.User;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import hr.abysalto.hiring.mid.dto.request.RegisterRequest;
+import hr.abysalto.hiring.mid.exception.DuplicateResourceException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class AuthServiceTest {
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserRegistrationFilter userRegistrationFilter;
+
+    @MockitoBean
+    private DummyJsonClient dummyJsonClient;
+
+    @Test
+    void registrationAddsTheUserToTheFilters() {
+        String username = "auth-" + UUID.randomUUID();
+
+        assertThat(userRegistrationFilter.mightContainUsername(username)).isFalse();
+        assertThat(authService.register(request(username, username + "@example.com")).getAccessToken()).isNotBlank();
+
+        assertThat(userRegistrationFilter.mightContainUsername(username)).isTrue();
+        assertThat(userRegistrationFilter.mightContainEmail(username + "@example.com")).isTrue();
+    }
+
+    @Test
+    void duplicatesFoundByTheFilterAreRejected() {
+        String username = "auth-" + UUID.randomUUID();
+        authService.register(request(username, username + "@example.com"));
+
+        assertThatThrownBy(() -> authService.register(request(username, "other-" + username + "@example.com")))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessageContaining("Username already exists");
+        assertThatThrownBy(() -> authService.register(request("other-" + username, username + "@example.com")))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessageContaining("Email already exists");
+    }
+
+    @Test
+    void duplicateMissedByTheFilterIsRejectedByTheUniqueConstraint() {
+        // Inserted behind the filter's back, as a concurrent registration would be
+        String username = "auth-" + UUID.randomUUID();
+        userRepository.save(User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("unused")
+                .firstName("Auth")
+                .lastName("Test")
+                .build());
+        assertThat(userRegistrationFilter.mightContainUsername(username)).isFalse();
+
+        assertThatThrownBy(() -> authService.register(request(username, username + "@example.com")))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Username or email already exists");
+    }
+
+    private static RegisterRequest request(String username, String email) {
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername(username);
+        request.setEmail(email);
+        request.setPassword("password1");
+        request.setFirstName("Auth");
+        request.setLastName("Test");
+        return request;
+    }
+}
@@ -0,0 +1,217 @@
+package hr.abysalto.hiring.mid.service;
+
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.components.CatalogVersion;
+import hr.abysalto.hiring.mid.domain.model.User;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import hr.abysalto.hiring.mid.dto.request.CartBatchRequest;
+import hr.abysalto.hiring.mid.dto.request.CartItemRequest;
+import hr.abysalto.hiring.mid.dto.response.CartDeltaResponse;
+import hr.abysalto.hiring.mid.dto.response.CartItemResponse;
+import hr.abysalto.hiring.mid.dto.response.CartResponse;
+import hr.abysalto.hiring.mid.dto.response.CursorPageResponse;
+import hr.abysalto.hiring.mid.dto.response.ProductResponse;
+import hr.abysalto.hiring.mid.exception.ExternalApiException;
+import hr.abysalto.hiring.mid.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class CartServiceTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private DummyJsonClient dummyJsonClient;
+
+    private String username;
+
+    @BeforeEach
+    void createUser() {
+        username = "cart-" + UUID.randomUUID();
+        userRepository.save(User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("unused")
+                .firstName("Cart")
+                .lastName("Test")
+                .build());
+        when(dummyJsonClient.getProductById(1L)).thenReturn(product(1L, 9.99, 12.5));
+        when(dummyJsonClient.getProductById(2L)).thenReturn(product(2L, 3.35, 0));
+    }
+
+    @Test
+    void deltaTotalsMatchTheFullCartWithoutRefreshingStaleSnapshots() {
+        cartService.addToCart(line(1L, 3), username);
+        catalogVersion.advance();
+
+        CartDeltaResponse delta = cartService.addToCartDelta(line(2L, 2), username);
+
+        verify(dummyJsonClient, never()).getProductsByIdsAsync(any());
+        assertThat(delta.getItem().getProductId()).isEqualTo(2L);
+        assertThat(delta.getItem().getQuantity()).isEqualTo(2);
+
+        when(dummyJsonClient.getProductsByIdsAsync(any()))
+                .thenReturn(Mono.just(Map.of(1L, product(1L, 9.99, 12.5), 2L, product(2L, 3.35, 0))));
+        CartResponse cart = cartService.getCart(username);
+        assertThat(delta.getTotalProducts()).isEqualTo(cart.getTotalProducts()).isEqualTo(2);
+        assertThat(delta.getTotalQuantity()).isEqualTo(cart.getTotalQuantity()).isEqualTo(5);
+        assertThat(delta.getTotalPrice()).isEqualTo(cart.getTotalPrice()).isEqualTo(36.67);
+        assertThat(delta.getTotalDiscountedPrice()).isEqualTo(cart.getTotalDiscountedPrice()).isEqualTo(32.92);
+    }
+
+    @Test
+    void deltaOfARemovalCarriesTheRemainingTotals() {
+        CartResponse cart = cartService.addToCart(line(1L, 1), username);
+        cartService.addToCart(line(2L, 4), username);
+
+        CartDeltaResponse delta = cartService.removeFromCartDelta(cart.getItems().get(0).getCartItemId(), username);
+
+        assertThat(delta.getItem()).isNull();
+        assertThat(delta.getRemovedCartItemId()).isEqualTo(cart.getItems().get(0).getCartItemId());
+        assertThat(delta.getTotalProducts()).isEqualTo(1);
+        assertThat(delta.getTotalQuantity()).isEqualTo(4);
+        assertThat(delta.getTotalPrice()).isEqualTo(13.40);
+    }
+
+    @Test
+    void quantityUpdateChangesOnlyTheAddressedLine() {
+        cartService.addToCart(line(1L, 1), username);
+        Long cartItemId = cartService.addToCart(line(2L, 1), username).getItems().stream()
+                .filter(item -> item.getProductId().equals(2L))
+                .findFirst()
+                .orElseThrow()
+                .getCartItemId();
+
+        CartDeltaResponse delta = cartService.updateCartItemQuantityDelta(cartItemId, 3, username);
+
+        assertThat(delta.getItem().getCartItemId()).isEqualTo(cartItemId);
+        assertThat(delta.getItem().getQuantity()).isEqualTo(3);
+        assertThat(delta.getTotalQuantity()).isEqualTo(4);
+        assertThatThrownBy(() -> cartService.updateCartItemQuantityDelta(cartItemId + 1_000_000, 2, username))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void staleCartIsServedFromItsSnapshotsWhileDummyJsonIsUnavailable() {
+        cartService.addToCart(line(1L, 2), username);
+        catalogVersion.advance();
+        when(dummyJsonClient.getProductsByIdsAsync(any()))
+                .thenReturn(Mono.error(new ExternalApiException("DummyJSON API unreachable: Connection refused")));
+
+        CartResponse cart = cartService.getCart(username);
+
+        assertThat(cart.getItems()).singleElement().satisfies(item -> {
+            assertThat(item.getProductId()).isEqualTo(1L);
+            assertThat(item.getPrice()).isEqualTo(9.99);
+        });
+        assertThat(cart.getTotalPrice()).isEqualTo(19.98);
+    }
+
+    @Test
+    void batchAddMergesRepeatedProductsIntoExistingLines() {
+        cartService.addToCart(line(1L, 1), username);
+        when(dummyJsonClient.getProductsByIds(any()))
+                .thenReturn(Map.of(1L, product(1L, 9.99, 12.5), 2L, product(2L, 3.35, 0)));
+        CartBatchRequest request = new CartBatchRequest(List.of(line(1L, 2), line(2L, 1), line(2L, 3)));
+
+        CartResponse cart = cartService.addItemsToCart(request, username);
+
+        assertThat(cart.getItems()).extracting(CartItemResponse::getProductId, CartItemResponse::getQuantity)
+                .containsExactlyInAnyOrder(tuple(1L, 3), tuple(2L, 4));
+        assertThat(cart.getTotalQuantity()).isEqualTo(7);
+    }
+
+    @Test
+    void batchAddWithAnUnknownProductChangesNothing() {
+        cartService.addToCart(line(1L, 1), username);
+        when(dummyJsonClient.getProductsByIds(any())).thenReturn(Map.of(1L, product(1L, 9.99, 12.5)));
+        CartBatchRequest request = new CartBatchRequest(List.of(line(1L, 2), line(404L, 1)));
+
+        assertThatThrownBy(() -> cartService.addItemsToCart(request, username))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("404");
+        assertThat(cartService.getCart(username).getItems()).singleElement()
+                .extracting(CartItemResponse::getQuantity).isEqualTo(1);
+    }
+
+    @Test
+    void cartPagesVisitEveryLineOnceAcrossEqualTimestampsAndLaterAdditions() {
+        for (long productId = 1; productId <= 5; productId++) {
+            when(dummyJsonClient.getProductById(productId)).thenReturn(product(productId, 1.0, 0));
+            cartService.addToCart(line(productId, 1), username);
+        }
+        Long userId = userRepository.findByUsername(username).orElseThrow().getUserId();
+        jdbcTemplate.update("UPDATE cart_items SET added_at = ? WHERE user_id = ?",
+                LocalDateTime.of(2026, 1, 1, 0, 0), userId);
+        List<Long> expected = cartService.getCart(username).getItems().stream()
+                .map(CartItemResponse::getCartItemId)
+                .sorted(Comparator.reverseOrder())
+                .toList();
+
+        CursorPageResponse<CartItemResponse> first = cartService.getCartItemsPage(username, null, 2);
+        // Newer than every position the cursor points past, so later pages must not show it
+        when(dummyJsonClient.getProductById(6L)).thenReturn(product(6L, 1.0, 0));
+        cartService.addToCart(line(6L, 1), username);
+
+        List<Long> seen = new ArrayList<>();
+        first.getItems().forEach(item -> seen.add(item.getCartItemId()));
+        String cursor = first.getNextCursor();
+        while (cursor != null) {
+            CursorPageResponse<CartItemResponse> page = cartService.getCartItemsPage(username, cursor, 2);
+            page.getItems().forEach(item -> seen.add(item.getCartItemId()));
+            cursor = page.getNextCursor();
+        }
+
+        assertThat(seen).containsExactlyElementsOf(expected);
+        assertThatThrownBy(() -> cartService.getCartItemsPage(username, "garbage", 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static CartItemRequest line(Long productId, int quantity) {
+        CartItemRequest request = new CartItemRequest();
+        request.setProductId(productId);
+        request.setQuantity(quantity);
+        return request;
+    }
+
+    private static ProductResponse product(Long id, double price, double discountPercentage) {
+        return ProductResponse.builder()
+                .id(id)
+                .title("Product " + id)
+                .price(price)
+                .discountPercentage(discountPercentage)
+                .stock(100)
+                .build();
+    }
+}
@@ -0,0 +1,143 @@
+package hr.abysalto.hiring.mid.service;
+
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.components.CatalogVersion;
+import hr.abysalto.hiring.mid.components.StockReservationEngine;
+import hr.abysalto.hiring.mid.domain.model.CartItem;
+import hr.abysalto.hiring.mid.domain.model.User;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import hr.abysalto.hiring.mid.domain.store.CartStore;
+import hr.abysalto.hiring.mid.dto.request.CartItemRequest;
+import hr.abysalto.hiring.mid.dto.response.OrderResponse;
+import hr.abysalto.hiring.mid.dto.response.ProductResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class OrderServiceTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private StockReservationEngine stockReservations;
+
+    @MockitoBean
+    private DummyJsonClient dummyJsonClient;
+
+    private String username;
+    private Long userId;
+
+    @BeforeEach
+    void createUserWithCart() {
+        username = "order-" + UUID.randomUUID();
+        userId = userRepository.save(User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("unused")
+                .firstName("Order")
+                .lastName("Test")
+                .build()).getUserId();
+        when(dummyJsonClient.getProductById(1L)).thenReturn(product(1L));
+        when(dummyJsonClient.getProductById(2L)).thenReturn(product(2L));
+
+        CartItemRequest request = new CartItemRequest();
+        request.setProductId(1L);
+        request.setQuantity(2);
+        cartService.addToCart(request, username);
+    }
+
+    @Test
+    void concurrentRetriesWithTheSameKeyReturnTheSameOrder() throws Exception {
+        // Both attempts re-price the stale cart after finding no order for the key, and wait for each other there
+        catalogVersion.advance();
+        CyclicBarrier bothPastTheKeyCheck = new CyclicBarrier(2);
+        when(dummyJsonClient.getProductsByIdsAsync(any())).thenAnswer(invocation -> {
+            bothPastTheKeyCheck.await(10, TimeUnit.SECONDS);
+            return Mono.just(Map.of(1L, product(1L)));
+        });
+
+        long availableBefore = stockReservations.getAvailable(1L);
+        String key = UUID.randomUUID().toString();
+        CompletableFuture<OrderResponse> first = CompletableFuture.supplyAsync(() -> orderService.checkout(username, key));
+        CompletableFuture<OrderResponse> second = CompletableFuture.supplyAsync(() -> orderService.checkout(username, key));
+
+        OrderResponse firstOrder = first.get(30, TimeUnit.SECONDS);
+        OrderResponse secondOrder = second.get(30, TimeUnit.SECONDS);
+        assertThat(secondOrder.getOrderId()).isEqualTo(firstOrder.getOrderId());
+        assertThat(secondOrder.getTotalQuantity()).isEqualTo(2);
+        assertThat(orderService.getOrders(username)).hasSize(1);
+        // The cart's hold became the one order's stock; the losing attempt neither took nor freed any
+        assertThat(stockReservations.getAvailable(1L)).isEqualTo(availableBefore);
+    }
+
+    @Test
+    void checkoutLeavesLinesAddedAfterTheCartWasRead() {
+        // Another request adds to the cart between checkout reading it and clearing it
+        catalogVersion.advance();
+        when(dummyJsonClient.getProductsByIdsAsync(any())).thenAnswer(invocation -> {
+            CompletableFuture.runAsync(() -> {
+                cartStore.addQuantity(line(1L, 3));
+                cartStore.addQuantity(line(2L, 1));
+            }).get(10, TimeUnit.SECONDS);
+            return Mono.just(Map.of(1L, product(1L)));
+        });
+
+        OrderResponse order = orderService.checkout(username, null);
+
+        assertThat(order.getTotalQuantity()).isEqualTo(2);
+        assertThat(cartStore.findByUserId(userId))
+                .extracting(CartItem::getProductId, CartItem::getQuantity)
+                .containsExactlyInAnyOrder(tuple(1L, 3), tuple(2L, 1));
+    }
+
+    private CartItem line(Long productId, int quantity) {
+        return CartItem.builder()
+                .userId(userId)
+                .productId(productId)
+                .quantity(quantity)
+                .addedAt(LocalDateTime.now())
+                .title("Product " + productId)
+                .priceCents(500L)
+                .discountBasisPoints(0)
+                .catalogVersion(catalogVersion.current())
+                .build();
+    }
+
+    private static ProductResponse product(Long id) {
+        return ProductResponse.builder()
+                .id(id)
+                .title("Product " + id)
+                .price(5.00)
+                .stock(100)
+                .build();
+    }
+}
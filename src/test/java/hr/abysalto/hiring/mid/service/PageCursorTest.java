@@ -0,0 +1,56 @@
+package hr.abysalto.hiring.mid.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageCursorTest {
+
+    @Test
+    void tokenRoundTripsThePosition() {
+        PageCursor cursor = new PageCursor(LocalDateTime.of(2026, 3, 1, 12, 30, 15, 123_456_789), 42L);
+
+        String token = cursor.encode();
+
+        assertThat(token).doesNotContain("=", "+", "/");
+        assertThat(PageCursor.decode(token)).isEqualTo(cursor);
+    }
+
+    @Test
+    void missingTokenMeansTheFirstPage() {
+        assertThat(PageCursor.decode(null)).isNull();
+        assertThat(PageCursor.decode(" ")).isNull();
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertThatThrownBy(() -> PageCursor.decode("not base64!"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid page cursor");
+        assertThatThrownBy(() -> PageCursor.decode(encode("2026-03-01T12:30")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid page cursor");
+        assertThatThrownBy(() -> PageCursor.decode(encode("yesterday|42")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid page cursor");
+        assertThatThrownBy(() -> PageCursor.decode(encode("2026-03-01T12:30|x")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid page cursor");
+    }
+
+    @Test
+    void limitIsClamped() {
+        assertThat(PageCursor.clampLimit(0)).isEqualTo(1);
+        assertThat(PageCursor.clampLimit(20)).isEqualTo(20);
+        assertThat(PageCursor.clampLimit(10_000)).isEqualTo(PageCursor.MAX_LIMIT);
+    }
+
+    private static String encode(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+}
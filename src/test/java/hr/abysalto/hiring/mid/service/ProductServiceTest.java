@@ -0,0 +1,157 @@
+package hr.abysalto.hiring.mid.service;
+
+import hr.abysalto.hiring.mid.client.DummyJsonClient;
+import hr.abysalto.hiring.mid.domain.model.User;
+import hr.abysalto.hiring.mid.domain.repository.UserRepository;
+import hr.abysalto.hiring.mid.dto.request.FavoriteBatchRequest;
+import hr.abysalto.hiring.mid.dto.response.CursorPageResponse;
+import hr.abysalto.hiring.mid.dto.response.PaginatedProductResponse;
+import hr.abysalto.hiring.mid.dto.response.ProductResponse;
+import hr.abysalto.hiring.mid.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class ProductServiceTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @MockitoBean
+    private DummyJsonClient dummyJsonClient;
+
+    private String username;
+
+    @BeforeEach
+    void createUser() {
+        username = "favorites-" + UUID.randomUUID();
+        userRepository.save(User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("unused")
+                .firstName("Favorites")
+                .lastName("Test")
+                .build());
+        when(dummyJsonClient.getProductsByIds(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().collect(Collectors.toMap(Function.identity(), ProductServiceTest::product));
+        });
+    }
+
+    @Test
+    void favoritesPagesVisitEveryFavoriteOnceAcrossEqualTimestamps() {
+        // One batch insert, so every row shares the same added_at and only the id breaks the tie
+        FavoriteBatchRequest request = new FavoriteBatchRequest();
+        request.setProductIds(LongStream.rangeClosed(1, 7).boxed().toList());
+        productService.addAllToFavorites(request, username);
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPageResponse<ProductResponse> page = productService.getFavoritesPage(username, cursor, 3);
+            assertThat(page.getItems()).allMatch(ProductResponse::isFavorited);
+            page.getItems().forEach(product -> seen.add(product.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).containsExactly(7L, 6L, 5L, 4L, 3L, 2L, 1L);
+    }
+
+    @Test
+    void lastFullPageHasNoCursor() {
+        FavoriteBatchRequest request = new FavoriteBatchRequest();
+        request.setProductIds(List.of(1L, 2L));
+        productService.addAllToFavorites(request, username);
+
+        CursorPageResponse<ProductResponse> page = productService.getFavoritesPage(username, null, 2);
+
+        assertThat(page.getItems()).hasSize(2);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void batchFavoritesSkipProductsAlreadyFavorited() {
+        FavoriteBatchRequest first = new FavoriteBatchRequest();
+        first.setProductIds(List.of(1L, 2L));
+        productService.addAllToFavorites(first, username);
+        FavoriteBatchRequest second = new FavoriteBatchRequest();
+        second.setProductIds(List.of(2L, 3L, 3L));
+
+        List<ProductResponse> added = productService.addAllToFavorites(second, username);
+
+        assertThat(added).extracting(ProductResponse::getId).containsExactly(2L, 3L);
+        assertThat(productService.getFavorites(username)).extracting(ProductResponse::getId)
+                .containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
+    @Test
+    void batchFavoritesWithAnUnknownProductChangeNothing() {
+        doReturn(Map.of(1L, product(1L))).when(dummyJsonClient).getProductsByIds(any());
+        FavoriteBatchRequest request = new FavoriteBatchRequest();
+        request.setProductIds(List.of(1L, 404L));
+
+        assertThatThrownBy(() -> productService.addAllToFavorites(request, username))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("404");
+        assertThat(productService.getFavorites(username)).isEmpty();
+    }
+
+    @Test
+    void servletModeMarksFavoritesWithoutAJdbcScheduler() {
+        FavoriteBatchRequest request = new FavoriteBatchRequest();
+        request.setProductIds(List.of(2L));
+        productService.addAllToFavorites(request, username);
+        when(dummyJsonClient.getProductsAsync(2, 0, null, null)).thenReturn(Mono.just(PaginatedProductResponse.builder()
+                .products(List.of(product(1L), product(2L)))
+                .total(2)
+                .limit(2)
+                .build()));
+
+        PaginatedProductResponse response = productService.getProducts(2, 0, null, null, username);
+
+        assertThat(applicationContext.getBeansOfType(Scheduler.class)).isEmpty();
+        assertThat(response.getProducts()).extracting(ProductResponse::getId, ProductResponse::isFavorited)
+                .containsExactly(tuple(1L, false), tuple(2L, true));
+    }
+
+    private static ProductResponse product(Long id) {
+        return ProductResponse.builder()
+                .id(id)
+                .title("Product " + id)
+                .price(1.0)
+                .discountPercentage(0.0)
+                .stock(100)
+                .build();
+    }
+}